@@ -77,9 +77,14 @@ open class LookupStorage(targetDataDir: File) : BasicMapsOwner(targetDataDir) {
 
         for ((lookupSymbol, paths) in lookups) {
             val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
-            val fileIds = paths.mapTo(HashSet<Int>()) { pathToId[it]!! }
-            fileIds.addAll(lookupMap[key] ?: emptySet())
-            lookupMap[key] = fileIds
+            val newIds = IntArray(paths.size)
+            paths.forEachIndexed { i, path -> newIds[i] = pathToId[path]!! }
+            newIds.sort()
+
+            val oldIds = lookupMap[key]
+            if (oldIds == null || !oldIds.containsAllSorted(newIds)) {
+                lookupMap[key] = mergeSorted(oldIds ?: IntArray(0), newIds)
+            }
         }
     }
 
@@ -141,12 +146,10 @@ open class LookupStorage(targetDataDir: File) : BasicMapsOwner(targetDataDir) {
     }
 
     private fun doRemoveGarbage() {
-        for (hash in lookupMap.keys) {
-            lookupMap[hash] = lookupMap[hash]!!.filter { it in idToFile }.toSet()
-        }
-
+        // Ids are allocated sequentially from 0 until size. Ids of removed files are absent from fileToId, so they stay -1 here and
+        // are dropped by the remapping below
         val oldFileToId = fileToId.toMap()
-        val oldIdToNewId = HashMap<Int, Int>(oldFileToId.size)
+        val oldIdToNewId = IntArray(size) { -1 }
         idToFile.clean()
         fileToId.clean()
         size = 0
@@ -154,21 +157,62 @@ open class LookupStorage(targetDataDir: File) : BasicMapsOwner(targetDataDir) {
 
         for ((file, oldId) in oldFileToId.entries) {
             val newId = addFileIfNeeded(file)
-            oldIdToNewId[oldId] = newId
+            if (oldId in oldIdToNewId.indices) {
+                oldIdToNewId[oldId] = newId
+            }
         }
 
         for (lookup in lookupMap.keys) {
-            val fileIds = lookupMap[lookup]!!.mapNotNull { oldIdToNewId[it] }.toSet()
+            val oldIds = lookupMap[lookup]!!
+            val newIds = IntArray(oldIds.size)
+            var count = 0
+            for (oldId in oldIds) {
+                val newId = if (oldId in oldIdToNewId.indices) oldIdToNewId[oldId] else -1
+                if (newId >= 0) {
+                    newIds[count++] = newId
+                }
+            }
 
-            if (fileIds.isEmpty()) {
+            if (count == 0) {
                 lookupMap.remove(lookup)
             }
             else {
+                val fileIds = if (count == newIds.size) newIds else newIds.copyOf(count)
+                fileIds.sort()
                 lookupMap[lookup] = fileIds
             }
         }
     }
 
+    /**
+     * Both arrays are sorted, [other] may contain duplicates.
+     */
+    private fun IntArray.containsAllSorted(other: IntArray): Boolean {
+        var i = 0
+        for (element in other) {
+            while (i < size && this[i] < element) i++
+            if (i == size || this[i] != element) return false
+        }
+        return true
+    }
+
+    /**
+     * Merges sorted arrays into a sorted array of distinct elements.
+     */
+    private fun mergeSorted(a: IntArray, b: IntArray): IntArray {
+        val result = IntArray(a.size + b.size)
+        var i = 0
+        var j = 0
+        var size = 0
+        while (i < a.size || j < b.size) {
+            val next = if (j == b.size || i < a.size && a[i] <= b[j]) a[i++] else b[j++]
+            if (size == 0 || result[size - 1] != next) {
+                result[size++] = next
+            }
+        }
+        return if (size == result.size) result else result.copyOf(size)
+    }
+
     @TestOnly fun forceGC() {
         removeGarbageIfNeeded(force = true)
         flush(false)
@@ -207,6 +251,8 @@ class LookupTrackerImpl(private val delegate: LookupTracker) : LookupTracker {
     override val requiresPosition: Boolean
         get() = delegate.requiresPosition
 
+    // Lookups may be recorded from several threads when function bodies are resolved in parallel
+    @Synchronized
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
         val internedScopeFqName = interner.intern(scopeFqName)
         val internedName = interner.intern(name)
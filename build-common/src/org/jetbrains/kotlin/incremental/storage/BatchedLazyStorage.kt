@@ -0,0 +1,442 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.IOUtil
+import com.intellij.util.io.KeyDescriptor
+import com.intellij.util.io.PersistentHashMap
+import java.io.*
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+/**
+ * Storage which keeps all changes in memory and writes them to disk in one batch on [flush], instead of updating
+ * a persistent hash map on every [set] or [append].
+ *
+ * The data file is a log of records: a key is either given a new value, or bytes are appended to its value, or it is removed.
+ * Every flush appends records only for the changed keys, followed by a commit record, so [append] never has to read the old value
+ * and unchanged values are never rewritten. When more than a half of the file is taken by records which are no longer needed,
+ * the log is compacted: live values are written to a new file next to the old one, which is then moved over it.
+ *
+ * Keys are indexed when the storage is opened, values are read on demand with positional channel reads. Records written after
+ * the last commit record are the remains of an interrupted flush, they are ignored and cut off when the storage is opened.
+ *
+ * Caches written by [PersistentHashMapLazyStorage] are moved into this storage when it is opened, and vice versa,
+ * so the storage kind may differ between builds.
+ */
+class BatchedLazyStorage<K, V>(
+        storageFile: File,
+        private val keyDescriptor: KeyDescriptor<K>,
+        private val valueExternalizer: DataExternalizer<V>
+) : LazyStorage<K, V> {
+    private class Key<K>(val key: K, private val descriptor: KeyDescriptor<K>) {
+        override fun hashCode(): Int = descriptor.getHashCode(key)
+
+        @Suppress("UNCHECKED_CAST")
+        override fun equals(other: Any?): Boolean = other is Key<*> && descriptor.isEqual(key, other.key as K)
+    }
+
+    // Position of a value (or of a part of it, if bytes were appended to the value later) and the size of the whole record
+    private class Segment(val offset: Long, val length: Int, val recordSize: Int)
+
+    // A change which is not written to disk yet: the new value (null if the key is removed) or, if not [isReplaced], appended bytes
+    private class Change(val isReplaced: Boolean, val bytes: ByteArrayOutputStream?)
+
+    private class Record<K>(val tag: Int, val key: Key<K>, val segment: Segment)
+
+    private class Log<K>(val index: LinkedHashMap<Key<K>, MutableList<Segment>>, val length: Long, val garbageSize: Long)
+
+    private val persistentHashMapFile = storageFile
+    private val dataFile = dataFile(storageFile)
+
+    private var isLoaded = false
+    private var channel: FileChannel? = null
+    private val onDisk = LinkedHashMap<Key<K>, MutableList<Segment>>()
+    private val pending = LinkedHashMap<Key<K>, Change>()
+
+    // Length of the committed part of the data file, and the size of records in it which are no longer needed
+    private var dataLength = 0L
+    private var garbageSize = 0L
+
+    override val keys: Collection<K>
+        @Synchronized get() {
+            load()
+            val result = ArrayList<K>()
+            for (key in onDisk.keys) {
+                if (pending[key]?.let { it.bytes == null } != true) result.add(key.key)
+            }
+            for ((key, change) in pending) {
+                if (key !in onDisk && change.bytes != null) result.add(key.key)
+            }
+            return result
+        }
+
+    @Synchronized
+    override fun contains(key: K): Boolean {
+        load()
+        val wrapped = Key(key, keyDescriptor)
+        val change = pending[wrapped] ?: return wrapped in onDisk
+        return change.bytes != null
+    }
+
+    @Synchronized
+    override fun get(key: K): V? {
+        val bytes = getBytes(Key(key, keyDescriptor)) ?: return null
+        return DataInputStream(ByteArrayInputStream(bytes)).use { valueExternalizer.read(it) }
+    }
+
+    @Synchronized
+    override fun set(key: K, value: V) {
+        load()
+        val stream = ByteArrayOutputStream()
+        DataOutputStream(stream).use { valueExternalizer.save(it, value) }
+        pending[Key(key, keyDescriptor)] = Change(isReplaced = true, bytes = stream)
+    }
+
+    @Synchronized
+    override fun remove(key: K) {
+        load()
+        val wrapped = Key(key, keyDescriptor)
+        if (wrapped in onDisk) {
+            pending[wrapped] = Change(isReplaced = true, bytes = null)
+        } else {
+            pending.remove(wrapped)
+        }
+    }
+
+    override fun append(key: K, value: String) {
+        append(key) { out -> IOUtil.writeUTF(out, value) }
+    }
+
+    override fun append(key: K, value: Int) {
+        append(key) { out -> out.writeInt(value) }
+    }
+
+    @Synchronized
+    override fun clean() {
+        closeChannel()
+        onDisk.clear()
+        pending.clear()
+        dataLength = 0
+        garbageSize = 0
+        isLoaded = false
+        PersistentHashMap.deleteFilesStartingWith(persistentHashMapFile)
+    }
+
+    @Synchronized
+    override fun flush(memoryCachesOnly: Boolean) {
+        // Memory caches are the point of this storage, they are only dropped when written to disk
+        if (memoryCachesOnly || pending.isEmpty()) return
+
+        // Records of a flush which has failed are not committed, they are overwritten
+        truncateUncommittedRecords()
+
+        val records = ArrayList<Record<K>>()
+        var offset = dataLength
+        DataOutputStream(BufferedOutputStream(FileOutputStream(dataFile, /* append = */ offset > 0))).use { out ->
+            if (offset == 0L) {
+                out.writeInt(MAGIC)
+                out.writeInt(VERSION)
+                offset = HEADER_SIZE
+            }
+            for ((key, change) in pending) {
+                val tag = when {
+                    change.bytes == null -> REMOVE
+                    change.isReplaced -> PUT
+                    else -> APPEND
+                }
+                val segment = writeRecord(out, tag, key.key, change.bytes?.toByteArray(), offset)
+                records.add(Record(tag, key, segment))
+                offset += segment.recordSize
+            }
+            out.writeByte(COMMIT)
+            offset++
+        }
+
+        for (record in records) {
+            garbageSize += onDisk.applyRecord(record)
+        }
+        garbageSize++
+        dataLength = offset
+        pending.clear()
+
+        if (garbageSize > COMPACTION_MIN_GARBAGE_SIZE && garbageSize * 2 > dataLength) {
+            compact()
+        }
+    }
+
+    @Synchronized
+    override fun close() {
+        flush(memoryCachesOnly = false)
+        closeChannel()
+    }
+
+    @Synchronized
+    private fun append(key: K, append: (DataOutput) -> Unit) {
+        load()
+        val wrapped = Key(key, keyDescriptor)
+        val change = pending[wrapped]
+        val stream = when {
+            change?.bytes != null -> change.bytes
+            // Bytes appended to a value on disk are written as a separate record, so the old value doesn't have to be read
+            change == null && wrapped in onDisk -> ByteArrayOutputStream().also { pending[wrapped] = Change(isReplaced = false, bytes = it) }
+            else -> ByteArrayOutputStream().also { pending[wrapped] = Change(isReplaced = true, bytes = it) }
+        }
+        DataOutputStream(stream).use(append)
+    }
+
+    private fun getBytes(key: Key<K>): ByteArray? {
+        load()
+        val change = pending[key]
+        if (change != null && change.isReplaced) return change.bytes?.toByteArray()
+
+        val segments = onDisk[key] ?: return null
+        if (change == null) return readSegments(segments)
+
+        val stream = ByteArrayOutputStream()
+        stream.write(readSegments(segments))
+        change.bytes!!.writeTo(stream)
+        return stream.toByteArray()
+    }
+
+    private fun readSegments(segments: List<Segment>): ByteArray {
+        if (segments.size == 1) return readSegment(segments.single())
+
+        val stream = ByteArrayOutputStream()
+        for (segment in segments) {
+            stream.write(readSegment(segment))
+        }
+        return stream.toByteArray()
+    }
+
+    private fun readSegment(segment: Segment): ByteArray {
+        val channel = channel ?: FileChannel.open(dataFile.toPath(), StandardOpenOption.READ).also { channel = it }
+        val buffer = ByteBuffer.allocate(segment.length)
+        var position = segment.offset
+        while (buffer.hasRemaining()) {
+            val read = channel.read(buffer, position)
+            if (read < 0) throw EOFException("Unexpected end of $dataFile")
+            position += read
+        }
+        return buffer.array()
+    }
+
+    private fun writeRecord(out: DataOutputStream, tag: Int, key: K, value: ByteArray?, offset: Long): Segment {
+        val keyBytes = ByteArrayOutputStream()
+        DataOutputStream(keyBytes).use { keyDescriptor.save(it, key) }
+        out.writeByte(tag)
+        out.writeInt(keyBytes.size())
+        keyBytes.writeTo(out)
+        var headerSize = 1 + 4 + keyBytes.size()
+        if (value != null) {
+            out.writeInt(value.size)
+            out.write(value)
+            headerSize += 4
+        }
+        val length = value?.size ?: 0
+        return Segment(offset + headerSize, length, headerSize + length)
+    }
+
+    private fun compact() {
+        val tempFile = tempFile(dataFile)
+        val newOnDisk = LinkedHashMap<Key<K>, MutableList<Segment>>()
+        var offset = HEADER_SIZE
+        DataOutputStream(BufferedOutputStream(FileOutputStream(tempFile))).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            for ((key, segments) in onDisk) {
+                val segment = writeRecord(out, PUT, key.key, readSegments(segments), offset)
+                newOnDisk[key] = arrayListOf(segment)
+                offset += segment.recordSize
+            }
+            out.writeByte(COMMIT)
+            offset++
+        }
+
+        closeChannel()
+        Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+
+        onDisk.clear()
+        onDisk.putAll(newOnDisk)
+        dataLength = offset
+        garbageSize = 1
+    }
+
+    private fun load() {
+        if (isLoaded) return
+        isLoaded = true
+
+        // Left by a compaction which was interrupted before the file was moved, the data file itself is intact then
+        tempFile(dataFile).delete()
+
+        val log = readLog(dataFile, keyDescriptor)
+        onDisk.putAll(log.index)
+        dataLength = log.length
+        garbageSize = log.garbageSize
+        truncateUncommittedRecords()
+
+        // Caches written by a build which used PersistentHashMap are moved here
+        if (persistentHashMapFile.exists()) {
+            val map = PersistentHashMap(persistentHashMapFile, keyDescriptor, valueExternalizer)
+            try {
+                for (key in map.allKeysWithExistingMapping) {
+                    set(key, map.get(key) ?: continue)
+                }
+            } finally {
+                map.close()
+            }
+            flush(memoryCachesOnly = false)
+            deletePersistentHashMapFiles(persistentHashMapFile)
+        }
+    }
+
+    private fun truncateUncommittedRecords() {
+        if (dataFile.exists() && dataFile.length() > dataLength) {
+            RandomAccessFile(dataFile, "rw").use { it.setLength(dataLength) }
+        }
+    }
+
+    private fun closeChannel() {
+        channel?.close()
+        channel = null
+    }
+
+    companion object {
+        private const val MAGIC = 0x4B494342
+        private const val VERSION = 2
+        private const val HEADER_SIZE = 8L
+        private const val DATA_FILE_SUFFIX = ".batch"
+        private const val COMPACTION_MIN_GARBAGE_SIZE = 1L shl 20
+
+        // Record tags
+        private const val PUT = 1
+        private const val APPEND = 2
+        private const val REMOVE = 3
+        private const val COMMIT = 4
+
+        private fun dataFile(storageFile: File): File = File(storageFile.path + DATA_FILE_SUFFIX)
+
+        private fun tempFile(dataFile: File): File = File(dataFile.path + ".tmp")
+
+        fun exists(storageFile: File): Boolean = dataFile(storageFile).exists()
+
+        /**
+         * Moves all entries of the batched storage with the given [storageFile] to [put] and deletes its data file.
+         */
+        fun <K, V> moveEntries(
+                storageFile: File,
+                keyDescriptor: KeyDescriptor<K>,
+                valueExternalizer: DataExternalizer<V>,
+                put: (K, V) -> Unit
+        ) {
+            val file = dataFile(storageFile)
+            if (!file.exists()) return
+
+            RandomAccessFile(file, "r").use { raf ->
+                for ((key, segments) in readLog(file, keyDescriptor).index) {
+                    val bytes = ByteArrayOutputStream()
+                    for (segment in segments) {
+                        val segmentBytes = ByteArray(segment.length)
+                        raf.seek(segment.offset)
+                        raf.readFully(segmentBytes)
+                        bytes.write(segmentBytes)
+                    }
+                    put(key.key, DataInputStream(ByteArrayInputStream(bytes.toByteArray())).use { valueExternalizer.read(it) })
+                }
+            }
+            file.delete()
+            tempFile(file).delete()
+        }
+
+        /**
+         * Applies [record] to the index of values on disk and returns the size of records which are no longer needed after that.
+         */
+        private fun <K> MutableMap<Key<K>, MutableList<Segment>>.applyRecord(record: Record<K>): Long =
+            when (record.tag) {
+                PUT -> sizeOf(put(record.key, arrayListOf(record.segment)))
+                APPEND -> {
+                    getOrPut(record.key) { ArrayList() }.add(record.segment)
+                    0L
+                }
+                else -> sizeOf(remove(record.key)) + record.segment.recordSize
+            }
+
+        private fun sizeOf(segments: List<Segment>?): Long =
+            segments?.fold(0L) { size, segment -> size + segment.recordSize } ?: 0L
+
+        private fun <K> readLog(file: File, keyDescriptor: KeyDescriptor<K>): Log<K> {
+            val index = LinkedHashMap<Key<K>, MutableList<Segment>>()
+            val fileLength = file.length()
+            if (!file.exists() || fileLength < HEADER_SIZE) return Log(index, 0, 0)
+
+            var committedLength = HEADER_SIZE
+            var garbageSize = 0L
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    throw IOException("Unsupported format of incremental cache file $file")
+                }
+                val uncommitted = ArrayList<Record<K>>()
+                var offset = HEADER_SIZE
+                try {
+                    while (true) {
+                        val tag = input.read()
+                        if (tag < 0) break
+                        offset++
+                        if (tag == COMMIT) {
+                            for (record in uncommitted) {
+                                garbageSize += index.applyRecord(record)
+                            }
+                            uncommitted.clear()
+                            garbageSize++
+                            committedLength = offset
+                            continue
+                        }
+                        if (tag != PUT && tag != APPEND && tag != REMOVE) break
+
+                        val keyLength = input.readInt()
+                        if (keyLength < 0 || offset + 4 + keyLength > fileLength) break
+                        val keyBytes = ByteArray(keyLength)
+                        input.readFully(keyBytes)
+                        val key = DataInputStream(ByteArrayInputStream(keyBytes)).use { keyDescriptor.read(it) }
+                        var headerSize = 1 + 4 + keyLength
+                        var valueLength = 0
+                        if (tag != REMOVE) {
+                            valueLength = input.readInt()
+                            headerSize += 4
+                        }
+                        val valueOffset = offset - 1 + headerSize
+                        if (valueLength < 0 || valueOffset + valueLength > fileLength) break
+                        input.skipFully(valueLength)
+
+                        uncommitted.add(Record(tag, Key(key, keyDescriptor), Segment(valueOffset, valueLength, headerSize + valueLength)))
+                        offset = valueOffset + valueLength
+                    }
+                } catch (e: EOFException) {
+                    // The last flush was interrupted, its records are ignored
+                }
+            }
+            return Log(index, committedLength, garbageSize)
+        }
+        private fun DataInputStream.skipFully(length: Int) {
+            var remaining = length
+            while (remaining > 0) {
+                val skipped = skipBytes(remaining)
+                if (skipped <= 0) throw EOFException()
+                remaining -= skipped
+            }
+        }
+
+        private fun deletePersistentHashMapFiles(storageFile: File) {
+            val prefix = storageFile.name
+            storageFile.parentFile?.listFiles { file -> file.name.startsWith(prefix) && !file.name.endsWith(DATA_FILE_SUFFIX) }
+                ?.forEach { it.delete() }
+        }
+    }
+}
@@ -17,106 +17,41 @@
 package org.jetbrains.kotlin.incremental.storage
 
 import com.intellij.util.io.DataExternalizer
-import com.intellij.util.io.IOUtil
 import com.intellij.util.io.KeyDescriptor
-import com.intellij.util.io.PersistentHashMap
-import java.io.DataOutput
+import org.jetbrains.kotlin.config.IncrementalCompilation
 import java.io.File
-import java.io.IOException
-
 
 /**
- * It's lazy in a sense that PersistentHashMap is created only on write
+ * It's lazy in a sense that the underlying storage is created only on write
  */
-class LazyStorage<K, V>(
-        private val storageFile: File,
-        private val keyDescriptor: KeyDescriptor<K>,
-        private val valueExternalizer: DataExternalizer<V>
-) {
-    @Volatile
-    private var storage: PersistentHashMap<K, V>? = null
-
-    @Synchronized
-    private fun getStorageIfExists(): PersistentHashMap<K, V>? {
-        if (storage != null) return storage
-
-        if (storageFile.exists()) {
-            storage = createMap()
-            return storage
-        }
-
-        return null
-    }
-
-    @Synchronized
-    private fun getStorageOrCreateNew(): PersistentHashMap<K, V> {
-        if (storage == null) {
-            storage = createMap()
-        }
-
-        return storage!!
-    }
-
+interface LazyStorage<K, V> {
     val keys: Collection<K>
-        get() = getStorageIfExists()?.allKeysWithExistingMapping ?: listOf()
-
-    operator fun contains(key: K): Boolean =
-            getStorageIfExists()?.containsMapping(key) ?: false
-
-    operator fun get(key: K): V? =
-            getStorageIfExists()?.get(key)
 
-    operator fun set(key: K, value: V) {
-        getStorageOrCreateNew().put(key, value)
-    }
+    operator fun contains(key: K): Boolean
 
-    fun remove(key: K) {
-        getStorageIfExists()?.remove(key)
-    }
+    operator fun get(key: K): V?
 
-    fun append(key: K, value: String) {
-        append(key) { out -> IOUtil.writeUTF(out, value) }
-    }
+    operator fun set(key: K, value: V)
 
-    fun append(key: K, value: Int) {
-        append(key) { out -> out.writeInt(value) }
-    }
+    fun remove(key: K)
 
-    @Synchronized
-    fun clean() {
-        try {
-            storage?.close()
-        }
-        catch (ignored: Throwable) {
-        }
+    fun append(key: K, value: String)
 
-        PersistentHashMap.deleteFilesStartingWith(storageFile)
-        storage = null
-    }
+    fun append(key: K, value: Int)
 
-    @Synchronized
-    fun flush(memoryCachesOnly: Boolean) {
-        val existingStorage = storage ?: return
+    fun clean()
 
-        if (memoryCachesOnly) {
-            if (existingStorage.isDirty) {
-                existingStorage.dropMemoryCaches()
-            }
-        }
-        else {
-            existingStorage.force()
-        }
-    }
+    fun flush(memoryCachesOnly: Boolean)
 
-    @Synchronized
-    fun close() {
-        storage?.close()
-    }
-
-    private fun createMap(): PersistentHashMap<K, V> =
-            PersistentHashMap(storageFile, keyDescriptor, valueExternalizer)
-
-    private fun append(key: K, append: (DataOutput)->Unit) {
-        getStorageOrCreateNew().appendData(key, append)
-    }
+    fun close()
 }
+
+fun <K, V> createLazyStorage(
+        storageFile: File,
+        keyDescriptor: KeyDescriptor<K>,
+        valueExternalizer: DataExternalizer<V>
+): LazyStorage<K, V> =
+        if (IncrementalCompilation.isBatchedStorageEnabled())
+            BatchedLazyStorage(storageFile, keyDescriptor, valueExternalizer)
+        else
+            PersistentHashMapLazyStorage(storageFile, keyDescriptor, valueExternalizer)
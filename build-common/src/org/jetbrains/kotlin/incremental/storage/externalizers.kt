@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.incremental.storage
 
 import com.intellij.openapi.util.io.FileUtil
 import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.DataInputOutputUtil
 import com.intellij.util.io.EnumeratorStringDescriptor
 import com.intellij.util.io.IOUtil
 import com.intellij.util.io.KeyDescriptor
@@ -214,3 +215,27 @@ open class CollectionExternalizer<T>(
 object StringCollectionExternalizer : CollectionExternalizer<String>(EnumeratorStringDescriptor(), { HashSet() })
 
 object IntCollectionExternalizer : CollectionExternalizer<Int>(IntExternalizer, { HashSet() })
+
+/**
+ * Stores a sorted array of distinct non-negative ints as its size followed by variable-length deltas.
+ */
+object SortedIntArrayExternalizer : DataExternalizer<IntArray> {
+    override fun save(output: DataOutput, value: IntArray) {
+        DataInputOutputUtil.writeINT(output, value.size)
+        var previous = 0
+        for (element in value) {
+            DataInputOutputUtil.writeINT(output, element - previous)
+            previous = element
+        }
+    }
+
+    override fun read(input: DataInput): IntArray {
+        val result = IntArray(DataInputOutputUtil.readINT(input))
+        var previous = 0
+        for (i in result.indices) {
+            previous += DataInputOutputUtil.readINT(input)
+            result[i] = previous
+        }
+        return result
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import org.jetbrains.kotlin.TestWithWorkingDir
+import org.jetbrains.kotlin.incremental.storage.SortedIntArrayExternalizer
+import org.junit.Test
+import java.io.*
+
+class LookupStorageTest : TestWithWorkingDir() {
+    @Test
+    fun testSortedIntArrayExternalizer() {
+        val values = listOf(
+            intArrayOf(),
+            intArrayOf(0),
+            intArrayOf(0, 1, 2, 3),
+            intArrayOf(5, 127, 128, 255, 256, 65535, 65536, 1_000_000, Int.MAX_VALUE)
+        )
+
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { output ->
+            for (value in values) {
+                SortedIntArrayExternalizer.save(output, value)
+            }
+        }
+
+        // Several values in one stream, so each of them must be read without relying on the end of the input
+        val input = DataInputStream(ByteArrayInputStream(bytes.toByteArray()))
+        for (value in values) {
+            assertEquals(value.toList(), SortedIntArrayExternalizer.read(input).toList())
+        }
+        assertEquals(0, input.available())
+    }
+
+    @Test
+    fun testGarbageRemoval() {
+        val (a, b, c, d, e) = listOf("a", "b", "c", "d", "e").map { File(workingDir.canonicalFile, "$it.kt").path }
+        val x = LookupSymbol("x", "p")
+        val y = LookupSymbol("y", "p")
+        val z = LookupSymbol("z", "q")
+
+        var storage = LookupStorage(workingDir)
+        storage.addAll(mapOf(x to listOf(a, b), y to listOf(c), z to listOf(d, b)).entries, setOf(a, b, c, d))
+        storage.removeLookupsFrom(sequenceOf(File(b), File(c)))
+        storage.forceGC()
+
+        fun check(vararg expected: Pair<LookupSymbol, Set<String>>) {
+            for ((lookup, paths) in expected) {
+                assertEquals(paths, storage.get(lookup).toSet())
+            }
+        }
+
+        check(x to setOf(a), y to emptySet<String>(), z to setOf(d))
+
+        storage.close()
+        storage = LookupStorage(workingDir)
+        check(x to setOf(a), y to emptySet<String>(), z to setOf(d))
+
+        // The remaining files get new ids during the garbage removal, so a new file must not get the id of one of them
+        storage.addAll(mapOf(z to listOf(e), y to listOf(e)).entries, setOf(e))
+        check(x to setOf(a), y to setOf(e), z to setOf(d, e))
+        storage.close()
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import com.intellij.util.io.EnumeratorStringDescriptor
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class BatchedLazyStorageTest {
+    private lateinit var workingDir: File
+    private lateinit var storageFile: File
+    private lateinit var storage: BatchedLazyStorage<String, Collection<String>>
+
+    private val dataFile: File
+        get() = File(storageFile.path + ".batch")
+
+    @Before
+    fun setUp() {
+        workingDir = Files.createTempDirectory("BatchedLazyStorageTest").toFile()
+        storageFile = File(workingDir, "storage")
+        storage = open()
+    }
+
+    @After
+    fun tearDown() {
+        storage.close()
+        workingDir.deleteRecursively()
+    }
+
+    @Test
+    fun testRoundTrip() {
+        storage["a"] = setOf("1")
+        storage["b"] = setOf("2", "3")
+        assertEquals(setOf("1"), storage["a"])
+        assertNull(storage["c"])
+
+        reopen()
+        assertEquals(setOf("a", "b"), storage.keys.toSet())
+        assertEquals(setOf("1"), storage["a"])
+        assertEquals(setOf("2", "3"), storage["b"])
+        assertTrue("a" in storage)
+        assertFalse("c" in storage)
+    }
+
+    @Test
+    fun testAppend() {
+        storage["onDisk"] = setOf("1")
+        reopen()
+
+        storage.append("onDisk", "2")
+        storage.append("new", "3")
+        storage["pending"] = setOf("4")
+        storage.append("pending", "5")
+        storage.append("pending", "6")
+        assertEquals(setOf("1", "2"), storage["onDisk"])
+        assertEquals(setOf("3"), storage["new"])
+        assertEquals(setOf("4", "5", "6"), storage["pending"])
+
+        reopen()
+        assertEquals(setOf("1", "2"), storage["onDisk"])
+        assertEquals(setOf("3"), storage["new"])
+        assertEquals(setOf("4", "5", "6"), storage["pending"])
+
+        storage.append("onDisk", "7")
+        reopen()
+        assertEquals(setOf("1", "2", "7"), storage["onDisk"])
+    }
+
+    @Test
+    fun testAppendDoesNotRewriteValue() {
+        val largeValue = (1..10000).map { it.toString() }.toSet()
+        storage["key"] = largeValue
+        reopen()
+        val length = dataFile.length()
+
+        storage.append("key", "new")
+        reopen()
+        assertTrue(dataFile.length() - length < 100)
+        assertEquals(largeValue + "new", storage["key"])
+    }
+
+    @Test
+    fun testRemove() {
+        storage["onDisk"] = setOf("1")
+        storage["kept"] = setOf("2")
+        reopen()
+
+        storage.remove("onDisk")
+        storage["pending"] = setOf("3")
+        storage.remove("pending")
+        storage.remove("absent")
+        assertNull(storage["onDisk"])
+        assertNull(storage["pending"])
+        assertFalse("onDisk" in storage)
+        assertEquals(listOf("kept"), storage.keys.toList())
+
+        reopen()
+        assertNull(storage["onDisk"])
+        assertNull(storage["pending"])
+        assertEquals(listOf("kept"), storage.keys.toList())
+
+        storage.append("onDisk", "4")
+        reopen()
+        assertEquals(setOf("4"), storage["onDisk"])
+    }
+
+    @Test
+    fun testReopenWritesOnlyChangedValues() {
+        for (i in 1..100) {
+            storage["key$i"] = setOf("value$i")
+        }
+        reopen()
+        val length = dataFile.length()
+
+        for (i in 1..10) {
+            reopen()
+            assertEquals(length, dataFile.length())
+        }
+
+        storage["key1"] = setOf("changed")
+        reopen()
+        assertTrue(dataFile.length() - length < 100)
+        assertEquals(setOf("changed"), storage["key1"])
+        assertEquals(setOf("value100"), storage["key100"])
+        assertEquals(100, storage.keys.size)
+    }
+
+    @Test
+    fun testCompaction() {
+        val largeValue = (1..10000).map { it.toString() }.toSet()
+        for (i in 1..40) {
+            storage["large"] = largeValue + i.toString()
+            storage["small"] = setOf(i.toString())
+            reopen()
+        }
+        // Without compaction the file would keep all 40 versions of the large value
+        assertTrue(dataFile.length() < 25 * storageSizeOf(largeValue))
+        assertEquals(largeValue + "40", storage["large"])
+        assertEquals(setOf("40"), storage["small"])
+    }
+
+    @Test
+    fun testTornTempFile() {
+        storage["a"] = setOf("1")
+        reopen()
+
+        val tempFile = File(dataFile.path + ".tmp")
+        tempFile.writeBytes(dataFile.readBytes().copyOf(dataFile.length().toInt() / 2))
+        reopen()
+        assertEquals(setOf("1"), storage["a"])
+        assertFalse(tempFile.exists())
+
+        storage["b"] = setOf("2")
+        reopen()
+        assertEquals(setOf("1"), storage["a"])
+        assertEquals(setOf("2"), storage["b"])
+    }
+
+    @Test
+    fun testInterruptedFlush() {
+        storage["a"] = setOf("1")
+        reopen()
+        val committed = dataFile.readBytes()
+
+        storage["a"] = setOf("2")
+        storage["b"] = setOf("3")
+        storage.close()
+        // Cut off the commit record and a part of the last record, as if the process was killed during the flush
+        dataFile.writeBytes(dataFile.readBytes().copyOf(dataFile.length().toInt() - 3))
+        storage = open()
+        assertEquals(setOf("1"), storage["a"])
+        assertNull(storage["b"])
+        assertArrayEquals(committed, dataFile.readBytes())
+
+        storage["b"] = setOf("4")
+        reopen()
+        assertEquals(setOf("1"), storage["a"])
+        assertEquals(setOf("4"), storage["b"])
+    }
+
+    private fun storageSizeOf(value: Collection<String>): Int =
+        value.sumBy { it.length + 2 }
+
+    private fun reopen() {
+        storage.close()
+        storage = open()
+    }
+
+    private fun open() = BatchedLazyStorage(storageFile, EnumeratorStringDescriptor(), StringCollectionExternalizer)
+}
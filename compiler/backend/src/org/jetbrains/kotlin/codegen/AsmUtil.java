@@ -698,23 +698,34 @@ public class AsmUtil {
             @Nullable KotlinType kotlinType,
             @Nullable KotlinTypeMapper typeMapper
     ) {
-        Type appendParameterType;
+        Type appendParameterType = genStringConcatArgument(v, type, kotlinType, typeMapper);
+        v.invokevirtual("java/lang/StringBuilder", "append", "(" + appendParameterType.getDescriptor() + ")Ljava/lang/StringBuilder;", false);
+    }
 
+    /**
+     * Converts the value of type {@code type} on the top of the stack to the form in which it is passed to a string concatenation,
+     * and returns the type of the converted value.
+     */
+    @NotNull
+    public static Type genStringConcatArgument(
+            @NotNull InstructionAdapter v,
+            @NotNull Type type,
+            @Nullable KotlinType kotlinType,
+            @Nullable KotlinTypeMapper typeMapper
+    ) {
         CallableMethod specializedToString = getSpecializedToStringCallableMethodOrNull(kotlinType, typeMapper);
         if (specializedToString != null) {
             specializedToString.genInvokeInstruction(v);
-            appendParameterType = AsmTypes.JAVA_STRING_TYPE;
+            return AsmTypes.JAVA_STRING_TYPE;
         }
         else if (kotlinType != null && InlineClassesUtilsKt.isInlineClassType(kotlinType)) {
-            appendParameterType = OBJECT_TYPE;
             SimpleType nullableAnyType = kotlinType.getConstructor().getBuiltIns().getNullableAnyType();
-            StackValue.coerce(type, kotlinType, appendParameterType, nullableAnyType, v);
+            StackValue.coerce(type, kotlinType, OBJECT_TYPE, nullableAnyType, v);
+            return OBJECT_TYPE;
         }
         else {
-            appendParameterType = stringBuilderAppendType(type);
+            return stringBuilderAppendType(type);
         }
-
-        v.invokevirtual("java/lang/StringBuilder", "append", "(" + appendParameterType.getDescriptor() + ")Ljava/lang/StringBuilder;", false);
     }
 
     public static StackValue genToString(
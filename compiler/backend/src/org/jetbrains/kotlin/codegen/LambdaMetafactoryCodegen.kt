@@ -0,0 +1,259 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.CLOSURE
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.anonymousClassForCallable
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.asmTypeForAnonymousClass
+import org.jetbrains.kotlin.codegen.context.CodegenContext
+import org.jetbrains.kotlin.codegen.context.InlineLambdaContext
+import org.jetbrains.kotlin.codegen.context.MethodContext
+import org.jetbrains.kotlin.config.JvmClosureGenerationScheme
+import org.jetbrains.kotlin.config.LanguageFeature
+import org.jetbrains.kotlin.descriptors.*
+import org.jetbrains.kotlin.descriptors.annotations.Annotations
+import org.jetbrains.kotlin.descriptors.impl.SimpleFunctionDescriptorImpl
+import org.jetbrains.kotlin.name.FqNameUnsafe
+import org.jetbrains.kotlin.name.Name
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.descriptorUtil.fqNameUnsafe
+import org.jetbrains.kotlin.resolve.inline.InlineUtil
+import org.jetbrains.kotlin.resolve.isInlineClassType
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes.OBJECT_TYPE
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.OtherOrigin
+import org.jetbrains.kotlin.resolve.jvm.jvmSignature.JvmMethodSignature
+import org.jetbrains.kotlin.types.typeUtil.supertypes
+import org.jetbrains.org.objectweb.asm.Handle
+import org.jetbrains.org.objectweb.asm.Opcodes.*
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.Method
+
+/**
+ * Generates lambdas converted to Java functional interfaces with `invokedynamic` to `java.lang.invoke.LambdaMetafactory`
+ * ([JvmClosureGenerationScheme.INDY]) instead of separate classes.
+ *
+ * The body of such a lambda is generated as a private static synthetic method of the class which contains the lambda, so only
+ * lambdas which capture nothing are supported. Lambdas in inline functions (which are copied to other classes), suspend lambdas,
+ * lambdas which need bridges or conversions that `LambdaMetafactory` can't do, lambdas converted to serializable interfaces,
+ * and lambdas whose bodies contain declarations compiled to classes are still generated as classes.
+ */
+class LambdaMetafactoryCodegen private constructor(
+    private val codegen: ExpressionCodegen,
+    private val declaration: KtDeclarationWithBody,
+    private val descriptor: FunctionDescriptor,
+    private val samType: SamType,
+    private val samMethod: Method,
+    private val instantiatedMethodType: Type
+) {
+    private val state = codegen.state
+    private val typeMapper = state.typeMapper
+    private val host = codegen.parentCodegen
+
+    fun generate(): StackValue {
+        val implementation = createImplementationDescriptor()
+        val implementationContext = host.context.intoLambdaMetafactoryImplementation(implementation)
+        val signature = typeMapper.mapSignatureSkipGeneric(implementation, implementationContext.contextKind)
+        val implementationMethod = signature.asmMethod
+
+        if (host.registerLambdaMetafactoryImplementation(implementationMethod.name)) {
+            generateImplementation(implementation, implementationContext, signature)
+        }
+
+        val samAsmType = typeMapper.mapType(samType.type)
+        return StackValue.operation(samAsmType) {
+            it.invokedynamic(
+                samMethod.name,
+                Type.getMethodDescriptor(samAsmType),
+                METAFACTORY,
+                arrayOf(
+                    Type.getMethodType(samMethod.descriptor),
+                    Handle(H_INVOKESTATIC, host.v.thisName, implementationMethod.name, implementationMethod.descriptor, false),
+                    instantiatedMethodType
+                )
+            )
+        }
+    }
+
+    private fun createImplementationDescriptor(): FunctionDescriptor {
+        // The name of the class which would be generated for this lambda is unique and stable, so the method is named after it
+        val className = asmTypeForAnonymousClass(codegen.bindingContext, descriptor).internalName
+        val hostName = host.v.thisName
+        val suffix = if (className.startsWith("$hostName$")) className.substring(hostName.length + 1) else className.substringAfterLast('/')
+
+        // Value parameters are shared with the lambda, so that the lambda body finds them in the frame map
+        return SimpleFunctionDescriptorImpl.create(
+            host.context.contextDescriptor, Annotations.EMPTY, Name.identifier("lambda$$suffix"),
+            CallableMemberDescriptor.Kind.SYNTHESIZED, descriptor.source
+        ).initialize(
+            null, null, emptyList(), descriptor.valueParameters, descriptor.returnType, Modality.FINAL, Visibilities.PRIVATE
+        )
+    }
+
+    private fun generateImplementation(
+        implementation: FunctionDescriptor,
+        implementationContext: MethodContext,
+        signature: JvmMethodSignature
+    ) {
+        val method = signature.asmMethod
+        val mv = host.v.newMethod(
+            OtherOrigin(declaration, descriptor), ACC_PRIVATE or ACC_STATIC or ACC_SYNTHETIC, method.name, method.descriptor, null, null
+        )
+        if (!state.classBuilderMode.generateBodies) {
+            mv.visitEnd()
+            return
+        }
+
+        FunctionCodegen.generateMethodBody(
+            mv, implementation, implementationContext, signature,
+            ClosureGenerationStrategy(state, declaration), host, state.jvmDefaultMode,
+            state.languageVersionSettings.supportsFeature(LanguageFeature.ReleaseCoroutines)
+        )
+        FunctionCodegen.endVisit(mv, "lambda implementation", declaration)
+    }
+
+    companion object {
+        private val SERIALIZABLE = FqNameUnsafe("java.io.Serializable")
+
+        private val METAFACTORY = Handle(
+            H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+                    "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)" +
+                    "Ljava/lang/invoke/CallSite;",
+            false
+        )
+
+        /**
+         * Returns a codegen for the lambda [declaration] converted to [samType], or `null` if it should be generated as a class.
+         */
+        @JvmStatic
+        fun createIfApplicable(
+            codegen: ExpressionCodegen,
+            declaration: KtDeclarationWithBody,
+            descriptor: FunctionDescriptor,
+            samType: SamType?
+        ): LambdaMetafactoryCodegen? {
+            val state = codegen.state
+            if (state.lambdasScheme != JvmClosureGenerationScheme.INDY || samType == null) return null
+            if (descriptor.isSuspend || descriptor.extensionReceiverParameter != null) return null
+
+            val closure = codegen.bindingContext.get(CLOSURE, anonymousClassForCallable(codegen.bindingContext, descriptor))
+            if (closure == null || !JvmCodegenUtil.isConst(closure)) return null
+
+            if (!isSupportedHost(codegen)) return null
+
+            // Classes of nested declarations are named after the class of this lambda, which wouldn't exist
+            if (hasNestedClasses(declaration, codegen.bindingContext)) return null
+
+            // LambdaMetafactory.metafactory doesn't support serialization
+            if (samType.type.supertypes().any { it.constructor.declarationDescriptor?.fqNameUnsafe == SERIALIZABLE }) return null
+
+            val returnType = descriptor.returnType ?: return null
+            if (returnType.isInlineClassType() || descriptor.valueParameters.any { it.type.isInlineClassType() }) return null
+
+            val typeMapper = state.typeMapper
+            val samFunction = samType.originalAbstractMethod
+            val samMethod = typeMapper.mapAsmMethod(samFunction)
+            // LambdaMetafactory.metafactory doesn't generate bridges
+            if (DescriptorUtils.getAllOverriddenDescriptors(samFunction).any { typeMapper.mapAsmMethod(it) != samMethod }) return null
+
+            val instantiatedMethodType = computeInstantiatedMethodType(samMethod, typeMapper.mapAsmMethod(descriptor)) ?: return null
+
+            return LambdaMetafactoryCodegen(codegen, declaration, descriptor, samType, samMethod, instantiatedMethodType)
+        }
+
+        private fun isSupportedHost(codegen: ExpressionCodegen): Boolean {
+            // The implementation method is private to the current class, so the lambda can't be copied to other classes by the inliner
+            var context: CodegenContext<*>? = codegen.context
+            while (context != null) {
+                if (context.isInlineMethodContext || context is InlineLambdaContext) return false
+                context = context.parentContext
+            }
+
+            val hostContext = codegen.parentCodegen.context
+            if (hostContext.contextKind != OwnerKind.IMPLEMENTATION && hostContext.contextKind != OwnerKind.PACKAGE) return false
+            return !DescriptorUtils.isInterface(hostContext.contextDescriptor)
+        }
+
+        private fun hasNestedClasses(declaration: KtDeclarationWithBody, bindingContext: BindingContext): Boolean {
+            var result = false
+            declaration.bodyExpression?.accept(object : KtTreeVisitorVoid() {
+                override fun visitClassOrObject(classOrObject: KtClassOrObject) {
+                    result = true
+                }
+
+                override fun visitNamedFunction(function: KtNamedFunction) {
+                    // Anonymous functions passed to inline functions are inlined, while local functions always have classes
+                    if (function.nameIdentifier == null && InlineUtil.isInlinedArgument(function, bindingContext, false)) {
+                        super.visitNamedFunction(function)
+                    } else {
+                        result = true
+                    }
+                }
+
+                override fun visitLambdaExpression(lambdaExpression: KtLambdaExpression) {
+                    if (InlineUtil.isInlinedArgument(lambdaExpression.functionLiteral, bindingContext, false)) {
+                        super.visitLambdaExpression(lambdaExpression)
+                    } else {
+                        result = true
+                    }
+                }
+
+                override fun visitCallableReferenceExpression(expression: KtCallableReferenceExpression) {
+                    result = true
+                }
+
+                override fun visitProperty(property: KtProperty) {
+                    // Metadata of local delegated properties is stored in the class of the enclosing lambda
+                    if (property.hasDelegate()) {
+                        result = true
+                    } else {
+                        super.visitProperty(property)
+                    }
+                }
+            })
+            return result
+        }
+
+        /**
+         * Computes the type of the functional interface method specialized to [implementation], or returns `null` if
+         * `LambdaMetafactory` can't adapt [implementation] to [samMethod]: it can box and unbox values, but can't convert
+         * between different primitive types or return a value from a method which returns `void`.
+         */
+        private fun computeInstantiatedMethodType(samMethod: Method, implementation: Method): Type? {
+            val samParameters = samMethod.argumentTypes
+            val implementationParameters = implementation.argumentTypes
+            if (samParameters.size != implementationParameters.size) return null
+
+            val parameters = Array(samParameters.size) { i ->
+                val samParameter = samParameters[i]
+                val implementationParameter = implementationParameters[i]
+                when {
+                    AsmUtil.isPrimitive(samParameter) -> if (samParameter == implementationParameter) samParameter else return null
+                    AsmUtil.isPrimitive(implementationParameter) -> AsmUtil.boxType(implementationParameter)
+                    else -> implementationParameter
+                }
+            }
+
+            val samReturnType = samMethod.returnType
+            val implementationReturnType = implementation.returnType
+            val returnType = when {
+                samReturnType == Type.VOID_TYPE -> samReturnType
+                implementationReturnType == Type.VOID_TYPE -> return null
+                AsmUtil.isPrimitive(samReturnType) -> if (samReturnType == implementationReturnType) samReturnType else return null
+                AsmUtil.isPrimitive(implementationReturnType) ->
+                    if (samReturnType == OBJECT_TYPE || samReturnType == AsmUtil.boxType(implementationReturnType)) samReturnType
+                    else return null
+                else -> samReturnType
+            }
+
+            return Type.getMethodType(returnType, *parameters)
+        }
+    }
+}
@@ -54,8 +54,10 @@ import org.jetbrains.org.objectweb.asm.commons.Method;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.jetbrains.kotlin.codegen.AsmUtil.calculateInnerClassAccessFlags;
 import static org.jetbrains.kotlin.codegen.AsmUtil.isPrimitive;
@@ -89,6 +91,7 @@ public abstract class MemberCodegen<T extends KtPureElement/* TODO: & KtDeclarat
     private ExpressionCodegen clInit;
     private NameGenerator inlineNameGenerator;
     private boolean jvmAssertFieldGenerated;
+    private final Set<String> lambdaMetafactoryImplementations = new HashSet<>();
 
     private DefaultSourceMapper sourceMapper;
 
@@ -441,6 +444,14 @@ public abstract class MemberCodegen<T extends KtPureElement/* TODO: & KtDeclarat
         return null;
     }
 
+    /**
+     * Returns {@code true} if the implementation method of a lambda created with {@code LambdaMetafactory} with the given name
+     * has not been generated in this class yet. The same lambda may be generated several times, e.g. in a copied finally block.
+     */
+    public boolean registerLambdaMetafactoryImplementation(@NotNull String name) {
+        return lambdaMetafactoryImplementations.add(name);
+    }
+
     @NotNull
     public NameGenerator getInlineNameGenerator() {
         if (inlineNameGenerator == null) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper
+import org.jetbrains.kotlin.config.JvmStringConcat
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes.JAVA_STRING_TYPE
+import org.jetbrains.kotlin.types.KotlinType
+import org.jetbrains.org.objectweb.asm.Handle
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter
+
+/**
+ * Generates a string concatenation of several values, either with a `StringBuilder` ([JvmStringConcat.INLINE]) or with
+ * `invokedynamic` to `java.lang.invoke.StringConcatFactory.makeConcatWithConstants` ([JvmStringConcat.INDY_WITH_CONSTANTS]).
+ *
+ * Usage: [genStringBuilderConstructor], then any number of [addStringConstant] and [invokeAppend] (after putting the value
+ * on the stack), then [genToString], which leaves the resulting string on the stack.
+ *
+ * In the `invokedynamic` mode, string constants are folded into the recipe of the call site, and values are passed
+ * to the call site as is. A call site may take at most 200 argument slots, so longer concatenations are split into several
+ * call sites, the result of each one becoming the first argument of the next one.
+ */
+class StringConcatGenerator(val mode: JvmStringConcat, val mv: InstructionAdapter) {
+    private val recipe = StringBuilder()
+    private val argumentTypes = arrayListOf<Type>()
+    private var argumentSlots = 0
+
+    fun genStringBuilderConstructor() {
+        if (mode == JvmStringConcat.INLINE) {
+            AsmUtil.genStringBuilderConstructor(mv)
+        }
+    }
+
+    /**
+     * Appends [value], a literal part of the concatenation, e.g. a constant entry of a string template.
+     */
+    fun addStringConstant(value: String) {
+        if (mode == JvmStringConcat.INLINE) {
+            if (value.length == 1) {
+                mv.iconst(value[0].toInt())
+                AsmUtil.genInvokeAppendMethod(mv, Type.CHAR_TYPE, null)
+            } else {
+                mv.aconst(value)
+                AsmUtil.genInvokeAppendMethod(mv, JAVA_STRING_TYPE, null)
+            }
+            return
+        }
+
+        if (value.any { it == TAG_ARGUMENT || it == TAG_CONSTANT } || recipe.length + value.length > MAX_RECIPE_LENGTH) {
+            // Special characters can't be a part of the recipe, and the recipe has to fit into a constant pool entry
+            mv.aconst(value)
+            addArgument(JAVA_STRING_TYPE)
+        } else {
+            recipe.append(value)
+        }
+    }
+
+    /**
+     * Appends the value of type [type] on the top of the stack.
+     */
+    @JvmOverloads
+    fun invokeAppend(type: Type, kotlinType: KotlinType?, typeMapper: KotlinTypeMapper? = null) {
+        if (mode == JvmStringConcat.INLINE) {
+            AsmUtil.genInvokeAppendMethod(mv, type, kotlinType, typeMapper)
+        } else {
+            addArgument(AsmUtil.genStringConcatArgument(mv, type, kotlinType, typeMapper))
+        }
+    }
+
+    fun genToString() {
+        if (mode == JvmStringConcat.INLINE) {
+            mv.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false)
+        } else {
+            genInvokeDynamic()
+        }
+    }
+
+    private fun addArgument(type: Type) {
+        recipe.append(TAG_ARGUMENT)
+        argumentTypes.add(type)
+        argumentSlots += type.size
+
+        // Every value takes at most two slots, so flushing here guarantees that the next one still fits
+        if (argumentSlots + 2 > MAX_ARGUMENT_SLOTS) {
+            genInvokeDynamic()
+            recipe.append(TAG_ARGUMENT)
+            argumentTypes.add(JAVA_STRING_TYPE)
+            argumentSlots = 1
+        }
+    }
+
+    private fun genInvokeDynamic() {
+        mv.invokedynamic(
+            "makeConcatWithConstants",
+            Type.getMethodDescriptor(JAVA_STRING_TYPE, *argumentTypes.toTypedArray()),
+            BOOTSTRAP_METHOD,
+            arrayOf<Any>(recipe.toString())
+        )
+        recipe.setLength(0)
+        argumentTypes.clear()
+        argumentSlots = 0
+    }
+
+    companion object {
+        private const val TAG_ARGUMENT = '\u0001'
+        private const val TAG_CONSTANT = '\u0002'
+
+        private const val MAX_ARGUMENT_SLOTS = 200
+
+        // A constant pool string can take up to 65535 bytes in modified UTF-8, where a character takes up to 3 bytes
+        private const val MAX_RECIPE_LENGTH = 65535 / 3
+
+        private val BOOTSTRAP_METHOD = Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/StringConcatFactory",
+            "makeConcatWithConstants",
+            "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;[Ljava/lang/Object;)" +
+                    "Ljava/lang/invoke/CallSite;",
+            false
+        )
+
+        @JvmStatic
+        fun create(state: GenerationState, mv: InstructionAdapter): StringConcatGenerator =
+            StringConcatGenerator(state.runtimeStringConcat, mv)
+    }
+}
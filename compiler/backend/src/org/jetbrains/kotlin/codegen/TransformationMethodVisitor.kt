@@ -37,7 +37,7 @@ abstract class TransformationMethodVisitor(
     api: Int = Opcodes.API_VERSION
 ) : MethodVisitor(api) {
 
-    private val methodNode = MethodNode(access, name, desc, signature, exceptions).apply {
+    protected val methodNode = MethodNode(access, name, desc, signature, exceptions).apply {
         localVariables = ArrayList(5)
     }
 
@@ -65,11 +65,30 @@ abstract class TransformationMethodVisitor(
 
         super.visitEnd()
 
+        transformAndEmit()
+    }
+
+    /**
+     * Transforms the method node and writes it to the delegate. Subclasses may postpone the work, calling [transform] and [emit]
+     * later, possibly on other threads, but [emit] must be called after [transform] and only once.
+     */
+    protected open fun transformAndEmit() {
+        transform()
+        emit()
+    }
+
+    fun transform() {
         try {
             if (shouldBeTransformed(methodNode)) {
                 performTransformations(methodNode)
             }
+        } catch (t: Throwable) {
+            throw CompilationException("Couldn't transform method node:\n" + methodNode.nodeText, t, null)
+        }
+    }
 
+    fun emit() {
+        try {
             methodNode.accept(EndIgnoringMethodVisitorDecorator(Opcodes.API_VERSION, delegate))
 
 
@@ -303,6 +303,15 @@ public abstract class CodegenContext<T extends DeclarationDescriptor> {
         return intoFunction(descriptor, false);
     }
 
+    /**
+     * Creates a context for a static method which implements a lambda created with {@code LambdaMetafactory}.
+     * The method is static regardless of the kind of this context, which is why it's created with the kind of a package member.
+     */
+    @NotNull
+    public MethodContext intoLambdaMetafactoryImplementation(@NotNull FunctionDescriptor descriptor) {
+        return new MethodContext(descriptor, OwnerKind.PACKAGE, this, null, false);
+    }
+
     @NotNull
     public MethodContext intoInlinedLambda(FunctionDescriptor descriptor, boolean isCrossInline, boolean isPropertyReference) {
         return new InlineLambdaContext(descriptor, getContextKind(), this, null, isCrossInline, isPropertyReference);
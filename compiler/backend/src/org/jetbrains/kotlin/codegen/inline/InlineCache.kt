@@ -16,24 +16,174 @@
 
 package org.jetbrains.kotlin.codegen.inline
 
-import com.intellij.util.containers.SLRUMap
+import com.intellij.openapi.vfs.VirtualFile
 import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.utils.ContentStamp
+import org.jetbrains.kotlin.utils.contentStamp
 import org.jetbrains.org.objectweb.asm.commons.Method
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 
 data class MethodId(val ownerInternalName: String, val method: Method)
 
-class InlineCache {
-    val classBytes: SLRUMap<ClassId, ByteArray> = SLRUMap(30, 20)
-    val methodNodeById: SLRUMap<MethodId, SMAPAndMethodNode> = SLRUMap(60, 50)
+/**
+ * Identifies the contents of a compiled class file: the path includes the containing jar, and the stamp changes whenever the file
+ * (or the jar containing it) is replaced. This allows one cache to serve several modules, which may see different versions
+ * of the same class on their classpaths.
+ *
+ * A hash of the contents would be more precise, but computing it means reading the bytes, which is exactly what the cache avoids.
+ */
+data class ClassFileKey(val path: String, val stamp: ContentStamp) {
+    companion object {
+        fun of(file: VirtualFile): ClassFileKey = ClassFileKey(file.path, file.contentStamp())
+    }
 }
 
-inline fun <K, V> SLRUMap<K, V>.getOrPut(key: K, defaultValue: () -> V): V {
-    val value = get(key)
-    return if (value == null) {
-        val answer = defaultValue()
-        put(key, answer)
-        answer
-    } else {
-        value
+/**
+ * The view of [InlineCacheStorage] for a single [org.jetbrains.kotlin.codegen.state.GenerationState].
+ *
+ * The classpath doesn't change during the generation, so the class file of each container is looked up and its [ClassFileKey] is
+ * computed only once here, and subsequent requests for its inline functions go straight to the storage. Hits, misses and evictions
+ * are counted separately for every instance, so that each module reports only the cache usage caused by itself, even if
+ * the storage is shared.
+ */
+class InlineCache(private val storage: InlineCacheStorage = InlineCacheStorage()) {
+    class Statistics(val name: String, val hits: Long, val misses: Long, val evictions: Long)
+
+    internal class Counters(private val name: String) {
+        val hits = AtomicLong()
+        val misses = AtomicLong()
+        val evictions = AtomicLong()
+
+        fun toStatistics() = Statistics(name, hits.get(), misses.get(), evictions.get())
+    }
+
+    private class ClassFile(val file: VirtualFile) {
+        val key = ClassFileKey.of(file)
+    }
+
+    private val classFiles = ConcurrentHashMap<ClassId, ClassFile>()
+    private val classBytesCounters = Counters("class bytes")
+    private val methodNodesCounters = Counters("inline method nodes")
+
+    /**
+     * Returns the node of the method [methodId] from the compiled class [classId], creating it from the class bytes on a cache miss.
+     * [findFile] is called at most once per class.
+     *
+     * Note that the returned node is shared between callers and must be copied before it is modified.
+     */
+    fun getOrCreateMethodNode(
+        classId: ClassId,
+        methodId: MethodId,
+        findFile: () -> VirtualFile,
+        create: (ByteArray) -> SMAPAndMethodNode?
+    ): SMAPAndMethodNode? {
+        val classFile = classFiles.getOrPut(classId) { ClassFile(findFile()) }
+        return storage.getOrCreateMethodNode(classFile.key, methodId, methodNodesCounters) {
+            create(storage.getOrLoadClassBytes(classFile.key, classBytesCounters, classFile.file::contentsToByteArray))
+        }
+    }
+
+    /**
+     * Returns the node of the method [methodId] whose body is generated by the compiler rather than read from a class file.
+     *
+     * Note that the returned node is shared between callers and must be copied before it is modified.
+     */
+    fun getOrCreateGeneratedMethodNode(methodId: MethodId, create: () -> SMAPAndMethodNode): SMAPAndMethodNode =
+        storage.getOrCreateMethodNode(null, methodId, methodNodesCounters, create)!!
+
+    val statistics: List<Statistics>
+        get() = listOf(classBytesCounters.toStatistics(), methodNodesCounters.toStatistics())
+}
+
+/**
+ * Caches bytes of compiled classes containing inline functions, and method nodes of the inline functions read from them.
+ *
+ * Both caches evict the least recently used entries. Method nodes are bounded by their count. Class bytes are bounded by their
+ * count, or by their total size in bytes if [maxClassBytes] is specified. The storage is either created for a single
+ * [InlineCache], or obtained via [getShared] to be reused by all modules compiled in the same process. All operations are
+ * thread-safe.
+ */
+class InlineCacheStorage(
+    private val maxMethodNodes: Int = DEFAULT_MAX_METHOD_NODES,
+    private val maxClassBytes: Long? = null
+) {
+    private val classBytes = if (maxClassBytes != null)
+        WeightedLruCache<ClassFileKey, ByteArray>(maxClassBytes) { it.size.toLong() }
+    else
+        WeightedLruCache<ClassFileKey, ByteArray>(DEFAULT_MAX_CLASSES.toLong()) { 1 }
+
+    // Nodes of generated methods have no class file
+    private val methodNodes = WeightedLruCache<Pair<ClassFileKey?, MethodId>, SMAPAndMethodNode>(maxMethodNodes.toLong()) { 1 }
+
+    internal fun getOrLoadClassBytes(key: ClassFileKey, counters: InlineCache.Counters, load: () -> ByteArray): ByteArray =
+        classBytes.getOrPut(key, counters, load)!!
+
+    internal fun getOrCreateMethodNode(
+        key: ClassFileKey?,
+        methodId: MethodId,
+        counters: InlineCache.Counters,
+        create: () -> SMAPAndMethodNode?
+    ): SMAPAndMethodNode? =
+        methodNodes.getOrPut(key to methodId, counters, create)
+
+    private class WeightedLruCache<K : Any, V : Any>(private val maxWeight: Long, private val weight: (V) -> Long) {
+        private val map = LinkedHashMap<K, V>(16, 0.75f, true)
+        private var totalWeight = 0L
+
+        fun getOrPut(key: K, counters: InlineCache.Counters, compute: () -> V?): V? {
+            synchronized(this) {
+                val cached = map[key]
+                if (cached != null) {
+                    counters.hits.incrementAndGet()
+                    return cached
+                }
+            }
+            counters.misses.incrementAndGet()
+
+            // Values are computed outside of the lock: reading and parsing a class can take a while, and a concurrent computation
+            // of the same value is harmless
+            val value = compute() ?: return null
+
+            synchronized(this) {
+                val old = map.put(key, value)
+                if (old != null) totalWeight -= weight(old)
+                totalWeight += weight(value)
+                counters.evictions.addAndGet(evictIfNeeded())
+            }
+            return value
+        }
+
+        private fun evictIfNeeded(): Long {
+            var evicted = 0L
+            val iterator = map.values.iterator()
+            // The most recently added value is always kept, even if it alone exceeds the limit
+            while (totalWeight > maxWeight && map.size > 1) {
+                totalWeight -= weight(iterator.next())
+                iterator.remove()
+                evicted++
+            }
+            return evicted
+        }
+    }
+
+    companion object {
+        // The limits of the SLRU maps which were used before the cache became configurable: 30 + 20 classes and 60 + 50 methods
+        const val DEFAULT_MAX_CLASSES = 50
+        const val DEFAULT_MAX_METHOD_NODES = 110
+
+        private var shared: InlineCacheStorage? = null
+
+        /**
+         * Returns the process-wide storage with the given limits. The storage is recreated if the limits differ from the previous request.
+         */
+        @JvmStatic
+        @Synchronized
+        fun getShared(maxMethodNodes: Int, maxClassBytes: Long?): InlineCacheStorage {
+            shared?.let { storage ->
+                if (storage.maxMethodNodes == maxMethodNodes && storage.maxClassBytes == maxClassBytes) return storage
+            }
+            return InlineCacheStorage(maxMethodNodes, maxClassBytes).also { shared = it }
+        }
     }
 }
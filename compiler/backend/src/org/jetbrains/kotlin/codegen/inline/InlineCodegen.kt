@@ -478,16 +478,17 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
                 return sourceCompilerForInline.doCreateMethodNodeFromSource(functionDescriptor, jvmSignature, callDefault, asmMethod)
             }
 
-            val resultInCache = state.inlineCache.methodNodeById.getOrPut(methodId) {
-                val result = doCreateMethodNodeFromCompiled(directMember, state, asmMethod)
-                    ?: if (functionDescriptor.isSuspend)
-                        doCreateMethodNodeFromCompiled(directMember, state, jvmSignature.asmMethod)
-                    else
-                        null
-                result ?: throw IllegalStateException("Couldn't obtain compiled function body for $functionDescriptor")
+            val resultInCache = doCreateMethodNodeFromCompiled(directMember, state, methodId)
+                ?: if (functionDescriptor.isSuspend)
+                    doCreateMethodNodeFromCompiled(directMember, state, MethodId(owner.internalName, jvmSignature.asmMethod))
+                else
+                    null
+            resultInCache ?: throw IllegalStateException("Couldn't obtain compiled function body for $functionDescriptor")
+
+            // Cached nodes are shared between threads and modules, and cloning resets their labels
+            return synchronized(resultInCache.node) {
+                resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.node))
             }
-
-            return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.node))
         }
 
         private fun createDefaultFakeSMAP() = SMAPParser.parseOrCreateDefault(null, null, "fake", -1, -1)
@@ -516,16 +517,20 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
         private fun doCreateMethodNodeFromCompiled(
             callableDescriptor: CallableMemberDescriptor,
             state: GenerationState,
-            asmMethod: Method
+            methodId: MethodId
         ): SMAPAndMethodNode? {
+            val asmMethod = methodId.method
             if (isBuiltInArrayIntrinsic(callableDescriptor)) {
-                val body = when {
-                    callableDescriptor is FictitiousArrayConstructor -> IntrinsicArrayConstructors.generateArrayConstructorBody(asmMethod)
-                    callableDescriptor.name.asString() == "emptyArray" -> IntrinsicArrayConstructors.generateEmptyArrayBody(asmMethod)
-                    callableDescriptor.name.asString() == "arrayOf" -> IntrinsicArrayConstructors.generateArrayOfBody(asmMethod)
-                    else -> throw UnsupportedOperationException("Not an array intrinsic: $callableDescriptor")
+                return state.inlineCache.getOrCreateGeneratedMethodNode(methodId) {
+                    val body = when {
+                        callableDescriptor is FictitiousArrayConstructor ->
+                            IntrinsicArrayConstructors.generateArrayConstructorBody(asmMethod)
+                        callableDescriptor.name.asString() == "emptyArray" -> IntrinsicArrayConstructors.generateEmptyArrayBody(asmMethod)
+                        callableDescriptor.name.asString() == "arrayOf" -> IntrinsicArrayConstructors.generateArrayOfBody(asmMethod)
+                        else -> throw UnsupportedOperationException("Not an array intrinsic: $callableDescriptor")
+                    }
+                    SMAPAndMethodNode(body, SMAP(listOf(FileMapping.SKIP)))
                 }
-                return SMAPAndMethodNode(body, SMAP(listOf(FileMapping.SKIP)))
             }
 
             assert(callableDescriptor is DeserializedCallableMemberDescriptor) { "Not a deserialized function or proper: " + callableDescriptor }
@@ -535,21 +540,22 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
 
             val containerId = containingClasses.implClassId
 
-            val bytes = state.inlineCache.classBytes.getOrPut(containerId) {
-                findVirtualFile(state, containerId)?.contentsToByteArray()
-                    ?: throw IllegalStateException("Couldn't find declaration file for " + containerId)
+            val findFile = {
+                findVirtualFile(state, containerId) ?: throw IllegalStateException("Couldn't find declaration file for " + containerId)
             }
 
-            val methodNode =
-                getMethodNode(bytes, asmMethod.name, asmMethod.descriptor, AsmUtil.asmTypeByClassId(containerId)) ?: return null
+            return state.inlineCache.getOrCreateMethodNode(containerId, methodId, findFile) { bytes ->
+                val methodNode = getMethodNode(bytes, asmMethod.name, asmMethod.descriptor, AsmUtil.asmTypeByClassId(containerId))
+                    ?: return@getOrCreateMethodNode null
 
-            // KLUDGE: Inline suspend function built with compiler version less than 1.1.4/1.2-M1 did not contain proper
-            // before/after suspension point marks, so we detect those functions here and insert the corresponding marks
-            if (isLegacySuspendInlineFunction(callableDescriptor)) {
-                insertLegacySuspendInlineMarks(methodNode.node)
-            }
+                // KLUDGE: Inline suspend function built with compiler version less than 1.1.4/1.2-M1 did not contain proper
+                // before/after suspension point marks, so we detect those functions here and insert the corresponding marks
+                if (isLegacySuspendInlineFunction(callableDescriptor)) {
+                    insertLegacySuspendInlineMarks(methodNode.node)
+                }
 
-            return methodNode
+                methodNode
+            }
         }
 
         private fun isBuiltInArrayIntrinsic(callableDescriptor: CallableMemberDescriptor): Boolean {
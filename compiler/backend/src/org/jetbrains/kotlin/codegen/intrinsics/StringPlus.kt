@@ -18,8 +18,27 @@ package org.jetbrains.kotlin.codegen.intrinsics
 
 import org.jetbrains.kotlin.codegen.Callable
 import org.jetbrains.kotlin.codegen.CallableMethod
+import org.jetbrains.kotlin.codegen.ExpressionCodegen
+import org.jetbrains.kotlin.codegen.StringConcatGenerator
+import org.jetbrains.kotlin.config.JvmStringConcat
+import org.jetbrains.kotlin.descriptors.FunctionDescriptor
+import org.jetbrains.kotlin.resolve.calls.model.ResolvedCall
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes
 
 class StringPlus : IntrinsicMethod() {
+    override fun toCallable(fd: FunctionDescriptor, isSuper: Boolean, resolvedCall: ResolvedCall<*>, codegen: ExpressionCodegen): Callable {
+        val method = codegen.state.typeMapper.mapToCallableMethod(fd, false)
+        if (codegen.state.runtimeStringConcat == JvmStringConcat.INLINE) return toCallable(method)
+
+        return createIntrinsicCallable(method) {
+            // Both arguments are already on the stack, which is fine since neither String nor Object needs to be converted
+            val generator = StringConcatGenerator(codegen.state.runtimeStringConcat, it)
+            generator.invokeAppend(AsmTypes.JAVA_STRING_TYPE, null)
+            generator.invokeAppend(AsmTypes.OBJECT_TYPE, null)
+            generator.genToString()
+        }
+    }
+
     override fun toCallable(method: CallableMethod): Callable =
             createIntrinsicCallable(method) {
                 it.invokestatic(IntrinsicMethods.INTRINSICS_CLASS_NAME, "stringPlus",
@@ -17,6 +17,8 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.inline.remove
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockAnalyzer
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockAnalyzer.BasicBlockFrames
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
@@ -31,11 +33,11 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
     }
 
     fun transformWithResult(internalClassName: String, methodNode: MethodNode): Result {
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+        val frames = BasicBlockAnalyzer(internalClassName, methodNode, OptimizationBasicInterpreter()).analyze()
         return removeDeadCodeByFrames(methodNode, frames)
     }
 
-    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: Array<out Any?>): Result {
+    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: BasicBlockFrames<*>): Result {
         val insnsToRemove = ArrayList<AbstractInsnNode>()
 
         val insns = methodNode.instructions.toArray()
@@ -54,7 +56,7 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
         return Result(insnsToRemove.toSet())
     }
 
-    private fun shouldRemove(insn: AbstractInsnNode, index: Int, frames: Array<out Any?>): Boolean =
+    private fun shouldRemove(insn: AbstractInsnNode, index: Int, frames: BasicBlockFrames<*>): Boolean =
         when (insn) {
             is LabelNode ->
                 // Do not remove label nodes because they can be referred by try/catch blocks or local variables table
@@ -62,10 +64,10 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
             is LineNumberNode ->
                 isDeadLineNumber(insn, index, frames)
             else ->
-                frames[index] == null
+                !frames.isReachable(index)
         }
 
-    private fun isDeadLineNumber(insn: LineNumberNode, index: Int, frames: Array<out Any?>): Boolean {
+    private fun isDeadLineNumber(insn: LineNumberNode, index: Int, frames: BasicBlockFrames<*>): Boolean {
         // Line number node is "dead" if the corresponding line number interval
         // contains at least one "dead" meaningful instruction and no "live" meaningful instructions.
         var finger: AbstractInsnNode = insn
@@ -80,7 +82,7 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
                 is LineNumberNode ->
                     if (finger.line != insn.line) return hasDeadInsn
                 else -> {
-                    if (frames[fingerIndex] != null) return false
+                    if (frames.isReachable(fingerIndex)) return false
                     hasDeadInsn = true
                 }
             }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import org.jetbrains.kotlin.codegen.TransformationMethodVisitor
+import org.jetbrains.org.objectweb.asm.MethodVisitor
+import org.jetbrains.org.objectweb.asm.Opcodes
+import java.util.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.FutureTask
+
+/**
+ * Transforms methods of one class on [executor] while the rest of the class is being generated.
+ *
+ * Bytes of a class file depend on the order in which its parts are written to the class writer (e.g. the constant pool
+ * is filled in this order), so the class builder which owns the queue doesn't write anything to its delegate directly.
+ * Creation of method visitors and writing of transformed methods are recorded in the queue, and [flush] replays them
+ * in the original order, waiting for transformations which haven't completed yet. The class builder must call [flush]
+ * before any other call to its delegate, so that the output doesn't depend on whether the methods were transformed in parallel.
+ */
+class MethodOptimizationQueue(private val executor: Executor) {
+    private val actions = ArrayDeque<() -> Unit>()
+
+    /**
+     * Returns a method visitor which forwards to the one returned by [create], which is called on [flush].
+     */
+    fun newMethod(create: () -> MethodVisitor): MethodVisitor {
+        val visitor = DeferredMethodVisitor()
+        actions.addLast { visitor.bind(create()) }
+        return visitor
+    }
+
+    fun submit(method: TransformationMethodVisitor) {
+        val transformation = FutureTask { method.transform() }
+        executor.execute(transformation)
+        actions.addLast {
+            try {
+                transformation.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+            method.emit()
+        }
+    }
+
+    /**
+     * Transforms [method] on the current thread, for transformations which are not thread-safe, and queues writing it.
+     */
+    fun transformInCurrentThread(method: TransformationMethodVisitor) {
+        method.transform()
+        actions.addLast { method.emit() }
+    }
+
+    fun flush() {
+        while (actions.isNotEmpty()) {
+            actions.removeFirst().invoke()
+        }
+    }
+
+    private class DeferredMethodVisitor : MethodVisitor(Opcodes.API_VERSION) {
+        fun bind(delegate: MethodVisitor) {
+            mv = delegate
+        }
+    }
+}
@@ -16,21 +16,42 @@
 
 package org.jetbrains.kotlin.codegen.optimization;
 
+import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.ClassBuilder;
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilder;
+import org.jetbrains.kotlin.codegen.inline.FileMapping;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
+import org.jetbrains.org.objectweb.asm.AnnotationVisitor;
+import org.jetbrains.org.objectweb.asm.ClassVisitor;
+import org.jetbrains.org.objectweb.asm.FieldVisitor;
 import org.jetbrains.org.objectweb.asm.MethodVisitor;
 
+import java.util.concurrent.Executor;
+
 public class OptimizationClassBuilder extends DelegatingClassBuilder {
     private final ClassBuilder delegate;
     private final GenerationState generationState;
+    @Nullable
+    private final MethodOptimizationQueue optimizationQueue;
 
     public OptimizationClassBuilder(@NotNull ClassBuilder delegate, @NotNull GenerationState generationState) {
+        this(delegate, generationState, null);
+    }
+
+    /**
+     * @param methodOptimizationExecutor if not null, methods are optimized on this executor, see {@link MethodOptimizationQueue}
+     */
+    public OptimizationClassBuilder(
+            @NotNull ClassBuilder delegate,
+            @NotNull GenerationState generationState,
+            @Nullable Executor methodOptimizationExecutor
+    ) {
         this.delegate = delegate;
         this.generationState = generationState;
+        this.optimizationQueue = methodOptimizationExecutor != null ? new MethodOptimizationQueue(methodOptimizationExecutor) : null;
     }
 
     @NotNull
@@ -39,6 +60,12 @@ public class OptimizationClassBuilder extends DelegatingClassBuilder {
         return delegate;
     }
 
+    private void flushOptimizedMethods() {
+        if (optimizationQueue != null) {
+            optimizationQueue.flush();
+        }
+    }
+
     @NotNull
     @Override
     public MethodVisitor newMethod(
@@ -49,9 +76,83 @@ public class OptimizationClassBuilder extends DelegatingClassBuilder {
             @Nullable String signature,
             @Nullable String[] exceptions
     ) {
+        MethodVisitor methodVisitor = optimizationQueue != null
+                                      ? optimizationQueue.newMethod(() -> super.newMethod(origin, access, name, desc, signature, exceptions))
+                                      : super.newMethod(origin, access, name, desc, signature, exceptions);
         return new OptimizationMethodVisitor(
-                super.newMethod(origin, access, name, desc, signature, exceptions),
-                generationState, access, name, desc, signature, exceptions
+                methodVisitor, generationState, access, name, desc, signature, exceptions, optimizationQueue
         );
     }
+
+    @NotNull
+    @Override
+    public FieldVisitor newField(
+            @NotNull JvmDeclarationOrigin origin,
+            int access,
+            @NotNull String name,
+            @NotNull String desc,
+            @Nullable String signature,
+            @Nullable Object value
+    ) {
+        flushOptimizedMethods();
+        return super.newField(origin, access, name, desc, signature, value);
+    }
+
+    @NotNull
+    @Override
+    public AnnotationVisitor newAnnotation(@NotNull String desc, boolean visible) {
+        flushOptimizedMethods();
+        return super.newAnnotation(desc, visible);
+    }
+
+    @Override
+    public void done() {
+        flushOptimizedMethods();
+        super.done();
+    }
+
+    @NotNull
+    @Override
+    public ClassVisitor getVisitor() {
+        flushOptimizedMethods();
+        return super.getVisitor();
+    }
+
+    @Override
+    public void defineClass(
+            @Nullable PsiElement origin,
+            int version,
+            int access,
+            @NotNull String name,
+            @Nullable String signature,
+            @NotNull String superName,
+            @NotNull String[] interfaces
+    ) {
+        flushOptimizedMethods();
+        super.defineClass(origin, version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public void visitSource(@NotNull String name, @Nullable String debug) {
+        flushOptimizedMethods();
+        super.visitSource(name, debug);
+    }
+
+    @Override
+    public void visitOuterClass(@NotNull String owner, @Nullable String name, @Nullable String desc) {
+        flushOptimizedMethods();
+        super.visitOuterClass(owner, name, desc);
+    }
+
+    @Override
+    public void visitInnerClass(@NotNull String name, @Nullable String outerName, @Nullable String innerName, int access) {
+        flushOptimizedMethods();
+        super.visitInnerClass(name, outerName, innerName, access);
+    }
+
+    @Override
+    public void addSMAP(FileMapping mapping) {
+        flushOptimizedMethods();
+        super.addSMAP(mapping);
+    }
 }
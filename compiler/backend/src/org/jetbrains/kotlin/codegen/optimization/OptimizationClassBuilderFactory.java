@@ -17,22 +17,55 @@
 package org.jetbrains.kotlin.codegen.optimization;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.ClassBuilderFactory;
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilderFactory;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
 
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 public class OptimizationClassBuilderFactory extends DelegatingClassBuilderFactory {
     private final GenerationState generationState;
+    @Nullable
+    private final ThreadPoolExecutor methodOptimizationExecutor;
 
     public OptimizationClassBuilderFactory(ClassBuilderFactory delegate, @NotNull GenerationState generationState) {
         super(delegate);
         this.generationState = generationState;
+        this.methodOptimizationExecutor = createMethodOptimizationExecutor(generationState.getMethodOptimizationThreads());
+    }
+
+    @Nullable
+    private static ThreadPoolExecutor createMethodOptimizationExecutor(int threads) {
+        if (threads <= 1) return null;
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Kotlin method optimization");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        // Generation state is not always destroyed, so idle threads shouldn't keep living
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @NotNull
     @Override
     public OptimizationClassBuilder newClassBuilder(@NotNull JvmDeclarationOrigin origin) {
-        return new OptimizationClassBuilder(getDelegate().newClassBuilder(origin), generationState);
+        return new OptimizationClassBuilder(getDelegate().newClassBuilder(origin), generationState, methodOptimizationExecutor);
+    }
+
+    @Override
+    public void close() {
+        if (methodOptimizationExecutor != null) {
+            methodOptimizationExecutor.shutdownNow();
+        }
+        super.close();
     }
 }
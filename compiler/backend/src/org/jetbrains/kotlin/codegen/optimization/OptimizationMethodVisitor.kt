@@ -20,6 +20,7 @@ import org.jetbrains.kotlin.codegen.TransformationMethodVisitor
 import org.jetbrains.kotlin.codegen.optimization.boxing.PopBackwardPropagationTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.RedundantBoxingMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.StackPeepholeOptimizationsTransformer
+import org.jetbrains.kotlin.codegen.optimization.boxing.mayCallInlineClassBoxingOrUnboxing
 import org.jetbrains.kotlin.codegen.optimization.common.prepareForEmitting
 import org.jetbrains.kotlin.codegen.optimization.nullCheck.RedundantNullCheckMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.transformer.CompositeMethodTransformer
@@ -34,7 +35,8 @@ class OptimizationMethodVisitor(
     name: String,
     desc: String,
     signature: String?,
-    exceptions: Array<String>?
+    exceptions: Array<String>?,
+    private val optimizationQueue: MethodOptimizationQueue?
 ) : TransformationMethodVisitor(delegate, access, name, desc, signature, exceptions) {
     private val constructorCallNormalizationTransformer =
         UninitializedStoresMethodTransformer(generationState.constructorCallNormalizationMode)
@@ -58,12 +60,26 @@ class OptimizationMethodVisitor(
         MethodVerifier("AFTER optimizations")
     )
 
+    // Optimizations which don't keep a frame for every instruction (see BasicBlockAnalyzer), for methods too large for the others
+    private val largeMethodOptimizationTransformer = CompositeMethodTransformer(
+        RedundantCheckCastEliminationMethodTransformer(),
+        ConstantConditionEliminationMethodTransformer(),
+        DeadCodeEliminationMethodTransformer(),
+        RedundantGotoMethodTransformer(),
+        RedundantNopsCleanupMethodTransformer(),
+        MethodVerifier("AFTER optimizations of large method")
+    )
+
     override fun performTransformations(methodNode: MethodNode) {
         normalizationMethodTransformer.transform("fake", methodNode)
         constructorCallNormalizationTransformer.transform("fake", methodNode)
 
-        if (canBeOptimized(methodNode) && !generationState.disableOptimization) {
-            optimizationTransformer.transform("fake", methodNode)
+        if (!generationState.disableOptimization) {
+            if (canBeOptimized(methodNode)) {
+                optimizationTransformer.transform("fake", methodNode)
+            } else {
+                largeMethodOptimizationTransformer.transform("fake", methodNode)
+            }
         }
 
         DeadCodeEliminationMethodTransformer().transform("fake", methodNode)
@@ -71,6 +87,15 @@ class OptimizationMethodVisitor(
         methodNode.prepareForEmitting()
     }
 
+    override fun transformAndEmit() {
+        when {
+            optimizationQueue == null -> super.transformAndEmit()
+            // Boxing optimizations resolve descriptors of inline classes, which may only be done on the thread generating the class
+            methodNode.mayCallInlineClassBoxingOrUnboxing() -> optimizationQueue.transformInCurrentThread(this)
+            else -> optimizationQueue.submit(this)
+        }
+    }
+
     companion object {
         private val MEMORY_LIMIT_BY_METHOD_MB = 50
 
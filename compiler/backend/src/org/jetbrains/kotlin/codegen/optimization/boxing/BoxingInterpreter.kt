@@ -31,6 +31,7 @@ import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
 import org.jetbrains.org.objectweb.asm.tree.InsnList
 import org.jetbrains.org.objectweb.asm.tree.MethodInsnNode
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
 import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
 import java.util.*
 
@@ -233,6 +234,16 @@ private fun AbstractInsnNode.isInlineClassUnboxing(state: GenerationState) =
         isInlineClassUnboxingMethodDescriptor(state)
     }
 
+/**
+ * Boxing and unboxing of inline classes is recognized by resolving the descriptor of the owner class, see [isInlineClassBoxing],
+ * and so are the unboxed types of inline class values. Optimizations of a method without calls which could be inline class
+ * boxing or unboxing never use descriptors, and so can be performed on any thread.
+ */
+fun MethodNode.mayCallInlineClassBoxingOrUnboxing(): Boolean =
+    instructions.toArray().any {
+        it is MethodInsnNode && (it.name == KotlinTypeMapper.BOX_JVM_METHOD_NAME || it.name == KotlinTypeMapper.UNBOX_JVM_METHOD_NAME)
+    }
+
 private fun MethodInsnNode.isInlineClassBoxingMethodDescriptor(state: GenerationState): Boolean {
     if (name != KotlinTypeMapper.BOX_JVM_METHOD_NAME) return false
 
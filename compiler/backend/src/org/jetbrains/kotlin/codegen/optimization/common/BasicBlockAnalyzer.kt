@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.common
+
+import org.jetbrains.kotlin.codegen.inline.insnText
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.tree.*
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+
+/**
+ * Forward data flow analysis of a method which, unlike [MethodAnalyzer], keeps frames only at the beginnings of basic blocks.
+ * Frames of other instructions are recomputed from the frame of their block when requested, see [BasicBlockFrames.get].
+ *
+ * Memory taken by the analysis is proportional to the number of basic blocks rather than to the number of instructions,
+ * so it can be used for methods which are too large for [MethodAnalyzer]. The resulting frames are the same as the ones
+ * computed by [MethodAnalyzer] as long as [Interpreter.merge] of the interpreter computes the least upper bound of two values.
+ */
+class BasicBlockAnalyzer<V : Value>(
+    private val owner: String,
+    private val method: MethodNode,
+    private val interpreter: Interpreter<V>
+) {
+    private val instructions = method.instructions
+    private val insns = instructions.toArray()
+    private val nInsns = insns.size
+
+    private val blockIndex = IntArray(nInsns)
+    private val blockStarts: IntArray
+    private val blockFrames: Array<Frame<V>?>
+
+    private val handlers: Array<MutableList<TryCatchBlockNode>?> = arrayOfNulls(nInsns)
+    private val queued: BooleanArray
+    private val queue: IntArray
+    private var top = 0
+
+    init {
+        val isBlockStart = BooleanArray(nInsns)
+        if (nInsns > 0) {
+            isBlockStart[0] = true
+        }
+        for (i in 0 until nInsns) {
+            val insn = insns[i]
+            when (insn) {
+                is JumpInsnNode ->
+                    isBlockStart[instructions.indexOf(insn.label)] = true
+                is TableSwitchInsnNode -> {
+                    isBlockStart[instructions.indexOf(insn.dflt)] = true
+                    insn.labels.forEach { isBlockStart[instructions.indexOf(it)] = true }
+                }
+                is LookupSwitchInsnNode -> {
+                    isBlockStart[instructions.indexOf(insn.dflt)] = true
+                    insn.labels.forEach { isBlockStart[instructions.indexOf(it)] = true }
+                }
+            }
+            if (endsBlock(insn) && i + 1 < nInsns) {
+                isBlockStart[i + 1] = true
+            }
+        }
+        for (tcb in method.tryCatchBlocks) {
+            isBlockStart[instructions.indexOf(tcb.handler)] = true
+        }
+
+        val starts = ArrayList<Int>()
+        for (i in 0 until nInsns) {
+            if (isBlockStart[i]) {
+                starts.add(i)
+            }
+            blockIndex[i] = starts.size - 1
+        }
+        blockStarts = starts.toIntArray()
+        blockFrames = arrayOfNulls(blockStarts.size)
+        queued = BooleanArray(blockStarts.size)
+        queue = IntArray(blockStarts.size)
+    }
+
+    fun analyze(): BasicBlockFrames<V> {
+        if (nInsns == 0) return BasicBlockFrames(this)
+
+        if (insns.any { it.opcode == Opcodes.JSR || it.opcode == Opcodes.RET })
+            throw AssertionError("Subroutines are deprecated since Java 6")
+
+        computeExceptionHandlersForEachInsn()
+
+        val current = Frame<V>(method.maxLocals, method.maxStack)
+        val handler = Frame<V>(method.maxLocals, method.maxStack)
+        initControlFlowAnalysis(current)
+
+        while (top > 0) {
+            val block = queue[--top]
+            queued[block] = false
+
+            current.init(blockFrames[block]!!)
+            val end = blockEnd(block)
+            for (insn in blockStarts[block] until end) {
+                val insnNode = insns[insn]
+                try {
+                    handlers[insn]?.forEach { tcb ->
+                        handler.init(current)
+                        handler.clearStack()
+                        handler.push(interpreter.newValue(Type.getObjectType(tcb.type ?: "java/lang/Throwable")))
+                        mergeControlFlowEdge(instructions.indexOf(tcb.handler), handler)
+                    }
+
+                    if (!isNop(insnNode)) {
+                        current.execute(insnNode, interpreter)
+                    }
+                } catch (e: AnalyzerException) {
+                    throw AnalyzerException(e.node, "Error at instruction #$insn ${insnNode.insnText}: ${e.message}", e)
+                } catch (e: Exception) {
+                    throw AnalyzerException(insnNode, "Error at instruction #$insn ${insnNode.insnText}: ${e.message}", e)
+                }
+            }
+
+            val last = insns[end - 1]
+            if (end == nInsns && (!endsBlock(last) || last is JumpInsnNode && last.opcode != Opcodes.GOTO)) {
+                throw AnalyzerException(last, "Execution can fall off the end of the code")
+            }
+
+            when (last) {
+                is JumpInsnNode -> {
+                    if (last.opcode != Opcodes.GOTO) {
+                        mergeControlFlowEdge(end, current)
+                    }
+                    mergeControlFlowEdge(instructions.indexOf(last.label), current)
+                }
+                is TableSwitchInsnNode -> {
+                    mergeControlFlowEdge(instructions.indexOf(last.dflt), current)
+                    last.labels.forEach { mergeControlFlowEdge(instructions.indexOf(it), current) }
+                }
+                is LookupSwitchInsnNode -> {
+                    mergeControlFlowEdge(instructions.indexOf(last.dflt), current)
+                    last.labels.forEach { mergeControlFlowEdge(instructions.indexOf(it), current) }
+                }
+                else ->
+                    if (!endsBlock(last)) {
+                        mergeControlFlowEdge(end, current)
+                    }
+            }
+        }
+
+        return BasicBlockFrames(this)
+    }
+
+    private fun blockEnd(block: Int): Int =
+        if (block + 1 < blockStarts.size) blockStarts[block + 1] else nInsns
+
+    private fun initControlFlowAnalysis(current: Frame<V>) {
+        current.setReturn(interpreter.newValue(Type.getReturnType(method.desc)))
+        var local = 0
+        if ((method.access and Opcodes.ACC_STATIC) == 0) {
+            current.setLocal(local++, interpreter.newValue(Type.getObjectType(owner)))
+        }
+        for (arg in Type.getArgumentTypes(method.desc)) {
+            current.setLocal(local++, interpreter.newValue(arg))
+            if (arg.size == 2) {
+                current.setLocal(local++, interpreter.newValue(null))
+            }
+        }
+        while (local < method.maxLocals) {
+            current.setLocal(local++, interpreter.newValue(null))
+        }
+        mergeControlFlowEdge(0, current)
+    }
+
+    private fun computeExceptionHandlersForEachInsn() {
+        for (tcb in method.tryCatchBlocks) {
+            val begin = instructions.indexOf(tcb.start)
+            val end = instructions.indexOf(tcb.end)
+            for (j in begin until end) {
+                val insnHandlers = handlers[j] ?: ArrayList<TryCatchBlockNode>().also { handlers[j] = it }
+                insnHandlers.add(tcb)
+            }
+        }
+    }
+
+    private fun mergeControlFlowEdge(insn: Int, frame: Frame<V>) {
+        val block = blockIndex[insn]
+        assert(blockStarts[block] == insn) { "Control flow edge to the middle of a basic block: #$insn ${insns[insn].insnText}" }
+        val oldFrame = blockFrames[block]
+        val changes =
+            if (oldFrame != null)
+                oldFrame.merge(frame, interpreter)
+            else {
+                blockFrames[block] = Frame(frame)
+                true
+            }
+        if (changes && !queued[block]) {
+            queued[block] = true
+            queue[top++] = block
+        }
+    }
+
+    /**
+     * Frames computed by [BasicBlockAnalyzer]. Frames of consequent instructions of the same basic block are computed
+     * incrementally, so iterating over instructions in their order interprets every instruction only once more.
+     */
+    class BasicBlockFrames<V : Value> internal constructor(private val analyzer: BasicBlockAnalyzer<V>) {
+        private var cursor = -1
+        private var cursorFrame: Frame<V>? = null
+
+        val size: Int
+            get() = analyzer.nInsns
+
+        fun isReachable(index: Int): Boolean =
+            analyzer.blockFrames[analyzer.blockIndex[index]] != null
+
+        /**
+         * Returns the frame before the instruction with the given index, or `null` if the instruction is unreachable.
+         * The returned frame is reused by subsequent calls, so it must not be stored.
+         */
+        operator fun get(index: Int): Frame<V>? {
+            val block = analyzer.blockIndex[index]
+            val blockFrame = analyzer.blockFrames[block] ?: return null
+            val blockStart = analyzer.blockStarts[block]
+
+            val frame = cursorFrame?.takeIf { cursor in blockStart..index } ?: run {
+                cursor = blockStart
+                (cursorFrame ?: Frame(blockFrame)).init(blockFrame)
+            }
+            while (cursor < index) {
+                val insn = analyzer.insns[cursor]
+                if (!isNop(insn)) {
+                    frame.execute(insn, analyzer.interpreter)
+                }
+                cursor++
+            }
+            cursorFrame = frame
+            return frame
+        }
+
+        fun getFrame(insn: AbstractInsnNode): Frame<V>? =
+            get(analyzer.instructions.indexOf(insn))
+    }
+
+    companion object {
+        private fun endsBlock(insn: AbstractInsnNode): Boolean =
+            when (insn.opcode) {
+                Opcodes.GOTO, Opcodes.ATHROW, in Opcodes.IRETURN..Opcodes.RETURN -> true
+                else -> insn is JumpInsnNode || insn is TableSwitchInsnNode || insn is LookupSwitchInsnNode
+            }
+
+        private fun isNop(insn: AbstractInsnNode): Boolean =
+            insn.type == AbstractInsnNode.LABEL || insn.type == AbstractInsnNode.LINE || insn.type == AbstractInsnNode.FRAME
+    }
+}
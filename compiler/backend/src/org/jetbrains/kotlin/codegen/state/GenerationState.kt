@@ -16,6 +16,7 @@ import org.jetbrains.kotlin.codegen.context.RootContext
 import org.jetbrains.kotlin.codegen.extensions.ClassBuilderInterceptorExtension
 import org.jetbrains.kotlin.codegen.inline.GlobalInlineContext
 import org.jetbrains.kotlin.codegen.inline.InlineCache
+import org.jetbrains.kotlin.codegen.inline.InlineCacheStorage
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods
 import org.jetbrains.kotlin.codegen.optimization.OptimizationClassBuilderFactory
 import org.jetbrains.kotlin.config.*
@@ -135,7 +136,17 @@ class GenerationState private constructor(
         }
     }
 
-    val inlineCache: InlineCache = InlineCache()
+    val inlineCache: InlineCache = run {
+        val size = configuration.get(JVMConfigurationKeys.INLINE_CACHE_SIZE)
+        val memory = configuration.get(JVMConfigurationKeys.INLINE_CACHE_MEMORY)
+        if (size == null && memory == null) InlineCache()
+        else InlineCache(
+            InlineCacheStorage.getShared(
+                size ?: InlineCacheStorage.DEFAULT_MAX_METHOD_NODES,
+                memory?.let { it.toLong() * 1024 * 1024 }
+            )
+        )
+    }
 
     val incrementalCacheForThisTarget: IncrementalCache?
     val packagesWithObsoleteParts: Set<FqName>
@@ -226,6 +237,12 @@ class GenerationState private constructor(
                 !languageVersionSettings.supportsFeature(LanguageFeature.NullabilityAssertionOnExtensionReceiver)
     val isParamAssertionsDisabled: Boolean = configuration.getBoolean(JVMConfigurationKeys.DISABLE_PARAM_ASSERTIONS)
     val assertionsMode: JVMAssertionsMode = configuration.get(JVMConfigurationKeys.ASSERTIONS_MODE, JVMAssertionsMode.DEFAULT)
+    val runtimeStringConcat: JvmStringConcat =
+        if (target >= JvmTarget.JVM_9) configuration.get(JVMConfigurationKeys.STRING_CONCAT, JvmStringConcat.DEFAULT)
+        else JvmStringConcat.INLINE
+    val lambdasScheme: JvmClosureGenerationScheme =
+        if (target >= JvmTarget.JVM_1_8) configuration.get(JVMConfigurationKeys.LAMBDAS, JvmClosureGenerationScheme.DEFAULT)
+        else JvmClosureGenerationScheme.CLASS
     val isInlineDisabled: Boolean = configuration.getBoolean(CommonConfigurationKeys.DISABLE_INLINE)
     val useTypeTableInSerializer: Boolean = configuration.getBoolean(JVMConfigurationKeys.USE_TYPE_TABLE)
 
@@ -249,6 +266,8 @@ class GenerationState private constructor(
 
     val disableOptimization = configuration.get(JVMConfigurationKeys.DISABLE_OPTIMIZATION, false)
 
+    val methodOptimizationThreads = configuration.get(JVMConfigurationKeys.PARALLEL_METHOD_OPTIMIZATION_THREADS, 1)
+
     val metadataVersion = configuration.get(CommonConfigurationKeys.METADATA_VERSION) ?: JvmMetadataVersion.INSTANCE
 
     init {
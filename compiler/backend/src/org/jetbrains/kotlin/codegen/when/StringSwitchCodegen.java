@@ -25,16 +25,21 @@ import org.jetbrains.kotlin.resolve.constants.StringValue;
 import org.jetbrains.org.objectweb.asm.Label;
 import org.jetbrains.org.objectweb.asm.Type;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class StringSwitchCodegen extends SwitchCodegen {
     private static final String HASH_CODE_METHOD_DESC = Type.getMethodDescriptor(Type.INT_TYPE);
     private static final String EQUALS_METHOD_DESC = Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.getType(Object.class));
+    private static final String LENGTH_METHOD_DESC = Type.getMethodDescriptor(Type.INT_TYPE);
+    private static final String CHAR_AT_METHOD_DESC = Type.getMethodDescriptor(Type.CHAR_TYPE, Type.INT_TYPE);
+
+    // With this many different strings, the subject is dispatched by its length and then by its characters instead of its hash code:
+    // a binary search over hash codes in a large lookupswitch is replaced with a few switches, and exactly one `equals` is called
+    private static final int LENGTH_DISPATCH_MIN_CASES = 64;
 
     private final Map<Integer, List<Pair<String, Label>>> hashCodesToStringAndEntryLabel = new HashMap<>();
+    private final Map<String, Label> stringsToEntryLabel = new LinkedHashMap<>();
+    private final NavigableMap<Integer, List<String>> lengthsToStrings = new TreeMap<>();
     private int tempVarIndex;
 
     public StringSwitchCodegen(
@@ -51,14 +56,19 @@ public class StringSwitchCodegen extends SwitchCodegen {
             @NotNull ConstantValue<?> constant, @NotNull Label entryLabel
     ) {
         assert constant instanceof StringValue : "guaranteed by usage contract";
+        String value = ((StringValue) constant).getValue();
         int hashCode = constant.hashCode();
 
-        if (!transitionsTable.containsKey(hashCode)) {
-            transitionsTable.put(hashCode, new Label());
+        if (!hashCodesToStringAndEntryLabel.containsKey(hashCode)) {
             hashCodesToStringAndEntryLabel.put(hashCode, new ArrayList<>());
         }
 
-        hashCodesToStringAndEntryLabel.get(hashCode).add(new Pair<>(((StringValue) constant).getValue(), entryLabel));
+        hashCodesToStringAndEntryLabel.get(hashCode).add(new Pair<>(value, entryLabel));
+
+        // If the same string is in several entries, the first one is taken
+        if (!stringsToEntryLabel.containsKey(value)) {
+            stringsToEntryLabel.put(value, entryLabel);
+        }
     }
 
     @Override
@@ -67,6 +77,10 @@ public class StringSwitchCodegen extends SwitchCodegen {
         codegen.myFrameMap.leaveTemp(subjectType);
     }
 
+    private boolean isDispatchedByLength() {
+        return stringsToEntryLabel.size() >= LENGTH_DISPATCH_MIN_CASES;
+    }
+
     @Override
     protected void generateSubjectValueToIndex() {
         generateNullCheckIfNeeded();
@@ -75,6 +89,22 @@ public class StringSwitchCodegen extends SwitchCodegen {
         v.store(tempVarIndex, subjectType);
         v.load(tempVarIndex, subjectType);
 
+        if (isDispatchedByLength()) {
+            for (String value : stringsToEntryLabel.keySet()) {
+                lengthsToStrings.computeIfAbsent(value.length(), length -> new ArrayList<>()).add(value);
+            }
+            for (int length : lengthsToStrings.keySet()) {
+                transitionsTable.put(length, new Label());
+            }
+
+            v.invokevirtual(subjectType.getInternalName(), "length", LENGTH_METHOD_DESC, false);
+            return;
+        }
+
+        for (int hashCode : hashCodesToStringAndEntryLabel.keySet()) {
+            transitionsTable.put(hashCode, new Label());
+        }
+
         v.invokevirtual(
                 subjectType.getInternalName(),
                 "hashCode", HASH_CODE_METHOD_DESC, false
@@ -83,6 +113,16 @@ public class StringSwitchCodegen extends SwitchCodegen {
 
     @Override
     protected void generateEntries() {
+        if (isDispatchedByLength()) {
+            for (Map.Entry<Integer, List<String>> entry : lengthsToStrings.entrySet()) {
+                v.visitLabel(transitionsTable.get(entry.getKey()));
+                generateDispatchByCharacters(entry.getValue());
+            }
+
+            super.generateEntries();
+            return;
+        }
+
         for (int hashCode : hashCodesToStringAndEntryLabel.keySet()) {
             v.visitLabel(transitionsTable.get(hashCode));
 
@@ -96,14 +136,7 @@ public class StringSwitchCodegen extends SwitchCodegen {
 
                 Pair<String, Label> stringAndEntryLabel = items.get(i);
 
-                v.load(tempVarIndex, subjectType);
-                v.aconst(stringAndEntryLabel.first);
-                v.invokevirtual(
-                        subjectType.getInternalName(),
-                        "equals",
-                        EQUALS_METHOD_DESC,
-                        false
-                );
+                generateEquals(stringAndEntryLabel.first);
 
                 if (i + 1 < items.size()) {
                     nextLabel = new Label();
@@ -119,4 +152,68 @@ public class StringSwitchCodegen extends SwitchCodegen {
 
         super.generateEntries();
     }
+
+    /**
+     * Dispatches the subject between different [strings] of the same length by the character at the position where they differ most,
+     * until only one string remains, which is then compared with the subject.
+     */
+    private void generateDispatchByCharacters(@NotNull List<String> strings) {
+        if (strings.size() == 1) {
+            String value = strings.get(0);
+            generateEquals(value);
+            v.ifeq(defaultLabel);
+            v.goTo(stringsToEntryLabel.get(value));
+            return;
+        }
+
+        int index = findMostDistinguishingCharIndex(strings);
+
+        NavigableMap<Integer, List<String>> charsToStrings = new TreeMap<>();
+        for (String value : strings) {
+            charsToStrings.computeIfAbsent((int) value.charAt(index), c -> new ArrayList<>()).add(value);
+        }
+
+        NavigableMap<Integer, Label> charsToLabels = new TreeMap<>();
+        for (int c : charsToStrings.keySet()) {
+            charsToLabels.put(c, new Label());
+        }
+
+        v.load(tempVarIndex, subjectType);
+        v.iconst(index);
+        v.invokevirtual(subjectType.getInternalName(), "charAt", CHAR_AT_METHOD_DESC, false);
+        generateSwitchInstruction(charsToLabels);
+
+        for (Map.Entry<Integer, List<String>> entry : charsToStrings.entrySet()) {
+            v.visitLabel(charsToLabels.get(entry.getKey()));
+            generateDispatchByCharacters(entry.getValue());
+        }
+    }
+
+    private static int findMostDistinguishingCharIndex(@NotNull List<String> strings) {
+        int length = strings.get(0).length();
+        int bestIndex = 0;
+        int bestDistinctChars = 0;
+        for (int index = 0; index < length; index++) {
+            Set<Character> chars = new HashSet<>();
+            for (String value : strings) {
+                chars.add(value.charAt(index));
+            }
+            if (chars.size() > bestDistinctChars) {
+                bestIndex = index;
+                bestDistinctChars = chars.size();
+            }
+        }
+        return bestIndex;
+    }
+
+    private void generateEquals(@NotNull String value) {
+        v.load(tempVarIndex, subjectType);
+        v.aconst(value);
+        v.invokevirtual(
+                subjectType.getInternalName(),
+                "equals",
+                EQUALS_METHOD_DESC,
+                false
+        );
+    }
 }
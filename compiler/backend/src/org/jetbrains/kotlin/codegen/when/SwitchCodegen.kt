@@ -77,7 +77,7 @@ abstract class SwitchCodegen(
         val beginLabel = Label()
         v.mark(beginLabel)
 
-        generateSwitchInstructionByTransitionsTable()
+        generateSwitchInstruction(transitionsTable)
 
         generateEntries()
 
@@ -178,8 +178,11 @@ abstract class SwitchCodegen(
             switchCodegenProvider.getConstantsFromEntry(entry).any { it is NullValue }
         }?.index ?: -1
 
-    private fun generateSwitchInstructionByTransitionsTable() {
-        val keys = transitionsTable.keys.toIntArray()
+    /**
+     * Generates a switch from the int value on top of the stack to labels of [table], or to [defaultLabel] for other values
+     */
+    protected fun generateSwitchInstruction(table: NavigableMap<Int, Label>) {
+        val keys = table.keys.toIntArray()
 
         val labelsNumber = keys.size
         val maxValue = keys.last()
@@ -187,13 +190,13 @@ abstract class SwitchCodegen(
         val rangeLength = maxValue.toLong() - minValue.toLong() + 1L
 
         if (preferLookupOverSwitch(labelsNumber, rangeLength)) {
-            val labels = transitionsTable.values.toTypedArray()
+            val labels = table.values.toTypedArray()
             v.lookupswitch(defaultLabel, keys, labels)
             return
         }
 
         val sparseLabels = Array(rangeLength.toInt()) { index ->
-            transitionsTable[index + minValue] ?: defaultLabel
+            table[index + minValue] ?: defaultLabel
         }
 
         v.tableswitch(minValue, maxValue, defaultLabel, *sparseLabels)
@@ -117,4 +117,11 @@ class K2JSCompilerArguments : CommonCompilerArguments() {
             description = "Paths to friend modules"
     )
     var friendModules: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+            value = "-Xparallel-printing",
+            valueDescription = "<N>",
+            description = "Print the generated JavaScript on N threads"
+    )
+    var parallelPrinting: String? by NullableStringFreezableVar(null)
 }
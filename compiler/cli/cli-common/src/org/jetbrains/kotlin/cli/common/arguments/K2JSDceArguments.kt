@@ -42,6 +42,13 @@ class K2JSDceArguments : CommonToolArguments() {
     )
     var printReachabilityInfo: Boolean by FreezableVar(false)
 
+    @Argument(
+            value = "-Xcache-dir",
+            valueDescription = "<path>",
+            description = "Directory to keep information about the previous run in, so that unchanged output files are not written again"
+    )
+    var cacheDirectory: String? by NullableStringFreezableVar(null)
+
     @Argument(
             value = "-dev-mode",
             description = "Development mode: don't strip out any code, just copy dependencies"
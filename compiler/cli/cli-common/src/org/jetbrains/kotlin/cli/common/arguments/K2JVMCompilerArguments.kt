@@ -267,6 +267,60 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
     )
     var friendPaths: Array<String>? by FreezableVar(null)
 
+    @Argument(
+        value = "-Xconcurrent-storage-manager",
+        description = "Resolve lazy declarations without a global lock, allowing them to be computed from several threads"
+    )
+    var concurrentStorageManager: Boolean by FreezableVar(false)
+
+    @Argument(
+        value = "-Xparallel-body-resolve",
+        valueDescription = "<N>",
+        description = "Resolve function bodies of different files on N threads [experimental]"
+    )
+    var parallelBodyResolve: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xparallel-method-optimization",
+        valueDescription = "<N>",
+        description = "Optimize bytecode of methods of each generated class on N threads, producing the same bytecode as on one thread"
+    )
+    var parallelMethodOptimization: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xinline-cache-size",
+        valueDescription = "<N>",
+        description = "Cache up to N bodies of library inline functions, sharing the cache between modules compiled in the same process"
+    )
+    var inlineCacheSize: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xinline-cache-memory",
+        valueDescription = "<MB>",
+        description = "Cache up to MB megabytes of library classes for inlining, sharing the cache between modules compiled in the same process"
+    )
+    var inlineCacheMemory: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xstring-concat",
+        valueDescription = "{indy-with-constants|inline}",
+        description = "Select code generation scheme for string concatenation.\n" +
+                "-Xstring-concat=indy-with-constants  Concatenate strings using `invokedynamic` `makeConcatWithConstants`. Requires `-jvm-target 9` or greater.\n" +
+                "-Xstring-concat=inline               Concatenate strings using `StringBuilder`\n" +
+                "default: `inline`"
+    )
+    var stringConcat: String? by NullableStringFreezableVar(JvmStringConcat.DEFAULT.description)
+
+    @Argument(
+        value = "-Xlambdas",
+        valueDescription = "{class|indy}",
+        description = "Select code generation scheme for lambdas converted to Java functional interfaces.\n" +
+                "-Xlambdas=indy   Create non-capturing lambdas with `invokedynamic` and `LambdaMetafactory` where possible. Requires `-jvm-target 1.8` or greater.\n" +
+                "-Xlambdas=class  Generate a separate class for each lambda\n" +
+                "default: `class`"
+    )
+    var lambdas: String? by NullableStringFreezableVar(JvmClosureGenerationScheme.DEFAULT.description)
+
     override fun configureAnalysisFlags(collector: MessageCollector): MutableMap<AnalysisFlag<*>, Any> {
         val result = super.configureAnalysisFlags(collector)
         result[JvmAnalysisFlags.strictMetadataVersionSemantics] = strictMetadataVersionSemantics
@@ -283,6 +337,14 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
             )
         result[JvmAnalysisFlags.inheritMultifileParts] = inheritMultifileParts
         result[JvmAnalysisFlags.sanitizeParentheses] = sanitizeParentheses
+        parallelBodyResolve?.let { threads ->
+            val value = threads.toIntOrNull()
+            if (value != null && value > 0) {
+                result[AnalysisFlags.parallelBodyResolveThreads] = value
+            } else {
+                collector.report(CompilerMessageSeverity.ERROR, "Invalid value of -Xparallel-body-resolve (should be a positive number): $threads")
+            }
+        }
         return result
     }
 
@@ -55,6 +55,11 @@ abstract class CommonCompilerPerformanceManager(private val presentableName: Str
         measurements += CodeGenerationMeasurement(lines, files, TimeUnit.NANOSECONDS.toMillis(time), additionalDescription)
     }
 
+    open fun notifyCacheStatistics(cacheName: String, hits: Long, misses: Long, evictions: Long, additionalDescription: String?) {
+        if (!isEnabled) return
+        measurements += CacheStatisticsMeasurement(cacheName, hits, misses, evictions, additionalDescription)
+    }
+
     fun dumpPerformanceReport(destination: File) {
         destination.writeBytes(createPerformanceReport())
     }
@@ -45,6 +45,17 @@ class GarbageCollectionMeasurement(private val garbageCollectionKind: String, pr
 }
 
 
+class CacheStatisticsMeasurement(
+    private val cacheName: String,
+    private val hits: Long,
+    private val misses: Long,
+    private val evictions: Long,
+    private val description: String?
+) : PerformanceMeasurement {
+    override fun render(): String = "CACHE: $cacheName ${description ?: ""}- $hits hits, $misses misses, $evictions evictions"
+}
+
+
 class PerformanceCounterMeasurement(private val counterReport: String) : PerformanceMeasurement {
     override fun render(): String = counterReport
 }
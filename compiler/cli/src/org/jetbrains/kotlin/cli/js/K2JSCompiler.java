@@ -24,6 +24,7 @@ import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ExceptionUtil;
 import com.intellij.util.SmartList;
+import kotlin.Unit;
 import kotlin.collections.ArraysKt;
 import kotlin.collections.CollectionsKt;
 import kotlin.collections.SetsKt;
@@ -42,6 +43,7 @@ import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport;
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
 import org.jetbrains.kotlin.cli.common.messages.MessageUtil;
+import org.jetbrains.kotlin.cli.common.messages.OutputMessageUtil;
 import org.jetbrains.kotlin.cli.common.output.OutputUtilsKt;
 import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles;
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
@@ -297,7 +299,6 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
         if (!(translationResult instanceof TranslationResult.Success)) return ExitCode.COMPILATION_ERROR;
 
         TranslationResult.Success successResult = (TranslationResult.Success) translationResult;
-        OutputFileCollection outputFiles = successResult.getOutputFiles(outputFile, outputPrefixFile, outputPostfixFile);
 
         if (outputFile.isDirectory()) {
             messageCollector.report(ERROR, "Cannot open output file '" + outputFile.getPath() + "': is a directory", null);
@@ -306,8 +307,17 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
 
-        OutputUtilsKt.writeAll(outputFiles, outputDir, messageCollector,
-                               configuration.getBoolean(CommonConfigurationKeys.REPORT_OUTPUT_FILES));
+        boolean reportOutputFiles = configuration.getBoolean(CommonConfigurationKeys.REPORT_OUTPUT_FILES);
+        // The generated code and the source map are written as they are printed, so that they are not held in memory as a whole
+        OutputFileCollection outputFiles = successResult.writeCodeAndSourceMap(
+                outputFile, outputPrefixFile, outputPostfixFile,
+                reportOutputFiles ? (sources, output) -> {
+                    messageCollector.report(OUTPUT, OutputMessageUtil.formatOutputMessage(sources, output), null);
+                    return Unit.INSTANCE;
+                } : null
+        );
+
+        OutputUtilsKt.writeAll(outputFiles, outputDir, messageCollector, reportOutputFiles);
 
         return OK;
     }
@@ -406,6 +416,25 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
             configuration.put(JSConfigurationKeys.FRIEND_PATHS, friendPaths);
         }
 
+        String parallelPrinting = arguments.getParallelPrinting();
+        if (parallelPrinting != null) {
+            int threads;
+            try {
+                threads = Integer.parseInt(parallelPrinting);
+            }
+            catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads > 0) {
+                configuration.put(JSConfigurationKeys.PARALLEL_PRINTING_THREADS, threads);
+            }
+            else {
+                messageCollector.report(
+                        ERROR, "Invalid value of -Xparallel-printing (should be a positive number): " + parallelPrinting, null
+                );
+            }
+        }
+
         String moduleKindName = arguments.getModuleKind();
         ModuleKind moduleKind = moduleKindName != null ? moduleKindMap.get(moduleKindName) : ModuleKind.PLAIN;
         if (moduleKind == null) {
@@ -54,18 +54,8 @@ public class CompileEnvironmentUtil {
             OutputFileCollection outputFiles, OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime
     ) {
         try {
-            Manifest manifest = new Manifest();
-            Attributes mainAttributes = manifest.getMainAttributes();
-            mainAttributes.putValue("Manifest-Version", "1.0");
-            mainAttributes.putValue("Created-By", "JetBrains Kotlin");
-            if (mainClass != null) {
-                mainAttributes.putValue("Main-Class", mainClass.asString());
-            }
-            JarOutputStream stream = new JarOutputStream(fos, manifest);
-            for (OutputFile outputFile : outputFiles.asList()) {
-                stream.putNextEntry(new JarEntry(outputFile.getRelativePath()));
-                stream.write(outputFile.asByteArray());
-            }
+            JarOutputStream stream = openJar(fos, mainClass);
+            writeToJar(stream, outputFiles);
             if (includeRuntime) {
                 writeRuntimeToJar(stream);
             }
@@ -76,6 +66,25 @@ public class CompileEnvironmentUtil {
         }
     }
 
+    @NotNull
+    static JarOutputStream openJar(@NotNull OutputStream fos, @Nullable FqName mainClass) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes mainAttributes = manifest.getMainAttributes();
+        mainAttributes.putValue("Manifest-Version", "1.0");
+        mainAttributes.putValue("Created-By", "JetBrains Kotlin");
+        if (mainClass != null) {
+            mainAttributes.putValue("Main-Class", mainClass.asString());
+        }
+        return new JarOutputStream(fos, manifest);
+    }
+
+    static void writeToJar(@NotNull JarOutputStream stream, @NotNull OutputFileCollection outputFiles) throws IOException {
+        for (OutputFile outputFile : outputFiles.asList()) {
+            stream.putNextEntry(new JarEntry(outputFile.getRelativePath()));
+            stream.write(outputFile.asByteArray());
+        }
+    }
+
     public static void writeToJar(File jarPath, boolean jarRuntime, FqName mainClass, OutputFileCollection outputFiles) {
         FileOutputStream outputStream = null;
         try {
@@ -94,7 +103,7 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    private static void writeRuntimeToJar(JarOutputStream stream) throws IOException {
+    static void writeRuntimeToJar(JarOutputStream stream) throws IOException {
         File stdlibPath = PathUtil.getKotlinPathsForCompiler().getStdlibPath();
         if (!stdlibPath.exists()) {
             throw new CompileEnvironmentException("Couldn't find kotlin-stdlib at " + stdlibPath);
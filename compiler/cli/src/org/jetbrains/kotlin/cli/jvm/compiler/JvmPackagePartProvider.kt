@@ -73,7 +73,8 @@ class JvmPackagePartProvider(
         val result = mutableMapOf<VirtualFile, PackageParts>()
         for ((root, mapping) in loadedModules) {
             val newParts = mapping.findPackageParts(packageFqName) ?: continue
-            result[root]?.let { parts -> parts += newParts } ?: result.put(root, newParts)
+            // Module mappings are shared between compilations (see ModuleMappingCache), so their parts are copied before merging
+            result.getOrPut(root) { PackageParts(packageFqName) } += newParts
         }
         return result
     }
@@ -94,15 +95,20 @@ class JvmPackagePartProvider(
                 if (!moduleFile.name.endsWith(ModuleMapping.MAPPING_FILE_EXT)) continue
 
                 try {
-                    val mapping = ModuleMapping.loadModuleMapping(
-                        moduleFile.contentsToByteArray(), moduleFile.toString(), deserializationConfiguration
-                    ) { incompatibleVersion ->
-                        messageCollector.report(
-                            ERROR,
-                            "Module was compiled with an incompatible version of Kotlin. The binary version of its metadata is " +
-                                    "$incompatibleVersion, expected version is ${JvmMetadataVersion.INSTANCE}.",
-                            CompilerMessageLocation.create(moduleFile.path)
-                        )
+                    val mapping = ModuleMappingCache.getOrLoad(moduleFile, deserializationConfiguration) {
+                        var isCompatible = true
+                        val mapping = ModuleMapping.loadModuleMapping(
+                            moduleFile.contentsToByteArray(), moduleFile.toString(), deserializationConfiguration
+                        ) { incompatibleVersion ->
+                            isCompatible = false
+                            messageCollector.report(
+                                ERROR,
+                                "Module was compiled with an incompatible version of Kotlin. The binary version of its metadata is " +
+                                        "$incompatibleVersion, expected version is ${JvmMetadataVersion.INSTANCE}.",
+                                CompilerMessageLocation.create(moduleFile.path)
+                            )
+                        }
+                        mapping to isCompatible
                     }
                     loadedModules.add(ModuleMappingInfo(root, mapping, moduleFile.nameWithoutExtension))
                 } catch (e: EOFException) {
@@ -53,6 +53,7 @@ import org.jetbrains.kotlin.config.languageVersionSettings
 import org.jetbrains.kotlin.fileClasses.JvmFileClassUtil
 import org.jetbrains.kotlin.idea.MainFunctionDetector
 import org.jetbrains.kotlin.javac.JavacWrapper
+import org.jetbrains.kotlin.load.kotlin.KotlinBinaryClassCache
 import org.jetbrains.kotlin.load.kotlin.ModuleVisibilityManager
 import org.jetbrains.kotlin.modules.Module
 import org.jetbrains.kotlin.modules.TargetId
@@ -79,10 +80,7 @@ object KotlinToJVMBytecodeCompiler {
         if (jarPath != null) {
             val includeRuntime = configuration.get(JVMConfigurationKeys.INCLUDE_RUNTIME, false)
             CompileEnvironmentUtil.writeToJar(jarPath, includeRuntime, mainClass, outputFiles)
-            if (reportOutputFiles) {
-                val message = OutputMessageUtil.formatOutputMessage(outputFiles.asList().flatMap { it.sourceFiles }.distinct(), jarPath)
-                messageCollector.report(OUTPUT, message)
-            }
+            reportJarOutput(configuration, outputFiles.asList().flatMap { it.sourceFiles }.distinct(), jarPath)
             return
         }
 
@@ -90,6 +88,23 @@ object KotlinToJVMBytecodeCompiler {
         outputFiles.writeAll(outputDir, messageCollector, reportOutputFiles)
     }
 
+    private fun reportJarOutput(configuration: CompilerConfiguration, sourceFiles: Collection<File>, jarPath: File) {
+        if (configuration.getBoolean(CommonConfigurationKeys.REPORT_OUTPUT_FILES)) {
+            val messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+            messageCollector.report(OUTPUT, OutputMessageUtil.formatOutputMessage(sourceFiles, jarPath))
+        }
+    }
+
+    private fun createStreamingJarWriterIfPossible(environment: KotlinCoreEnvironment): StreamingJarWriter? {
+        val configuration = environment.configuration
+        val jarPath = configuration.get(JVMConfigurationKeys.OUTPUT_JAR) ?: return null
+        return StreamingJarWriter(
+            jarPath,
+            configuration.get(JVMConfigurationKeys.INCLUDE_RUNTIME, false),
+            releaseOutput = !configuration.get(JVMConfigurationKeys.RETAIN_OUTPUT_IN_MEMORY, false)
+        ) { state -> findMainClass(state, environment.getSourceFiles()) }
+    }
+
     private fun createOutputFilesFlushingCallbackIfPossible(configuration: CompilerConfiguration): GenerationStateEventCallback {
         if (configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) == null) {
             return GenerationStateEventCallback.DO_NOTHING
@@ -151,7 +166,10 @@ object KotlinToJVMBytecodeCompiler {
                 put(JVMConfigurationKeys.OUTPUT_DIRECTORY, File(module.getOutputDirectory()))
             }
 
-            outputs[module] = generate(environment, moduleConfiguration, result, ktFiles, module)
+            outputs[module] = generate(
+                environment, moduleConfiguration, result, ktFiles, module,
+                createOutputFilesFlushingCallbackIfPossible(moduleConfiguration)
+            )
         }
 
         try {
@@ -255,15 +273,27 @@ object KotlinToJVMBytecodeCompiler {
 
         if (!checkKotlinPackageUsage(environment, environment.getSourceFiles())) return false
 
-        val generationState = analyzeAndGenerate(environment) ?: return false
-
-        val mainClass = findMainClass(generationState, environment.getSourceFiles())
-
+        val configuration = environment.configuration
+        val jarWriter = createStreamingJarWriterIfPossible(environment)
         try {
-            writeOutput(environment.configuration, generationState.factory, mainClass)
-            return true
+            val generationState = analyzeAndGenerate(
+                environment, jarWriter ?: createOutputFilesFlushingCallbackIfPossible(configuration)
+            ) ?: return false
+
+            try {
+                if (jarWriter != null) {
+                    jarWriter.finish(generationState)
+                    reportJarOutput(configuration, jarWriter.sourceFiles, configuration.getNotNull(JVMConfigurationKeys.OUTPUT_JAR))
+                } else {
+                    val mainClass = findMainClass(generationState, environment.getSourceFiles())
+                    writeOutput(configuration, generationState.factory, mainClass)
+                }
+                return true
+            } finally {
+                generationState.destroy()
+            }
         } finally {
-            generationState.destroy()
+            jarWriter?.close()
         }
     }
 
@@ -353,14 +383,22 @@ object KotlinToJVMBytecodeCompiler {
     }
 
     @Suppress("MemberVisibilityCanBePrivate") // Used in ExecuteKotlinScriptMojo
-    fun analyzeAndGenerate(environment: KotlinCoreEnvironment): GenerationState? {
+    fun analyzeAndGenerate(environment: KotlinCoreEnvironment): GenerationState? =
+        analyzeAndGenerate(environment, createOutputFilesFlushingCallbackIfPossible(environment.configuration))
+
+    private fun analyzeAndGenerate(
+        environment: KotlinCoreEnvironment,
+        onIndependentPartCompilationEnd: GenerationStateEventCallback
+    ): GenerationState? {
         val result = repeatAnalysisIfNeeded(analyze(environment, null), environment, null) ?: return null
 
         if (!result.shouldGenerateCode) return null
 
         result.throwIfError()
 
-        return generate(environment, environment.configuration, result, environment.getSourceFiles(), null)
+        return generate(
+            environment, environment.configuration, result, environment.getSourceFiles(), null, onIndependentPartCompilationEnd
+        )
     }
 
     private fun analyze(environment: KotlinCoreEnvironment, targetDescription: String?): AnalysisResult? {
@@ -370,6 +408,8 @@ object KotlinToJVMBytecodeCompiler {
         // Can be null for Scripts/REPL
         val performanceManager = environment.configuration.get(CLIConfigurationKeys.PERF_MANAGER)
         performanceManager?.notifyAnalysisStarted()
+        // The cache is shared by the compilations in the daemon, so the difference in its counters over this analysis is reported
+        val binaryClassCacheStatistics = KotlinBinaryClassCache.getInstance().statistics
 
         val analyzerWithCompilerReport = AnalyzerWithCompilerReport(collector, environment.configuration.languageVersionSettings)
         analyzerWithCompilerReport.analyzeAndReport(sourceFiles) {
@@ -392,6 +432,11 @@ object KotlinToJVMBytecodeCompiler {
         }
 
         performanceManager?.notifyAnalysisFinished(sourceFiles.size, environment.countLinesOfCode(sourceFiles), targetDescription)
+        (KotlinBinaryClassCache.getInstance().statistics - binaryClassCacheStatistics).let { statistics ->
+            performanceManager?.notifyCacheStatistics(
+                "binary class cache", statistics.hits, statistics.misses, statistics.evictions, targetDescription
+            )
+        }
 
         val analysisResult = analyzerWithCompilerReport.analysisResult
 
@@ -432,7 +477,8 @@ object KotlinToJVMBytecodeCompiler {
         configuration: CompilerConfiguration,
         result: AnalysisResult,
         sourceFiles: List<KtFile>,
-        module: Module?
+        module: Module?,
+        onIndependentPartCompilationEnd: GenerationStateEventCallback
     ): GenerationState {
         val generationState = GenerationState.Builder(
             environment.project,
@@ -444,7 +490,7 @@ object KotlinToJVMBytecodeCompiler {
         )
             .codegenFactory(if (configuration.getBoolean(JVMConfigurationKeys.IR)) JvmIrCodegenFactory else DefaultCodegenFactory)
             .withModule(module)
-            .onIndependentPartCompilationEnd(createOutputFilesFlushingCallbackIfPossible(configuration))
+            .onIndependentPartCompilationEnd(onIndependentPartCompilationEnd)
             .build()
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
@@ -454,11 +500,17 @@ object KotlinToJVMBytecodeCompiler {
 
         KotlinCodegenFacade.compileCorrectFiles(generationState, CompilationErrorHandler.THROW_EXCEPTION)
 
+        val targetDescription = if (module != null) "target " + module.getModuleName() + "-" + module.getModuleType() + " " else ""
         performanceManager?.notifyGenerationFinished(
             sourceFiles.size,
             environment.countLinesOfCode(sourceFiles),
-            additionalDescription = if (module != null) "target " + module.getModuleName() + "-" + module.getModuleType() + " " else ""
+            additionalDescription = targetDescription
         )
+        for (statistics in generationState.inlineCache.statistics) {
+            performanceManager?.notifyCacheStatistics(
+                "inline cache (${statistics.name})", statistics.hits, statistics.misses, statistics.evictions, targetDescription
+            )
+        }
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import com.intellij.openapi.vfs.VirtualFile
+import org.jetbrains.kotlin.metadata.jvm.deserialization.ModuleMapping
+import org.jetbrains.kotlin.serialization.deserialization.DeserializationConfiguration
+import org.jetbrains.kotlin.utils.ContentStamp
+import org.jetbrains.kotlin.utils.contentStamp
+
+/**
+ * Process-wide cache of `.kotlin_module` files loaded from the classpath, so that compilations in the daemon do not parse
+ * the module mappings of the same libraries again. Entries are keyed by the path and the [ContentStamp] of the file (which is
+ * the stamp of the containing jar for jar entries), and by the deserialization settings which affect the result.
+ *
+ * Cached mappings are shared between compilations and must not be modified.
+ */
+internal object ModuleMappingCache {
+    private data class Key(
+        val path: String,
+        val stamp: ContentStamp,
+        val skipMetadataVersionCheck: Boolean,
+        val isJvmPackageNameSupported: Boolean
+    )
+
+    private const val MAX_ENTRIES = 256
+
+    private val cache = object : LinkedHashMap<Key, ModuleMapping>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, ModuleMapping>?): Boolean = size > MAX_ENTRIES
+    }
+
+    /**
+     * Returns the mapping loaded earlier from [moduleFile], or loads it with [load]. The result is only cached if [load] reported
+     * no errors (i.e. returned `true` as the second component), so that the errors are reported by each compilation.
+     */
+    fun getOrLoad(
+        moduleFile: VirtualFile,
+        configuration: DeserializationConfiguration,
+        load: () -> Pair<ModuleMapping, Boolean>
+    ): ModuleMapping {
+        val key = Key(
+            moduleFile.path, moduleFile.contentStamp(),
+            configuration.skipMetadataVersionCheck, configuration.isJvmPackageNameSupported
+        )
+        synchronized(cache) {
+            cache[key]?.let { return it }
+        }
+
+        val (mapping, isCacheable) = load()
+        if (isCacheable) {
+            synchronized(cache) {
+                cache[key] = mapping
+            }
+        }
+        return mapping
+    }
+
+    fun clear() {
+        synchronized(cache) {
+            cache.clear()
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import org.jetbrains.kotlin.backend.common.output.OutputFile
+import org.jetbrains.kotlin.backend.common.output.SimpleOutputFileCollection
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.codegen.state.GenerationStateEventCallback
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.utils.closeQuietly
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.jar.JarOutputStream
+
+/**
+ * Writes generated classes to the jar as soon as an independent part of the module has been compiled, and releases them afterwards,
+ * so that the class builders of the whole module are never held in memory at once.
+ *
+ * The jar is opened on the first flush because the manifest has to be written before any entry; [mainClass] is therefore
+ * computed from the generation state at that point. Only the paths of the written entries and their source files are retained.
+ *
+ * Entries are written to a temporary file next to [jarPath], which replaces [jarPath] only in [finish]. If the compilation fails,
+ * [close] deletes the temporary file, so that no truncated jar is left and the jar from the previous compilation stays intact.
+ */
+internal class StreamingJarWriter(
+    private val jarPath: File,
+    private val includeRuntime: Boolean,
+    private val releaseOutput: Boolean,
+    private val mainClass: (GenerationState) -> FqName?
+) : GenerationStateEventCallback {
+    private val tempFile = File(jarPath.absoluteFile.parentFile, jarPath.name + ".tmp")
+    private var fileStream: FileOutputStream? = null
+    private var jarStream: JarOutputStream? = null
+
+    private val writtenPaths = hashSetOf<String>()
+    private val writtenSourceFiles = linkedSetOf<File>()
+
+    val sourceFiles: Collection<File>
+        get() = writtenSourceFiles
+
+    override fun invoke(state: GenerationState) {
+        write(state, state.factory.currentOutput)
+        if (releaseOutput) {
+            state.factory.releaseGeneratedOutput()
+        }
+    }
+
+    /**
+     * Writes the output which has not been flushed yet (e.g. the module mapping), the runtime if requested, closes the jar
+     * and moves it to [jarPath].
+     */
+    fun finish(state: GenerationState) {
+        try {
+            write(state, state.factory.asList())
+            val stream = jarStream!!
+            if (includeRuntime) {
+                CompileEnvironmentUtil.writeRuntimeToJar(stream)
+            }
+            stream.finish()
+            fileStream!!.close()
+            Files.move(tempFile.toPath(), jarPath.toPath(), StandardCopyOption.REPLACE_EXISTING)
+        } catch (e: IOException) {
+            throw CompileEnvironmentException("Failed to generate jar file", e)
+        } finally {
+            close()
+        }
+    }
+
+    /**
+     * Closes the jar and deletes it, unless it has been moved to [jarPath] by [finish].
+     */
+    fun close() {
+        if (fileStream == null) return
+        closeQuietly(fileStream)
+        fileStream = null
+        jarStream = null
+        tempFile.delete()
+    }
+
+    private fun write(state: GenerationState, outputFiles: List<OutputFile>) {
+        val stream = jarStream ?: open(state)
+        val newFiles = outputFiles.filter { writtenPaths.add(it.relativePath) }
+        try {
+            CompileEnvironmentUtil.writeToJar(stream, SimpleOutputFileCollection(newFiles))
+        } catch (e: IOException) {
+            throw CompileEnvironmentException("Failed to generate jar file", e)
+        }
+        newFiles.flatMapTo(writtenSourceFiles) { it.sourceFiles }
+    }
+
+    private fun open(state: GenerationState): JarOutputStream {
+        try {
+            val fos = FileOutputStream(tempFile)
+            fileStream = fos
+            return CompileEnvironmentUtil.openJar(fos, mainClass(state)).also { jarStream = it }
+        } catch (e: FileNotFoundException) {
+            throw CompileEnvironmentException("Invalid jar path $jarPath", e)
+        } catch (e: IOException) {
+            close()
+            throw CompileEnvironmentException("Failed to generate jar file", e)
+        }
+    }
+}
@@ -33,6 +33,8 @@ import org.jetbrains.kotlin.context.ContextForNewModule
 import org.jetbrains.kotlin.context.ModuleContext
 import org.jetbrains.kotlin.context.MutableModuleContext
 import org.jetbrains.kotlin.context.ProjectContext
+import org.jetbrains.kotlin.context.SimpleGlobalContext
+import org.jetbrains.kotlin.context.withProject
 import org.jetbrains.kotlin.descriptors.ClassDescriptor
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.descriptors.PackageFragmentProvider
@@ -65,6 +67,8 @@ import org.jetbrains.kotlin.resolve.jvm.extensions.PackageFragmentProviderExtens
 import org.jetbrains.kotlin.resolve.lazy.KotlinCodeAnalyzer
 import org.jetbrains.kotlin.resolve.lazy.declarations.DeclarationProviderFactory
 import org.jetbrains.kotlin.resolve.lazy.declarations.FileBasedDeclarationProviderFactory
+import org.jetbrains.kotlin.storage.ConcurrentStorageManager
+import org.jetbrains.kotlin.storage.ExceptionTracker
 import org.jetbrains.kotlin.storage.StorageManager
 import java.util.*
 import kotlin.reflect.KFunction1
@@ -281,7 +285,9 @@ object TopDownAnalyzerFacadeForJVM {
         configuration: CompilerConfiguration,
         createBuiltInsFromModule: Boolean
     ): MutableModuleContext {
-        val projectContext = ProjectContext(project)
+        val projectContext =
+            if (configuration.getBoolean(JVMConfigurationKeys.CONCURRENT_STORAGE_MANAGER)) createConcurrentProjectContext(project)
+            else ProjectContext(project)
         val builtIns = JvmBuiltIns(projectContext.storageManager, !createBuiltInsFromModule)
         return ContextForNewModule(
             projectContext, Name.special("<${configuration.getNotNull(CommonConfigurationKeys.MODULE_NAME)}>"), builtIns, null
@@ -291,4 +297,9 @@ object TopDownAnalyzerFacadeForJVM {
             }
         }
     }
+
+    private fun createConcurrentProjectContext(project: Project): ProjectContext {
+        val tracker = ExceptionTracker()
+        return SimpleGlobalContext(ConcurrentStorageManager("GlobalContext", tracker), tracker).withProject(project)
+    }
 }
@@ -38,6 +38,39 @@ fun CompilerConfiguration.setupJvmSpecificArguments(arguments: K2JVMCompilerArgu
         }
     }
 
+    if (arguments.stringConcat != null) {
+        val stringConcat = JvmStringConcat.fromStringOrNull(arguments.stringConcat!!)
+        if (stringConcat == null) {
+            messageCollector.report(
+                ERROR, "Unknown string concatenation mode: ${arguments.stringConcat}\n" +
+                        "Supported modes: ${JvmStringConcat.values().joinToString { it.description }}"
+            )
+        } else if (stringConcat != JvmStringConcat.INLINE && get(JVMConfigurationKeys.JVM_TARGET, JvmTarget.DEFAULT) < JvmTarget.JVM_9) {
+            messageCollector.report(
+                WARNING, "`-Xstring-concat=${arguments.stringConcat}` requires `-jvm-target 9` or greater, " +
+                        "string concatenation will be compiled with `StringBuilder`"
+            )
+        } else {
+            put(JVMConfigurationKeys.STRING_CONCAT, stringConcat)
+        }
+    }
+
+    if (arguments.lambdas != null) {
+        val lambdas = JvmClosureGenerationScheme.fromStringOrNull(arguments.lambdas!!)
+        if (lambdas == null) {
+            messageCollector.report(
+                ERROR, "Unknown lambda code generation scheme: ${arguments.lambdas}\n" +
+                        "Supported schemes: ${JvmClosureGenerationScheme.values().joinToString { it.description }}"
+            )
+        } else if (lambdas != JvmClosureGenerationScheme.CLASS && get(JVMConfigurationKeys.JVM_TARGET, JvmTarget.DEFAULT) < JvmTarget.JVM_1_8) {
+            messageCollector.report(
+                WARNING, "`-Xlambdas=${arguments.lambdas}` requires `-jvm-target 1.8` or greater, lambdas will be compiled to classes"
+            )
+        } else {
+            put(JVMConfigurationKeys.LAMBDAS, lambdas)
+        }
+    }
+
     addAll(JVMConfigurationKeys.ADDITIONAL_JAVA_MODULES, arguments.additionalJavaModules?.asList())
 }
 
@@ -195,8 +228,27 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
 
     put(CLIConfigurationKeys.ALLOW_KOTLIN_PACKAGE, arguments.allowKotlinPackage)
     put(JVMConfigurationKeys.USE_SINGLE_MODULE, arguments.singleModule)
+    put(JVMConfigurationKeys.CONCURRENT_STORAGE_MANAGER, arguments.concurrentStorageManager)
+
+    putPositiveNumber(
+        JVMConfigurationKeys.PARALLEL_METHOD_OPTIMIZATION_THREADS, "-Xparallel-method-optimization", arguments.parallelMethodOptimization
+    )
+    putPositiveNumber(JVMConfigurationKeys.INLINE_CACHE_SIZE, "-Xinline-cache-size", arguments.inlineCacheSize)
+    putPositiveNumber(JVMConfigurationKeys.INLINE_CACHE_MEMORY, "-Xinline-cache-memory", arguments.inlineCacheMemory)
     put(JVMConfigurationKeys.ADD_BUILT_INS_FROM_COMPILER_TO_DEPENDENCIES, arguments.addCompilerBuiltIns)
     put(JVMConfigurationKeys.CREATE_BUILT_INS_FROM_MODULE_DEPENDENCIES, arguments.loadBuiltInsFromDependencies)
 
     arguments.declarationsOutputPath?.let { put(JVMConfigurationKeys.DECLARATIONS_JSON_PATH, it) }
 }
+
+private fun CompilerConfiguration.putPositiveNumber(key: CompilerConfigurationKey<Int>, argumentName: String, argumentValue: String?) {
+    if (argumentValue == null) return
+    val value = argumentValue.toIntOrNull()
+    if (value != null && value > 0) {
+        put(key, value)
+    } else {
+        getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(
+            ERROR, "Invalid value of $argumentName (should be a positive number): $argumentValue"
+        )
+    }
+}
@@ -51,6 +51,7 @@ import org.jetbrains.kotlin.incremental.multiproject.ModulesApiHistoryAndroid
 import org.jetbrains.kotlin.incremental.multiproject.ModulesApiHistoryJs
 import org.jetbrains.kotlin.incremental.multiproject.ModulesApiHistoryJvm
 import org.jetbrains.kotlin.incremental.parsing.classesFqNames
+import org.jetbrains.kotlin.load.kotlin.KotlinBinaryClassCache
 import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
 import org.jetbrains.kotlin.modules.Module
 import org.jetbrains.kotlin.progress.CompilationCanceledStatus
@@ -1104,7 +1105,11 @@ class CompileServiceImpl(
 
     override fun clearJarCache() {
         ZipHandler.clearFileAccessorCache()
-        (KotlinCoreEnvironment.applicationEnvironment?.jarFileSystem as? CoreJarFileSystem)?.clearHandlersCache()
+        val applicationEnvironment = KotlinCoreEnvironment.applicationEnvironment ?: return
+        (applicationEnvironment.jarFileSystem as? CoreJarFileSystem)?.clearHandlersCache()
+        // Cached class headers refer to the files of the dropped jar handlers
+        (applicationEnvironment.application.picoContainer.getComponentInstance(KotlinBinaryClassCache::class.java.name)
+                as? KotlinBinaryClassCache)?.clear()
     }
 
     private inline fun <R> ifAlive(
@@ -41,6 +41,7 @@ class RemoteLookupTrackerClient(
 
     override val requiresPosition: Boolean = profiler.withMeasure(this) { facade.lookupTracker_requiresPosition() }
 
+    @Synchronized
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
         if (isDoNothing) return
 
@@ -60,6 +61,7 @@ class RemoteLookupTrackerClient(
         eventManager.onCompilationFinished { flush() }
     }
 
+    @Synchronized
     private fun flush() {
         if (isDoNothing || lookups.isEmpty) return
 
@@ -63,6 +63,10 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("disable not-null parameter assertions");
     public static final CompilerConfigurationKey<JVMAssertionsMode> ASSERTIONS_MODE =
             CompilerConfigurationKey.create("assertions mode");
+    public static final CompilerConfigurationKey<JvmStringConcat> STRING_CONCAT =
+            CompilerConfigurationKey.create("specifies string concatenation scheme");
+    public static final CompilerConfigurationKey<JvmClosureGenerationScheme> LAMBDAS =
+            CompilerConfigurationKey.create("specifies code generation scheme for lambdas converted to Java interfaces");
     public static final CompilerConfigurationKey<JVMConstructorCallNormalizationMode> CONSTRUCTOR_CALL_NORMALIZATION_MODE =
             CompilerConfigurationKey.create("constructor call normalization mode");
     public static final CompilerConfigurationKey<Boolean> NO_EXCEPTION_ON_EXPLICIT_EQUALS_FOR_BOXED_NULL =
@@ -135,4 +139,16 @@ public class JVMConfigurationKeys {
 
     public static final CompilerConfigurationKey<Boolean> ENABLE_JVM_DEFAULT =
             CompilerConfigurationKey.create("Allow to use '@JvmDefault'");
+
+    public static final CompilerConfigurationKey<Boolean> CONCURRENT_STORAGE_MANAGER =
+            CompilerConfigurationKey.create("use storage manager without a global lock [experimental]");
+
+    public static final CompilerConfigurationKey<Integer> PARALLEL_METHOD_OPTIMIZATION_THREADS =
+            CompilerConfigurationKey.create("number of threads to optimize bytecode of methods of the generated classes on");
+
+    public static final CompilerConfigurationKey<Integer> INLINE_CACHE_SIZE =
+            CompilerConfigurationKey.create("number of inline function bodies cached in the process-wide inline cache");
+
+    public static final CompilerConfigurationKey<Integer> INLINE_CACHE_MEMORY =
+            CompilerConfigurationKey.create("size in megabytes of classes cached in the process-wide inline cache");
 }
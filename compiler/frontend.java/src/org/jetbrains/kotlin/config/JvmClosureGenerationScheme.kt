@@ -0,0 +1,19 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.config
+
+enum class JvmClosureGenerationScheme(val description: String) {
+    CLASS("class"),
+    INDY("indy");
+
+    companion object {
+        @JvmField
+        val DEFAULT = CLASS
+
+        @JvmStatic
+        fun fromStringOrNull(string: String?) = values().find { it.description == string }
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.config
+
+enum class JvmStringConcat(val description: String) {
+    INLINE("inline"),
+    INDY_WITH_CONSTANTS("indy-with-constants");
+
+    companion object {
+        @JvmField
+        val DEFAULT = INLINE
+
+        @JvmStatic
+        fun fromStringOrNull(string: String?) = values().find { it.description == string }
+    }
+}
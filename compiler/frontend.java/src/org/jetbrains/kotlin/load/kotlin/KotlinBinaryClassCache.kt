@@ -23,39 +23,177 @@ import com.intellij.openapi.components.ServiceManager
 import com.intellij.openapi.util.Computable
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.PsiJavaModule
+import org.jetbrains.kotlin.utils.ContentStamp
+import org.jetbrains.kotlin.utils.contentStamp
+import java.util.concurrent.atomic.AtomicLong
 
+/**
+ * Caches results of reading class file headers.
+ *
+ * The instance created by the default constructor, which is used in the IDE, only keeps the last file read by each thread:
+ * the IDE has its own caches, and a bigger cache would retain memory and VFS files for the whole session.
+ *
+ * The instance created by [createForCompiler] is an application service of the compiler, so in the daemon it is shared between
+ * compilations. Entries are validated against the modification stamp and the [ContentStamp] of the file (which is the stamp
+ * of the containing jar for jar entries, and includes the hash of the contents of a recently modified file), and the least
+ * recently used entries are evicted once the estimated size of the cached results exceeds the limit (see [CACHE_SIZE_PROPERTY]).
+ * The cache is split into segments with separate locks so that it can be accessed from several threads. Cached results refer
+ * to the files they were read from, so the daemon calls [clear] together with clearing the cache of jar handlers.
+ */
 class KotlinBinaryClassCache : Disposable {
+    /**
+     * The counters are shared by all compilations which use the cache, so a compilation should report the difference between
+     * the statistics taken after and before it.
+     */
+    class Statistics(val hits: Long, val misses: Long, val evictions: Long) {
+        operator fun minus(other: Statistics): Statistics =
+            Statistics(hits - other.hits, misses - other.misses, evictions - other.evictions)
+    }
+
     private class RequestCache {
         internal var virtualFile: VirtualFile? = null
         internal var modificationStamp: Long = 0
         internal var result: KotlinClassFinder.Result? = null
+    }
 
-        fun cache(
-            file: VirtualFile,
-            result: KotlinClassFinder.Result?
-        ): KotlinClassFinder.Result? {
-            virtualFile = file
-            this.result = result
-            modificationStamp = file.modificationStamp
+    private class Entry(
+        val modificationStamp: Long,
+        val stamp: ContentStamp,
+        val result: KotlinClassFinder.Result?
+    ) {
+        fun isUpToDate(file: VirtualFile): Boolean =
+            modificationStamp == file.modificationStamp && stamp == file.contentStamp()
+
+        val weight: Long
+            get() = when (result) {
+                is KotlinClassFinder.Result.ClassFileContent -> result.content.size.toLong() + ENTRY_WEIGHT
+                // Metadata parsed by the first compilation which deserializes the class is kept in the cached class as well
+                is KotlinClassFinder.Result.KotlinClass -> result.kotlinJvmBinaryClass.classHeader.data.orEmpty()
+                    .sumBy { it.length }.toLong() * PARSED_METADATA_WEIGHT_PER_CHAR + ENTRY_WEIGHT
+                else -> ENTRY_WEIGHT
+            }
+    }
 
-            return result
+    private inner class Segment(private val maxWeight: Long) {
+        private val entries = LinkedHashMap<VirtualFile, Entry>(16, 0.75f, true)
+        private var weight = 0L
+
+        @Synchronized
+        fun get(file: VirtualFile): Entry? = entries[file]
+
+        @Synchronized
+        fun put(file: VirtualFile, entry: Entry) {
+            entries.put(file, entry)?.let { weight -= it.weight }
+            weight += entry.weight
+
+            val iterator = entries.values.iterator()
+            while (weight > maxWeight && entries.size > 1) {
+                weight -= iterator.next().weight
+                iterator.remove()
+                evictions.incrementAndGet()
+            }
+        }
+
+        @Synchronized
+        fun clear() {
+            entries.clear()
+            weight = 0
         }
     }
 
-    private val cache = object : ThreadLocal<RequestCache>() {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    private val requestCache = object : ThreadLocal<RequestCache>() {
         override fun initialValue(): RequestCache {
             return RequestCache()
         }
     }
 
+    // Only created by [createForCompiler]
+    private var segments: Array<Segment>? = null
+
+    private fun segment(file: VirtualFile): Segment? =
+        segments?.let { it[(file.hashCode() and Int.MAX_VALUE) % SEGMENT_COUNT] }
+
+    val statistics: Statistics
+        get() = Statistics(hits.get(), misses.get(), evictions.get())
+
+    /**
+     * Returns the cached result for [file] if the file has not changed since it was computed, or computes it with [compute] otherwise.
+     */
+    fun getOrCompute(file: VirtualFile, compute: () -> KotlinClassFinder.Result?): KotlinClassFinder.Result? {
+        val segment = segment(file) ?: return getOrComputeLastRequest(file, compute)
+
+        val cached = segment.get(file)
+        if (cached != null && cached.isUpToDate(file)) {
+            hits.incrementAndGet()
+            return cached.result
+        }
+        misses.incrementAndGet()
+
+        // Stamps are read before the contents, so that a modification made meanwhile invalidates the entry
+        val modificationStamp = file.modificationStamp
+        val stamp = file.contentStamp()
+
+        val result = compute()
+        segment.put(file, Entry(modificationStamp, stamp, result))
+        return result
+    }
+
+    private fun getOrComputeLastRequest(file: VirtualFile, compute: () -> KotlinClassFinder.Result?): KotlinClassFinder.Result? {
+        val lastRequest = requestCache.get()
+        if (file.modificationStamp == lastRequest.modificationStamp && file == lastRequest.virtualFile) {
+            hits.incrementAndGet()
+            return lastRequest.result
+        }
+        misses.incrementAndGet()
+
+        val result = compute()
+        lastRequest.virtualFile = file
+        lastRequest.modificationStamp = file.modificationStamp
+        lastRequest.result = result
+        return result
+    }
+
+    /**
+     * Removes all cached results, together with the files they were read from.
+     */
+    fun clear() {
+        segments?.forEach(Segment::clear)
+    }
+
     override fun dispose() {
         // This is only relevant for tests. We create a new instance of Application for each test, and so a new instance of this service is
         // also created for each test. However all tests share the same event dispatch thread, which would collect all instances of this
         // thread-local if they're not removed properly. Each instance would transitively retain VFS resulting in OutOfMemoryError
-        cache.remove()
+        requestCache.remove()
+        clear()
     }
 
     companion object {
+        const val CACHE_SIZE_PROPERTY = "kotlin.binary.class.cache.size.mb"
+
+        private const val DEFAULT_CACHE_SIZE_MB = 16L
+        private const val SEGMENT_COUNT = 16
+        private const val ENTRY_WEIGHT = 512L
+        private const val PARSED_METADATA_WEIGHT_PER_CHAR = 4L
+
+        /**
+         * Creates the cache for the command line compiler and the daemon, keeping up to [maxSizeMb] megabytes of results.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun createForCompiler(
+            maxSizeMb: Long = System.getProperty(CACHE_SIZE_PROPERTY)?.toLongOrNull() ?: DEFAULT_CACHE_SIZE_MB
+        ): KotlinBinaryClassCache = KotlinBinaryClassCache().apply {
+            val maxWeight = maxSizeMb * 1024 * 1024
+            segments = Array(SEGMENT_COUNT) { Segment(maxWeight / SEGMENT_COUNT) }
+        }
+
+        fun getInstance(): KotlinBinaryClassCache = ServiceManager.getService(KotlinBinaryClassCache::class.java)
+
         fun getKotlinBinaryClassOrClassFileContent(
             file: VirtualFile, fileContent: ByteArray? = null
         ): KotlinClassFinder.Result? {
@@ -63,19 +201,12 @@ class KotlinBinaryClassCache : Disposable {
 
             if (file.name == PsiJavaModule.MODULE_INFO_CLS_FILE) return null
 
-            val service = ServiceManager.getService(KotlinBinaryClassCache::class.java)
-            val requestCache = service.cache.get()
-
-            if (file.modificationStamp == requestCache.modificationStamp && file == requestCache.virtualFile) {
-                return requestCache.result
+            return getInstance().getOrCompute(file) {
+                ApplicationManager.getApplication().runReadAction(Computable {
+                    @Suppress("DEPRECATION")
+                    VirtualFileKotlinClass.create(file, fileContent)
+                })
             }
-
-            val aClass = ApplicationManager.getApplication().runReadAction(Computable {
-                @Suppress("DEPRECATION")
-                VirtualFileKotlinClass.create(file, fileContent)
-            })
-
-            return requestCache.cache(file, aClass)
         }
     }
 }
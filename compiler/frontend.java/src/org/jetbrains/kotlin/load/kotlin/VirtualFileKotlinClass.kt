@@ -33,7 +33,9 @@ class VirtualFileKotlinClass private constructor(
         classVersion: Int,
         classHeader: KotlinClassHeader,
         innerClasses: InnerClassesInfo
-) : FileBasedKotlinClass(className, classVersion, classHeader, innerClasses) {
+) : FileBasedKotlinClass(className, classVersion, classHeader, innerClasses), KotlinJvmBinaryClassWithParsedMetadata {
+    @Volatile
+    private var parsedMetadata: Any? = null
 
     override val location: String
         get() = file.path
@@ -48,6 +50,12 @@ class VirtualFileKotlinClass private constructor(
         }
     }
 
+    override fun <T : Any> getOrParseMetadata(parse: () -> T): T {
+        // A concurrent parse of the same metadata is harmless, one of the results is kept
+        @Suppress("UNCHECKED_CAST")
+        return parsedMetadata as T? ?: parse().also { parsedMetadata = it }
+    }
+
     override fun equals(other: Any?) = other is VirtualFileKotlinClass && other.file == file
     override fun hashCode() = file.hashCode()
     override fun toString() = "${this::class.java.simpleName}: $file"
@@ -29,4 +29,7 @@ object AnalysisFlags {
 
     @JvmStatic
     val allowResultReturnType by AnalysisFlag.Delegates.Boolean
+
+    @JvmStatic
+    val parallelBodyResolveThreads by AnalysisFlag.Delegates.IntOneByDefault
 }
@@ -27,10 +27,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.builtins.FunctionTypesKt;
 import org.jetbrains.kotlin.builtins.KotlinBuiltIns;
+import org.jetbrains.kotlin.config.AnalysisFlags;
 import org.jetbrains.kotlin.config.LanguageFeature;
 import org.jetbrains.kotlin.config.LanguageVersionSettings;
 import org.jetbrains.kotlin.descriptors.*;
 import org.jetbrains.kotlin.descriptors.impl.SyntheticFieldDescriptor;
+import org.jetbrains.kotlin.diagnostics.Diagnostic;
+import org.jetbrains.kotlin.diagnostics.DiagnosticUtils;
 import org.jetbrains.kotlin.diagnostics.Errors;
 import org.jetbrains.kotlin.lexer.KtTokens;
 import org.jetbrains.kotlin.psi.*;
@@ -44,6 +47,8 @@ import org.jetbrains.kotlin.resolve.descriptorUtil.DescriptorUtilsKt;
 import org.jetbrains.kotlin.resolve.lazy.ForceResolveUtil;
 import org.jetbrains.kotlin.resolve.multiplatform.ExpectedActualResolver;
 import org.jetbrains.kotlin.resolve.scopes.*;
+import org.jetbrains.kotlin.storage.LockBasedLazyResolveStorageManager;
+import org.jetbrains.kotlin.storage.StorageManager;
 import org.jetbrains.kotlin.types.*;
 import org.jetbrains.kotlin.types.expressions.ExpressionTypingServices;
 import org.jetbrains.kotlin.types.expressions.PreliminaryDeclarationVisitor;
@@ -51,8 +56,13 @@ import org.jetbrains.kotlin.types.expressions.ValueParameterResolver;
 import org.jetbrains.kotlin.types.expressions.typeInfoFactory.TypeInfoFactoryKt;
 import org.jetbrains.kotlin.util.Box;
 import org.jetbrains.kotlin.util.ReenteringLazyValueComputationException;
+import org.jetbrains.kotlin.utils.ExceptionUtilsKt;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.jetbrains.kotlin.config.LanguageFeature.TopLevelSealedInheritance;
 import static org.jetbrains.kotlin.diagnostics.Errors.*;
@@ -76,6 +86,7 @@ public class BodyResolver {
     @NotNull private final KotlinBuiltIns builtIns;
     @NotNull private final OverloadChecker overloadChecker;
     @NotNull private final LanguageVersionSettings languageVersionSettings;
+    @NotNull private final StorageManager storageManager;
 
     public BodyResolver(
             @NotNull Project project,
@@ -92,7 +103,8 @@ public class BodyResolver {
             @NotNull AnnotationChecker annotationChecker,
             @NotNull KotlinBuiltIns builtIns,
             @NotNull OverloadChecker overloadChecker,
-            @NotNull LanguageVersionSettings languageVersionSettings
+            @NotNull LanguageVersionSettings languageVersionSettings,
+            @NotNull StorageManager storageManager
     ) {
         this.project = project;
         this.annotationResolver = annotationResolver;
@@ -109,6 +121,7 @@ public class BodyResolver {
         this.valueParameterResolver = valueParameterResolver;
         this.builtIns = builtIns;
         this.languageVersionSettings = languageVersionSettings;
+        this.storageManager = storageManager;
     }
 
     private void resolveBehaviorDeclarationBodies(@NotNull BodiesResolveContext c) {
@@ -890,14 +903,23 @@ public class BodyResolver {
     }
 
     private void resolveFunctionBodies(@NotNull BodiesResolveContext c) {
+        boolean isLocalDeclarations = c.getTopDownAnalysisMode().isLocalDeclarations();
+        boolean useBodyResolveCache = !isLocalDeclarations && !(bodyResolveCache instanceof BodyResolveCache.ThrowException) &&
+                                      expressionTypingServices.getStatementFilter() != StatementFilter.NONE;
+
+        int threads = languageVersionSettings.getFlag(AnalysisFlags.getParallelBodyResolveThreads());
+        if (threads > 1 && !isLocalDeclarations && !useBodyResolveCache) {
+            resolveFunctionBodiesInParallel(c, threads);
+            return;
+        }
+
         for (Map.Entry<KtNamedFunction, SimpleFunctionDescriptor> entry : c.getFunctions().entrySet()) {
             KtNamedFunction declaration = entry.getKey();
 
             LexicalScope scope = c.getDeclaringScope(declaration);
             assert scope != null : "Scope is null: " + PsiUtilsKt.getElementTextWithContext(declaration);
 
-            if (!c.getTopDownAnalysisMode().isLocalDeclarations() && !(bodyResolveCache instanceof BodyResolveCache.ThrowException) &&
-                expressionTypingServices.getStatementFilter() != StatementFilter.NONE) {
+            if (useBodyResolveCache) {
                 bodyResolveCache.resolveFunctionBody(declaration).addOwnDataTo(trace, true);
             }
             else {
@@ -906,6 +928,76 @@ public class BodyResolver {
         }
     }
 
+    /*
+     * Functions of each file are resolved on a worker thread into a separate trace. Reads from the main trace go through
+     * the storage manager lock, the same way lazy resolution writes to it (see LockBasedLazyResolveStorageManager.createSafeTrace).
+     * When all files are done, the traces are committed to the main trace in the original order of files.
+     *
+     * Lazy resolution started from a worker still records into the main trace, because its results are shared by all workers.
+     * Which worker starts it depends on timing though, so the diagnostics it reports are collected separately
+     * (see LockBasedLazyResolveStorageManager.deferDiagnostics) and reported after the file traces, sorted by position.
+     *
+     * State shared between the workers:
+     * - lazy descriptors and scopes keep their caches in the storage manager, so they can be computed from any thread.
+     *   Each value is computed only once, also by ConcurrentStorageManager, so the records and diagnostics which lazy
+     *   resolution writes to the main trace are not duplicated when several workers need the same declaration;
+     * - the call resolver, the data flow value factory and the other container components don't keep state between calls.
+     *   Resolution results caches, temporary traces and data flow info belong to the expression typing context of a worker;
+     * - lookup trackers of incremental compilation are synchronized.
+     *
+     * Return types of all functions are inferred in advance on this thread, in the same order as in the sequential loop.
+     * Otherwise a function would be entered for the first time from whichever worker comes first, and in case of
+     * recursive dependencies between inferred return types, the call reported as the recursive one would depend on timing.
+     * Note that it still may be another call than in the sequential mode, where function bodies are resolved in between.
+     */
+    private void resolveFunctionBodiesInParallel(@NotNull BodiesResolveContext c, int threads) {
+        Map<KtFile, List<Map.Entry<KtNamedFunction, SimpleFunctionDescriptor>>> functionsByFile = new LinkedHashMap<>();
+        for (Map.Entry<KtNamedFunction, SimpleFunctionDescriptor> entry : c.getFunctions().entrySet()) {
+            computeDeferredType(entry.getValue().getReturnType());
+            functionsByFile.computeIfAbsent(entry.getKey().getContainingKtFile(), file -> new ArrayList<>()).add(entry);
+        }
+
+        BindingContext parentContext = new LockBasedLazyResolveStorageManager(storageManager).createSafeTrace(trace).getBindingContext();
+        Map<KtFile, Future<BindingTrace>> fileTraces = new LinkedHashMap<>();
+        Collection<Diagnostic> lazyResolveDiagnostics = new ConcurrentLinkedQueue<>();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Map.Entry<KtFile, List<Map.Entry<KtNamedFunction, SimpleFunctionDescriptor>>> fileEntry : functionsByFile.entrySet()) {
+                KtFile file = fileEntry.getKey();
+                fileTraces.put(file, pool.submit(() -> LockBasedLazyResolveStorageManager.deferDiagnostics(lazyResolveDiagnostics, () -> {
+                    BindingTrace fileTrace = new DelegatingBindingTrace(
+                            parentContext, "Parallel body resolve of " + file.getName(), false, BindingTraceFilter.Companion.getACCEPT_ALL(),
+                            false
+                    );
+                    for (Map.Entry<KtNamedFunction, SimpleFunctionDescriptor> entry : fileEntry.getValue()) {
+                        LexicalScope scope = c.getDeclaringScope(entry.getKey());
+                        assert scope != null : "Scope is null: " + PsiUtilsKt.getElementTextWithContext(entry.getKey());
+
+                        resolveFunctionBody(c.getOuterDataFlowInfo(), fileTrace, entry.getKey(), entry.getValue(), scope);
+                    }
+                    return fileTrace;
+                })));
+            }
+
+            for (Future<BindingTrace> fileTrace : fileTraces.values()) {
+                fileTrace.get().getBindingContext().addOwnDataTo(trace, true);
+            }
+            for (Diagnostic diagnostic : DiagnosticUtils.sortedDiagnostics(lazyResolveDiagnostics)) {
+                trace.report(diagnostic);
+            }
+        }
+        catch (ExecutionException e) {
+            throw ExceptionUtilsKt.rethrow(e.getCause());
+        }
+        catch (InterruptedException e) {
+            throw ExceptionUtilsKt.rethrow(e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
     public void resolveFunctionBody(
             @NotNull DataFlowInfo outerDataFlowInfo,
             @NotNull BindingTrace trace,
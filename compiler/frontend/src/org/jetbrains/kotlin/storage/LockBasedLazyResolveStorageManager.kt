@@ -80,6 +80,11 @@ class LockBasedLazyResolveStorageManager(private val storageManager: StorageMana
         override fun <K, V> getKeys(slice: WritableSlice<K, V>): Collection<K> = storageManager.compute { trace.getKeys<K, V>(slice) }
 
         override fun report(diagnostic: Diagnostic) {
+            val deferred = deferredDiagnostics.get()
+            if (deferred != null) {
+                deferred.add(diagnostic)
+                return
+            }
             storageManager.compute { trace.report(diagnostic) }
         }
 
@@ -89,4 +94,24 @@ class LockBasedLazyResolveStorageManager(private val storageManager: StorageMana
             return "Lock-protected trace of LockBasedLazyResolveStorageManager $storageManager"
         }
     }
+
+    companion object {
+        private val deferredDiagnostics = ThreadLocal<MutableCollection<Diagnostic>>()
+
+        /**
+         * Diagnostics reported to lock-protected traces on the current thread while [block] runs are added to [diagnostics]
+         * instead of the original traces. Used when lazy resolution is triggered from several threads at once, so that the caller
+         * can report these diagnostics in a deterministic order afterwards.
+         */
+        @JvmStatic
+        fun <T> deferDiagnostics(diagnostics: MutableCollection<Diagnostic>, block: () -> T): T {
+            val previous = deferredDiagnostics.get()
+            deferredDiagnostics.set(diagnostics)
+            try {
+                return block()
+            } finally {
+                deferredDiagnostics.set(previous)
+            }
+        }
+    }
 }
@@ -19,11 +19,21 @@ package org.jetbrains.kotlin.incremental.snapshots
 import java.io.File
 import java.util.*
 
+/**
+ * [lastModified] is only used to avoid hashing files which have not been touched since the snapshot was taken, and is not a part
+ * of the snapshot's identity: two snapshots of the same contents are equal regardless of their timestamps.
+ * It is [UNKNOWN_LAST_MODIFIED] if the file was modified too recently for its timestamp to be trusted.
+ */
 class FileSnapshot(
         val file: File,
         val length: Long,
-        val hash: ByteArray
+        val hash: ByteArray,
+        val lastModified: Long = UNKNOWN_LAST_MODIFIED
 ) {
+    companion object {
+        const val UNKNOWN_LAST_MODIFIED = 0L
+    }
+
     init {
         assert(!file.isDirectory)
     }
@@ -49,6 +59,6 @@ class FileSnapshot(
     }
 
     override fun toString(): String {
-        return "FileSnapshot(file=$file, length=$length, hash=${Arrays.toString(hash)})"
+        return "FileSnapshot(file=$file, length=$length, hash=${Arrays.toString(hash)}, lastModified=$lastModified)"
     }
 }
@@ -20,21 +20,33 @@ import com.intellij.util.io.DataExternalizer
 import java.io.DataInput
 import java.io.DataOutput
 import java.io.File
+import java.io.IOException
 
 object FileSnapshotExternalizer : DataExternalizer<FileSnapshot> {
+    // Should be incremented whenever the serialized form or the hash function changes
+    private const val VERSION = 2
+
     override fun save(out: DataOutput, value: FileSnapshot) {
+        out.writeInt(VERSION)
         out.writeUTF(value.file.canonicalPath)
         out.writeLong(value.length)
         out.writeInt(value.hash.size)
         out.write(value.hash)
+        out.writeLong(value.lastModified)
     }
 
     override fun read(input: DataInput): FileSnapshot {
+        val version = input.readInt()
+        if (version != VERSION) {
+            throw IOException("Unsupported file snapshot version $version, expected $VERSION")
+        }
+
         val file = File(input.readUTF())
         val length = input.readLong()
         val hashSize = input.readInt()
         val hash = ByteArray(hashSize)
         input.readFully(hash)
-        return FileSnapshot(file, length, hash)
+        val lastModified = input.readLong()
+        return FileSnapshot(file, length, hash, lastModified)
     }
 }
\ No newline at end of file
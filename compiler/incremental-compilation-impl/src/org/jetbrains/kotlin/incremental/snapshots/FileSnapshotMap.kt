@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.incremental.storage.BasicStringMap
 import org.jetbrains.kotlin.incremental.storage.PathStringDescriptor
 import java.io.File
 import java.util.*
+import java.util.stream.Collectors
 
 class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageFile, PathStringDescriptor, FileSnapshotExternalizer) {
     override fun dumpValue(value: FileSnapshot): String =
@@ -39,17 +40,31 @@ class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageF
             }
         }
 
+        val oldSnapshots = HashMap<String, FileSnapshot?>()
+        val pathsToHash = ArrayList<String>()
         for (path in newPaths) {
-            val file = File(path)
             val oldSnapshot = storage[path]
-            val newSnapshot = snapshotProvider[file]
+            if (oldSnapshot == null || !oldSnapshot.isUpToDate(File(path))) {
+                oldSnapshots[path] = oldSnapshot
+                pathsToHash.add(path)
+            }
+        }
 
+        val newSnapshots = pathsToHash.parallelStream().map { snapshotProvider[File(it)] }.collect(Collectors.toList())
+        for ((path, newSnapshot) in pathsToHash.zip(newSnapshots)) {
+            val oldSnapshot = oldSnapshots[path]
             if (oldSnapshot == null || oldSnapshot != newSnapshot) {
-                newOrModified.add(file)
+                newOrModified.add(newSnapshot.file)
+                storage[path] = newSnapshot
+            } else if (oldSnapshot.lastModified != newSnapshot.lastModified) {
+                // Only the timestamp has changed, remember it to skip hashing the file next time
                 storage[path] = newSnapshot
             }
         }
 
         return ChangedFiles.Known(newOrModified, removed)
     }
-}
\ No newline at end of file
+
+    private fun FileSnapshot.isUpToDate(file: File): Boolean =
+        lastModified != FileSnapshot.UNKNOWN_LAST_MODIFIED && lastModified == file.lastModified() && length == file.length()
+}
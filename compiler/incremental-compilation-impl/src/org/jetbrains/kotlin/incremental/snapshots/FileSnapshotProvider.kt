@@ -24,8 +24,22 @@ interface FileSnapshotProvider {
 
 class SimpleFileSnapshotProviderImpl : FileSnapshotProvider {
     override fun get(file: File): FileSnapshot {
+        // The timestamp is read before the contents, so a modification made while hashing is noticed by the next build
+        val lastModified = file.lastModified()
         val length = file.length()
-        val hash = file.md5
-        return FileSnapshot(file, length, hash)
+        val hash = file.contentHash
+        return FileSnapshot(file, length, hash, trustedLastModified(lastModified))
+    }
+
+    /**
+     * Timestamps have a coarse granularity on some file systems, so a file modified right after it was snapshotted may keep
+     * the same timestamp and length. Timestamps of such recently modified files are not recorded, which forces the next
+     * comparison to hash them.
+     */
+    private fun trustedLastModified(lastModified: Long): Long =
+        if (System.currentTimeMillis() - lastModified > TIMESTAMP_GRANULARITY_MS) lastModified else FileSnapshot.UNKNOWN_LAST_MODIFIED
+
+    companion object {
+        private const val TIMESTAMP_GRANULARITY_MS = 2000
     }
 }
\ No newline at end of file
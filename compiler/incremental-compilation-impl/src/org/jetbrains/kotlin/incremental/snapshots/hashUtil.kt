@@ -17,20 +17,121 @@
 package org.jetbrains.kotlin.incremental.snapshots
 
 import java.io.File
-import java.security.MessageDigest
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 
-internal val File.md5: ByteArray
+private const val READ_BUFFER_SIZE = 64 * 1024
+
+/**
+ * 64-bit xxHash of the file contents. The file is read in chunks, so that memory usage does not depend on its size.
+ */
+internal val File.contentHash: ByteArray
     get() {
-        val messageDigest = MessageDigest.getInstance("MD5")
-        val buffer = ByteArray(4048)
+        val hash = XxHash64()
         inputStream().use { input ->
+            val buffer = ByteArray(READ_BUFFER_SIZE)
             while (true) {
-                val len = input.read(buffer)
-                if (len < 0) {
-                    break
-                }
-                messageDigest.update(buffer, 0, len)
+                val read = input.read(buffer)
+                if (read < 0) break
+                hash.update(buffer, 0, read)
             }
         }
-        return messageDigest.digest()
+        return ByteBuffer.allocate(8).putLong(hash.digest()).array()
     }
+
+private const val PRIME64_1 = -7046029288634856825L // 0x9E3779B185EBCA87
+private const val PRIME64_2 = -4417276706812531889L // 0xC2B2AE3D27D4EB4F
+private const val PRIME64_3 = 1609587929392839161L  // 0x165667B19E3779F9
+private const val PRIME64_4 = -8796714831421723037L // 0x85EBCA77C2B2AE63
+private const val PRIME64_5 = 2870177450012600261L  // 0x27D4EB2F165667C5
+
+private const val STRIPE_SIZE = 32
+
+/**
+ * Streaming 64-bit xxHash: [update] can be called any number of times with consecutive parts of the input, then [digest]
+ * returns the same value as hashing the whole input at once.
+ */
+internal class XxHash64(private val seed: Long = 0) {
+    private var v1 = seed + PRIME64_1 + PRIME64_2
+    private var v2 = seed + PRIME64_2
+    private var v3 = seed
+    private var v4 = seed - PRIME64_1
+
+    private var totalLength = 0L
+
+    // The beginning of an incomplete stripe left from the previous updates
+    private val pending = ByteBuffer.allocate(STRIPE_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+
+    fun update(bytes: ByteArray, offset: Int = 0, length: Int = bytes.size) {
+        val input = ByteBuffer.wrap(bytes, offset, length).order(ByteOrder.LITTLE_ENDIAN)
+        totalLength += length
+
+        if (pending.position() > 0) {
+            val count = minOf(pending.remaining(), input.remaining())
+            pending.put(bytes, input.position(), count)
+            input.position(input.position() + count)
+            if (pending.hasRemaining()) return
+
+            pending.flip()
+            processStripe(pending)
+            pending.clear()
+        }
+
+        while (input.remaining() >= STRIPE_SIZE) {
+            processStripe(input)
+        }
+
+        pending.put(bytes, input.position(), input.remaining())
+    }
+
+    fun digest(): Long {
+        var hash: Long
+        if (totalLength >= STRIPE_SIZE) {
+            hash = java.lang.Long.rotateLeft(v1, 1) + java.lang.Long.rotateLeft(v2, 7) +
+                    java.lang.Long.rotateLeft(v3, 12) + java.lang.Long.rotateLeft(v4, 18)
+            hash = mergeRound(hash, v1)
+            hash = mergeRound(hash, v2)
+            hash = mergeRound(hash, v3)
+            hash = mergeRound(hash, v4)
+        } else {
+            hash = seed + PRIME64_5
+        }
+
+        hash += totalLength
+
+        val tail = pending.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+        tail.flip()
+        while (tail.remaining() >= 8) {
+            hash = hash xor round(0, tail.long)
+            hash = java.lang.Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4
+        }
+        if (tail.remaining() >= 4) {
+            hash = hash xor ((tail.int.toLong() and 0xFFFFFFFFL) * PRIME64_1)
+            hash = java.lang.Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3
+        }
+        while (tail.hasRemaining()) {
+            hash = hash xor ((tail.get().toLong() and 0xFFL) * PRIME64_5)
+            hash = java.lang.Long.rotateLeft(hash, 11) * PRIME64_1
+        }
+
+        hash = hash xor (hash ushr 33)
+        hash *= PRIME64_2
+        hash = hash xor (hash ushr 29)
+        hash *= PRIME64_3
+        hash = hash xor (hash ushr 32)
+        return hash
+    }
+
+    private fun processStripe(buffer: ByteBuffer) {
+        v1 = round(v1, buffer.long)
+        v2 = round(v2, buffer.long)
+        v3 = round(v3, buffer.long)
+        v4 = round(v4, buffer.long)
+    }
+}
+
+private fun round(acc: Long, input: Long): Long =
+    java.lang.Long.rotateLeft(acc + input * PRIME64_2, 31) * PRIME64_1
+
+private fun mergeRound(acc: Long, value: Long): Long =
+    (acc xor round(0, value)) * PRIME64_1 + PRIME64_4
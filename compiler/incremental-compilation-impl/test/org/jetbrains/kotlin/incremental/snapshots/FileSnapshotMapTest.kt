@@ -66,6 +66,24 @@ class FileSnapshotMapTest : TestWithWorkingDir() {
         )
     }
 
+    @Test
+    fun testTimestampChanges() {
+        val src = File(workingDir, "src").apply { mkdirs() }
+        val oldTimestamp = System.currentTimeMillis() - 60_000
+
+        val touchedTxt = File(src, "touched.txt").apply { writeText("touched"); setLastModified(oldTimestamp) }
+        val changedTxt = File(src, "changed.txt").apply { writeText("changed"); setLastModified(oldTimestamp) }
+        snapshotMap.compareAndUpdate(src.filesWithExt("txt"))
+
+        touchedTxt.setLastModified(oldTimestamp + 10_000)
+        changedTxt.writeText("degnahc")
+        changedTxt.setLastModified(oldTimestamp + 10_000)
+
+        val diff = snapshotMap.compareAndUpdate(src.filesWithExt("txt"))
+        assertArrayEquals("diff.removed", diff.removed.toSortedPaths(), emptyArray<String>())
+        assertArrayEquals("diff.newOrModified", diff.modified.toSortedPaths(), listOf(changedTxt).toSortedPaths())
+    }
+
     private fun Iterable<File>.toSortedPaths(): Array<String> =
         map { it.canonicalPath }.sorted().toTypedArray()
 
@@ -67,6 +67,24 @@ class FileSnapshotTest : TestWithWorkingDir() {
         assertNotEquals(oldSnapshot, newSnapshot)
     }
 
+    @Test
+    fun testExternalizerRejectsOldFormat() {
+        val file = File(workingDir, "1.txt").apply { writeText("test") }
+        val byteOut = ByteArrayOutputStream()
+        DataOutputStream(byteOut).use {
+            // The format without a version, with an MD5 hash
+            it.writeUTF(file.canonicalPath)
+            it.writeLong(file.length())
+            it.writeInt(16)
+            it.write(ByteArray(16))
+        }
+        try {
+            DataInputStream(ByteArrayInputStream(byteOut.toByteArray())).use { FileSnapshotExternalizer.read(it) }
+            fail("Snapshot of the old format should not be read")
+        } catch (e: IOException) {
+        }
+    }
+
     private fun saveAndReadBack(snapshot: FileSnapshot): FileSnapshot {
         val byteOut = ByteArrayOutputStream()
         DataOutputStream(byteOut).use { FileSnapshotExternalizer.save(it, snapshot) }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental.snapshots
+
+import org.jetbrains.kotlin.TestWithWorkingDir
+import org.junit.Test
+import java.io.File
+import java.nio.ByteBuffer
+
+class XxHash64Test : TestWithWorkingDir() {
+    // Expected values are computed with the reference implementation (libxxhash)
+    @Test
+    fun testStrings() {
+        assertHash("EF46DB3751D8E999", "D5AFBA1336A3BE4B", "")
+        assertHash("D24EC4F1A98C6E5B", "DEC2BC81C3CD46C6", "a")
+        assertHash("44BC2CF5AD770999", "BEA9CA8199328908", "abc")
+        assertHash("FBCEA83C8A378BF1", "43F425448D954DB6", "Nobody inspects the spammish repetition")
+        assertHash("0B242D361FDA71BC", "DF5091B6DAD2C6DB", "The quick brown fox jumps over the lazy dog")
+        assertHash("5B15F946643395E4", "04636770F0EF2375", "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdefXYZ")
+    }
+
+    @Test
+    fun testStripeBoundaries() {
+        assertHash("C346D2B59B4D8EE1", "F031031D65977DFC", bytes(31))
+        assertHash("CBF59C5116FF32B4", "D74E6766CE9DBA94", bytes(32))
+        assertHash("0C535D1ACAFB8EAD", "A371825F4210FE99", bytes(33))
+        assertHash("6AC1E58032166597", "3D19A3A2098A7023", bytes(100))
+        assertHash("213259CA19A00A5D", "AF70A4695A1DD4DA", bytes(200_001))
+    }
+
+    @Test
+    fun testChunkedUpdates() {
+        for (size in listOf(0, 1, 7, 31, 32, 33, 63, 64, 65, 1000)) {
+            val data = bytes(size)
+            val expected = XxHash64().apply { update(data) }.digest()
+            for (chunkSize in listOf(1, 3, 8, 31, 32, 33)) {
+                val hash = XxHash64()
+                for (offset in 0 until size step chunkSize) {
+                    hash.update(data, offset, minOf(chunkSize, size - offset))
+                }
+                assertEquals("size $size, chunk size $chunkSize", expected, hash.digest())
+            }
+        }
+    }
+
+    @Test
+    fun testFileContentHash() {
+        // Larger than the read buffer, so the file is hashed in several chunks
+        val file = File(workingDir, "large.bin").apply { writeBytes(bytes(200_001)) }
+        assertEquals("213259CA19A00A5D", ByteBuffer.wrap(file.contentHash).long.toHex())
+
+        val empty = File(workingDir, "empty.bin").apply { writeBytes(ByteArray(0)) }
+        assertEquals("EF46DB3751D8E999", ByteBuffer.wrap(empty.contentHash).long.toHex())
+    }
+
+    private fun assertHash(expected: String, expectedWithSeed1: String, text: String) {
+        assertHash(expected, expectedWithSeed1, text.toByteArray())
+    }
+
+    private fun assertHash(expected: String, expectedWithSeed1: String, data: ByteArray) {
+        assertEquals(expected, XxHash64().apply { update(data) }.digest().toHex())
+        assertEquals(expectedWithSeed1, XxHash64(seed = 1).apply { update(data) }.digest().toHex())
+    }
+
+    private fun bytes(size: Int): ByteArray = ByteArray(size) { (it % 251).toByte() }
+
+    private fun Long.toHex(): String = "%016X".format(this)
+}
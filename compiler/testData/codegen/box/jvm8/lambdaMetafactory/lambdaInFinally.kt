@@ -0,0 +1,37 @@
+// IGNORE_BACKEND: JVM_IR
+// TARGET_BACKEND: JVM
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: LAMBDAS=indy
+// FILE: J.java
+public class J {
+    public static String get(Supplier supplier) {
+        return supplier.get();
+    }
+
+    public interface Supplier {
+        String get();
+    }
+}
+
+// FILE: test.kt
+// The finally block is generated for the normal exit, the return and the exceptional exit
+fun test(result: StringBuilder, fail: Boolean): String {
+    try {
+        if (!fail) return "O"
+        throw IllegalStateException()
+    } finally {
+        result.append(J.get { "K" })
+    }
+}
+
+fun box(): String {
+    val result = StringBuilder()
+    val o = test(result, false)
+    try {
+        test(result, true)
+        return "Fail: no exception"
+    } catch (e: IllegalStateException) {
+    }
+    if (result.toString() != "KK") return "Fail: $result"
+    return o + result[0]
+}
@@ -0,0 +1,58 @@
+// IGNORE_BACKEND: JVM_IR
+// TARGET_BACKEND: JVM
+// WITH_RUNTIME
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: LAMBDAS=indy
+// FILE: J.java
+import java.util.concurrent.Callable;
+
+public class J {
+    public static <T> T call(Callable<T> callable) throws Exception {
+        return callable.call();
+    }
+}
+
+// FILE: test.kt
+class Host {
+    fun nestedLambdas(): String = J.call { J.call { "O" } + J.call { "K" } }
+
+    fun localClass(): Any = J.call {
+        class Local
+        Local()
+    }
+
+    fun anonymousObject(): Any = J.call {
+        object {}
+    }
+
+    fun localFunction(): String = J.call {
+        fun ok() = "OK"
+        ok()
+    }
+
+    fun inlinedLambdaWithObject(): Any = J.call {
+        run { object {} }
+    }
+}
+
+fun checkEnclosingClass(instance: Any, name: String): String? {
+    val javaClass = instance.javaClass
+    // EnclosingMethod and InnerClasses attributes must refer to existing classes and methods
+    val enclosingClass = javaClass.enclosingClass ?: return "Fail $name: no enclosing class"
+    if (javaClass.enclosingMethod == null) return "Fail $name: no enclosing method"
+    if (!javaClass.name.startsWith(enclosingClass.name + "$")) return "Fail $name: ${javaClass.name} is not nested in ${enclosingClass.name}"
+    return null
+}
+
+fun box(): String {
+    val host = Host()
+    if (host.nestedLambdas() != "OK") return "Fail nested lambdas: ${host.nestedLambdas()}"
+    if (host.localFunction() != "OK") return "Fail local function: ${host.localFunction()}"
+
+    checkEnclosingClass(host.localClass(), "local class")?.let { return it }
+    checkEnclosingClass(host.anonymousObject(), "anonymous object")?.let { return it }
+    checkEnclosingClass(host.inlinedLambdaWithObject(), "object in inlined lambda")?.let { return it }
+    if (host.localClass().javaClass.simpleName != "Local") return "Fail simple name: ${host.localClass().javaClass.simpleName}"
+
+    return "OK"
+}
@@ -0,0 +1,79 @@
+// IGNORE_BACKEND: JVM_IR
+// TARGET_BACKEND: JVM
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: LAMBDAS=indy
+// FILE: J.java
+public class J {
+    public interface IntToInt {
+        int apply(int x);
+    }
+
+    public interface IntToObject<T> {
+        T apply(int x);
+    }
+
+    public interface ObjectToInt<T> {
+        int apply(T x);
+    }
+
+    public interface LongConsumer {
+        void accept(long x);
+    }
+
+    public interface IntToLong {
+        long apply(int x);
+    }
+
+    public interface Supplier<T> {
+        T get();
+    }
+
+    public static int applyInt(IntToInt f, int x) {
+        return f.apply(x);
+    }
+
+    public static <T> T applyIntToObject(IntToObject<T> f, int x) {
+        return f.apply(x);
+    }
+
+    public static <T> int applyObjectToInt(ObjectToInt<T> f, T x) {
+        return f.apply(x);
+    }
+
+    public static void acceptLong(LongConsumer f, long x) {
+        f.accept(x);
+    }
+
+    public static long applyIntToLong(IntToLong f, int x) {
+        return f.apply(x);
+    }
+
+    public static <T> T get(Supplier<T> f) {
+        return f.get();
+    }
+}
+
+// FILE: test.kt
+var sum = 0L
+
+fun box(): String {
+    if (J.applyInt({ it * 2 }, 21) != 42) return "Fail int to int"
+    if (J.applyIntToObject({ it + 1 }, 1) != 2) return "Fail int to boxed int"
+    if (J.applyIntToObject({ "$it" }, 1) != "1") return "Fail int to string"
+    if (J.applyObjectToInt<Int>({ it * 3 }, 5) != 15) return "Fail boxed int to int"
+    if (J.applyObjectToInt<String>({ it.length }, "abc") != 3) return "Fail string to int"
+
+    J.acceptLong({ sum += it }, 40L)
+    J.acceptLong({ sum += it }, 2L)
+    if (sum != 42L) return "Fail long consumer: $sum"
+
+    if (J.applyIntToLong({ x: Int -> (x + 1).toLong() }, 41) != 42L) return "Fail int to long"
+
+    if (J.get<Int?> { null } != null) return "Fail nullable"
+    if (J.get<Int?> { 42 } != 42) return "Fail boxed"
+    if (J.get<Char> { 'c' } != 'c') return "Fail char"
+    // A lambda returning Unit is compiled to a void method, which can't implement a method returning Object
+    if (J.get<Unit> { } != Unit) return "Fail unit"
+
+    return "OK"
+}
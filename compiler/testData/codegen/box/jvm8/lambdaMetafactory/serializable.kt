@@ -0,0 +1,26 @@
+// IGNORE_BACKEND: JVM_IR
+// TARGET_BACKEND: JVM
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: LAMBDAS=indy
+// FILE: J.java
+import java.io.*;
+
+public class J {
+    public interface SerializableSupplier extends Serializable {
+        String get();
+    }
+
+    public static SerializableSupplier roundTrip(SerializableSupplier supplier) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(supplier);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (SerializableSupplier) input.readObject();
+        }
+    }
+}
+
+// FILE: test.kt
+// LambdaMetafactory.metafactory creates instances which can't be serialized, so such lambdas are generated as classes
+fun box(): String = J.roundTrip { "OK" }.get()
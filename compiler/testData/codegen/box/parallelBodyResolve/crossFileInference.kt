@@ -0,0 +1,59 @@
+// !PARALLEL_BODY_RESOLVE: 4
+// FILE: a.kt
+package a
+
+import b.*
+import c.*
+
+fun greeting() = prefix() + name()
+
+fun counter(): () -> Int {
+    var count = 0
+    return { ++count }
+}
+
+fun box(): String {
+    if (greeting() != "Hello, world") return "Fail greeting: ${greeting()}"
+    if (total() != 12) return "Fail total: ${total()}"
+
+    val next = counter()
+    next()
+    if (next() != 2) return "Fail counter"
+
+    val s = shout()("O")
+    if (s != "O!O!") return "Fail shout: $s"
+
+    return "OK"
+}
+
+// FILE: b.kt
+package b
+
+import a.*
+
+fun prefix() = "Hello, "
+
+fun name(): String {
+    class Name(val value: String)
+    val provider = object {
+        fun get() = Name("world")
+    }
+    return provider.get().value
+}
+
+fun total(): Int {
+    var sum = 0
+    forEachSize { sum += it }
+    return sum
+}
+
+inline fun forEachSize(action: (Int) -> Unit) {
+    action(greeting().length)
+}
+
+// FILE: c.kt
+package c
+
+fun compose(f: (String) -> String, g: (String) -> String): (String) -> String = { g(f(it)) }
+
+fun shout() = compose({ it + "!" }, { s -> compose({ it }, { it + s })(s) })
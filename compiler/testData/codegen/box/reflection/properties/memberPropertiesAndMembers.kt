@@ -0,0 +1,85 @@
+// IGNORE_BACKEND: JS_IR
+// IGNORE_BACKEND: JS, NATIVE
+
+// WITH_REFLECT
+
+import kotlin.reflect.*
+import kotlin.reflect.full.*
+import kotlin.test.*
+
+interface I {
+    val i: String
+    val j: String get() = "j"
+    val Int.ie: Int get() = this
+}
+
+open class Base : I {
+    override val i: String = "i"
+    open val o: Any = "o"
+    var v: Int = 0
+    private val p: Int = 1
+    val Double.be: Double get() = this
+    fun f() {}
+}
+
+// Two identical classes, because the results are cached in KClass: properties are loaded separately only until all members are loaded
+class A : Base() {
+    override val o: String = "a"
+    val d: Long = 2L
+    private var q: Int = 3
+    val String.de: String get() = this
+    fun g() {}
+
+    companion object {
+        val c: Int = 4
+    }
+}
+
+class B : Base() {
+    override val o: String = "a"
+    val d: Long = 2L
+    private var q: Int = 3
+    val String.de: String get() = this
+    fun g() {}
+
+    companion object {
+        val c: Int = 4
+    }
+}
+
+fun <T : Any> check(klass: KClass<T>, instance: T, membersFirst: Boolean) {
+    val members = if (membersFirst) klass.members else null
+
+    val memberProperties = klass.memberProperties
+    val memberExtensionProperties = klass.memberExtensionProperties
+    val declaredMemberProperties = klass.declaredMemberProperties
+    val declaredMemberExtensionProperties = klass.declaredMemberExtensionProperties
+
+    assertEquals(listOf("d", "i", "j", "o", "q", "v"), memberProperties.map { it.name }.sorted())
+    assertEquals(listOf("be", "de", "ie"), memberExtensionProperties.map { it.name }.sorted())
+    assertEquals(listOf("d", "o", "q"), declaredMemberProperties.map { it.name }.sorted())
+    assertEquals(listOf("de"), declaredMemberExtensionProperties.map { it.name })
+    assertTrue(klass.staticProperties.isEmpty())
+
+    val o = memberProperties.single { it.name == "o" }
+    assertEquals(String::class, o.returnType.classifier)
+    assertEquals("a", o.get(instance))
+    assertEquals("j", memberProperties.single { it.name == "j" }.get(instance))
+
+    val allMembers = members ?: klass.members
+    assertEquals(allMembers.filterIsInstance<KProperty1<*, *>>().toSet(), memberProperties.toSet())
+    assertEquals(allMembers.filterIsInstance<KProperty2<*, *, *>>().toSet(), memberExtensionProperties.toSet())
+    assertEquals(klass.declaredMembers.filterIsInstance<KProperty1<*, *>>().toSet(), declaredMemberProperties.toSet())
+    assertEquals(klass.declaredMembers.filterIsInstance<KProperty2<*, *, *>>().toSet(), declaredMemberExtensionProperties.toSet())
+}
+
+fun box(): String {
+    check(A::class, A(), membersFirst = false)
+    check(B::class, B(), membersFirst = true)
+
+    assertEquals(listOf("c"), A.Companion::class.memberProperties.map { it.name })
+    assertEquals(listOf("i", "j", "o", "p", "v"), Base::class.memberProperties.map { it.name }.sorted())
+    assertEquals(listOf("i", "o", "p", "v"), Base::class.declaredMemberProperties.map { it.name }.sorted())
+
+    return "OK"
+}
@@ -0,0 +1,82 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+// With this many different strings (67), the JVM backend dispatches the subject by its length and then by its characters
+fun foo(x: String?): String =
+    when (x) {
+        "aaa", "aab", "aac", "aba", "abb", "abc", "aca", "acb", "acc" -> "A"
+        "baa", "bab", "bac", "bba", "bbb", "bbc", "bca", "bcb", "bcc" -> "B"
+        "caa", "cab", "cac", "cba", "cbb", "cbc", "cca", "ccb", "ccc", "abc", "bca" -> "C"
+        "xxxx", "xxyy", "xyxy", "xyyx", "yxxy", "yxyx", "yyxx", "yyyy" -> "EVEN"
+        "xxxy", "xxyx", "xyxx", "xyyy", "yxxx", "yxyy", "yyxy", "yyyx" -> "ODD"
+        "ü", "ä", "ö", "ß", "é", "e\u0301" -> "LATIN"
+        "日本", "日本語", "😀", "😁", "\u0000", "ü" -> "OTHER"
+        "" -> "EMPTY"
+        "hello", "hellp", "jello", "helli", "hallo", "kotlin", "Kotlin", "KOTLIN", "kotlim" -> "WORDS"
+        "0123456789", "0123456780", "9123456789" -> "DIGITS"
+        null -> "NULL"
+        else -> "ELSE"
+    }
+
+val LATIN = listOf("ü", "ä", "ö", "ß", "é", "e\u0301")
+val OTHER = listOf("日本", "日本語", "😀", "😁", "\u0000")
+val WORDS = listOf("hello", "hellp", "jello", "helli", "hallo", "kotlin", "Kotlin", "KOTLIN", "kotlim")
+val DIGITS = listOf("0123456789", "0123456780", "9123456789")
+
+// The same cases as in foo, the first matching branch is taken for duplicate labels
+fun expected(x: String?): String =
+    when {
+        x == null -> "NULL"
+        x.length == 3 && x.all { it in "abc" } -> when (x[0]) {
+            'a' -> "A"
+            'b' -> "B"
+            else -> "C"
+        }
+        x.length == 4 && x.all { it in "xy" } -> if (x.count { it == 'y' } % 2 == 0) "EVEN" else "ODD"
+        x in LATIN -> "LATIN"
+        x in OTHER -> "OTHER"
+        x == "" -> "EMPTY"
+        x in WORDS -> "WORDS"
+        x in DIGITS -> "DIGITS"
+        else -> "ELSE"
+    }
+
+fun strings(alphabet: String, length: Int): List<String> =
+    if (length == 0) listOf("") else strings(alphabet, length - 1).flatMap { s -> alphabet.map { s + it } }
+
+fun box(): String {
+    // All strings of the lengths of the labels over their characters and a few others, most of which don't match
+    val subjects = ArrayList<String?>()
+    subjects += strings("abcxyz", 3)
+    subjects += strings("abcxyz", 4)
+    subjects += null
+
+    // Strings of the same length as the other labels, which differ from them at one position, and strings which are one character
+    // longer or shorter
+    for (label in LATIN + OTHER + WORDS + DIGITS + "") {
+        subjects += label
+        subjects += label + "!"
+        subjects += label.dropLast(1)
+        for (i in label.indices) {
+            for (c in listOf('a', 'ü', '\u0000', label[i] + 1)) {
+                subjects += label.substring(0, i) + c + label.substring(i + 1)
+            }
+        }
+    }
+
+    for (subject in subjects) {
+        assertEquals(expected(subject), foo(subject), "foo($subject)")
+    }
+
+    assertEquals("C", foo("cab"))
+    assertEquals("A", foo("abc"))
+    assertEquals("B", foo("bca"))
+    assertEquals("LATIN", foo("ü"))
+    assertEquals("ELSE", foo("e"))
+    assertEquals("ELSE", foo("😂"))
+    assertEquals("ELSE", foo("kotlio"))
+    assertEquals("NULL", foo(null))
+
+    return "OK"
+}
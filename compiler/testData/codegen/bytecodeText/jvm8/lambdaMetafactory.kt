@@ -0,0 +1,12 @@
+// IGNORE_BACKEND: JVM_IR
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: LAMBDAS=indy
+
+class Host {
+    fun foo() = Thread { }
+}
+
+// 1 INVOKEDYNAMIC run\(\)Ljava/lang/Runnable;
+// 1 java/lang/invoke/LambdaMetafactory.metafactory
+// 1 private static synthetic lambda\$foo\$1\(\)V
+// 0 Host\$foo\$1
@@ -0,0 +1,20 @@
+// IGNORE_BACKEND: JVM_IR
+// JVM_TARGET: 9
+// KOTLIN_CONFIGURATION_FLAGS: STRING_CONCAT=indy-with-constants
+
+fun template(i: Int, l: Long, s: String?) = "i=$i, l=$l, s=$s!"
+
+fun plusChain(s: String, x: Any?) = s + 'c' + x + "\u0001"
+
+fun nullablePlus(s: String?, x: Any?) = s.plus(x)
+
+// 3 INVOKEDYNAMIC makeConcatWithConstants
+// 3 java/lang/invoke/StringConcatFactory.makeConcatWithConstants
+// 1 INVOKEDYNAMIC makeConcatWithConstants\(IJLjava/lang/String;\)Ljava/lang/String;
+// 1 "i=\\u0001, l=\\u0001, s=\\u0001!"
+// 1 INVOKEDYNAMIC makeConcatWithConstants\(Ljava/lang/String;Ljava/lang/Object;Ljava/lang/String;\)Ljava/lang/String;
+// 1 "\\u0001c\\u0001\\u0001"
+// 1 INVOKEDYNAMIC makeConcatWithConstants\(Ljava/lang/String;Ljava/lang/Object;\)Ljava/lang/String;
+// 1 "\\u0001\\u0001"
+// 0 java/lang/StringBuilder
+// 0 stringPlus
@@ -0,0 +1,75 @@
+// IGNORE_BACKEND: JVM_IR
+
+fun foo(x: String): Int {
+    return when (x) {
+        "case0" -> 0
+        "case1" -> 1
+        "case2" -> 2
+        "case3" -> 3
+        "case4" -> 4
+        "case5" -> 5
+        "case6" -> 6
+        "case7" -> 7
+        "case8" -> 8
+        "case9" -> 9
+        "case10" -> 10
+        "case11" -> 11
+        "case12" -> 12
+        "case13" -> 13
+        "case14" -> 14
+        "case15" -> 15
+        "case16" -> 16
+        "case17" -> 17
+        "case18" -> 18
+        "case19" -> 19
+        "case20" -> 20
+        "case21" -> 21
+        "case22" -> 22
+        "case23" -> 23
+        "case24" -> 24
+        "case25" -> 25
+        "case26" -> 26
+        "case27" -> 27
+        "case28" -> 28
+        "case29" -> 29
+        "case30" -> 30
+        "case31" -> 31
+        "case32" -> 32
+        "case33" -> 33
+        "case34" -> 34
+        "case35" -> 35
+        "case36" -> 36
+        "case37" -> 37
+        "case38" -> 38
+        "case39" -> 39
+        "case40" -> 40
+        "case41" -> 41
+        "case42" -> 42
+        "case43" -> 43
+        "case44" -> 44
+        "case45" -> 45
+        "case46" -> 46
+        "case47" -> 47
+        "case48" -> 48
+        "case49" -> 49
+        "case50" -> 50
+        "case51" -> 51
+        "case52" -> 52
+        "case53" -> 53
+        "case54" -> 54
+        "case55" -> 55
+        "case56" -> 56
+        "case57" -> 57
+        "case58" -> 58
+        "case59" -> 59
+        "case60" -> 60
+        "case61" -> 61
+        "case62" -> 62
+        "case63" -> 63
+        else -> -1
+    }
+}
+
+// 0 INVOKEVIRTUAL java/lang/String.hashCode
+// 1 INVOKEVIRTUAL java/lang/String.length
+// 64 INVOKEVIRTUAL java/lang/String.equals
@@ -0,0 +1,55 @@
+// !LANGUAGE: +InlineClasses
+// TARGET_BACKEND: JVM
+// IGNORE_BACKEND: JVM_IR
+// FULL_JDK
+// SKIP_JDK6
+// WITH_RUNTIME
+// JVM_TARGET: 9
+// KOTLIN_CONFIGURATION_FLAGS: STRING_CONCAT=indy-with-constants
+
+inline class Id(val value: Int) {
+    override fun toString() = "Id#$value"
+}
+
+inline class Name(val value: String)
+
+const val TAGS = "<\u0001|\u0002>"
+
+fun template(i: Int, l: Long, c: Char, z: Boolean, d: Double, s: String?, a: Any?) =
+    "i=$i, l=$l, c=$c, z=$z, d=$d, s=$s, a=$a"
+
+fun plusChain(s: String, i: Int, c: Char, x: Any?) = s + i + c + x + 'c' + "s" + 1L + null
+
+fun nullablePlus(s: String?, x: Any?) = s.plus(x)
+
+fun nullableSafePlus(s: String?, x: Any?) = s?.plus(x)
+
+fun tags(x: String) = "\u0001$x\u0002" + TAGS + x + '\u0001'
+
+fun inlineClasses(id: Id, name: Name, nullable: Id?) = "$id $name $nullable " + id + name
+
+fun check(expected: String, actual: String?) {
+    if (expected != actual) throw AssertionError("Expected: $expected, actual: $actual")
+}
+
+fun main() {
+    check("i=1, l=2, c=3, z=true, d=4.5, s=null, a=[5]", template(1, 2L, '3', true, 4.5, null, listOf(5)))
+    check("i=-1, l=9223372036854775807, c=\u0001, z=false, d=NaN, s=\u0002, a=null",
+          template(-1, Long.MAX_VALUE, '\u0001', false, Double.NaN, "\u0002", null))
+
+    check("a1bnullcs1null", plusChain("a", 1, 'b', null))
+    check("x-2yzcs1null", plusChain("x", -2, 'y', "z"))
+
+    check("nullnull", nullablePlus(null, null))
+    check("null42", nullablePlus(null, 42))
+    check("OK", nullablePlus("O", "K"))
+    check("Onull", nullablePlus("O", null))
+    check("OK", nullableSafePlus("O", 'K'))
+    if (nullableSafePlus(null, "K") != null) throw AssertionError("Fail: null?.plus")
+
+    check("\u0001-\u0002<\u0001|\u0002>-\u0001", tags("-"))
+    check("\u0001\u0001\u0002<\u0001|\u0002>\u0001\u0001", tags("\u0001"))
+
+    check("Id#1 Name(value=n) null Id#1Name(value=n)", inlineClasses(Id(1), Name("n"), null))
+    check("Id#2 Name(value=) Id#3 Id#2Name(value=)", inlineClasses(Id(2), Name(""), Id(3)))
+}
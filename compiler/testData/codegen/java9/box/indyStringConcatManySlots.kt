@@ -0,0 +1,28 @@
+// TARGET_BACKEND: JVM
+// IGNORE_BACKEND: JVM_IR
+// FULL_JDK
+// SKIP_JDK6
+// WITH_RUNTIME
+// JVM_TARGET: 9
+// KOTLIN_CONFIGURATION_FLAGS: STRING_CONCAT=indy-with-constants
+
+// A single makeConcatWithConstants call site takes at most 200 argument slots, so these concatenations are split
+
+fun longs(x: Long) =
+    "<${x + 0}><${x + 1}><${x + 2}><${x + 3}><${x + 4}><${x + 5}><${x + 6}><${x + 7}><${x + 8}><${x + 9}><${x + 10}><${x + 11}><${x + 12}><${x + 13}><${x + 14}><${x + 15}><${x + 16}><${x + 17}><${x + 18}><${x + 19}><${x + 20}><${x + 21}><${x + 22}><${x + 23}><${x + 24}><${x + 25}><${x + 26}><${x + 27}><${x + 28}><${x + 29}><${x + 30}><${x + 31}><${x + 32}><${x + 33}><${x + 34}><${x + 35}><${x + 36}><${x + 37}><${x + 38}><${x + 39}><${x + 40}><${x + 41}><${x + 42}><${x + 43}><${x + 44}><${x + 45}><${x + 46}><${x + 47}><${x + 48}><${x + 49}><${x + 50}><${x + 51}><${x + 52}><${x + 53}><${x + 54}><${x + 55}><${x + 56}><${x + 57}><${x + 58}><${x + 59}><${x + 60}><${x + 61}><${x + 62}><${x + 63}><${x + 64}><${x + 65}><${x + 66}><${x + 67}><${x + 68}><${x + 69}><${x + 70}><${x + 71}><${x + 72}><${x + 73}><${x + 74}><${x + 75}><${x + 76}><${x + 77}><${x + 78}><${x + 79}><${x + 80}><${x + 81}><${x + 82}><${x + 83}><${x + 84}><${x + 85}><${x + 86}><${x + 87}><${x + 88}><${x + 89}><${x + 90}><${x + 91}><${x + 92}><${x + 93}><${x + 94}><${x + 95}><${x + 96}><${x + 97}><${x + 98}><${x + 99}><${x + 100}><${x + 101}><${x + 102}><${x + 103}><${x + 104}><${x + 105}><${x + 106}><${x + 107}><${x + 108}><${x + 109}><${x + 110}><${x + 111}><${x + 112}><${x + 113}><${x + 114}><${x + 115}><${x + 116}><${x + 117}><${x + 118}><${x + 119}><${x + 120}><${x + 121}><${x + 122}><${x + 123}><${x + 124}><${x + 125}><${x + 126}><${x + 127}><${x + 128}><${x + 129}><${x + 130}><${x + 131}><${x + 132}><${x + 133}><${x + 134}><${x + 135}><${x + 136}><${x + 137}><${x + 138}><${x + 139}><${x + 140}><${x + 141}><${x + 142}><${x + 143}><${x + 144}><${x + 145}><${x + 146}><${x + 147}><${x + 148}><${x + 149}>"
+
+fun objects(prefix: String, a: Array<Any?>) =
+    prefix + a[0] + a[1] + a[2] + a[3] + a[4] + a[5] + a[6] + a[7] + a[8] + a[9] + a[10] + a[11] + a[12] + a[13] + a[14] + a[15] + a[16] + a[17] + a[18] + a[19] + a[20] + a[21] + a[22] + a[23] + a[24] + a[25] + a[26] + a[27] + a[28] + a[29] + a[30] + a[31] + a[32] + a[33] + a[34] + a[35] + a[36] + a[37] + a[38] + a[39] + a[40] + a[41] + a[42] + a[43] + a[44] + a[45] + a[46] + a[47] + a[48] + a[49] + a[50] + a[51] + a[52] + a[53] + a[54] + a[55] + a[56] + a[57] + a[58] + a[59] + a[60] + a[61] + a[62] + a[63] + a[64] + a[65] + a[66] + a[67] + a[68] + a[69] + a[70] + a[71] + a[72] + a[73] + a[74] + a[75] + a[76] + a[77] + a[78] + a[79] + a[80] + a[81] + a[82] + a[83] + a[84] + a[85] + a[86] + a[87] + a[88] + a[89] + a[90] + a[91] + a[92] + a[93] + a[94] + a[95] + a[96] + a[97] + a[98] + a[99] + a[100] + a[101] + a[102] + a[103] + a[104] + a[105] + a[106] + a[107] + a[108] + a[109] + a[110] + a[111] + a[112] + a[113] + a[114] + a[115] + a[116] + a[117] + a[118] + a[119] + a[120] + a[121] + a[122] + a[123] + a[124] + a[125] + a[126] + a[127] + a[128] + a[129] + a[130] + a[131] + a[132] + a[133] + a[134] + a[135] + a[136] + a[137] + a[138] + a[139] + a[140] + a[141] + a[142] + a[143] + a[144] + a[145] + a[146] + a[147] + a[148] + a[149] + a[150] + a[151] + a[152] + a[153] + a[154] + a[155] + a[156] + a[157] + a[158] + a[159] + a[160] + a[161] + a[162] + a[163] + a[164] + a[165] + a[166] + a[167] + a[168] + a[169] + a[170] + a[171] + a[172] + a[173] + a[174] + a[175] + a[176] + a[177] + a[178] + a[179] + a[180] + a[181] + a[182] + a[183] + a[184] + a[185] + a[186] + a[187] + a[188] + a[189] + a[190] + a[191] + a[192] + a[193] + a[194] + a[195] + a[196] + a[197] + a[198] + a[199] + a[200] + a[201] + a[202] + a[203] + a[204] + a[205] + a[206] + a[207] + a[208] + a[209] + "!"
+
+fun mixed(d: Double, i: Int) =
+    "${d + 0}/${i + 0};${d + 1}/${i + 1};${d + 2}/${i + 2};${d + 3}/${i + 3};${d + 4}/${i + 4};${d + 5}/${i + 5};${d + 6}/${i + 6};${d + 7}/${i + 7};${d + 8}/${i + 8};${d + 9}/${i + 9};${d + 10}/${i + 10};${d + 11}/${i + 11};${d + 12}/${i + 12};${d + 13}/${i + 13};${d + 14}/${i + 14};${d + 15}/${i + 15};${d + 16}/${i + 16};${d + 17}/${i + 17};${d + 18}/${i + 18};${d + 19}/${i + 19};${d + 20}/${i + 20};${d + 21}/${i + 21};${d + 22}/${i + 22};${d + 23}/${i + 23};${d + 24}/${i + 24};${d + 25}/${i + 25};${d + 26}/${i + 26};${d + 27}/${i + 27};${d + 28}/${i + 28};${d + 29}/${i + 29};${d + 30}/${i + 30};${d + 31}/${i + 31};${d + 32}/${i + 32};${d + 33}/${i + 33};${d + 34}/${i + 34};${d + 35}/${i + 35};${d + 36}/${i + 36};${d + 37}/${i + 37};${d + 38}/${i + 38};${d + 39}/${i + 39};${d + 40}/${i + 40};${d + 41}/${i + 41};${d + 42}/${i + 42};${d + 43}/${i + 43};${d + 44}/${i + 44};${d + 45}/${i + 45};${d + 46}/${i + 46};${d + 47}/${i + 47};${d + 48}/${i + 48};${d + 49}/${i + 49};${d + 50}/${i + 50};${d + 51}/${i + 51};${d + 52}/${i + 52};${d + 53}/${i + 53};${d + 54}/${i + 54};${d + 55}/${i + 55};${d + 56}/${i + 56};${d + 57}/${i + 57};${d + 58}/${i + 58};${d + 59}/${i + 59};${d + 60}/${i + 60};${d + 61}/${i + 61};${d + 62}/${i + 62};${d + 63}/${i + 63};${d + 64}/${i + 64};${d + 65}/${i + 65};${d + 66}/${i + 66};${d + 67}/${i + 67};${d + 68}/${i + 68};${d + 69}/${i + 69};${d + 70}/${i + 70};${d + 71}/${i + 71};${d + 72}/${i + 72};${d + 73}/${i + 73};${d + 74}/${i + 74};${d + 75}/${i + 75};${d + 76}/${i + 76};${d + 77}/${i + 77};${d + 78}/${i + 78};${d + 79}/${i + 79};"
+
+fun check(expected: String, actual: String) {
+    if (expected != actual) throw AssertionError("Expected: $expected, actual: $actual")
+}
+
+fun main() {
+    check("<0><1><2><3><4><5><6><7><8><9><10><11><12><13><14><15><16><17><18><19><20><21><22><23><24><25><26><27><28><29><30><31><32><33><34><35><36><37><38><39><40><41><42><43><44><45><46><47><48><49><50><51><52><53><54><55><56><57><58><59><60><61><62><63><64><65><66><67><68><69><70><71><72><73><74><75><76><77><78><79><80><81><82><83><84><85><86><87><88><89><90><91><92><93><94><95><96><97><98><99><100><101><102><103><104><105><106><107><108><109><110><111><112><113><114><115><116><117><118><119><120><121><122><123><124><125><126><127><128><129><130><131><132><133><134><135><136><137><138><139><140><141><142><143><144><145><146><147><148><149>", longs(0L))
+    check(">null123456null8910111213null151617181920null222324252627null293031323334null363738394041null434445464748null505152535455null575859606162null646566676869null717273747576null787980818283null858687888990null929394959697null99100101102103104null106107108109110111null113114115116117118null120121122123124125null127128129130131132null134135136137138139null141142143144145146null148149150151152153null155156157158159160null162163164165166167null169170171172173174null176177178179180181null183184185186187188null190191192193194195null197198199200201202null204205206207208209!", objects(">", Array(210) { if (it % 7 == 0) null else it }))
+    check("0.5/0;1.5/1;2.5/2;3.5/3;4.5/4;5.5/5;6.5/6;7.5/7;8.5/8;9.5/9;10.5/10;11.5/11;12.5/12;13.5/13;14.5/14;15.5/15;16.5/16;17.5/17;18.5/18;19.5/19;20.5/20;21.5/21;22.5/22;23.5/23;24.5/24;25.5/25;26.5/26;27.5/27;28.5/28;29.5/29;30.5/30;31.5/31;32.5/32;33.5/33;34.5/34;35.5/35;36.5/36;37.5/37;38.5/38;39.5/39;40.5/40;41.5/41;42.5/42;43.5/43;44.5/44;45.5/45;46.5/46;47.5/47;48.5/48;49.5/49;50.5/50;51.5/51;52.5/52;53.5/53;54.5/54;55.5/55;56.5/56;57.5/57;58.5/58;59.5/59;60.5/60;61.5/61;62.5/62;63.5/63;64.5/64;65.5/65;66.5/66;67.5/67;68.5/68;69.5/69;70.5/70;71.5/71;72.5/72;73.5/73;74.5/74;75.5/75;76.5/76;77.5/77;78.5/78;79.5/79;", mixed(0.5, 0))
+}
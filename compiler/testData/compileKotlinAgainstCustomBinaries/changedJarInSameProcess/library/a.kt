@@ -0,0 +1,3 @@
+package lib
+
+fun f(): Int = 1
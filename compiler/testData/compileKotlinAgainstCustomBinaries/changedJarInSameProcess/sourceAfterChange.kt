@@ -0,0 +1,3 @@
+package usage
+
+fun use() = lib.g()
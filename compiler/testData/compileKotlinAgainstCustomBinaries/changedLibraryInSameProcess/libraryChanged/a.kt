@@ -0,0 +1,3 @@
+package lib
+
+fun f(): String = "f"
@@ -0,0 +1,3 @@
+package lib
+
+fun g(): Int = 2
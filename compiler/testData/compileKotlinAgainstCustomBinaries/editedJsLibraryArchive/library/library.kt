@@ -0,0 +1,3 @@
+package library
+
+inline fun result(): String = "library-result-1"
@@ -0,0 +1,5 @@
+package usage
+
+import library.result
+
+fun use(): String = result()
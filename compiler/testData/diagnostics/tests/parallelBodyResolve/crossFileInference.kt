@@ -0,0 +1,40 @@
+// !PARALLEL_BODY_RESOLVE: 4
+// SKIP_TXT
+
+// FILE: a.kt
+package a
+
+import b.*
+
+fun length() = text().length
+
+fun sum(): Int = number() + length()
+
+fun wrong(): String = <!TYPE_MISMATCH!>length()<!>
+
+fun unresolved() {
+    <!UNRESOLVED_REFERENCE!>missing<!>()
+}
+
+// FILE: b.kt
+package b
+
+import a.*
+
+fun text() = "text"
+
+fun number() = length() * 2
+
+fun unused(<!UNUSED_PARAMETER!>x<!>: Int) {
+    val <!UNUSED_VARIABLE!>y<!> = sum()
+}
+
+// FILE: c.kt
+package c
+
+fun foo() = bar()
+
+// FILE: d.kt
+package c
+
+fun bar() = <!TYPECHECKER_HAS_RUN_INTO_RECURSIVE_PROBLEM!>foo()<!>
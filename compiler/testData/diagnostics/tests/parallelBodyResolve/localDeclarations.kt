@@ -0,0 +1,29 @@
+// !PARALLEL_BODY_RESOLVE: 4
+// SKIP_TXT
+
+// FILE: a.kt
+package a
+
+fun call(f: () -> Unit) = f()
+
+fun lambdas() {
+    call {
+        val <!UNUSED_VARIABLE!>x<!> = b.local()
+        call { <!UNRESOLVED_REFERENCE!>missing<!>() }
+    }
+}
+
+// FILE: b.kt
+package b
+
+fun local(): Int {
+    class Local {
+        fun value() = 1
+    }
+    val o = object {
+        fun value() = Local().value()
+    }
+    fun nested(): String = <!TYPE_MISMATCH!>o.value()<!>
+    nested()
+    return o.value()
+}
@@ -234,6 +234,8 @@ public abstract class CodegenTestCase extends KtUsefulTestCase {
     private static final Pattern CONSTRUCTOR_CALL_NORMALIZATION_MODE_FLAG_PATTERN = Pattern.compile(
             "CONSTRUCTOR_CALL_NORMALIZATION_MODE=([a-zA-Z_\\-0-9]*)");
     private static final Pattern ASSERTIONS_MODE_FLAG_PATTERN = Pattern.compile("ASSERTIONS_MODE=([a-zA-Z_0-9-]*)");
+    private static final Pattern LAMBDAS_FLAG_PATTERN = Pattern.compile("LAMBDAS=([a-z]*)");
+    private static final Pattern STRING_CONCAT_FLAG_PATTERN = Pattern.compile("STRING_CONCAT=([a-z-]*)");
 
     private static void updateConfigurationWithFlags(@NotNull CompilerConfiguration configuration, @NotNull List<String> flags) {
         for (String flag : flags) {
@@ -262,6 +264,22 @@ public abstract class CodegenTestCase extends KtUsefulTestCase {
                 assert mode != null : "Wrong ASSERTIONS_MODE value: " + flagValueString;
                 configuration.put(JVMConfigurationKeys.ASSERTIONS_MODE, mode);
             }
+
+            m = LAMBDAS_FLAG_PATTERN.matcher(flag);
+            if (m.matches()) {
+                String flagValueString = m.group(1);
+                JvmClosureGenerationScheme lambdas = JvmClosureGenerationScheme.fromStringOrNull(flagValueString);
+                assert lambdas != null : "Wrong LAMBDAS value: " + flagValueString;
+                configuration.put(JVMConfigurationKeys.LAMBDAS, lambdas);
+            }
+
+            m = STRING_CONCAT_FLAG_PATTERN.matcher(flag);
+            if (m.matches()) {
+                String flagValueString = m.group(1);
+                JvmStringConcat stringConcat = JvmStringConcat.fromStringOrNull(flagValueString);
+                assert stringConcat != null : "Wrong STRING_CONCAT value: " + flagValueString;
+                configuration.put(JVMConfigurationKeys.STRING_CONCAT, stringConcat);
+            }
         }
     }
 
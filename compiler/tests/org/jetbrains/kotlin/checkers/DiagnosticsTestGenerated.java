@@ -15145,6 +15145,29 @@ public class DiagnosticsTestGenerated extends AbstractDiagnosticsTest {
             }
         }
 
+        @TestMetadata("compiler/testData/diagnostics/tests/parallelBodyResolve")
+        @TestDataPath("$PROJECT_ROOT")
+        @RunWith(JUnit3RunnerWithInners.class)
+        public static class ParallelBodyResolve extends AbstractDiagnosticsTest {
+            private void runTest(String testDataFilePath) throws Exception {
+                KotlinTestUtils.runTest(this::doTest, TargetBackend.ANY, testDataFilePath);
+            }
+
+            public void testAllFilesPresentInParallelBodyResolve() throws Exception {
+                KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/diagnostics/tests/parallelBodyResolve"), Pattern.compile("^(.*)\\.kts?$"), TargetBackend.ANY, true);
+            }
+
+            @TestMetadata("crossFileInference.kt")
+            public void testCrossFileInference() throws Exception {
+                runTest("compiler/testData/diagnostics/tests/parallelBodyResolve/crossFileInference.kt");
+            }
+
+            @TestMetadata("localDeclarations.kt")
+            public void testLocalDeclarations() throws Exception {
+                runTest("compiler/testData/diagnostics/tests/parallelBodyResolve/localDeclarations.kt");
+            }
+        }
+
         @TestMetadata("compiler/testData/diagnostics/tests/parenthesizedTypes")
         @TestDataPath("$PROJECT_ROOT")
         @RunWith(JUnit3RunnerWithInners.class)
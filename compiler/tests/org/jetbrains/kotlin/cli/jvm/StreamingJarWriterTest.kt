@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
+import org.jetbrains.kotlin.cli.common.config.addKotlinSourceRoot
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinToJVMBytecodeCompiler
+import org.jetbrains.kotlin.codegen.ImplementationBodyCodegen
+import org.jetbrains.kotlin.codegen.extensions.ExpressionCodegenExtension
+import org.jetbrains.kotlin.config.JVMConfigurationKeys
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+import java.util.jar.JarFile
+
+class StreamingJarWriterTest : TestCaseWithTmpdir() {
+    private val jar: File
+        get() = File(tmpdir, "out.jar")
+
+    fun testJarIsWrittenOnSuccess() {
+        assertTrue(compile(failOnClass = null))
+
+        assertEquals(listOf("META-INF/MANIFEST.MF", "a/A.class", "b/B.class"), jarEntries().filter { !it.endsWith(".kotlin_module") })
+        assertNoTemporaryFiles()
+    }
+
+    fun testNoJarIsLeftOnFailure() {
+        // The first class is written to the jar before the second one fails
+        assertFailsWithCodegenError { compile(failOnClass = 2) }
+
+        assertFalse(jar.exists())
+        assertNoTemporaryFiles()
+    }
+
+    fun testPreviousJarIsKeptOnFailure() {
+        assertTrue(compile(failOnClass = null))
+        val previous = jar.readBytes()
+
+        assertFailsWithCodegenError { compile(failOnClass = 2) }
+
+        assertEquals(previous.toList(), jar.readBytes().toList())
+        assertNoTemporaryFiles()
+    }
+
+    private fun compile(failOnClass: Int?): Boolean {
+        File(tmpdir, "src/a.kt").apply { parentFile.mkdirs() }.writeText("package a\n\nclass A")
+        File(tmpdir, "src/b.kt").writeText("package b\n\nclass B")
+
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK).apply {
+            put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+            addKotlinSourceRoot(File(tmpdir, "src").path)
+            put(JVMConfigurationKeys.OUTPUT_JAR, jar)
+        }
+        val environment = KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+
+        if (failOnClass != null) {
+            var generatedClasses = 0
+            ExpressionCodegenExtension.registerExtension(environment.project, object : ExpressionCodegenExtension {
+                override fun generateClassSyntheticParts(codegen: ImplementationBodyCodegen) {
+                    if (++generatedClasses == failOnClass) throw IllegalStateException(CODEGEN_ERROR)
+                }
+            })
+        }
+
+        return KotlinToJVMBytecodeCompiler.compileBunchOfSources(environment)
+    }
+
+    private fun assertFailsWithCodegenError(block: () -> Unit) {
+        try {
+            block()
+        } catch (e: Throwable) {
+            assertTrue(generateSequence(e) { it.cause }.any { it.message == CODEGEN_ERROR })
+            return
+        }
+        fail("Code generation should have failed")
+    }
+
+    private fun jarEntries(): List<String> =
+        JarFile(jar).use { file -> file.entries().toList().map { it.name } }
+
+    private fun assertNoTemporaryFiles() {
+        assertEquals(emptyList<String>(), tmpdir.list().filter { it.endsWith(".tmp") })
+    }
+
+    companion object {
+        private const val CODEGEN_ERROR = "Codegen failure"
+    }
+}
@@ -29,7 +29,6 @@ class CodeConformanceTest : TestCase() {
         private val EXCLUDED_FILES_AND_DIRS = listOf(
                 "android.tests.dependencies",
                 "buildSrc",
-                "core/reflection.jvm/src/kotlin/reflect/jvm/internal/pcollections",
                 "js/js.tests/.gradle",
                 "js/js.translator/testData/node_modules",
                 "libraries/kotlin.test/js/it/.gradle",
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockAnalyzer
+import org.jetbrains.kotlin.codegen.optimization.common.MethodAnalyzer
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.Label
+import org.jetbrains.org.objectweb.asm.Opcodes.*
+import org.jetbrains.org.objectweb.asm.tree.ClassNode
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.SourceInterpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+import java.util.*
+
+class BasicBlockAnalyzerTest : KtUsefulTestCase() {
+    fun testTryCatchStartingInTheMiddleOfBlock() {
+        doTest(method("(I)I", maxLocals = 3, maxStack = 2) {
+            val start = Label()
+            val end = Label()
+            val handler = Label()
+            val finally = Label()
+            visitTryCatchBlock(start, end, handler, "java/lang/ArithmeticException")
+            visitTryCatchBlock(start, end, finally, null)
+
+            visitVarInsn(ILOAD, 0)
+            visitVarInsn(ISTORE, 1)
+            // Not a jump target, so the protected range starts in the middle of the first basic block
+            visitLabel(start)
+            visitInsn(ACONST_NULL)
+            visitVarInsn(ASTORE, 2)
+            visitVarInsn(ILOAD, 0)
+            visitInsn(ICONST_2)
+            visitInsn(IDIV)
+            visitVarInsn(ISTORE, 1)
+            visitLdcInsn("s")
+            visitVarInsn(ASTORE, 2)
+            visitLabel(end)
+            visitVarInsn(ILOAD, 1)
+            visitInsn(IRETURN)
+
+            visitLabel(handler)
+            visitVarInsn(ASTORE, 2)
+            visitVarInsn(ILOAD, 1)
+            visitInsn(IRETURN)
+
+            visitLabel(finally)
+            visitInsn(ATHROW)
+        })
+    }
+
+    fun testSwitches() {
+        doTest(method("(I)I", maxLocals = 2, maxStack = 1) {
+            val first = Label()
+            val second = Label()
+            val default = Label()
+            val next = Label()
+            val a = Label()
+            val b = Label()
+
+            visitVarInsn(ILOAD, 0)
+            visitTableSwitchInsn(0, 2, default, first, second, first)
+
+            visitLabel(first)
+            visitInsn(ICONST_1)
+            visitVarInsn(ISTORE, 1)
+            visitJumpInsn(GOTO, next)
+
+            visitLabel(second)
+            visitInsn(ACONST_NULL)
+            visitVarInsn(ASTORE, 1)
+            visitInsn(ICONST_2)
+            visitVarInsn(ISTORE, 1)
+            visitJumpInsn(GOTO, next)
+
+            visitLabel(default)
+            visitInsn(ICONST_0)
+            visitVarInsn(ISTORE, 1)
+
+            visitLabel(next)
+            visitVarInsn(ILOAD, 1)
+            visitLookupSwitchInsn(b, intArrayOf(10, 20), arrayOf(a, b))
+
+            visitLabel(a)
+            visitVarInsn(ILOAD, 1)
+            visitInsn(IRETURN)
+
+            visitLabel(b)
+            visitInsn(ICONST_M1)
+            visitInsn(IRETURN)
+        })
+    }
+
+    fun testLoopAndUnreachableCode() {
+        doTest(method("()Ljava/lang/Object;", maxLocals = 2, maxStack = 2) {
+            val loop = Label()
+            val dead = Label()
+            val exit = Label()
+
+            visitInsn(ICONST_0)
+            visitVarInsn(ISTORE, 0)
+            visitInsn(ACONST_NULL)
+            visitVarInsn(ASTORE, 1)
+
+            visitLabel(loop)
+            visitIincInsn(0, 1)
+            visitLdcInsn("s")
+            visitVarInsn(ASTORE, 1)
+            visitVarInsn(ILOAD, 0)
+            visitIntInsn(BIPUSH, 10)
+            visitJumpInsn(IF_ICMPLT, loop)
+            visitJumpInsn(GOTO, exit)
+
+            visitLabel(dead)
+            visitInsn(ICONST_5)
+            visitVarInsn(ISTORE, 0)
+            visitJumpInsn(GOTO, loop)
+
+            visitLabel(exit)
+            visitVarInsn(ALOAD, 1)
+            visitInsn(ARETURN)
+        })
+    }
+
+    fun testTrailingLabels() {
+        doTest(method("()V", maxLocals = 1, maxStack = 1) {
+            val start = Label()
+            val end = Label()
+            val handler = Label()
+            val trailing = Label()
+            visitTryCatchBlock(start, end, handler, null)
+
+            visitLabel(start)
+            visitLineNumber(1, start)
+            visitInsn(ICONST_0)
+            visitVarInsn(ISTORE, 0)
+            visitInsn(RETURN)
+
+            visitLabel(handler)
+            visitInsn(ATHROW)
+
+            // The end of the protected range, a line number and a local variable range after the last instruction
+            visitLabel(end)
+            visitLineNumber(2, end)
+            visitLabel(trailing)
+            visitLocalVariable("x", "I", null, start, trailing, 0)
+        })
+    }
+
+    fun testCompiledMethods() {
+        for (className in listOf(
+            "kotlin/collections/CollectionsKt___CollectionsKt",
+            "kotlin/text/StringsKt__StringsKt",
+            "org/jetbrains/kotlin/codegen/ExpressionCodegen",
+            "org/jetbrains/kotlin/codegen/optimization/common/BasicBlockAnalyzer"
+        )) {
+            val classNode = ClassNode()
+            ClassReader(javaClass.classLoader.getResourceAsStream("$className.class")).accept(classNode, 0)
+            for (method in classNode.methods) {
+                doTest(method, className)
+            }
+        }
+    }
+
+    private fun method(desc: String, maxLocals: Int, maxStack: Int, build: MethodNode.() -> Unit): MethodNode =
+        MethodNode(API_VERSION, ACC_STATIC, "test", desc, null, null).apply {
+            build()
+            this.maxLocals = maxLocals
+            this.maxStack = maxStack
+        }
+
+    private fun doTest(method: MethodNode, owner: String = "Test") {
+        doTest(method, owner, OptimizationBasicInterpreter())
+        doTest(method, owner, SourceInterpreter())
+    }
+
+    private fun <V : Value> doTest(method: MethodNode, owner: String, interpreter: Interpreter<V>) {
+        val expected = MethodAnalyzer(owner, method, interpreter).analyze()
+        val actual = BasicBlockAnalyzer(owner, method, interpreter).analyze()
+        assertEquals(expected.size, actual.size)
+
+        // Frames inside a block are computed incrementally from the previously requested one, so check several orders of requests
+        val indices = expected.indices.toList()
+        for (order in listOf(indices, indices.reversed(), indices.shuffled(Random(0)))) {
+            for (i in order) {
+                val message = "$owner.${method.name}${method.desc}, instruction #$i, ${interpreter.javaClass.simpleName}"
+                assertEquals(message, expected[i] != null, actual.isReachable(i))
+                assertFramesEqual(message, expected[i], actual[i])
+            }
+        }
+    }
+
+    private fun <V : Value> assertFramesEqual(message: String, expected: Frame<V>?, actual: Frame<V>?) {
+        if (expected == null || actual == null) {
+            assertEquals(message, expected == null, actual == null)
+            return
+        }
+        assertEquals(message, expected.locals, actual.locals)
+        assertEquals(message, expected.stackSize, actual.stackSize)
+        for (i in 0 until expected.locals) {
+            assertEquals("$message, local $i", expected.getLocal(i), actual.getLocal(i))
+        }
+        for (i in 0 until expected.stackSize) {
+            assertEquals("$message, stack $i", expected.getStack(i), actual.getStack(i))
+        }
+    }
+}
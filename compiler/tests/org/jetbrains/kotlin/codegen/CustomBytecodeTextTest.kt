@@ -16,8 +16,11 @@
 
 package org.jetbrains.kotlin.codegen
 
+import org.jetbrains.kotlin.codegen.optimization.OptimizationMethodVisitor
 import org.jetbrains.kotlin.test.ConfigurationKind
 import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.tree.ClassNode
 
 class CustomBytecodeTextTest : AbstractBytecodeTextTest() {
     fun testEnumMapping() {
@@ -47,4 +50,45 @@ class CustomBytecodeTextTest : AbstractBytecodeTextTest() {
                 "GETSTATIC MyEnum.ENTRY1 : LMyEnum;"
         ), getstatics)
     }
+
+    fun testOptimizationsOfLargeMethod() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.ALL)
+        // Enough locals for the frames of the method to exceed the memory limit of the full optimization pipeline
+        val locals = (0 until 4000).joinToString("\n") { "    val x$it = 0L" }
+        myFiles = CodegenTestFiles.create("largeMethod.kt", """
+        const val MAGIC = 42
+
+        fun doStuff() {}
+
+        inline fun doStuffIfMagic(i: Int) {
+            if (i == MAGIC) doStuff()
+        }
+
+        interface WorldObject {
+            val name: String
+        }
+
+        fun large(worldObj: WorldObject): WorldObject {
+        $locals
+            doStuffIfMagic(100)
+            return worldObj.let {
+                println(it.name)
+                it
+            }
+        }
+        """, myEnvironment.project)
+
+        val text = generateToText()
+
+        val classNode = ClassNode()
+        ClassReader(classFileFactory.get("LargeMethodKt.class")!!.asByteArray()).accept(classNode, 0)
+        assertFalse(OptimizationMethodVisitor.canBeOptimized(classNode.methods.single { it.name == "large" }))
+
+        // The only remaining call and condition are the ones in the body of doStuffIfMagic
+        checkGeneratedTextAgainstExpectedOccurrences(text, listOf(
+                OccurrenceInfo(1, "INVOKESTATIC LargeMethodKt.doStuff \\(\\)V"),
+                OccurrenceInfo(1, "IF_ICMPNE"),
+                OccurrenceInfo(0, "CHECKCAST")
+        ))
+    }
 }
\ No newline at end of file
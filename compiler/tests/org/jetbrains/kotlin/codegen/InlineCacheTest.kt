@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.local.CoreLocalFileSystem
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.codegen.inline.*
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.commons.Method
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class InlineCacheTest : TestCaseWithTmpdir() {
+    private val classA = ClassId.topLevel(FqName("test.A"))
+    private val classB = ClassId.topLevel(FqName("test.B"))
+    private val fileSystem = CoreLocalFileSystem()
+
+    fun testMethodNodeEviction() {
+        val cache = InlineCache(InlineCacheStorage(maxMethodNodes = 2))
+        val file = classFile("A.class", "A")
+        val created = arrayListOf<String>()
+
+        for (name in listOf("f", "g", "h", "h", "f")) {
+            cache.getOrCreateMethodNode(classA, methodId(name), { file }) { created += name; methodNode(name) }
+        }
+
+        // "f" is evicted when "h" is added, and is created again
+        assertEquals(listOf("f", "g", "h", "f"), created)
+        assertStatistics(cache, "inline method nodes", hits = 1, misses = 4, evictions = 2)
+    }
+
+    fun testClassBytesBudget() {
+        val cache = InlineCache(InlineCacheStorage(maxClassBytes = 10))
+        val fileA = classFile("A.class", "AAAAAA")
+        val fileB = classFile("B.class", "BBBBBB")
+
+        cache.getOrCreateMethodNode(classA, methodId("f"), { fileA }) { methodNode("f") }
+        cache.getOrCreateMethodNode(classA, methodId("g"), { fileA }) { methodNode("g") }
+        cache.getOrCreateMethodNode(classB, methodId("f"), { fileB }) { methodNode("f") }
+        cache.getOrCreateMethodNode(classA, methodId("h"), { fileA }) { methodNode("h") }
+
+        // The bytes of A are evicted to fit the bytes of B, and are loaded again for "h"
+        assertStatistics(cache, "class bytes", hits = 1, misses = 3, evictions = 2)
+    }
+
+    fun testFileIsLookedUpOncePerClass() {
+        val cache = InlineCache()
+        val file = classFile("A.class", "A")
+        var lookups = 0
+
+        repeat(3) {
+            for (name in listOf("f", "g")) {
+                cache.getOrCreateMethodNode(classA, methodId(name), { lookups++; file }) { methodNode(name) }
+            }
+        }
+
+        assertEquals(1, lookups)
+        assertStatistics(cache, "inline method nodes", hits = 4, misses = 2, evictions = 0)
+    }
+
+    fun testChangedClassFileInSharedStorage() {
+        val storage = InlineCacheStorage()
+        val first = InlineCache(storage)
+        val second = InlineCache(storage)
+        val third = InlineCache(storage)
+        val created = arrayListOf<String>()
+
+        // The path and the timestamp are the same, but the length is different, as if the library was rebuilt between two compilations
+        for ((cache, contents) in listOf(first to "v1", second to "v1", third to "v22")) {
+            cache.getOrCreateMethodNode(classA, methodId("f"), { classFile("A.class", contents) }) { bytes ->
+                created += String(bytes)
+                methodNode("f")
+            }
+        }
+
+        assertEquals(listOf("v1", "v22"), created)
+
+        // Statistics are counted separately for every user of the storage
+        assertStatistics(first, "inline method nodes", hits = 0, misses = 1, evictions = 0)
+        assertStatistics(second, "inline method nodes", hits = 1, misses = 0, evictions = 0)
+        assertStatistics(third, "inline method nodes", hits = 0, misses = 1, evictions = 0)
+    }
+
+    fun testRecentlyRewrittenClassFileOfSameLength() {
+        val storage = InlineCacheStorage()
+        val created = arrayListOf<String>()
+
+        // The file is rewritten within the timestamp granularity of the file system, so its timestamp and length stay the same
+        val now = System.currentTimeMillis()
+        for (contents in listOf("v1", "v2", "v2")) {
+            InlineCache(storage).getOrCreateMethodNode(classA, methodId("f"), { classFile("A.class", contents, now) }) { bytes ->
+                created += String(bytes)
+                methodNode("f")
+            }
+        }
+
+        assertEquals(listOf("v1", "v2"), created)
+    }
+
+    fun testGeneratedMethodNodes() {
+        val cache = InlineCache()
+        var created = 0
+
+        repeat(2) {
+            cache.getOrCreateGeneratedMethodNode(methodId("arrayOf")) { created++; methodNode("arrayOf") }
+        }
+
+        assertEquals(1, created)
+        assertStatistics(cache, "inline method nodes", hits = 1, misses = 1, evictions = 0)
+        assertStatistics(cache, "class bytes", hits = 0, misses = 0, evictions = 0)
+    }
+
+    fun testSharedCacheSeesRecompiledLibrary() {
+        val lib = File(tmpdir, "lib")
+        val app = File(tmpdir, "app")
+
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"first body\"")
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("first body"))
+
+        // The body is longer, so the class file changes its length even if its timestamp stays the same
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"second, longer body\"")
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("second, longer body"))
+    }
+
+    fun testSharedCacheSeesRecompiledLibraryOfSameLength() {
+        val lib = File(tmpdir, "lib")
+        val app = File(tmpdir, "app")
+
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"first body\"")
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("first body"))
+
+        // The class file has the same length, but it is written anew, so its own timestamp changes
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"other body\"")
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("other body"))
+    }
+
+    fun testSharedCacheSeesRebuiltReproducibleJar() {
+        val lib = File(tmpdir, "lib.jar")
+        val app = File(tmpdir, "app")
+
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"first body\"")
+        normalizeEntryTimes(lib)
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("first body"))
+
+        // Entries of the rebuilt jar have the same length and the same timestamp, as in reproducible builds
+        compile(lib, "lib.kt" to "package lib\ninline fun value() = \"other body\"")
+        normalizeEntryTimes(lib)
+        compile(app, "app.kt" to "package app\nfun main() = lib.value()", classpath = lib)
+        assertTrue(File(app, "app/AppKt.class").readText(Charsets.ISO_8859_1).contains("other body"))
+    }
+
+    private fun normalizeEntryTimes(jar: File) {
+        val entries = ZipFile(jar).use { zip ->
+            zip.entries().toList().map { entry -> entry.name to zip.getInputStream(entry).use { it.readBytes() } }
+        }
+        ZipOutputStream(jar.outputStream()).use { output ->
+            for ((name, bytes) in entries) {
+                output.putNextEntry(ZipEntry(name).apply { time = TIMESTAMP })
+                output.write(bytes)
+                output.closeEntry()
+            }
+        }
+    }
+
+    private fun compile(destination: File, source: Pair<String, String>, classpath: File? = null) {
+        destination.deleteRecursively()
+        val sourceFile = File(tmpdir, source.first).apply { writeText(source.second) }
+        CompilerTestUtil.executeCompilerAssertSuccessful(
+            K2JVMCompiler(),
+            listOf(sourceFile.path, "-d", destination.path, "-Xinline-cache-size=10") +
+                    listOfNotNull(classpath?.let { "-cp" }, classpath?.path)
+        )
+    }
+
+    private fun classFile(name: String, contents: String, lastModified: Long = TIMESTAMP): VirtualFile {
+        val file = File(tmpdir, name).apply {
+            writeText(contents)
+            setLastModified(lastModified)
+        }
+        return fileSystem.findFileByIoFile(file)!!
+    }
+
+    private fun assertStatistics(cache: InlineCache, name: String, hits: Long, misses: Long, evictions: Long) {
+        val statistics = cache.statistics.single { it.name == name }
+        assertEquals("$name: hits", hits, statistics.hits)
+        assertEquals("$name: misses", misses, statistics.misses)
+        assertEquals("$name: evictions", evictions, statistics.evictions)
+    }
+
+    private fun methodId(name: String): MethodId = MethodId("test/A", Method(name, "()V"))
+
+    private fun methodNode(name: String): SMAPAndMethodNode =
+        SMAPAndMethodNode(MethodNode(Opcodes.API_VERSION, Opcodes.ACC_PUBLIC, name, "()V", null, null), SMAP(emptyList()))
+
+    companion object {
+        private const val TIMESTAMP = 1000000000000L
+    }
+}
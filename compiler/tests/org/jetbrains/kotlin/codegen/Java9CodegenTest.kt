@@ -47,6 +47,16 @@ class Java9CodegenTest : AbstractBlackBoxCodegenTest() {
         assertEquals(0, process.exitValue())
     }
 
+    fun testIndyStringConcat() {
+        loadFile()
+        blackBox(true)
+    }
+
+    fun testIndyStringConcatManySlots() {
+        loadFile()
+        blackBox(true)
+    }
+
     fun testVarHandle() {
         loadFile()
         blackBox(true)
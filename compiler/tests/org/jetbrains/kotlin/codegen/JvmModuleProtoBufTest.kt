@@ -17,16 +17,19 @@
 package org.jetbrains.kotlin.codegen
 
 import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
 import org.jetbrains.kotlin.config.ApiVersion
 import org.jetbrains.kotlin.config.LanguageVersion
 import org.jetbrains.kotlin.config.LanguageVersionSettingsImpl
 import org.jetbrains.kotlin.load.kotlin.loadModuleMapping
 import org.jetbrains.kotlin.metadata.jvm.deserialization.ModuleMapping
+import org.jetbrains.kotlin.metadata.jvm.deserialization.PackageParts
 import org.jetbrains.kotlin.resolve.CompilerDeserializationConfiguration
 import org.jetbrains.kotlin.test.CompilerTestUtil
 import org.jetbrains.kotlin.test.KotlinTestUtils
 import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
 import java.io.File
+import java.util.jar.JarFile
 
 class JvmModuleProtoBufTest : KtUsefulTestCase() {
     private fun doTest(
@@ -48,32 +51,75 @@ class JvmModuleProtoBufTest : KtUsefulTestCase() {
             ) + extraOptions
         )
 
-        val mapping = ModuleMapping.loadModuleMapping(
-            File(tmpdir, "META-INF/$moduleName.${ModuleMapping.MAPPING_FILE_EXT}").readBytes(), "test",
-            CompilerDeserializationConfiguration(LanguageVersionSettingsImpl(loadWith, ApiVersion.createByLanguageVersion(loadWith))),
-            ::error
-        )
+        val bytes = File(tmpdir, "META-INF/$moduleName.${ModuleMapping.MAPPING_FILE_EXT}").readBytes()
+        val configuration =
+            CompilerDeserializationConfiguration(LanguageVersionSettingsImpl(loadWith, ApiVersion.createByLanguageVersion(loadWith)))
+        val mapping = ModuleMapping.loadModuleMapping(bytes, "test", configuration, ::error)
         val result = buildString {
             for (annotationClassId in mapping.moduleData.annotations) {
                 appendln("@$annotationClassId")
             }
             for ((fqName, packageParts) in mapping.packageFqName2Parts) {
                 appendln(fqName)
-                for (part in packageParts.parts) {
-                    append("  ")
-                    append(part)
-                    val facadeName = packageParts.getMultifileFacadeName(part)
-                    if (facadeName != null) {
-                        append(" (")
-                        append(facadeName)
-                        append(")")
-                    }
-                    appendln()
-                }
+                appendPackageParts(packageParts)
             }
         }
 
         KotlinTestUtils.assertEqualsToFile(File(directory, "module-proto.txt"), result)
+
+        // Parts of each package are loaded on demand, so the result must not depend on the packages looked up before
+        val lazyMapping = ModuleMapping.loadModuleMapping(bytes, "test", configuration, ::error)
+        for ((fqName, packageParts) in mapping.packageFqName2Parts.entries.reversed()) {
+            assertEquals(render(packageParts), render(lazyMapping.findPackageParts(fqName)!!))
+            assertSame(lazyMapping.findPackageParts(fqName), lazyMapping.findPackageParts(fqName))
+        }
+        assertNull(lazyMapping.findPackageParts("no.such.pkg"))
+    }
+
+    private fun render(packageParts: PackageParts): String = buildString {
+        appendPackageParts(packageParts)
+        for (part in packageParts.metadataParts) {
+            appendln("  metadata: $part")
+        }
+    }
+
+    private fun StringBuilder.appendPackageParts(packageParts: PackageParts) {
+        for (part in packageParts.parts) {
+            append("  ")
+            append(part)
+            val facadeName = packageParts.getMultifileFacadeName(part)
+            if (facadeName != null) {
+                append(" (")
+                append(facadeName)
+                append(")")
+            }
+            appendln()
+        }
+    }
+
+    fun testStdlib() {
+        // Every part and multifile facade of the runtime must be found in the runtime itself
+        JarFile(ForTestCompileRuntime.runtimeJarForTests()).use { jar ->
+            val moduleEntries = jar.entries().toList().filter { it.name.endsWith(".${ModuleMapping.MAPPING_FILE_EXT}") }
+            assertTrue(moduleEntries.isNotEmpty())
+            for (moduleEntry in moduleEntries) {
+                val bytes = jar.getInputStream(moduleEntry).readBytes()
+                val configuration = CompilerDeserializationConfiguration(LanguageVersionSettingsImpl.DEFAULT)
+                val mapping = ModuleMapping.loadModuleMapping(bytes, moduleEntry.name, configuration, ::error)
+                val packages = mapping.packageFqName2Parts
+                assertTrue(packages.isNotEmpty())
+
+                val lazyMapping = ModuleMapping.loadModuleMapping(bytes, moduleEntry.name, configuration, ::error)
+                for ((fqName, packageParts) in packages.entries.reversed()) {
+                    assertEquals(render(packageParts), render(lazyMapping.findPackageParts(fqName)!!))
+                    for (part in packageParts.parts) {
+                        assertNotNull("No class file for $part", jar.getJarEntry("$part.class"))
+                        val facadeName = packageParts.getMultifileFacadeName(part) ?: continue
+                        assertNotNull("No class file for $facadeName", jar.getJarEntry("$facadeName.class"))
+                    }
+                }
+            }
+        }
     }
 
     fun testSimple() {
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+
+class ParallelMethodOptimizationTest : KtUsefulTestCase() {
+    fun testUtilRuntimeModule() {
+        doTest(listOf(File("core/util.runtime/src").path, "-cp", KotlinTestUtils.getAnnotationsJar().path))
+    }
+
+    // Boxing optimizations of these methods resolve descriptors, so they are performed on the thread generating the class
+    fun testInlineClasses() {
+        val testData = File(KotlinTestUtils.getTestDataPathBase(), "codegen/box/inlineClasses")
+        doTest(listOf(File(testData, "UIntArraySortExample.kt").path, "-XXLanguage:+InlineClasses"))
+        doTest(listOf(File(testData, "checkBoxingOnFunctionCalls.kt").path, "-XXLanguage:+InlineClasses"))
+    }
+
+    private fun doTest(arguments: List<String>) {
+        val sequential = compile(arguments)
+        val parallel = compile(arguments + "-Xparallel-method-optimization=4")
+
+        assertSameElements(parallel.keys, sequential.keys)
+        for ((path, bytes) in sequential) {
+            assertTrue("Class file differs: $path", bytes.contentEquals(parallel.getValue(path)))
+        }
+    }
+
+    private fun compile(arguments: List<String>): Map<String, ByteArray> {
+        val destination = KotlinTestUtils.tmpDir(this::class.simpleName)
+        CompilerTestUtil.executeCompilerAssertSuccessful(K2JVMCompiler(), arguments + listOf("-d", destination.path, "-module-name", "test"))
+        return destination.walkTopDown().filter { it.isFile }.associate { it.relativeTo(destination).path to it.readBytes() }
+    }
+}
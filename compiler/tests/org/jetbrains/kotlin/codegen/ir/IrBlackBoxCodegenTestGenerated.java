@@ -11374,49 +11374,6 @@ public class IrBlackBoxCodegenTestGenerated extends AbstractIrBlackBoxCodegenTes
         }
     }
 
-    @TestMetadata("compiler/testData/codegen/box/hashPMap")
-    @TestDataPath("$PROJECT_ROOT")
-    @RunWith(JUnit3RunnerWithInners.class)
-    public static class HashPMap extends AbstractIrBlackBoxCodegenTest {
-        private void runTest(String testDataFilePath) throws Exception {
-            KotlinTestUtils.runTest(this::doTest, TargetBackend.JVM_IR, testDataFilePath);
-        }
-
-        public void testAllFilesPresentInHashPMap() throws Exception {
-            KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/codegen/box/hashPMap"), Pattern.compile("^(.+)\\.kt$"), TargetBackend.JVM_IR, true);
-        }
-
-        @TestMetadata("empty.kt")
-        public void testEmpty() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/empty.kt");
-        }
-
-        @TestMetadata("manyNumbers.kt")
-        public void testManyNumbers() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/manyNumbers.kt");
-        }
-
-        @TestMetadata("rewriteWithDifferent.kt")
-        public void testRewriteWithDifferent() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/rewriteWithDifferent.kt");
-        }
-
-        @TestMetadata("rewriteWithEqual.kt")
-        public void testRewriteWithEqual() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/rewriteWithEqual.kt");
-        }
-
-        @TestMetadata("simplePlusGet.kt")
-        public void testSimplePlusGet() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/simplePlusGet.kt");
-        }
-
-        @TestMetadata("simplePlusMinus.kt")
-        public void testSimplePlusMinus() throws Exception {
-            runTest("compiler/testData/codegen/box/hashPMap/simplePlusMinus.kt");
-        }
-    }
-
     @TestMetadata("compiler/testData/codegen/box/ieee754")
     @TestDataPath("$PROJECT_ROOT")
     @RunWith(JUnit3RunnerWithInners.class)
@@ -14344,6 +14301,39 @@ public class IrBlackBoxCodegenTestGenerated extends AbstractIrBlackBoxCodegenTes
                 runTest("compiler/testData/codegen/box/jvm8/javaDefaults/samOnInterfaceWithDefaultMethod.kt");
             }
         }
+
+        @TestMetadata("compiler/testData/codegen/box/jvm8/lambdaMetafactory")
+        @TestDataPath("$PROJECT_ROOT")
+        @RunWith(JUnit3RunnerWithInners.class)
+        public static class LambdaMetafactory extends AbstractIrBlackBoxCodegenTest {
+            private void runTest(String testDataFilePath) throws Exception {
+                KotlinTestUtils.runTest(this::doTest, TargetBackend.JVM_IR, testDataFilePath);
+            }
+
+            public void testAllFilesPresentInLambdaMetafactory() throws Exception {
+                KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/codegen/box/jvm8/lambdaMetafactory"), Pattern.compile("^(.+)\\.kt$"), TargetBackend.JVM_IR, true);
+            }
+
+            @TestMetadata("lambdaInFinally.kt")
+            public void testLambdaInFinally() throws Exception {
+                runTest("compiler/testData/codegen/box/jvm8/lambdaMetafactory/lambdaInFinally.kt");
+            }
+
+            @TestMetadata("nestedDeclarations.kt")
+            public void testNestedDeclarations() throws Exception {
+                runTest("compiler/testData/codegen/box/jvm8/lambdaMetafactory/nestedDeclarations.kt");
+            }
+
+            @TestMetadata("primitiveSignatures.kt")
+            public void testPrimitiveSignatures() throws Exception {
+                runTest("compiler/testData/codegen/box/jvm8/lambdaMetafactory/primitiveSignatures.kt");
+            }
+
+            @TestMetadata("serializable.kt")
+            public void testSerializable() throws Exception {
+                runTest("compiler/testData/codegen/box/jvm8/lambdaMetafactory/serializable.kt");
+            }
+        }
     }
 
     @TestMetadata("compiler/testData/codegen/box/jvmField")
@@ -16837,6 +16827,24 @@ public class IrBlackBoxCodegenTestGenerated extends AbstractIrBlackBoxCodegenTes
         }
     }
 
+    @TestMetadata("compiler/testData/codegen/box/parallelBodyResolve")
+    @TestDataPath("$PROJECT_ROOT")
+    @RunWith(JUnit3RunnerWithInners.class)
+    public static class ParallelBodyResolve extends AbstractIrBlackBoxCodegenTest {
+        private void runTest(String testDataFilePath) throws Exception {
+            KotlinTestUtils.runTest(this::doTest, TargetBackend.JVM_IR, testDataFilePath);
+        }
+
+        public void testAllFilesPresentInParallelBodyResolve() throws Exception {
+            KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/codegen/box/parallelBodyResolve"), Pattern.compile("^(.+)\\.kt$"), TargetBackend.JVM_IR, true);
+        }
+
+        @TestMetadata("crossFileInference.kt")
+        public void testCrossFileInference() throws Exception {
+            runTest("compiler/testData/codegen/box/parallelBodyResolve/crossFileInference.kt");
+        }
+    }
+
     @TestMetadata("compiler/testData/codegen/box/parametersMetadata")
     @TestDataPath("$PROJECT_ROOT")
     @RunWith(JUnit3RunnerWithInners.class)
@@ -21206,6 +21214,11 @@ public class IrBlackBoxCodegenTestGenerated extends AbstractIrBlackBoxCodegenTes
                 runTest("compiler/testData/codegen/box/reflection/properties/memberAndMemberExtensionWithSameName.kt");
             }
 
+            @TestMetadata("memberPropertiesAndMembers.kt")
+            public void testMemberPropertiesAndMembers() throws Exception {
+                runTest("compiler/testData/codegen/box/reflection/properties/memberPropertiesAndMembers.kt");
+            }
+
             @TestMetadata("mutatePrivateJavaInstanceField.kt")
             public void testMutatePrivateJavaInstanceField() throws Exception {
                 runTest("compiler/testData/codegen/box/reflection/properties/mutatePrivateJavaInstanceField.kt");
@@ -24920,6 +24933,11 @@ public class IrBlackBoxCodegenTestGenerated extends AbstractIrBlackBoxCodegenTes
                 runTest("compiler/testData/codegen/box/when/stringOptimization/expression.kt");
             }
 
+            @TestMetadata("lengthAndCharacters.kt")
+            public void testLengthAndCharacters() throws Exception {
+                runTest("compiler/testData/codegen/box/when/stringOptimization/lengthAndCharacters.kt");
+            }
+
             @TestMetadata("nullability.kt")
             public void testNullability() throws Exception {
                 runTest("compiler/testData/codegen/box/when/stringOptimization/nullability.kt");
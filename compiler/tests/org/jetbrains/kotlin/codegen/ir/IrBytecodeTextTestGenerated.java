@@ -2515,6 +2515,11 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/codegen/bytecodeText/jvm8"), Pattern.compile("^(.+)\\.kt$"), TargetBackend.JVM_IR, true);
         }
 
+        @TestMetadata("lambdaMetafactory.kt")
+        public void testLambdaMetafactory() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/jvm8/lambdaMetafactory.kt");
+        }
+
         @TestMetadata("compiler/testData/codegen/bytecodeText/jvm8/hashCode")
         @TestDataPath("$PROJECT_ROOT")
         @RunWith(JUnit3RunnerWithInners.class)
@@ -3229,6 +3234,11 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             runTest("compiler/testData/codegen/bytecodeText/stringOperations/doNotAppendEmptyString.kt");
         }
 
+        @TestMetadata("indyStringConcat.kt")
+        public void testIndyStringConcat() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/stringOperations/indyStringConcat.kt");
+        }
+
         @TestMetadata("interpolation.kt")
         public void testInterpolation() throws Exception {
             runTest("compiler/testData/codegen/bytecodeText/stringOperations/interpolation.kt");
@@ -3569,6 +3579,11 @@ public class IrBytecodeTextTestGenerated extends AbstractIrBytecodeTextTest {
             runTest("compiler/testData/codegen/bytecodeText/whenStringOptimization/inlineStringConstInsideWhen.kt");
         }
 
+        @TestMetadata("manyCases.kt")
+        public void testManyCases() throws Exception {
+            runTest("compiler/testData/codegen/bytecodeText/whenStringOptimization/manyCases.kt");
+        }
+
         @TestMetadata("nonInlinedConst.kt")
         public void testNonInlinedConst() throws Exception {
             runTest("compiler/testData/codegen/bytecodeText/whenStringOptimization/nonInlinedConst.kt");
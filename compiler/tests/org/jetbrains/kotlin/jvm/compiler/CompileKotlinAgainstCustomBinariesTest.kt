@@ -9,7 +9,10 @@ import com.intellij.openapi.util.io.FileUtil
 import junit.framework.TestCase
 import org.jetbrains.kotlin.cli.WrongBytecodeVersionTest
 import org.jetbrains.kotlin.cli.common.CLICompiler
+import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
+import org.jetbrains.kotlin.cli.common.ExitCode
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
 import org.jetbrains.kotlin.cli.common.messages.MessageRenderer
 import org.jetbrains.kotlin.cli.common.messages.PrintingMessageCollector
 import org.jetbrains.kotlin.cli.js.K2JSCompiler
@@ -22,6 +25,7 @@ import org.jetbrains.kotlin.codegen.inline.GENERATE_SMAP
 import org.jetbrains.kotlin.codegen.inline.remove
 import org.jetbrains.kotlin.codegen.optimization.common.asSequence
 import org.jetbrains.kotlin.codegen.optimization.common.intConstant
+import org.jetbrains.kotlin.config.CompilerConfiguration
 import org.jetbrains.kotlin.config.KotlinCompilerVersion.TEST_IS_PRE_RELEASE_SYSTEM_PROPERTY
 import org.jetbrains.kotlin.config.LanguageVersion
 import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
@@ -43,6 +47,7 @@ import java.io.File
 import java.net.URLClassLoader
 import java.util.jar.JarEntry
 import java.util.jar.JarFile
+import java.util.zip.ZipEntry
 import java.util.zip.ZipOutputStream
 import kotlin.experimental.xor
 
@@ -568,6 +573,126 @@ class CompileKotlinAgainstCustomBinariesTest : AbstractKotlinCompilerIntegration
         compileKotlin("source.kt", File(tmpdir, "usage.js"), listOf(library), K2JSCompiler(), listOf("-Xfriend-modules=${library.path}"))
     }
 
+    fun testEditedJsLibraryDirectory() {
+        compileJsLibrary("library")
+        val library = File(tmpdir, "library")
+        for (name in listOf("library.js", "library.meta.js")) {
+            File(tmpdir, name).copyTo(File(library, name))
+        }
+
+        // Neither the length nor the modification time of the directory change
+        val libraryJs = File(library, "library.js")
+        doTestEditedJsLibrary(library) { libraryJs.writeText(libraryJs.readText().replace("library-result-1", "library-result-2")) }
+    }
+
+    fun testEditedJsLibraryArchive() {
+        compileJsLibrary("library")
+        val library = File(tmpdir, "library.jar")
+        fun writeLibrary(result: String) {
+            ZipOutputStream(library.outputStream()).use { zip ->
+                for (name in listOf("library.js", "library.meta.js")) {
+                    zip.putNextEntry(ZipEntry(name))
+                    zip.write(File(tmpdir, name).readText().replace("library-result-1", result).toByteArray())
+                    zip.closeEntry()
+                }
+            }
+        }
+
+        writeLibrary("library-result-1")
+        doTestEditedJsLibrary(library) {
+            val lastModified = library.lastModified()
+            writeLibrary("library-result-2")
+            // The archive is rewritten with the same length, make sure its stamp changes even if the file system is coarse-grained
+            library.setLastModified(lastModified + 1000)
+        }
+    }
+
+    private fun doTestEditedJsLibrary(library: File, edit: () -> Unit) {
+        keepApplicationEnvironment()
+        val usage = File(tmpdir, "usage.js")
+
+        compileKotlin("source.kt", usage, listOf(library), K2JSCompiler(), expectedFileName = null)
+        assertTrue(usage.readText().contains("library-result-1"))
+
+        edit()
+
+        compileKotlin("source.kt", usage, listOf(library), K2JSCompiler(), expectedFileName = null)
+        val text = usage.readText()
+        assertTrue(text, text.contains("library-result-2") && !text.contains("library-result-1"))
+    }
+
+    fun testChangedLibraryInSameProcess() {
+        keepApplicationEnvironment()
+        val library = File(tmpdir, "library")
+        val usage = File(tmpdir, "usage")
+        val usageClass = File(usage, "usage/SourceKt.class")
+
+        compileLibrary("library", library)
+        assertEquals(ExitCode.OK, compileKotlin("source.kt", usage, listOf(library), expectedFileName = null).second)
+        assertTrue(String(usageClass.readBytes()).contains("()I"))
+
+        // lib/AKt.class is changed, and the module mapping gets a new part lib/SecondKt
+        library.deleteRecursively()
+        usage.deleteRecursively()
+        compileLibrary("libraryChanged", library)
+        val (output, exitCode) = compileKotlin("sourceAfterChange.kt", usage, listOf(library), expectedFileName = null)
+        assertEquals(output, ExitCode.OK, exitCode)
+        val bytes = String(File(usage, "usage/SourceAfterChangeKt.class").readBytes())
+        assertTrue(bytes.contains("lib/SecondKt") && bytes.contains("()Ljava/lang/String;"))
+    }
+
+    fun testChangedJarInSameProcess() {
+        keepApplicationEnvironment()
+        val library = File(tmpdir, "library.jar")
+        val moduleFile = "META-INF/main.kotlin_module"
+
+        compileLibrary("library", library)
+        val moduleFileSize = normalizeEntryTimes(library).getValue(moduleFile).size
+        assertEquals(ExitCode.OK, compileKotlin("source.kt", File(tmpdir, "usage"), listOf(library), expectedFileName = null).second)
+
+        // The only package part lib/AKt is replaced with lib/BKt, so the module file has the same length and, as in reproducible
+        // builds, the same time stamp
+        compileLibrary("libraryChanged", library)
+        assertEquals(moduleFileSize, normalizeEntryTimes(library).getValue(moduleFile).size)
+        val (output, exitCode) =
+            compileKotlin("sourceAfterChange.kt", File(tmpdir, "usageAfterChange"), listOf(library), expectedFileName = null)
+        assertEquals(output, ExitCode.OK, exitCode)
+    }
+
+    fun testWrongMetadataVersionInSameProcess() {
+        keepApplicationEnvironment()
+        val library = compileLibrary("library", additionalOptions = listOf("-Xmetadata-version=42.0.0"))
+
+        // Module mappings with errors are not cached, so that each compilation reports the errors
+        val (output, exitCode) = compileKotlin("source.kt", tmpdir, listOf(library), expectedFileName = null)
+        assertEquals(ExitCode.COMPILATION_ERROR, exitCode)
+        assertTrue(output, output.contains("main.kotlin_module: error: module was compiled with an incompatible version of Kotlin"))
+        assertEquals(output to exitCode, compileKotlin("source.kt", tmpdir, listOf(library), expectedFileName = null))
+    }
+
+    // Returns the entries of the jar, which are written back with the same time stamp
+    private fun normalizeEntryTimes(jar: File): Map<String, ByteArray> {
+        val entries = JarFile(jar).use { file ->
+            file.entries().toList().associate { entry -> entry.name to file.getInputStream(entry).use { it.readBytes() } }
+        }
+        ZipOutputStream(jar.outputStream().buffered()).use { output ->
+            for ((name, bytes) in entries) {
+                output.putNextEntry(ZipEntry(name).apply { time = 1000000000000L })
+                output.write(bytes)
+                output.closeEntry()
+            }
+        }
+        return entries
+    }
+
+    // Compilations started until the end of the test share the application environment and caches kept in it, as in the daemon
+    private fun keepApplicationEnvironment() {
+        val configuration = CompilerConfiguration().apply {
+            put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+        }
+        KotlinCoreEnvironment.createForProduction(testRootDisposable, configuration, EnvironmentConfigFiles.JS_CONFIG_FILES)
+    }
+
     /*
     // TODO: see KT-15661 and KT-23483
     fun testInternalFromForeignModuleCommon() {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.jvm.compiler
+
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.local.CoreLocalFileSystem
+import org.jetbrains.kotlin.load.kotlin.KotlinBinaryClassCache
+import org.jetbrains.kotlin.load.kotlin.KotlinClassFinder
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.File
+
+class KotlinBinaryClassCacheTest : TestCaseWithTmpdir() {
+    private val fileSystem = CoreLocalFileSystem()
+
+    fun testCompilerCacheKeepsManyFiles() {
+        val cache = KotlinBinaryClassCache.createForCompiler()
+        val a = classFile("A.class", "A")
+        val b = classFile("B.class", "B")
+
+        assertEquals(listOf("A", "B", "A", "B"), listOf(a, b, a, b).map { read(cache, it) })
+        assertEquals(listOf(a, b), computed)
+        assertStatistics(cache, hits = 2, misses = 2, evictions = 0)
+    }
+
+    fun testCompilerCacheEvictsByWeight() {
+        // 4 MB of class files don't fit into 1 MB
+        val cache = KotlinBinaryClassCache.createForCompiler(maxSizeMb = 1)
+        val files = (1..40).map { classFile("C$it.class", "x".repeat(100 * 1024)) }
+
+        repeat(2) { files.forEach { read(cache, it) } }
+
+        val statistics = cache.statistics
+        assertTrue(statistics.evictions > 0)
+        assertTrue(statistics.misses > files.size)
+        assertEquals(80L, statistics.hits + statistics.misses)
+        assertEquals(statistics.misses, computed.size.toLong())
+    }
+
+    fun testCompilerCacheSeesChangedFile() {
+        val cache = KotlinBinaryClassCache.createForCompiler()
+        assertEquals("v1", read(cache, classFile("A.class", "v1")))
+
+        // The same file, rewritten before the next compilation
+        assertEquals("v22", read(cache, classFile("A.class", "v22")))
+        assertEquals(2, computed.size)
+    }
+
+    fun testCompilerCacheSeesRecentlyRewrittenFileOfSameLength() {
+        val cache = KotlinBinaryClassCache.createForCompiler()
+        val now = System.currentTimeMillis()
+        assertEquals("v1", read(cache, classFile("A.class", "v1", now)))
+
+        // Rewritten within the timestamp granularity of the file system, so the timestamp and the length stay the same
+        assertEquals("v2", read(cache, classFile("A.class", "v2", now)))
+        assertEquals(2, computed.size)
+    }
+
+    fun testClear() {
+        // The daemon clears the cache together with the cache of jar handlers
+        val cache = KotlinBinaryClassCache.createForCompiler()
+        val a = classFile("A.class", "A")
+        read(cache, a)
+        cache.clear()
+        read(cache, a)
+
+        assertEquals(listOf(a, a), computed)
+        assertStatistics(cache, hits = 0, misses = 2, evictions = 0)
+    }
+
+    fun testStatisticsOfSecondCompilation() {
+        val cache = KotlinBinaryClassCache.createForCompiler()
+        val a = classFile("A.class", "A")
+        val b = classFile("B.class", "B")
+        listOf(a, b, a).forEach { read(cache, it) }
+
+        // The next compilation in the same process finds A and B in the cache, and reads C for the first time
+        val before = cache.statistics
+        listOf(a, b, classFile("C.class", "C")).forEach { read(cache, it) }
+        val statistics = cache.statistics - before
+        assertEquals("hits", 2L, statistics.hits)
+        assertEquals("misses", 1L, statistics.misses)
+        assertEquals("evictions", 0L, statistics.evictions)
+        assertStatistics(cache, hits = 3, misses = 3, evictions = 0)
+    }
+
+    fun testDefaultCacheKeepsOnlyLastFile() {
+        // This is the instance created by the IDE
+        val cache = KotlinBinaryClassCache()
+        val a = classFile("A.class", "A")
+        val b = classFile("B.class", "B")
+
+        assertEquals(listOf("A", "A", "B", "A"), listOf(a, a, b, a).map { read(cache, it) })
+        assertEquals(listOf(a, b, a), computed)
+        assertStatistics(cache, hits = 1, misses = 3, evictions = 0)
+    }
+
+    private val computed = arrayListOf<VirtualFile>()
+
+    private fun read(cache: KotlinBinaryClassCache, file: VirtualFile): String {
+        val result = cache.getOrCompute(file) {
+            computed += file
+            KotlinClassFinder.Result.ClassFileContent(file.contentsToByteArray())
+        }
+        return String((result as KotlinClassFinder.Result.ClassFileContent).content)
+    }
+
+    private fun classFile(name: String, contents: String, lastModified: Long? = null): VirtualFile =
+        fileSystem.findFileByIoFile(File(tmpdir, name).apply {
+            writeText(contents)
+            lastModified?.let { setLastModified(it) }
+        })!!
+
+    private fun assertStatistics(cache: KotlinBinaryClassCache, hits: Long, misses: Long, evictions: Long) {
+        val statistics = cache.statistics
+        assertEquals("hits", hits, statistics.hits)
+        assertEquals("misses", misses, statistics.misses)
+        assertEquals("evictions", evictions, statistics.evictions)
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.resolve
+
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.*
+import org.jetbrains.kotlin.diagnostics.rendering.DefaultErrorMessages
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestJdkKind
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+
+class ParallelBodyResolveTest : KtUsefulTestCase() {
+    private val parallelModes = listOf(
+        listOf("-Xparallel-body-resolve=4"),
+        listOf("-Xparallel-body-resolve=4", "-Xconcurrent-storage-manager")
+    )
+
+    fun testDiagnostics() {
+        val sources = writeSources(
+            "a.kt" to """
+                package a
+                import b.*
+                fun length() = text().length
+                fun wrong(): String = length()
+                fun unused(x: Int) { val y = number() }
+            """,
+            "b.kt" to """
+                package b
+                import a.*
+                fun text() = "text"
+                fun number() = length() * 2
+                fun lambdas() = listOf(1).map { x -> object { fun f() = missing(x) } }
+            """,
+            "c.kt" to """
+                package c
+                fun foo() = bar()
+            """,
+            "d.kt" to """
+                package c
+                fun bar() = foo()
+                @Deprecated("") fun deprecated() = 1
+                fun usage() = deprecated()
+            """
+        )
+
+        val (expected, exitCode) = compile(sources, emptyList())
+        assertEquals(ExitCode.COMPILATION_ERROR, exitCode)
+        for (mode in parallelModes) {
+            assertEquals("Diagnostics differ in mode $mode", expected, compile(sources, mode).first)
+        }
+    }
+
+    fun testDiagnosticsOfLazyResolutionFromWorkers() {
+        // Arguments of @Deprecated are resolved lazily by the first call which is checked for deprecation, and each file calls
+        // the functions in another order, so the worker which reports the errors in these arguments depends on timing
+        val count = 20
+        val sources = listOf("declarations.kt" to "package a\n" + (1..count).joinToString("\n") { "@Deprecated($it) fun f$it() = $it" }) +
+                (1..4).map { file ->
+                    val calls = ((1..count).map { (it * file) % count + 1 } + (1..count)).distinct()
+                    "usage$file.kt" to "package b$file\nimport a.*\nfun usage() {\n" + calls.joinToString("\n") { "f$it()" } + "\n}"
+                }
+
+        val sequential = analyze(sources, threads = 1)
+        assertTrue(sequential.isNotEmpty())
+
+        val parallel = analyze(sources, threads = 4)
+        assertEquals(sequential.sorted(), parallel.sorted())
+        repeat(10) {
+            assertEquals("Order of diagnostics differs between parallel runs", parallel, analyze(sources, threads = 4))
+        }
+    }
+
+    fun testManyFilesSharingImports() {
+        // Imports are resolved lazily by the workers, which write the results and the diagnostics of import resolution to the trace
+        // while other workers wait for the same packages and classes
+        val count = 20
+        val library = "lib.kt" to "package lib\n" + (1..count).joinToString("\n") { "class C$it { fun value() = $it }\nfun f$it() = $it" }
+        val sources = writeSources(library, *(1..24).map { file ->
+            val imports = listOf("import lib.*", "import lib.f1 as first", "import lib.C${file % count + 1}", "import missing.Thing")
+            val calls = (1..count).map { (it * file) % count + 1 }.joinToString(" + ") { "f$it() + C$it().value()" }
+            "usage$file.kt" to "package u$file\n" + imports.shuffled(java.util.Random(file.toLong())).joinToString("\n") +
+                    "\nfun usage() = first() + $calls\nfun wrong(): String = usage()"
+        }.toTypedArray())
+
+        val (expected, exitCode) = compile(sources, emptyList())
+        assertEquals(ExitCode.COMPILATION_ERROR, exitCode)
+        for (mode in parallelModes) {
+            repeat(5) {
+                assertEquals("Diagnostics differ in mode $mode", expected, compile(sources, mode).first)
+            }
+        }
+    }
+
+    fun testClassFiles() {
+        val sources = writeSources(
+            "a.kt" to """
+                package a
+                import b.*
+                fun greeting() = prefix() + name()
+                fun counter(): () -> Int { var count = 0; return { ++count } }
+            """,
+            "b.kt" to """
+                package b
+                import a.*
+                fun prefix() = "Hello, "
+                fun name(): String {
+                    class Name(val value: String)
+                    return object { fun get() = Name("world") }.get().value
+                }
+                inline fun forEachSize(action: (Int) -> Unit) = action(greeting().length)
+                fun total(): Int { var sum = 0; forEachSize { sum += it }; return sum }
+            """
+        )
+
+        val expected = compileToClassFiles(sources, emptyList())
+        for (mode in parallelModes) {
+            val actual = compileToClassFiles(sources, mode)
+            assertSameElements(actual.keys, expected.keys)
+            for ((path, bytes) in expected) {
+                assertTrue("Class file $path differs in mode $mode", bytes.contentEquals(actual.getValue(path)))
+            }
+        }
+    }
+
+    private fun analyze(sources: List<Pair<String, String>>, threads: Int): List<String> {
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK)
+        configuration.languageVersionSettings = LanguageVersionSettingsImpl(
+            LanguageVersion.LATEST_STABLE, ApiVersion.LATEST_STABLE, mapOf(AnalysisFlags.parallelBodyResolveThreads to threads)
+        )
+        val environment = KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+        val files = sources.map { (name, text) -> KotlinTestUtils.createFile(name, text, environment.project) }
+        return JvmResolveUtil.analyze(files, environment).bindingContext.diagnostics.all().map { diagnostic ->
+            "${diagnostic.psiFile.name}${diagnostic.textRanges}: ${DefaultErrorMessages.render(diagnostic)}"
+        }
+    }
+
+    private fun writeSources(vararg sources: Pair<String, String>): List<File> {
+        val directory = KotlinTestUtils.tmpDir("src")
+        return sources.map { (name, text) -> File(directory, name).apply { writeText(text.trimIndent()) } }
+    }
+
+    private fun compile(sources: List<File>, arguments: List<String>): Pair<String, ExitCode> {
+        val destination = KotlinTestUtils.tmpDir(this::class.simpleName)
+        return CompilerTestUtil.executeCompiler(
+            K2JVMCompiler(), sources.map(File::getPath) + arguments + listOf("-d", destination.path, "-module-name", "test")
+        )
+    }
+
+    private fun compileToClassFiles(sources: List<File>, arguments: List<String>): Map<String, ByteArray> {
+        val destination = KotlinTestUtils.tmpDir(this::class.simpleName)
+        CompilerTestUtil.executeCompilerAssertSuccessful(
+            K2JVMCompiler(), sources.map(File::getPath) + arguments + listOf("-d", destination.path, "-module-name", "test")
+        )
+        return destination.walkTopDown().filter { it.isFile }.associate { it.relativeTo(destination).path to it.readBytes() }
+    }
+}
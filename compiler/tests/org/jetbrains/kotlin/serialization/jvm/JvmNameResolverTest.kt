@@ -16,15 +16,22 @@
 
 package org.jetbrains.kotlin.serialization.jvm
 
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.load.kotlin.FileBasedKotlinClass
+import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
 import org.jetbrains.kotlin.metadata.jvm.JvmProtoBuf
 import org.jetbrains.kotlin.metadata.jvm.JvmProtoBuf.StringTableTypes.Record
 import org.jetbrains.kotlin.metadata.jvm.JvmProtoBuf.StringTableTypes.Record.Operation.*
+import org.jetbrains.kotlin.metadata.jvm.deserialization.BitEncoding
 import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmNameResolver
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.serialization.deserialization.getClassId
 import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.ByteArrayInputStream
 import java.util.*
+import java.util.jar.JarFile
 
 class JvmNameResolverTest : KtUsefulTestCase() {
     private class Context {
@@ -167,4 +174,76 @@ class JvmNameResolverTest : KtUsefulTestCase() {
 
         (0..4).forEach { assertEquals("kotlin", n.getString(it)) }
     }
+
+    fun testRangeZero() {
+        val n = create {
+            string(null, range = 0, internalString = "first")
+            string("a", range = 2)
+            strings.add("b")
+            string(null, range = 0, internalString = "third")
+            string(null, range = 0, internalString = "fourth")
+            string("c", operation = INTERNAL_TO_CLASS_ID)
+            string(null, range = 0, internalString = "fifth")
+        }
+
+        assertEquals(listOf("a", "b", "c"), (0..2).map(n::getString))
+        assertEquals(listOf("a", "b", "c"), (0..2).map { decodeWithExpandedRecords(n, it) })
+    }
+
+    fun testStdlibMetadata() {
+        var stringCount = 0
+        var rangeRecordCount = 0
+        JarFile(ForTestCompileRuntime.runtimeJarForTests()).use { jar ->
+            for (entry in jar.entries()) {
+                if (!entry.name.endsWith(".class")) continue
+                val header = FileBasedKotlinClass.create(jar.getInputStream(entry).readBytes()) { _, _, header, _ -> header } ?: continue
+                // Data of multifile facades contains the names of their parts
+                if (header.kind == KotlinClassHeader.Kind.MULTIFILE_CLASS) continue
+                val data = header.data ?: continue
+                val strings = header.strings ?: continue
+
+                val types = JvmProtoBuf.StringTableTypes.parseDelimitedFrom(
+                    ByteArrayInputStream(BitEncoding.decodeBytes(data)), JvmProtoBufUtil.EXTENSION_REGISTRY
+                )
+                // Strings are requested in reverse order to check that the result doesn't depend on the strings decoded before
+                val n = JvmNameResolver(types, strings)
+                for (index in n.records.indices.reversed()) {
+                    assertEquals("String $index of ${entry.name}", decodeWithExpandedRecords(n, index), n.getString(index))
+                }
+                stringCount += n.records.size
+                rangeRecordCount += types.recordList.count { it.range > 1 }
+            }
+        }
+        assertTrue(stringCount > 0 && rangeRecordCount > 0)
+    }
+
+    // The way strings were decoded before records were looked up by binary search over their ranges
+    private fun decodeWithExpandedRecords(n: JvmNameResolver, index: Int): String {
+        val record = n.records[index]
+
+        var string = when {
+            record.hasString() -> record.string
+            record.hasPredefinedIndex() && record.predefinedIndex in JvmNameResolver.PREDEFINED_STRINGS.indices ->
+                JvmNameResolver.PREDEFINED_STRINGS[record.predefinedIndex]
+            else -> n.strings[index]
+        }
+
+        if (record.substringIndexCount >= 2) {
+            val (begin, end) = record.substringIndexList
+            if (0 <= begin && begin <= end && end <= string.length) {
+                string = string.substring(begin, end)
+            }
+        }
+
+        if (record.replaceCharCount >= 2) {
+            val (from, to) = record.replaceCharList
+            string = string.replace(from.toChar(), to.toChar())
+        }
+
+        return when (record.operation ?: NONE) {
+            NONE -> string
+            INTERNAL_TO_CLASS_ID -> string.replace('$', '.')
+            DESC_TO_CLASS_ID -> (if (string.length >= 2) string.substring(1, string.length - 1) else string).replace('$', '.')
+        }
+    }
 }
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentStorageManagerTest extends StorageManagerTest {
+    private static final int THREADS = 8;
+    private static final int KEYS = 1000;
+
+    @Override
+    protected StorageManager createStorageManager() {
+        return new ConcurrentStorageManager("ConcurrentStorageManagerTest");
+    }
+
+    public void testFunctionIsConsistentAcrossThreads() throws Exception {
+        MemoizedFunctionToNotNull<Integer, Object> f = m.createMemoizedFunction(key -> new Object());
+
+        List<List<Object>> results = runInThreads(() -> {
+            List<Object> values = new ArrayList<>();
+            for (int key = 0; key < KEYS; key++) {
+                values.add(f.invoke(key));
+            }
+            return values;
+        });
+
+        for (List<Object> values : results) {
+            for (int key = 0; key < KEYS; key++) {
+                assertSame(results.get(0).get(key), values.get(key));
+            }
+        }
+    }
+
+    public void testLazyValueIsConsistentAcrossThreads() throws Exception {
+        AtomicInteger postComputed = new AtomicInteger();
+        NotNullLazyValue<Object> value = m.createLazyValueWithPostCompute(Object::new, null, v -> {
+            postComputed.incrementAndGet();
+            return kotlin.Unit.INSTANCE;
+        });
+
+        List<Object> results = runInThreads(value::invoke);
+
+        for (Object result : results) {
+            assertSame(results.get(0), result);
+        }
+        assertEquals(1, postComputed.get());
+    }
+
+    public void testLazyValueIsComputedOnce() throws Exception {
+        AtomicInteger computed = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        NotNullLazyValue<Object> value = m.createLazyValue(() -> {
+            computed.incrementAndGet();
+            sleep(100);
+            return new Object();
+        });
+
+        List<Object> results = runInThreads(() -> {
+            start.await();
+            return value.invoke();
+        });
+
+        assertEquals(1, computed.get());
+        for (Object result : results) {
+            assertSame(results.get(0), result);
+        }
+    }
+
+    public void testFunctionComputesEachKeyOnce() throws Exception {
+        ConcurrentMap<Integer, AtomicInteger> computed = new ConcurrentHashMap<>();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        MemoizedFunctionToNotNull<Integer, Integer> f = m.createMemoizedFunction(key -> {
+            computed.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            return key;
+        });
+
+        runInThreads(() -> {
+            start.await();
+            for (int key = 0; key < KEYS; key++) {
+                f.invoke(key);
+            }
+            return null;
+        });
+
+        assertEquals(KEYS, computed.size());
+        for (AtomicInteger count : computed.values()) {
+            assertEquals(1, count.get());
+        }
+    }
+
+    public void testRecursionIsNotDetectedForOtherThreads() throws Exception {
+        CountDownLatch recursionDetected = new CountDownLatch(1);
+        CountDownLatch otherThreadStarted = new CountDownLatch(1);
+        AtomicInteger computed = new AtomicInteger();
+        NotNullLazyValue<String>[] value = new NotNullLazyValue[1];
+        value[0] = m.createRecursionTolerantLazyValue(() -> {
+            computed.incrementAndGet();
+            assertEquals("recursion", value[0].invoke());
+            recursionDetected.countDown();
+            await(otherThreadStarted);
+            // Give the other thread time to find the computation in progress, it must wait for it rather than see a recursive call
+            sleep(100);
+            return "ok";
+        }, "recursion");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(value[0]::invoke);
+            await(recursionDetected);
+            Future<String> second = executor.submit(() -> {
+                otherThreadStarted.countDown();
+                return value[0].invoke();
+            });
+            assertEquals("ok", first.get(10, TimeUnit.SECONDS));
+            assertEquals("ok", second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, computed.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRecursionIsDetectedForFunctionInputsInOtherThreads() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        MemoizedFunctionToNotNull<Integer, Object>[] f = new MemoizedFunctionToNotNull[1];
+        f[0] = m.createMemoizedFunction(key -> {
+            bothStarted.countDown();
+            await(bothStarted);
+            try {
+                return f[0].invoke(1 - key);
+            }
+            catch (AssertionError e) {
+                return "recursion";
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> f[0].invoke(0));
+            Future<Object> second = executor.submit(() -> f[0].invoke(1));
+            assertEquals("recursion", first.get(10, TimeUnit.SECONDS));
+            assertEquals("recursion", second.get(10, TimeUnit.SECONDS));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRecursionErrorOfCycleAcrossThreadsIsNotStored() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicBoolean cyclic = new AtomicBoolean(true);
+        MemoizedFunctionToNotNull<Integer, String>[] f = new MemoizedFunctionToNotNull[1];
+        f[0] = m.createMemoizedFunction(key -> {
+            if (!cyclic.get()) return "ok" + key;
+            bothStarted.countDown();
+            await(bothStarted);
+            return f[0].invoke(1 - key);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> f[0].invoke(0));
+            Future<String> second = executor.submit(() -> f[0].invoke(1));
+            for (Future<String> future : new Future[] {first, second}) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    fail();
+                }
+                catch (ExecutionException e) {
+                    assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith("Recursion detected on input: "));
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // Neither the input on which the cycle was detected nor the one which depended on it keeps the error
+        cyclic.set(false);
+        assertFalse(f[0].isComputed(0));
+        assertFalse(f[0].isComputed(1));
+        assertEquals("ok0", f[0].invoke(0));
+        assertEquals("ok1", f[0].invoke(1));
+    }
+
+    public void testNestingInOppositeOrderDoesNotDeadlock() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<NotNullLazyValue<String>> values = new ArrayList<>();
+        for (String name : new String[] {"x", "y"}) {
+            int other = values.size() == 0 ? 1 : 0;
+            values.add(m.createRecursionTolerantLazyValue(() -> {
+                bothStarted.countDown();
+                await(bothStarted);
+                return name + values.get(other).invoke();
+            }, "!"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> x = executor.submit(values.get(0)::invoke);
+            Future<String> y = executor.submit(values.get(1)::invoke);
+            String result = x.get(10, TimeUnit.SECONDS) + " " + y.get(10, TimeUnit.SECONDS);
+
+            // Same as if one of the values was computed first in a single thread
+            assertTrue(result, result.equals("xy! y!") || result.equals("x! yx!"));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testFunctionCalledFromComputeAndCallingComputeDoesNotDeadlock() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch ownerCallsFunction = new CountDownLatch(1);
+        Thread[] owner = new Thread[1];
+        MemoizedFunctionToNotNull<Integer, String> f = m.createMemoizedFunction(key -> {
+            computing.countDown();
+            // The owner of the compute lock waits for this computation, which needs the lock
+            awaitWaiting(owner[0], ownerCallsFunction);
+            return m.compute(() -> "computed" + key);
+        });
+
+        FutureTask<String> compute = new FutureTask<>(() -> m.compute(() -> {
+            await(computing);
+            ownerCallsFunction.countDown();
+            return f.invoke(1);
+        }));
+        owner[0] = new Thread(compute);
+        FutureTask<String> function = startThread(() -> f.invoke(1));
+        owner[0].start();
+
+        assertEquals("computed1", function.get(10, TimeUnit.SECONDS));
+        assertEquals("computed1", compute.get(10, TimeUnit.SECONDS));
+    }
+
+    public void testComputeCallingFunctionWhichWaitsForComputeDoesNotDeadlock() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch functionCallsCompute = new CountDownLatch(1);
+        MemoizedFunctionToNotNull<Integer, String> f = m.createMemoizedFunction(key -> {
+            await(locked);
+            functionCallsCompute.countDown();
+            return m.compute(() -> "computed" + key);
+        });
+
+        FutureTask<String> function = new FutureTask<>(() -> f.invoke(1));
+        Thread functionThread = new Thread(function);
+        functionThread.start();
+        FutureTask<String> compute = startThread(() -> m.compute(() -> {
+            locked.countDown();
+            // The computation of f(1) waits for the compute lock held by this thread, so waiting for it would close a cycle
+            awaitWaiting(functionThread, functionCallsCompute);
+            try {
+                return f.invoke(1);
+            }
+            catch (AssertionError e) {
+                return "recursion";
+            }
+        }));
+
+        assertEquals("recursion", compute.get(10, TimeUnit.SECONDS));
+        assertEquals("computed1", function.get(10, TimeUnit.SECONDS));
+    }
+
+    // Waits until the thread blocks after it has passed the latch
+    private static void awaitWaiting(Thread thread, CountDownLatch passed) {
+        await(passed);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("The thread doesn't wait", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+
+    private static <T> FutureTask<T> startThread(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        new Thread(future).start();
+        return future;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T> List<T> runInThreads(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
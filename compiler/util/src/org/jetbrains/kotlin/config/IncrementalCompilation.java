@@ -23,6 +23,7 @@ import java.util.List;
 public class IncrementalCompilation {
     public static final String INCREMENTAL_COMPILATION_JVM_PROPERTY = "kotlin.incremental.compilation";
     public static final String INCREMENTAL_COMPILATION_JS_PROPERTY = "kotlin.incremental.compilation.js";
+    public static final String BATCHED_STORAGE_PROPERTY = "kotlin.incremental.storage.batched";
 
     public static boolean isEnabledForJvm() {
         return "true".equals(System.getProperty(INCREMENTAL_COMPILATION_JVM_PROPERTY));
@@ -32,6 +33,14 @@ public class IncrementalCompilation {
         return "true".equals(System.getProperty(INCREMENTAL_COMPILATION_JS_PROPERTY));
     }
 
+    /**
+     * Incremental caches buffer their changes in memory and write them in one batch when flushed,
+     * instead of updating a persistent hash map on every change.
+     */
+    public static boolean isBatchedStorageEnabled() {
+        return "true".equals(System.getProperty(BATCHED_STORAGE_PROPERTY));
+    }
+
     @TestOnly
     public static void setIsEnabledForJvm(boolean value) {
         System.setProperty(INCREMENTAL_COMPILATION_JVM_PROPERTY, String.valueOf(value));
@@ -45,6 +54,7 @@ public class IncrementalCompilation {
     public static void toJvmArgs(List<String> jvmArgs) {
         if (isEnabledForJvm()) addJvmSystemFlag(jvmArgs, INCREMENTAL_COMPILATION_JVM_PROPERTY);
         if (isEnabledForJs()) addJvmSystemFlag(jvmArgs, INCREMENTAL_COMPILATION_JS_PROPERTY);
+        if (isBatchedStorageEnabled()) addJvmSystemFlag(jvmArgs, BATCHED_STORAGE_PROPERTY);
     }
 
     private static void addJvmSystemFlag(List<String> jvmArgs, String name) {
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.utils
+
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.io.URLUtil
+import java.io.File
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/**
+ * The time stamp and the length which change whenever the contents of a file are replaced, and the hash of the contents
+ * of a recently modified file (see [contentStamp]), or [NO_CONTENT_HASH].
+ */
+data class ContentStamp(val timeStamp: Long, val length: Long, val contentHash: Long = NO_CONTENT_HASH) {
+    companion object {
+        const val NO_CONTENT_HASH = 0L
+    }
+}
+
+private const val TIMESTAMP_GRANULARITY_MS = 2000
+
+/**
+ * Returns the stamp of this file to be used in keys of caches which outlive a single compilation.
+ *
+ * For an entry of a jar, this is the stamp of the jar itself. The time stamp of an entry is the same in every build of
+ * a reproducible jar, so an entry rewritten with contents of the same length would otherwise look unchanged.
+ *
+ * Timestamps have a coarse granularity on some file systems, so a file rewritten right after its stamp was taken may keep
+ * the same time stamp and length. The stamp of a file modified less than [TIMESTAMP_GRANULARITY_MS] ago therefore also
+ * includes the hash of its contents.
+ */
+fun VirtualFile.contentStamp(): ContentStamp {
+    val stamp = fileStamp()
+    if (System.currentTimeMillis() - stamp.timeStamp > TIMESTAMP_GRANULARITY_MS) return stamp
+    return stamp.copy(contentHash = contentsToByteArray().contentHash())
+}
+
+private fun VirtualFile.fileStamp(): ContentStamp {
+    if (fileSystem.protocol == StandardFileSystems.JAR_PROTOCOL) {
+        val separator = path.indexOf(URLUtil.JAR_SEPARATOR)
+        if (separator >= 0) {
+            val jar = File(path.substring(0, separator))
+            return ContentStamp(jar.lastModified(), jar.length())
+        }
+    }
+    return ContentStamp(timeStamp, length)
+}
+
+private fun ByteArray.contentHash(): Long =
+    ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(this)).long
@@ -50,7 +50,7 @@ class DeserializedDescriptorResolver {
         val data = readData(kotlinClass, KOTLIN_CLASS) ?: return null
         val strings = kotlinClass.classHeader.strings ?: return null
         val (nameResolver, classProto) = parseProto(kotlinClass) {
-            JvmProtoBufUtil.readClassDataFrom(data, strings)
+            kotlinClass.getOrParseMetadata { JvmProtoBufUtil.readClassDataFrom(data, strings) }
         } ?: return null
         val source = KotlinJvmBinarySourceElement(kotlinClass, kotlinClass.incompatibility, kotlinClass.isPreReleaseInvisible)
         return ClassData(nameResolver, classProto, kotlinClass.classHeader.metadataVersion, source)
@@ -60,7 +60,7 @@ class DeserializedDescriptorResolver {
         val data = readData(kotlinClass, KOTLIN_FILE_FACADE_OR_MULTIFILE_CLASS_PART) ?: return null
         val strings = kotlinClass.classHeader.strings ?: return null
         val (nameResolver, packageProto) = parseProto(kotlinClass) {
-            JvmProtoBufUtil.readPackageDataFrom(data, strings)
+            kotlinClass.getOrParseMetadata { JvmProtoBufUtil.readPackageDataFrom(data, strings) }
         } ?: return null
         val source = JvmPackagePartSource(
             kotlinClass, packageProto, nameResolver, kotlinClass.incompatibility, kotlinClass.isPreReleaseInvisible
@@ -99,6 +99,9 @@ class DeserializedDescriptorResolver {
         return (header.data ?: header.incompatibleData)?.takeIf { header.kind in expectedKinds }
     }
 
+    private fun <T : Any> KotlinJvmBinaryClass.getOrParseMetadata(parse: () -> T): T =
+        if (this is KotlinJvmBinaryClassWithParsedMetadata) getOrParseMetadata(parse) else parse()
+
     private inline fun <T : Any> parseProto(klass: KotlinJvmBinaryClass, block: () -> T): T? {
         try {
             try {
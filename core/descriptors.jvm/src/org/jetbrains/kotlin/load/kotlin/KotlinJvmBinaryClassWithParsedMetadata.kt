@@ -0,0 +1,19 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.load.kotlin
+
+/**
+ * A binary class which keeps the metadata parsed from its header. Such classes may outlive a single compilation (see
+ * KotlinBinaryClassCache), in which case the parsed protos and name resolvers, which are immutable, are reused by the next
+ * compilations instead of being parsed again. Descriptors themselves are not shared because they belong to a particular module.
+ */
+interface KotlinJvmBinaryClassWithParsedMetadata : KotlinJvmBinaryClass {
+    /**
+     * Returns the result of [parse] computed earlier for this class, or computes and keeps it. The class header has
+     * only one kind, so the result is always of the same type.
+     */
+    fun <T : Any> getOrParseMetadata(parse: () -> T): T
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.jvm.runtime
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import java.net.URLClassLoader
+import kotlin.concurrent.thread
+
+class KClassCacheTest : TestCase() {
+    class Foo
+    class Bar
+
+    // Defines a new class with the same name and bytecode as the given one
+    private class CopyLoader(original: Class<*>) : ClassLoader(null) {
+        val copy: Class<*> = run {
+            val bytes = original.classLoader.getResourceAsStream(original.name.replace('.', '/') + ".class")!!.readBytes()
+            defineClass(original.name, bytes, 0, bytes.size)
+        }
+    }
+
+    fun testReferencesToCollectedClassesAreRemoved() {
+        // A separate copy of kotlin-reflect, so that its cache only contains the classes of this test
+        val jars = listOf(ForTestCompileRuntime.runtimeJarForTests(), ForTestCompileRuntime.reflectJarForTests())
+        val loader = URLClassLoader(jars.map { it.toURI().toURL() }.toTypedArray(), null)
+        val getOrCreateKotlinClass = Class.forName("kotlin.jvm.internal.Reflection", true, loader)
+            .getMethod("getOrCreateKotlinClass", Class::class.java)
+        val cacheField = Class.forName("kotlin.reflect.jvm.internal.KClassCacheKt", true, loader).getDeclaredField("K_CLASS_CACHE")
+        cacheField.isAccessible = true
+        @Suppress("UNCHECKED_CAST")
+        val cache = cacheField.get(null) as Map<String, Any>
+
+        // Several threads add copies of Foo to the same entry of the cache
+        val copies = ArrayList<Class<*>>()
+        (0 until 4).map {
+            thread {
+                val threadCopies = (0 until 1000).map { CopyLoader(Foo::class.java).copy.also { getOrCreateKotlinClass(null, it) } }
+                synchronized(copies) { copies += threadCopies }
+            }
+        }.forEach { it.join() }
+        assertEquals(4000, copies.size)
+
+        // Then all copies are collected, and several threads remove their references from the entry while creating other classes
+        copies.clear()
+        repeat(100) {
+            if (cache[Foo::class.java.name] == null) return
+            System.gc()
+            Thread.sleep(10)
+            (0 until 4).map {
+                thread { getOrCreateKotlinClass(null, CopyLoader(Bar::class.java).copy) }
+            }.forEach { it.join() }
+        }
+        fail("References to collected classes are left in the cache: ${cache[Foo::class.java.name]}")
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.jvm.runtime
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import java.io.File
+import java.lang.ref.SoftReference
+
+/**
+ * Soft references are only guaranteed to be cleared when the heap is exhausted, and retention of lazySoft values is configured
+ * when kotlin-reflect is loaded. So each configuration is checked by [LazySoftRetention] in a separate JVM with a small heap.
+ */
+class LazySoftRetentionTest : TestCase() {
+    fun testSoftRetention() {
+        // By default, all values are collected
+        assertEquals("[2, 2, 2, 2, 2, 2, 2, 2], computations: 16, recomputations: 8", computeTwice())
+    }
+
+    fun testStrongRetention() {
+        assertEquals(
+            "[1, 1, 1, 1, 1, 1, 1, 1], computations: 8, recomputations: 0",
+            computeTwice("-Dkotlin.reflect.jvm.retention=strong")
+        )
+    }
+
+    fun testPinnedValues() {
+        // The four values used last are kept: the value computed first is used after the others are computed, so it's kept instead of
+        // the value computed fifth
+        assertEquals(
+            "[1, 2, 2, 2, 2, 1, 1, 1], computations: 12, recomputations: 4",
+            computeTwice("-Dkotlin.reflect.jvm.retention.pinned=4", useFirstValue = true)
+        )
+    }
+
+    private fun computeTwice(vararg jvmOptions: String, useFirstValue: Boolean = false): String {
+        val classpath = listOf(
+            ForTestCompileRuntime.runtimeJarForTests(),
+            ForTestCompileRuntime.reflectJarForTests(),
+            File(LazySoftRetention::class.java.protectionDomain.codeSource.location.toURI())
+        )
+        val command = listOf(File(System.getProperty("java.home"), "bin/java").path, "-Xmx32m") +
+                jvmOptions +
+                listOf("-cp", classpath.joinToString(File.pathSeparator), LazySoftRetention::class.java.name, useFirstValue.toString())
+
+        val process = ProcessBuilder(command).redirectErrorStream(true).start()
+        val output = process.inputStream.bufferedReader().readText().trim()
+        assertEquals(output, 0, process.waitFor())
+        return output
+    }
+}
+
+/**
+ * Computes 8 lazySoft values, clears soft references by exhausting the heap and computes the values again.
+ * Prints how many times each value has been computed, and the counters of ReflectProperties.
+ */
+object LazySoftRetention {
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val useFirstValue = args[0].toBoolean()
+        val reflectProperties = Class.forName("kotlin.reflect.jvm.internal.ReflectProperties")
+        val lazySoft = reflectProperties.getMethod("lazySoft", Function0::class.java)
+
+        val computed = IntArray(8)
+        val values = computed.indices.map { i ->
+            val property = lazySoft.invoke(null, { computed[i]++; "value $i" })
+            val invoke = property.javaClass.getMethod("invoke")
+            return@map { invoke.invoke(property) }
+        }
+
+        for (value in values) value()
+        if (useFirstValue) values[0]()
+        collectSoftReferences()
+        for (value in values) value()
+
+        val computations = reflectProperties.getMethod("getComputationCount").invoke(null)
+        val recomputations = reflectProperties.getMethod("getRecomputationCount").invoke(null)
+        println("${computed.toList()}, computations: $computations, recomputations: $recomputations")
+    }
+
+    // Soft references are cleared at the latest before an OutOfMemoryError is thrown
+    private fun collectSoftReferences() {
+        val canary = SoftReference(Any())
+        val memory = ArrayList<ByteArray>()
+        try {
+            while (canary.get() != null) {
+                memory.add(ByteArray(1 shl 20))
+            }
+        } catch (e: OutOfMemoryError) {
+        }
+        memory.clear()
+        check(canary.get() == null) { "Soft references are not cleared" }
+    }
+}
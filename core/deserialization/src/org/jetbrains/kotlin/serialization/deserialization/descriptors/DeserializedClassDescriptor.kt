@@ -210,9 +210,17 @@ class DeserializedClassDescriptor(
             computeDescriptors(DescriptorKindFilter.ALL, MemberScope.ALL_NAME_FILTER, NoLookupLocation.WHEN_GET_ALL_DESCRIPTORS)
         }
 
+        // Computing only properties does not require deserializing functions of this class and of its supertypes, which is
+        // considerably cheaper for callers interested in properties only, such as `KClass.memberProperties` in reflection
+        private val allVariables = c.storageManager.createLazyValue {
+            computeDescriptors(DescriptorKindFilter.VARIABLES, MemberScope.ALL_NAME_FILTER, NoLookupLocation.WHEN_GET_ALL_DESCRIPTORS)
+        }
+
         override fun getContributedDescriptors(
             kindFilter: DescriptorKindFilter, nameFilter: (Name) -> Boolean
-        ): Collection<DeclarationDescriptor> = allDescriptors()
+        ): Collection<DeclarationDescriptor> =
+            if (kindFilter.kindMask and DescriptorKindFilter.VARIABLES_MASK.inv() == 0 && !allDescriptors.isComputed()) allVariables()
+            else allDescriptors()
 
         override fun getContributedFunctions(name: Name, location: LookupLocation): Collection<SimpleFunctionDescriptor> {
             recordLookup(name, location)
@@ -16,20 +16,47 @@ class JvmNameResolver(
 ) : NameResolver {
     private val localNameIndices = types.localNameList.run { if (isEmpty()) emptySet() else toSet() }
 
+    private val recordList = types.recordList
+
+    // Index of the first string after the range of each record, used to find the record of a string without expanding the ranges
+    private val recordEnds = IntArray(recordList.size).also { ends ->
+        var end = 0
+        for ((i, record) in recordList.withIndex()) {
+            end += record.range
+            ends[i] = end
+        }
+    }
+
+    private val size = recordEnds.lastOrNull() ?: 0
+
+    // Strings are decoded on demand and cached, since the same names are usually requested many times during deserialization
+    private val decodedStrings = arrayOfNulls<String>(size)
+
     // Here we expand the 'range' field of the Record message for simplicity to a list of records
-    val records: List<Record> = ArrayList<Record>().apply {
-        val records = types.recordList
-        this.ensureCapacity(records.size)
-        for (record in records) {
-            repeat(record.range) {
-                this.add(record)
+    val records: List<Record> by lazy {
+        ArrayList<Record>().apply {
+            this.ensureCapacity(size)
+            for (record in recordList) {
+                repeat(record.range) {
+                    this.add(record)
+                }
             }
+            this.trimToSize()
         }
-        this.trimToSize()
     }
 
-    override fun getString(index: Int): String {
-        val record = records[index]
+    override fun getString(index: Int): String =
+        decodedStrings[index] ?: decodeString(index).also { decodedStrings[index] = it }
+
+    private fun decodeString(index: Int): String {
+        // Binary search for the first record whose range ends after the index
+        var low = 0
+        var high = recordEnds.size - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            if (recordEnds[mid] <= index) low = mid + 1 else high = mid - 1
+        }
+        val record = recordList[low]
 
         var string = when {
             record.hasString() -> record.string
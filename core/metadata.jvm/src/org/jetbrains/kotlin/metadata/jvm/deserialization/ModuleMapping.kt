@@ -10,26 +10,114 @@ import org.jetbrains.kotlin.metadata.deserialization.NameResolverImpl
 import org.jetbrains.kotlin.metadata.deserialization.isKotlin1Dot4OrLater
 import org.jetbrains.kotlin.metadata.jvm.JvmModuleProtoBuf
 import java.io.*
+import java.util.concurrent.ConcurrentHashMap
 
+/**
+ * Contents of a `.kotlin_module` file. Package parts are loaded from the module proto lazily, one package at a time, since most lookups
+ * only concern a few packages of each module on the classpath.
+ */
 class ModuleMapping private constructor(
-    val packageFqName2Parts: Map<String, PackageParts>,
-    val moduleData: BinaryModuleData,
+    private val moduleProto: JvmModuleProtoBuf.Module,
+    private val isJvmPackageNameSupported: Boolean,
     private val debugName: String
 ) {
+    // Package FQ name -> indices of the protos of its parts in the packagePartsList and metadataPartsList of the module proto
+    private val packageProtoIndices: Map<String, PackageProtoIndices> = linkedMapOf<String, PackageProtoIndices>().also { result ->
+        for ((index, proto) in moduleProto.packagePartsList.withIndex()) {
+            result.getOrPut(proto.packageFqName, ::PackageProtoIndices).packageParts.add(index)
+        }
+        for ((index, proto) in moduleProto.metadataPartsList.withIndex()) {
+            result.getOrPut(proto.packageFqName, ::PackageProtoIndices).metadataParts.add(index)
+        }
+    }
+
+    private val loadedPackageParts = ConcurrentHashMap<String, PackageParts>()
+
+    val packageFqName2Parts: Map<String, PackageParts> by lazy {
+        packageProtoIndices.keys.associateTo(linkedMapOf()) { packageFqName -> packageFqName to findPackageParts(packageFqName)!! }
+    }
+
+    val moduleData: BinaryModuleData by lazy {
+        // TODO: read arguments of module annotations
+        val nameResolver = NameResolverImpl(moduleProto.stringTable, moduleProto.qualifiedNameTable)
+        BinaryModuleData(moduleProto.annotationList.map { proto -> nameResolver.getQualifiedClassName(proto.id) })
+    }
+
     fun findPackageParts(packageFqName: String): PackageParts? {
-        return packageFqName2Parts[packageFqName]
+        loadedPackageParts[packageFqName]?.let { return it }
+
+        val indices = packageProtoIndices[packageFqName] ?: return null
+        val packageParts = loadPackageParts(packageFqName, indices)
+        return loadedPackageParts.putIfAbsent(packageFqName, packageParts) ?: packageParts
+    }
+
+    private fun loadPackageParts(packageFqName: String, indices: PackageProtoIndices): PackageParts {
+        val packageParts = PackageParts(packageFqName)
+
+        for (protoIndex in indices.packageParts) {
+            val proto = moduleProto.getPackageParts(protoIndex)
+            for ((index, partShortName) in proto.shortClassNameList.withIndex()) {
+                packageParts.addPart(
+                    internalNameOf(packageFqName, partShortName),
+                    loadMultiFileFacadeInternalName(
+                        proto.multifileFacadeShortNameIdList, proto.multifileFacadeShortNameList, index, packageFqName
+                    )
+                )
+            }
+
+            if (isJvmPackageNameSupported) {
+                for ((index, partShortName) in proto.classWithJvmPackageNameShortNameList.withIndex()) {
+                    val packageId = proto.classWithJvmPackageNamePackageIdList.getOrNull(index)
+                        ?: proto.classWithJvmPackageNamePackageIdList.lastOrNull()
+                        ?: continue
+                    val jvmPackageName = moduleProto.jvmPackageNameList.getOrNull(packageId) ?: continue
+
+                    packageParts.addPart(
+                        internalNameOf(jvmPackageName, partShortName),
+                        loadMultiFileFacadeInternalName(
+                            proto.classWithJvmPackageNameMultifileFacadeShortNameIdList,
+                            proto.multifileFacadeShortNameList,
+                            index,
+                            jvmPackageName
+                        )
+                    )
+                }
+            }
+        }
+
+        for (protoIndex in indices.metadataParts) {
+            moduleProto.getMetadataParts(protoIndex).shortClassNameList.forEach(packageParts::addMetadataPart)
+        }
+
+        return packageParts
+    }
+
+    private fun loadMultiFileFacadeInternalName(
+        multifileFacadeIds: List<Int>,
+        multifileFacadeShortNames: List<String>,
+        index: Int,
+        packageFqName: String
+    ): String? {
+        val multifileFacadeId = multifileFacadeIds.getOrNull(index)?.minus(1)
+        val facadeShortName = multifileFacadeId?.let(multifileFacadeShortNames::getOrNull)
+        return facadeShortName?.let { internalNameOf(packageFqName, it) }
     }
 
     override fun toString() = debugName
 
+    private class PackageProtoIndices {
+        val packageParts = ArrayList<Int>(1)
+        val metadataParts = ArrayList<Int>(0)
+    }
+
     companion object {
         const val MAPPING_FILE_EXT: String = "kotlin_module"
 
         @JvmField
-        val EMPTY: ModuleMapping = ModuleMapping(emptyMap(), BinaryModuleData(emptyList()), "EMPTY")
+        val EMPTY: ModuleMapping = ModuleMapping(JvmModuleProtoBuf.Module.getDefaultInstance(), false, "EMPTY")
 
         @JvmField
-        val CORRUPTED: ModuleMapping = ModuleMapping(emptyMap(), BinaryModuleData(emptyList()), "CORRUPTED")
+        val CORRUPTED: ModuleMapping = ModuleMapping(JvmModuleProtoBuf.Module.getDefaultInstance(), false, "CORRUPTED")
 
         const val STRICT_METADATA_VERSION_SEMANTICS_FLAG = 1 shl 0
 
@@ -68,62 +156,7 @@ class ModuleMapping private constructor(
             }
 
             val moduleProto = JvmModuleProtoBuf.Module.parseFrom(stream) ?: return EMPTY
-            val result = linkedMapOf<String, PackageParts>()
-
-            for (proto in moduleProto.packagePartsList) {
-                val packageFqName = proto.packageFqName
-                val packageParts = result.getOrPut(packageFqName) { PackageParts(packageFqName) }
-
-                for ((index, partShortName) in proto.shortClassNameList.withIndex()) {
-                    packageParts.addPart(
-                        internalNameOf(packageFqName, partShortName),
-                        loadMultiFileFacadeInternalName(
-                            proto.multifileFacadeShortNameIdList, proto.multifileFacadeShortNameList, index, packageFqName
-                        )
-                    )
-                }
-
-                if (isJvmPackageNameSupported) {
-                    for ((index, partShortName) in proto.classWithJvmPackageNameShortNameList.withIndex()) {
-                        val packageId = proto.classWithJvmPackageNamePackageIdList.getOrNull(index)
-                            ?: proto.classWithJvmPackageNamePackageIdList.lastOrNull()
-                            ?: continue
-                        val jvmPackageName = moduleProto.jvmPackageNameList.getOrNull(packageId) ?: continue
-
-                        packageParts.addPart(
-                            internalNameOf(jvmPackageName, partShortName),
-                            loadMultiFileFacadeInternalName(
-                                proto.classWithJvmPackageNameMultifileFacadeShortNameIdList,
-                                proto.multifileFacadeShortNameList,
-                                index,
-                                jvmPackageName
-                            )
-                        )
-                    }
-                }
-            }
-
-            for (proto in moduleProto.metadataPartsList) {
-                val packageParts = result.getOrPut(proto.packageFqName) { PackageParts(proto.packageFqName) }
-                proto.shortClassNameList.forEach(packageParts::addMetadataPart)
-            }
-
-            // TODO: read arguments of module annotations
-            val nameResolver = NameResolverImpl(moduleProto.stringTable, moduleProto.qualifiedNameTable)
-            val annotations = moduleProto.annotationList.map { proto -> nameResolver.getQualifiedClassName(proto.id) }
-
-            return ModuleMapping(result, BinaryModuleData(annotations), debugName)
-        }
-
-        private fun loadMultiFileFacadeInternalName(
-            multifileFacadeIds: List<Int>,
-            multifileFacadeShortNames: List<String>,
-            index: Int,
-            packageFqName: String
-        ): String? {
-            val multifileFacadeId = multifileFacadeIds.getOrNull(index)?.minus(1)
-            val facadeShortName = multifileFacadeId?.let(multifileFacadeShortNames::getOrNull)
-            return facadeShortName?.let { internalNameOf(packageFqName, it) }
+            return ModuleMapping(moduleProto, isJvmPackageNameSupported, debugName)
         }
     }
 }
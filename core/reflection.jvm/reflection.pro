@@ -25,11 +25,11 @@
     ** toString();
 }
 
-# For tests on HashPMap, see compiler/testData/codegen/box/hashPMap
--keepclassmembers class kotlin.reflect.jvm.internal.pcollections.HashPMap {
-    public int size();
-    public boolean containsKey(java.lang.Object);
-    public kotlin.reflect.jvm.internal.pcollections.HashPMap minus(java.lang.Object);
+# Counters are not used in kotlin-reflect itself. For tests on ReflectProperties, see
+# core/descriptors.runtime/tests/org/jetbrains/kotlin/jvm/runtime/LazySoftRetentionTest.kt
+-keepclassmembers class kotlin.reflect.jvm.internal.ReflectProperties {
+    public static long getComputationCount();
+    public static long getRecomputationCount();
 }
 
 # This is needed because otherwise ProGuard strips generic signature of this class (even though we pass `-keepattributes Signature` above)
@@ -146,28 +146,28 @@ val KClass<*>.staticProperties: Collection<KProperty0<*>>
  */
 @SinceKotlin("1.1")
 val <T : Any> KClass<T>.memberProperties: Collection<KProperty1<T, *>>
-    get() = (this as KClassImpl<T>).data().allNonStaticMembers.filter { it.isNotExtension && it is KProperty1<*, *> } as Collection<KProperty1<T, *>>
+    get() = (this as KClassImpl<T>).data().allNonStaticProperties.filter { it.isNotExtension && it is KProperty1<*, *> } as Collection<KProperty1<T, *>>
 
 /**
  * Returns extension properties declared in this class and all of its superclasses.
  */
 @SinceKotlin("1.1")
 val <T : Any> KClass<T>.memberExtensionProperties: Collection<KProperty2<T, *, *>>
-    get() = (this as KClassImpl<T>).data().allNonStaticMembers.filter { it.isExtension && it is KProperty2<*, *, *> } as Collection<KProperty2<T, *, *>>
+    get() = (this as KClassImpl<T>).data().allNonStaticProperties.filter { it.isExtension && it is KProperty2<*, *, *> } as Collection<KProperty2<T, *, *>>
 
 /**
  * Returns non-extension properties declared in this class.
  */
 @SinceKotlin("1.1")
 val <T : Any> KClass<T>.declaredMemberProperties: Collection<KProperty1<T, *>>
-    get() = (this as KClassImpl<T>).data().declaredNonStaticMembers.filter { it.isNotExtension && it is KProperty1<*, *> } as Collection<KProperty1<T, *>>
+    get() = (this as KClassImpl<T>).data().declaredNonStaticProperties.filter { it.isNotExtension && it is KProperty1<*, *> } as Collection<KProperty1<T, *>>
 
 /**
  * Returns extension properties declared in this class.
  */
 @SinceKotlin("1.1")
 val <T : Any> KClass<T>.declaredMemberExtensionProperties: Collection<KProperty2<T, *, *>>
-    get() = (this as KClassImpl<T>).data().declaredNonStaticMembers.filter { it.isExtension && it is KProperty2<*, *, *> } as Collection<KProperty2<T, *, *>>
+    get() = (this as KClassImpl<T>).data().declaredNonStaticProperties.filter { it.isExtension && it is KProperty2<*, *, *> } as Collection<KProperty2<T, *, *>>
 
 
 private val KCallableImpl<*>.isExtension: Boolean
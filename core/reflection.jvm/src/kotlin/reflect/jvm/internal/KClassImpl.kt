@@ -28,6 +28,7 @@ import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.resolve.DescriptorUtils
 import org.jetbrains.kotlin.resolve.descriptorUtil.builtIns
+import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
 import org.jetbrains.kotlin.serialization.deserialization.MemberDeserializer
 import org.jetbrains.kotlin.serialization.deserialization.descriptors.DeserializedClassDescriptor
@@ -172,6 +173,16 @@ internal class KClassImpl<T : Any>(override val jClass: Class<T>) : KDeclaration
                 by ReflectProperties.lazySoft { declaredNonStaticMembers + declaredStaticMembers }
         val allMembers: Collection<KCallableImpl<*>>
                 by ReflectProperties.lazySoft { allNonStaticMembers + allStaticMembers }
+
+        // Properties are also loaded separately from other members, since loading all members of a class requires deserializing
+        // all of its functions and the functions of its supertypes, which is wasteful when only properties are needed
+        val declaredNonStaticProperties: Collection<KCallableImpl<*>>
+                by ReflectProperties.lazySoft { getMembers(memberScope, DECLARED, DescriptorKindFilter.VARIABLES) }
+        private val inheritedNonStaticProperties: Collection<KCallableImpl<*>>
+                by ReflectProperties.lazySoft { getMembers(memberScope, INHERITED, DescriptorKindFilter.VARIABLES) }
+
+        val allNonStaticProperties: Collection<KCallableImpl<*>>
+                by ReflectProperties.lazySoft { declaredNonStaticProperties + inheritedNonStaticProperties }
     }
 
     val data = ReflectProperties.lazy { Data() }
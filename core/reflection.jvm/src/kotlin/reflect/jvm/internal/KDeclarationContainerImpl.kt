@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.descriptors.impl.DeclarationDescriptorVisitorEmptyBo
 import org.jetbrains.kotlin.load.java.JvmAbi
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.renderer.DescriptorRenderer
+import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
 import java.lang.reflect.Constructor
 import java.lang.reflect.Method
@@ -49,7 +50,11 @@ internal abstract class KDeclarationContainerImpl : ClassBasedDeclarationContain
 
     abstract fun getLocalProperty(index: Int): PropertyDescriptor?
 
-    protected fun getMembers(scope: MemberScope, belonginess: MemberBelonginess): Collection<KCallableImpl<*>> {
+    protected fun getMembers(
+        scope: MemberScope,
+        belonginess: MemberBelonginess,
+        kindFilter: DescriptorKindFilter = DescriptorKindFilter.ALL
+    ): Collection<KCallableImpl<*>> {
         val visitor = object : DeclarationDescriptorVisitorEmptyBodies<KCallableImpl<*>, Unit>() {
             override fun visitPropertyDescriptor(descriptor: PropertyDescriptor, data: Unit): KCallableImpl<*> =
                 createProperty(descriptor)
@@ -61,8 +66,9 @@ internal abstract class KDeclarationContainerImpl : ClassBasedDeclarationContain
                 throw IllegalStateException("No constructors should appear in this scope: $descriptor")
         }
 
-        return scope.getContributedDescriptors().mapNotNull { descriptor ->
+        return scope.getContributedDescriptors(kindFilter).mapNotNull { descriptor ->
             if (descriptor is CallableMemberDescriptor &&
+                kindFilter.accepts(descriptor) &&
                 descriptor.visibility != Visibilities.INVISIBLE_FAKE &&
                 belonginess.accept(descriptor)
             ) descriptor.accept(visitor, Unit) else null
@@ -21,8 +21,50 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class ReflectProperties {
+    // How values of lazySoft properties are retained is configured with the following system properties:
+    // - "kotlin.reflect.jvm.retention": "soft" (default) to keep the values on soft references, or "strong" to never let them be collected;
+    // - "kotlin.reflect.jvm.retention.pinned": the number of recently used soft values which are additionally kept strongly reachable,
+    //   so that the descriptors used on hot paths survive GC cycles, while the total amount of retained memory is still bounded
+    private static final boolean STRONG_RETENTION;
+    private static final PinnedValues PINNED_VALUES;
+
+    static {
+        STRONG_RETENTION = "strong".equals(getSystemProperty("kotlin.reflect.jvm.retention"));
+
+        int pinned;
+        try {
+            String value = getSystemProperty("kotlin.reflect.jvm.retention.pinned");
+            pinned = value != null ? Integer.parseInt(value) : 0;
+        }
+        catch (NumberFormatException e) {
+            pinned = 0;
+        }
+        PINNED_VALUES = pinned > 0 && !STRONG_RETENTION ? new PinnedValues(pinned) : null;
+    }
+
+    private static final AtomicLong computations = new AtomicLong();
+    private static final AtomicLong recomputations = new AtomicLong();
+
+    /**
+     * Returns the number of times initializers of lazy reflection properties have been invoked.
+     */
+    public static long getComputationCount() {
+        return computations.get();
+    }
+
+    /**
+     * Returns the number of times initializers of lazy reflection properties have been invoked again because the previously computed
+     * value had been garbage collected.
+     */
+    public static long getRecomputationCount() {
+        return recomputations.get();
+    }
+
     public static abstract class Val<T> {
         private static final Object NULL_VALUE = new Object() {};
 
@@ -46,7 +88,7 @@ public class ReflectProperties {
     // A delegate for a lazy property, whose initializer may be invoked multiple times including simultaneously from different threads
     public static class LazyVal<T> extends Val<T> {
         private final Function0<T> initializer;
-        private Object value = null;
+        private volatile Object value = null;
 
         public LazyVal(@NotNull Function0<T> initializer) {
             this.initializer = initializer;
@@ -59,6 +101,7 @@ public class ReflectProperties {
                 return unescape(cached);
             }
 
+            computations.incrementAndGet();
             T result = initializer.invoke();
             value = escape(result);
 
@@ -66,34 +109,94 @@ public class ReflectProperties {
         }
     }
 
-    // A delegate for a lazy property on a soft reference, whose initializer may be invoked multiple times
-    // including simultaneously from different threads
+    // A delegate for a lazy property on a soft reference (unless configured otherwise, see STRONG_RETENTION), whose initializer may be
+    // invoked multiple times including simultaneously from different threads
     public static class LazySoftVal<T> extends Val<T> {
         private final Function0<T> initializer;
-        private SoftReference<Object> value = null;
+        private volatile SoftReference<Object> value = null;
+        private volatile Object strongValue = null;
+        // The position at which the value was last added to PINNED_VALUES
+        private volatile int pinnedAt;
 
         public LazySoftVal(@Nullable T initialValue, @NotNull Function0<T> initializer) {
             this.initializer = initializer;
             if (initialValue != null) {
-                this.value = new SoftReference<Object>(escape(initialValue));
+                store(escape(initialValue));
             }
         }
 
         @Override
         public T invoke() {
+            Object strong = strongValue;
+            if (strong != null) {
+                return unescape(strong);
+            }
+
             SoftReference<Object> cached = value;
             if (cached != null) {
                 Object result = cached.get();
                 if (result != null) {
+                    if (PINNED_VALUES != null && PINNED_VALUES.isExpiring(pinnedAt)) {
+                        pinnedAt = PINNED_VALUES.add(result);
+                    }
                     return unescape(result);
                 }
+                recomputations.incrementAndGet();
             }
 
+            computations.incrementAndGet();
             T result = initializer.invoke();
-            value = new SoftReference<Object>(escape(result));
+            store(escape(result));
 
             return result;
         }
+
+        private void store(@NotNull Object escaped) {
+            if (STRONG_RETENTION) {
+                strongValue = escaped;
+            }
+            else {
+                value = new SoftReference<Object>(escaped);
+                if (PINNED_VALUES != null) {
+                    pinnedAt = PINNED_VALUES.add(escaped);
+                }
+            }
+        }
+    }
+
+    // A fixed-size ring of recently used values. A value is added when it's computed, and is added again when it's accessed after more
+    // than half of the ring has been overwritten since it was last added. So a value accessed at least once per size / 2 additions is
+    // never evicted, and values which are not accessed anymore are evicted in the order in which they were last added.
+    // A frequently used value occupies at most two slots, and the ring is not written to when the same values are accessed repeatedly
+    private static class PinnedValues {
+        private final AtomicReferenceArray<Object> values;
+        private final AtomicInteger next = new AtomicInteger();
+
+        PinnedValues(int size) {
+            values = new AtomicReferenceArray<Object>(size);
+        }
+
+        // Returns the position at which the value is added
+        int add(@NotNull Object value) {
+            int position = next.getAndIncrement();
+            values.set((position & Integer.MAX_VALUE) % values.length(), value);
+            return position;
+        }
+
+        boolean isExpiring(int position) {
+            // The subtraction is correct after the counter overflows
+            return next.get() - position > values.length() / 2;
+        }
+    }
+
+    @Nullable
+    private static String getSystemProperty(@NotNull String name) {
+        try {
+            return System.getProperty(name);
+        }
+        catch (SecurityException e) {
+            return null;
+        }
     }
 
     @NotNull
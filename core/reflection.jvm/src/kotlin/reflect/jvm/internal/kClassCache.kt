@@ -16,54 +16,109 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
-import kotlin.reflect.jvm.internal.pcollections.HashPMap
+import java.util.concurrent.ConcurrentHashMap
 
-// TODO: collect nulls periodically
-// Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
+// Key of the map is Class.getName(), each value is either a KClassReference or an Array<KClassReference>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
-// This variable is not volatile intentionally: we don't care if there's a data race on it and some KClass instances will be lost.
-// We do care however about general performance on read access to it, thus no synchronization is done here whatsoever
-private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
+// Reads are lock-free; a KClassImpl is created at most once per Class, unless it has been collected in the meantime.
+// ClassValue would be a better fit, but this code must run on Java 6
+private val K_CLASS_CACHE = ConcurrentHashMap<String, Any>()
+
+// References to collected KClassImpl instances, the entries of which are removed from the cache before new classes are added
+private val COLLECTED_K_CLASSES = ReferenceQueue<KClassImpl<*>>()
+
+private class KClassReference(kClass: KClassImpl<*>, val name: String) : WeakReference<KClassImpl<*>>(kClass, COLLECTED_K_CLASSES)
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
     val name = jClass.name
-    val cached = K_CLASS_CACHE[name]
-    if (cached is WeakReference<*>) {
+    return find(K_CLASS_CACHE[name], jClass) ?: createKotlinClass(jClass, name)
+}
+
+private fun <T : Any> find(cached: Any?, jClass: Class<T>): KClassImpl<T>? {
+    if (cached is KClassReference) {
         @Suppress("UNCHECKED_CAST")
         val kClass = cached.get() as KClassImpl<T>?
         if (kClass?.jClass == jClass) {
             return kClass
         }
     } else if (cached != null) {
-        // If the cached value is not a weak reference, it's an array of weak references
+        // If the cached value is not a reference, it's an array of references
         @Suppress("UNCHECKED_CAST")
-        (cached as Array<WeakReference<KClassImpl<T>>>)
-        for (ref in cached) {
-            val kClass = ref.get()
+        for (ref in cached as Array<KClassReference>) {
+            val kClass = ref.get() as KClassImpl<T>?
             if (kClass?.jClass == jClass) {
                 return kClass
             }
         }
-
-        // This is the most unlikely case: we found a cached array of references of length at least 2 (can't be 1 because
-        // the single element would be cached instead), and none of those classes is the one we're looking for
-        val size = cached.size
-        val newArray = arrayOfNulls<WeakReference<KClassImpl<*>>>(size + 1)
-        // Don't use Arrays.copyOf because it works reflectively
-        System.arraycopy(cached, 0, newArray, 0, size)
-        val newKClass = KClassImpl(jClass)
-        newArray[size] = WeakReference(newKClass)
-        K_CLASS_CACHE = K_CLASS_CACHE.plus(name, newArray)
-        return newKClass
     }
+    return null
+}
+
+private fun <T : Any> createKotlinClass(jClass: Class<T>, name: String): KClassImpl<T> {
+    removeCollectedKClasses()
 
     val newKClass = KClassImpl(jClass)
-    K_CLASS_CACHE = K_CLASS_CACHE.plus(name, WeakReference(newKClass))
-    return newKClass
+    val newRef = KClassReference(newKClass, name)
+    while (true) {
+        val cached = K_CLASS_CACHE[name]
+        if (cached == null) {
+            if (K_CLASS_CACHE.putIfAbsent(name, newRef) == null) return newKClass
+            continue
+        }
+
+        // Another thread may have created the class since the last lookup
+        find(cached, jClass)?.let { return it }
+
+        // This is the most unlikely case: the same class name is used by several class loaders. References to collected
+        // classes are dropped here as well
+        val liveRefs = references(cached).filter { it.get() != null }
+        val newValue: Any = if (liveRefs.isEmpty()) newRef else toArray(liveRefs + newRef)
+        if (K_CLASS_CACHE.replace(name, cached, newValue)) return newKClass
+    }
+}
+
+private fun removeCollectedKClasses() {
+    while (true) {
+        val ref = COLLECTED_K_CLASSES.poll() as KClassReference? ?: return
+        removeCollectedKClass(ref)
+    }
+}
+
+private fun removeCollectedKClass(ref: KClassReference) {
+    val name = ref.name
+    while (true) {
+        val cached = K_CLASS_CACHE[name] ?: return
+        val refs = references(cached)
+        if (ref !in refs) return
+
+        // Other references to collected classes are dropped as well, so that none is left in the cache if another thread polls it and
+        // then fails to update the entry. A failed update here means another thread has changed the entry, so it's checked again
+        val liveRefs = refs.filter { it.get() != null }
+        val updated = when (liveRefs.size) {
+            0 -> K_CLASS_CACHE.remove(name, cached)
+            1 -> K_CLASS_CACHE.replace(name, cached, liveRefs.single())
+            else -> K_CLASS_CACHE.replace(name, cached, toArray(liveRefs))
+        }
+        if (updated) return
+    }
+}
+
+@Suppress("UNCHECKED_CAST")
+private fun references(cached: Any): List<KClassReference> =
+    if (cached is KClassReference) listOf(cached) else (cached as Array<KClassReference>).asList()
+
+private fun toArray(refs: List<KClassReference>): Array<KClassReference?> {
+    // Don't use toTypedArray because it works reflectively
+    val result = arrayOfNulls<KClassReference>(refs.size)
+    for (i in refs.indices) {
+        result[i] = refs[i]
+    }
+    return result
 }
 
 internal fun clearKClassCache() {
-    K_CLASS_CACHE = HashPMap.empty()
+    K_CLASS_CACHE.clear()
 }
@@ -0,0 +1,610 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.storage;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+import kotlin.jvm.functions.Function1;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.utils.ExceptionUtilsKt;
+import org.jetbrains.kotlin.utils.WrappedValues;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A storage manager which does not serialize computations of memoized functions and lazy values through a single lock.
+ *
+ * Computations are serialized per key instead: the first thread which requests a lazy value or an input of a memoized function
+ * computes it without holding any lock, and other threads requesting the same key wait until the computation is finished and then
+ * use its result. So every value is computed at most once, same as with {@link LockBasedStorageManager}, and side effects of
+ * computations (e.g. diagnostics reported by lazy resolution) are not duplicated.
+ *
+ * Recursion is detected per computation: a recursive call is reported only to the thread which re-enters a computation it has
+ * started itself. Lazy resolution routinely computes one key from inside another, so two threads nesting computations in opposite
+ * order would deadlock waiting for each other. Such a cycle is detected before the thread which would close it starts waiting,
+ * and that thread gets a recursive call instead. This is exactly what a single thread would have seen if it had performed the
+ * nested computations of the cycle one inside another, so the results are the same as ones of some sequential order of computations.
+ * Which thread closes a cycle depends on timing, so errors thrown on recursive calls to memoized functions are not stored as
+ * results of the computations they pass through: those keys are computed again when requested next time.
+ *
+ * {@link #compute} is still executed under a storage manager wide lock, because its callers rely on mutual exclusion. The lock is
+ * a part of the same wait-for graph: a thread holding it may wait for a computation of another thread, which in turn needs the lock
+ * (e.g. lazy resolution of imports called from {@code compute} and writing to the trace). A thread which finds that the owner of
+ * the lock (transitively) waits for it runs the block without taking the lock. The owner can't proceed until the current thread
+ * finishes the computation enclosing this block, so the blocks still don't run simultaneously, and the result is the same as if
+ * the owner had run the block itself, re-entering the lock.
+ */
+public class ConcurrentStorageManager implements StorageManager {
+    private final String debugText;
+    private final LockBasedStorageManager.ExceptionHandlingStrategy exceptionHandlingStrategy;
+    // Computations (or COMPUTE_LOCK) which threads are currently waiting for, used to detect cycles of threads waiting for each other.
+    // The map is also the monitor guarding the fields of the compute lock below
+    private final Map<Thread, Object> waitingFor = new HashMap<Thread, Object>();
+
+    private static final Object COMPUTE_LOCK = new Object();
+    private Thread computeLockOwner = null;
+    private int computeLockHoldCount = 0;
+
+    public ConcurrentStorageManager(
+            @NotNull String debugText,
+            @NotNull LockBasedStorageManager.ExceptionHandlingStrategy exceptionHandlingStrategy
+    ) {
+        this.debugText = debugText;
+        this.exceptionHandlingStrategy = exceptionHandlingStrategy;
+    }
+
+    public ConcurrentStorageManager(@NotNull String debugText) {
+        this(debugText, LockBasedStorageManager.ExceptionHandlingStrategy.THROW);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + " (" + debugText + ")";
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNotNull<K, V> createMemoizedFunction(@NotNull Function1<? super K, ? extends V> compute) {
+        return createMemoizedFunction(compute, ConcurrentStorageManager.<K>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNotNull<K, V> createMemoizedFunction(
+            @NotNull Function1<? super K, ? extends V> compute,
+            @NotNull ConcurrentMap<K, Object> map
+    ) {
+        return new ConcurrentMemoizedFunctionToNotNull<K, V>(this, map, compute);
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNullable<K, V> createMemoizedFunctionWithNullableValues(@NotNull Function1<? super K, ? extends V> compute) {
+        return createMemoizedFunctionWithNullableValues(compute, ConcurrentStorageManager.<K>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNullable<K, V> createMemoizedFunctionWithNullableValues(
+            @NotNull Function1<? super K, ? extends V> compute,
+            @NotNull ConcurrentMap<K, Object> map
+    ) {
+        return new ConcurrentMemoizedFunction<K, V>(this, map, compute);
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValue(@NotNull Function0<? extends T> computable) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable);
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createRecursionTolerantLazyValue(
+            @NotNull Function0<? extends T> computable, @NotNull final T onRecursiveCall
+    ) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                return onRecursiveCall;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValueWithPostCompute(
+            @NotNull Function0<? extends T> computable,
+            final Function1<? super Boolean, ? extends T> onRecursiveCall,
+            @NotNull final Function1<? super T, Unit> postCompute
+    ) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                if (onRecursiveCall == null) {
+                    return super.recursionDetected(firstTime);
+                }
+                return onRecursiveCall.invoke(firstTime);
+            }
+
+            @Override
+            protected void postCompute(@NotNull T value) {
+                postCompute.invoke(value);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValue(@NotNull Function0<? extends T> computable) {
+        return new ConcurrentLazyValue<T>(this, computable);
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createRecursionTolerantNullableLazyValue(@NotNull Function0<? extends T> computable, final T onRecursiveCall) {
+        return new ConcurrentLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                return onRecursiveCall;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValueWithPostCompute(
+            @NotNull Function0<? extends T> computable, @NotNull final Function1<? super T, Unit> postCompute
+    ) {
+        return new ConcurrentLazyValue<T>(this, computable) {
+            @Override
+            protected void postCompute(@Nullable T value) {
+                postCompute.invoke(value);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <K, V> CacheWithNullableValues<K, V> createCacheWithNullableValues() {
+        return new ConcurrentCacheWithNullableValues<K, V>(this);
+    }
+
+    @NotNull
+    @Override
+    public <K, V> CacheWithNotNullValues<K, V> createCacheWithNotNullValues() {
+        return new ConcurrentCacheWithNotNullValues<K, V>(this);
+    }
+
+    @Override
+    public <T> T compute(@NotNull Function0<? extends T> computable) {
+        boolean locked = lockCompute();
+        try {
+            return computable.invoke();
+        }
+        catch (Throwable throwable) {
+            throw exceptionHandlingStrategy.handleException(throwable);
+        }
+        finally {
+            if (locked) {
+                unlockCompute();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the lock is not taken, because its owner (transitively) waits for a computation started by
+     * the current thread. See the class comment on why the block can be run anyway.
+     */
+    private boolean lockCompute() {
+        Thread currentThread = Thread.currentThread();
+        boolean interrupted = false;
+        try {
+            synchronized (waitingFor) {
+                while (computeLockOwner != null && computeLockOwner != currentThread) {
+                    if (isAwaitedByCurrentThread(COMPUTE_LOCK)) return false;
+
+                    waitingFor.put(currentThread, COMPUTE_LOCK);
+                    try {
+                        waitingFor.wait();
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    finally {
+                        waitingFor.remove(currentThread);
+                    }
+                }
+                computeLockOwner = currentThread;
+                computeLockHoldCount++;
+                return true;
+            }
+        }
+        finally {
+            if (interrupted) {
+                currentThread.interrupt();
+            }
+        }
+    }
+
+    private void unlockCompute() {
+        synchronized (waitingFor) {
+            if (--computeLockHoldCount == 0) {
+                computeLockOwner = null;
+                waitingFor.notifyAll();
+            }
+        }
+    }
+
+    // Must be called under the monitor of waitingFor
+    @Nullable
+    private Thread getOwner(@NotNull Object awaited) {
+        if (awaited == COMPUTE_LOCK) return computeLockOwner;
+        Computation computation = (Computation) awaited;
+        return computation.isFinished() ? null : computation.owner;
+    }
+
+    // Must be called under the monitor of waitingFor
+    private boolean isAwaitedByCurrentThread(@NotNull Object awaited) {
+        Thread currentThread = Thread.currentThread();
+        Thread owner = getOwner(awaited);
+        while (owner != null) {
+            if (owner == currentThread) return true;
+            Object next = waitingFor.get(owner);
+            owner = next != null ? getOwner(next) : null;
+        }
+        return false;
+    }
+
+    @NotNull
+    private static <K> ConcurrentMap<K, Object> createConcurrentHashMap() {
+        // memory optimization: fewer segments and entries stored
+        return new ConcurrentHashMap<K, Object>(3, 1, 2);
+    }
+
+    /**
+     * Waits until a computation started by another thread is finished.
+     *
+     * @return {@code false} if the computation can not be waited for, because it has been started by the current thread,
+     * or because the thread which computes it (transitively) waits for a computation started by the current thread or for the
+     * {@link #compute} lock held by it.
+     * The caller must treat this as a recursive call.
+     */
+    private boolean awaitComputation(@NotNull Computation computation) {
+        Thread currentThread = Thread.currentThread();
+        synchronized (waitingFor) {
+            if (isAwaitedByCurrentThread(computation)) return false;
+            waitingFor.put(currentThread, computation);
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    computation.finished.await();
+                    return true;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        finally {
+            synchronized (waitingFor) {
+                waitingFor.remove(currentThread);
+            }
+            if (interrupted) {
+                currentThread.interrupt();
+            }
+        }
+    }
+
+    // A computation of a lazy value or of an input of a memoized function which is in progress
+    private static class Computation {
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        // Accessed only by the owner and by threads which the owner (transitively) waits for, which never run simultaneously
+        private volatile boolean recursionDetected = false;
+
+        private boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        private void finish() {
+            finished.countDown();
+        }
+    }
+
+    // Thrown on a recursive call to a memoized function, never stored as a result of a computation it passes through
+    private static class RecursionDetectedError extends AssertionError {
+        private RecursionDetectedError(@NotNull String message) {
+            super(message);
+        }
+    }
+
+    private static boolean isCausedByRecursion(@NotNull Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof RecursionDetectedError) return true;
+        }
+        return false;
+    }
+
+    private enum NotValue {
+        NOT_COMPUTED,
+        // Only set after the computation has finished, when it has failed because of a recursive call to the same lazy value
+        RECURSION_WAS_DETECTED
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentLazyValue, Object> LAZY_VALUE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentLazyValue.class, Object.class, "value");
+
+    /**
+     * The value is published **BEFORE** postCompute is called on it, same as in LockBasedStorageManager's lazy values.
+     * Threads waiting for the computation are released at the same moment, so postCompute must not rely on mutual exclusion.
+     */
+    private static class ConcurrentLazyValue<T> implements NullableLazyValue<T> {
+        private final ConcurrentStorageManager storageManager;
+        private final Function0<? extends T> computable;
+
+        // NotValue, a Computation in progress, or an escaped value
+        @Nullable
+        private volatile Object value = NotValue.NOT_COMPUTED;
+
+        public ConcurrentLazyValue(@NotNull ConcurrentStorageManager storageManager, @NotNull Function0<? extends T> computable) {
+            this.storageManager = storageManager;
+            this.computable = computable;
+        }
+
+        @Override
+        public boolean isComputed() {
+            Object _value = value;
+            return !(_value instanceof NotValue) && !(_value instanceof Computation);
+        }
+
+        @Override
+        public boolean isComputing() {
+            Object _value = value;
+            return _value instanceof Computation && ((Computation) _value).owner == Thread.currentThread();
+        }
+
+        @Override
+        public T invoke() {
+            while (true) {
+                Object _value = value;
+                if (_value == NotValue.RECURSION_WAS_DETECTED) return recursionDetected(/*firstTime = */ false);
+
+                if (_value instanceof Computation) {
+                    Computation computation = (Computation) _value;
+                    if (storageManager.awaitComputation(computation)) continue;
+
+                    boolean firstTime = !computation.recursionDetected;
+                    computation.recursionDetected = true;
+                    return recursionDetected(firstTime);
+                }
+
+                if (_value != NotValue.NOT_COMPUTED) return WrappedValues.unescapeThrowable(_value);
+
+                Computation computation = new Computation();
+                if (!LAZY_VALUE_UPDATER.compareAndSet(this, NotValue.NOT_COMPUTED, computation)) continue;
+
+                T typedValue;
+                try {
+                    typedValue = computable.invoke();
+                }
+                catch (Throwable throwable) {
+                    boolean canceled = ExceptionUtilsKt.isProcessCanceledException(throwable);
+                    if (canceled || isCausedByRecursion(throwable)) {
+                        // A recursive call to a memoized function depends on the call stack, so the value may be computed next time
+                        value = NotValue.NOT_COMPUTED;
+                    }
+                    else if (computation.recursionDetected) {
+                        // Don't store something thrown through recursionDetected() as a genuine result
+                        value = NotValue.RECURSION_WAS_DETECTED;
+                    }
+                    else {
+                        value = WrappedValues.escapeThrowable(throwable);
+                    }
+                    computation.finish();
+
+                    if (canceled) {
+                        //noinspection ConstantConditions
+                        throw (RuntimeException) throwable;
+                    }
+                    throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                }
+
+                value = typedValue;
+                computation.finish();
+                postCompute(typedValue);
+                return typedValue;
+            }
+        }
+
+        /**
+         * @param firstTime {@code true} when recursion has been just detected, {@code false} otherwise
+         * @return a value to be returned on a recursive call
+         */
+        protected T recursionDetected(boolean firstTime) {
+            throw LockBasedStorageManager.sanitizeStackTrace(
+                    new IllegalStateException("Recursive call in a lazy value under " + storageManager)
+            );
+        }
+
+        protected void postCompute(T value) {
+            // Doing something in post-compute helps prevent infinite recursion
+        }
+    }
+
+    private static class ConcurrentNotNullLazyValue<T> extends ConcurrentLazyValue<T> implements NotNullLazyValue<T> {
+        public ConcurrentNotNullLazyValue(@NotNull ConcurrentStorageManager storageManager, @NotNull Function0<? extends T> computable) {
+            super(storageManager, computable);
+        }
+
+        @Override
+        @NotNull
+        public T invoke() {
+            T result = super.invoke();
+            assert result != null : "compute() returned null";
+            return result;
+        }
+
+        @NotNull
+        @Override
+        public String renderDebugInformation() {
+            return getClass().getName();
+        }
+    }
+
+    private static class ConcurrentMemoizedFunction<K, V> implements MemoizedFunctionToNullable<K, V> {
+        private final ConcurrentStorageManager storageManager;
+        private final ConcurrentMap<K, Object> cache;
+        private final Function1<? super K, ? extends V> compute;
+
+        public ConcurrentMemoizedFunction(
+                @NotNull ConcurrentStorageManager storageManager,
+                @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function1<? super K, ? extends V> compute
+        ) {
+            this.storageManager = storageManager;
+            this.cache = map;
+            this.compute = compute;
+        }
+
+        @Override
+        @Nullable
+        public V invoke(K input) {
+            while (true) {
+                Object value = cache.get(input);
+                if (value instanceof Computation) {
+                    if (storageManager.awaitComputation((Computation) value)) continue;
+                    throw recursionDetected(input);
+                }
+                if (value != null) return WrappedValues.unescapeExceptionOrNull(value);
+
+                Computation computation = new Computation();
+                if (cache.putIfAbsent(input, computation) != null) continue;
+
+                V typedValue;
+                try {
+                    typedValue = compute.invoke(input);
+                }
+                catch (Throwable throwable) {
+                    if (ExceptionUtilsKt.isProcessCanceledException(throwable)) {
+                        cache.remove(input, computation);
+                        computation.finish();
+                        //noinspection ConstantConditions
+                        throw (RuntimeException) throwable;
+                    }
+                    if (isCausedByRecursion(throwable)) {
+                        // Don't store it: whether a cycle is found depends on the call stack and on what other threads compute,
+                        // so the input may be computed successfully next time
+                        cache.remove(input, computation);
+                        computation.finish();
+                        throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                    }
+
+                    publish(input, computation, WrappedValues.escapeThrowable(throwable));
+                    throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+                }
+
+                publish(input, computation, WrappedValues.escapeNull(typedValue));
+                return typedValue;
+            }
+        }
+
+        private void publish(K input, @NotNull Computation computation, @NotNull Object value) {
+            boolean replaced = cache.replace(input, computation, value);
+            computation.finish();
+            if (!replaced) {
+                throw LockBasedStorageManager.sanitizeStackTrace(
+                        new AssertionError("Race condition detected on input " + input + ". Old value is " + cache.get(input) +
+                                           " under " + storageManager)
+                );
+            }
+        }
+
+        @NotNull
+        private AssertionError recursionDetected(K input) {
+            return LockBasedStorageManager.sanitizeStackTrace(
+                    new RecursionDetectedError("Recursion detected on input: " + input + " under " + storageManager)
+            );
+        }
+
+        @Override
+        public boolean isComputed(K key) {
+            Object value = cache.get(key);
+            return value != null && !(value instanceof Computation);
+        }
+
+        protected ConcurrentStorageManager getStorageManager() {
+            return storageManager;
+        }
+    }
+
+    private static class ConcurrentMemoizedFunctionToNotNull<K, V> extends ConcurrentMemoizedFunction<K, V>
+            implements MemoizedFunctionToNotNull<K, V> {
+        public ConcurrentMemoizedFunctionToNotNull(
+                @NotNull ConcurrentStorageManager storageManager,
+                @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function1<? super K, ? extends V> compute
+        ) {
+            super(storageManager, map, compute);
+        }
+
+        @NotNull
+        @Override
+        public V invoke(K input) {
+            V result = super.invoke(input);
+            assert result != null : "compute() returned null under " + getStorageManager();
+            return result;
+        }
+    }
+
+    private static class ConcurrentCacheWithNullableValues<K, V>
+            extends ConcurrentMemoizedFunction<LockBasedStorageManager.KeyWithComputation<K, V>, V>
+            implements CacheWithNullableValues<K, V> {
+
+        private ConcurrentCacheWithNullableValues(@NotNull ConcurrentStorageManager storageManager) {
+            super(storageManager, ConcurrentStorageManager.<LockBasedStorageManager.KeyWithComputation<K, V>>createConcurrentHashMap(),
+                  new Function1<LockBasedStorageManager.KeyWithComputation<K, V>, V>() {
+                      @Override
+                      public V invoke(LockBasedStorageManager.KeyWithComputation<K, V> computation) {
+                          return computation.computation.invoke();
+                      }
+                  });
+        }
+
+        @Nullable
+        @Override
+        public V computeIfAbsent(K key, @NotNull Function0<? extends V> computation) {
+            return invoke(new LockBasedStorageManager.KeyWithComputation<K, V>(key, computation));
+        }
+    }
+
+    private static class ConcurrentCacheWithNotNullValues<K, V> extends ConcurrentCacheWithNullableValues<K, V>
+            implements CacheWithNotNullValues<K, V> {
+
+        private ConcurrentCacheWithNotNullValues(@NotNull ConcurrentStorageManager storageManager) {
+            super(storageManager);
+        }
+
+        @NotNull
+        @Override
+        public V computeIfAbsent(K key, @NotNull Function0<? extends V> computation) {
+            V result = super.computeIfAbsent(key, computation);
+            assert result != null : "computeIfAbsent() returned null under " + getStorageManager();
+            return result;
+        }
+    }
+}
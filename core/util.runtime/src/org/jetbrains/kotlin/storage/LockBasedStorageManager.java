@@ -519,7 +519,7 @@ public class LockBasedStorageManager implements StorageManager {
     }
 
     @NotNull
-    private static <T extends Throwable> T sanitizeStackTrace(@NotNull T throwable) {
+    static <T extends Throwable> T sanitizeStackTrace(@NotNull T throwable) {
         StackTraceElement[] stackTrace = throwable.getStackTrace();
         int size = stackTrace.length;
 
@@ -531,7 +531,7 @@ public class LockBasedStorageManager implements StorageManager {
                 break;
             }
         }
-        assert firstNonStorage >= 0 : "This method should only be called on exceptions created in LockBasedStorageManager";
+        assert firstNonStorage >= 0 : "This method should only be called on exceptions created in a storage manager";
 
         List<StackTraceElement> list = Arrays.asList(stackTrace).subList(firstNonStorage, size);
         throwable.setStackTrace(list.toArray(new StackTraceElement[list.size()]));
@@ -591,9 +591,9 @@ public class LockBasedStorageManager implements StorageManager {
     }
 
     // equals and hashCode use only key
-    private static class KeyWithComputation<K, V> {
+    static class KeyWithComputation<K, V> {
         private final K key;
-        private final Function0<? extends V> computation;
+        final Function0<? extends V> computation;
 
         public KeyWithComputation(K key, Function0<? extends V> computation) {
             this.key = key;
@@ -11,8 +11,13 @@ import org.jetbrains.kotlin.js.backend.ast.JsVars.JsVar;
 import org.jetbrains.kotlin.js.util.TextOutput;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Produces text output from a JavaScript AST.
@@ -44,6 +49,7 @@ public class JsToStringGenerationVisitor extends JsVisitor {
     private static final char[] CHARS_WHILE = "while".toCharArray();
     private static final char[] HEX_DIGITS = {
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    private static final int MIN_STATEMENTS_TO_PRINT_IN_PARALLEL = 16;
     @NotNull
     private final SourceLocationConsumer sourceLocationConsumer;
 
@@ -180,11 +186,25 @@ public class JsToStringGenerationVisitor extends JsVisitor {
     @NotNull
     protected final TextOutput p;
 
+    @Nullable
+    private ExecutorService executor;
+    private int maxPendingStatements;
+
     public JsToStringGenerationVisitor(@NotNull TextOutput out, @NotNull SourceLocationConsumer sourceLocationConsumer) {
         p = out;
         this.sourceLocationConsumer = sourceLocationConsumer;
     }
 
+    /**
+     * Makes the visitor print statements of the outermost large block (usually the body of the module function) on {@code executor}.
+     * Every statement is printed into a {@link RecordingOutput} which is then replayed in order, so the text and the source map
+     * are the same as with sequential printing. Must not be used by subclasses which override the printing of statements.
+     */
+    public void setParallelExecutor(@NotNull ExecutorService executor, int threads) {
+        this.executor = executor;
+        maxPendingStatements = threads * 4;
+    }
+
     public JsToStringGenerationVisitor(@NotNull TextOutput out) {
         this(out, NoOpSourceLocationConsumer.INSTANCE);
     }
@@ -1132,60 +1152,21 @@ public class JsToStringGenerationVisitor extends JsVisitor {
             blockOpen();
         }
 
-        Iterator<JsStatement> iterator = x.getStatements().iterator();
-        while (iterator.hasNext()) {
-            boolean isGlobal = x.isGlobalBlock() || globalBlocks.contains(x);
-
-            JsStatement statement = iterator.next();
-            if (statement instanceof JsEmpty) {
-                continue;
+        ExecutorService executor = this.executor;
+        if (executor != null && x.getStatements().size() >= MIN_STATEMENTS_TO_PRINT_IN_PARALLEL) {
+            // Nested blocks are printed sequentially by the visitors of the statements
+            this.executor = null;
+            try {
+                printStatementsInParallel(x, needBraces, executor);
             }
-
-            needSemi = true;
-            boolean stmtIsGlobalBlock = false;
-            if (isGlobal) {
-                if (statement instanceof JsBlock) {
-                    // A block inside a global block is still considered global
-                    stmtIsGlobalBlock = true;
-                    globalBlocks.add((JsBlock) statement);
-                }
-            }
-
-            accept(statement);
-            if (stmtIsGlobalBlock) {
-                //noinspection SuspiciousMethodCalls
-                globalBlocks.remove(statement);
+            finally {
+                this.executor = executor;
             }
-            if (needSemi) {
-                /*
-                * Special treatment of function declarations: If they are the only item in a
-                * statement (i.e. not part of an assignment operation), just give them
-                * a newline instead of a semi.
-                */
-                boolean functionStmt =
-                        statement instanceof JsExpressionStatement && ((JsExpressionStatement) statement).getExpression() instanceof JsFunction;
-                /*
-                * Special treatment of the last statement in a block: only a few
-                * statements at the end of a block require semicolons.
-                */
-                boolean lastStatement = !iterator.hasNext() && needBraces && !JsRequiresSemiVisitor.exec(statement);
-                if (functionStmt) {
-                    if (lastStatement) {
-                        newlineOpt();
-                    }
-                    else {
-                        newline();
-                    }
-                }
-                else {
-                    if (lastStatement) {
-                        p.printOpt(';');
-                    }
-                    else {
-                        semi();
-                    }
-                    newlineOpt();
-                }
+        }
+        else {
+            List<JsStatement> statements = x.getStatements();
+            for (int i = 0; i < statements.size(); i++) {
+                printBlockStatement(x, statements.get(i), i == statements.size() - 1, needBraces);
             }
         }
 
@@ -1210,6 +1191,115 @@ public class JsToStringGenerationVisitor extends JsVisitor {
         sourceLocationConsumer.popSourceInfo();
     }
 
+    private void printBlockStatement(JsBlock x, JsStatement statement, boolean isLast, boolean needBraces) {
+        boolean isGlobal = x.isGlobalBlock() || globalBlocks.contains(x);
+
+        if (statement instanceof JsEmpty) {
+            return;
+        }
+
+        needSemi = true;
+        boolean stmtIsGlobalBlock = false;
+        if (isGlobal) {
+            if (statement instanceof JsBlock) {
+                // A block inside a global block is still considered global
+                stmtIsGlobalBlock = true;
+                globalBlocks.add((JsBlock) statement);
+            }
+        }
+
+        accept(statement);
+        if (stmtIsGlobalBlock) {
+            //noinspection SuspiciousMethodCalls
+            globalBlocks.remove(statement);
+        }
+        if (needSemi) {
+            /*
+            * Special treatment of function declarations: If they are the only item in a
+            * statement (i.e. not part of an assignment operation), just give them
+            * a newline instead of a semi.
+            */
+            boolean functionStmt =
+                    statement instanceof JsExpressionStatement && ((JsExpressionStatement) statement).getExpression() instanceof JsFunction;
+            /*
+            * Special treatment of the last statement in a block: only a few
+            * statements at the end of a block require semicolons.
+            */
+            boolean lastStatement = isLast && needBraces && !JsRequiresSemiVisitor.exec(statement);
+            if (functionStmt) {
+                if (lastStatement) {
+                    newlineOpt();
+                }
+                else {
+                    newline();
+                }
+            }
+            else {
+                if (lastStatement) {
+                    p.printOpt(';');
+                }
+                else {
+                    semi();
+                }
+                newlineOpt();
+            }
+        }
+    }
+
+    private void printStatementsInParallel(JsBlock x, boolean needBraces, ExecutorService executor) {
+        List<JsStatement> statements = x.getStatements();
+        boolean compact = p.isCompact();
+        ArrayDeque<Future<JsToStringGenerationVisitor>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            while (submitted < statements.size() && pending.size() < maxPendingStatements) {
+                JsStatement statement = statements.get(submitted);
+                boolean isLast = submitted == statements.size() - 1;
+                submitted++;
+                if (statement instanceof JsEmpty) {
+                    pending.addLast(CompletableFuture.completedFuture(null));
+                    continue;
+                }
+                Set<JsBlock> globalBlocksSnapshot = new THashSet<>(globalBlocks);
+                pending.addLast(executor.submit(() -> {
+                    RecordingOutput output = new RecordingOutput(compact);
+                    JsToStringGenerationVisitor visitor = new JsToStringGenerationVisitor(output, output);
+                    visitor.globalBlocks = globalBlocksSnapshot;
+                    visitor.printBlockStatement(x, statement, isLast, needBraces);
+                    return visitor;
+                }));
+            }
+
+            JsToStringGenerationVisitor visitor = getPrintedStatement(pending.removeFirst());
+            if (visitor == null) continue;
+            if (!lineBreakAfterBlock) {
+                // The statement was printed in a different state, so it's printed again
+                printBlockStatement(x, statements.get(i), i == statements.size() - 1, needBraces);
+                continue;
+            }
+            ((RecordingOutput) visitor.p).replay(p, sourceLocationConsumer);
+            needSemi = visitor.needSemi;
+            lineBreakAfterBlock = visitor.lineBreakAfterBlock;
+        }
+    }
+
+    @Nullable
+    private static JsToStringGenerationVisitor getPrintedStatement(@NotNull Future<JsToStringGenerationVisitor> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
     private void assignment() {
         p.print('=');
     }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.backend
+
+import org.jetbrains.kotlin.js.util.TextOutput
+
+/**
+ * Records the calls made to a [TextOutput] and a [SourceLocationConsumer] while printing a part of a program, so that they can be
+ * replayed later into the real ones. Statements printed on different threads into such outputs and replayed in order produce
+ * exactly the same text and source map as if they were printed sequentially.
+ *
+ * Consecutive `print` calls are recorded as one chunk of text. Positions in the real output are not known before the replay, so they
+ * can't be read from a recording. Consumers which need them, like the source map builder, read them from the real output when the
+ * recorded source location events are replayed.
+ */
+internal class RecordingOutput(private val compact: Boolean) : TextOutput, SourceLocationConsumer {
+    private val text = StringBuilder()
+
+    // Pairs of (operation, offset in text at which the operation was recorded)
+    private var operations = IntArray(64)
+    private var operationCount = 0
+    private var isPrinting = false
+
+    private val sourceInfos = ArrayList<Any?>()
+
+    fun replay(output: TextOutput, consumer: SourceLocationConsumer) {
+        var nextSourceInfo = 0
+        for (i in 0 until operationCount) {
+            val offset = operations[2 * i + 1]
+            when (operations[2 * i]) {
+                PRINT -> {
+                    val end = if (i + 1 < operationCount) operations[2 * i + 3] else text.length
+                    output.print(text.subSequence(offset, end))
+                }
+                NEWLINE -> output.newline()
+                INDENT_IN -> output.indentIn()
+                INDENT_OUT -> output.indentOut()
+                MAYBE_INDENT -> output.maybeIndent()
+                CONSUMER_NEWLINE -> consumer.newLine()
+                PUSH_SOURCE_INFO -> consumer.pushSourceInfo(sourceInfos[nextSourceInfo++])
+                POP_SOURCE_INFO -> consumer.popSourceInfo()
+            }
+        }
+    }
+
+    private fun record(operation: Int) {
+        if (2 * operationCount == operations.size) {
+            operations = operations.copyOf(operations.size * 2)
+        }
+        operations[2 * operationCount] = operation
+        operations[2 * operationCount + 1] = text.length
+        operationCount++
+        isPrinting = operation == PRINT
+    }
+
+    private fun startPrinting() {
+        if (!isPrinting) {
+            record(PRINT)
+        }
+    }
+
+    override fun getPosition(): Int = throw IllegalStateException(POSITION_UNKNOWN)
+
+    override fun getLine(): Int = throw IllegalStateException(POSITION_UNKNOWN)
+
+    override fun getColumn(): Int = throw IllegalStateException(POSITION_UNKNOWN)
+
+    override fun isCompact(): Boolean = compact
+
+    override fun indentIn() = record(INDENT_IN)
+
+    override fun indentOut() = record(INDENT_OUT)
+
+    override fun newline() = record(NEWLINE)
+
+    override fun maybeIndent() = record(MAYBE_INDENT)
+
+    override fun print(c: Char) {
+        startPrinting()
+        text.append(c)
+    }
+
+    override fun print(v: Int) {
+        startPrinting()
+        text.append(v)
+    }
+
+    override fun print(v: Double) {
+        startPrinting()
+        text.append(v)
+    }
+
+    override fun print(s: CharArray) {
+        startPrinting()
+        text.append(s)
+    }
+
+    override fun print(s: CharSequence) {
+        startPrinting()
+        text.append(s)
+    }
+
+    override fun printOpt(c: Char) {
+        if (!compact) {
+            print(c)
+        }
+    }
+
+    override fun newLine() = record(CONSUMER_NEWLINE)
+
+    override fun pushSourceInfo(info: Any?) {
+        record(PUSH_SOURCE_INFO)
+        sourceInfos.add(info)
+    }
+
+    override fun popSourceInfo() = record(POP_SOURCE_INFO)
+
+    private companion object {
+        const val PRINT = 0
+        const val NEWLINE = 1
+        const val INDENT_IN = 2
+        const val INDENT_OUT = 3
+        const val MAYBE_INDENT = 4
+        const val CONSUMER_NEWLINE = 5
+        const val PUSH_SOURCE_INFO = 6
+        const val POP_SOURCE_INFO = 7
+
+        const val POSITION_UNKNOWN =
+            "Positions are not known while a statement is printed in parallel, read them from the output it is replayed into"
+    }
+}
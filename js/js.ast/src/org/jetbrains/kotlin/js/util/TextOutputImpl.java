@@ -4,15 +4,23 @@
 
 package org.jetbrains.kotlin.js.util;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 public class TextOutputImpl implements TextOutput {
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
     private final boolean compact;
     private int identLevel = 0;
     private final static int indentGranularity = 2;
     private char[][] indents = new char[][] {new char[0]};
     private boolean justNewlined;
     private final StringBuilder out;
+    private final Writer writer;
     private int position = 0;
     private int line = 0;
     private int column = 0;
@@ -28,10 +36,41 @@ public class TextOutputImpl implements TextOutput {
     public TextOutputImpl(boolean compact) {
         this.compact = compact;
         out = new StringBuilder();
+        writer = null;
+    }
+
+    /**
+     * Creates an output which passes the text to {@code writer} in chunks, so that the whole text is never held in memory.
+     * {@link #flush()} must be called after the text is printed. I/O errors are rethrown as {@link UncheckedIOException}.
+     */
+    public TextOutputImpl(boolean compact, @NotNull Writer writer) {
+        this.compact = compact;
+        out = new StringBuilder(FLUSH_THRESHOLD + FLUSH_THRESHOLD / 4);
+        this.writer = writer;
     }
 
+    /**
+     * Writes the buffered text to the writer passed to the constructor, if any.
+     */
+    public void flush() {
+        if (writer == null || out.length() == 0) return;
+        try {
+            writer.append(out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.setLength(0);
+    }
+
+    /**
+     * Returns the printed text. If the output passes the text to a writer, only a description of the output is returned.
+     */
     @Override
     public String toString() {
+        if (writer != null) {
+            return "TextOutputImpl(writer=" + writer + ", position=" + position + ", line=" + line + ", column=" + column + ")";
+        }
         return out.toString();
     }
 
@@ -76,6 +115,9 @@ public class TextOutputImpl implements TextOutput {
         line++;
         column = 0;
         justNewlined = true;
+        if (writer != null && out.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
     }
 
     @Override
@@ -37,6 +37,7 @@ import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
 import org.jetbrains.kotlin.js.util.TextOutputImpl
 import java.io.File
 import java.io.InputStreamReader
+import java.io.StringReader
 
 class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit) {
     val moduleMapping = mutableMapOf<JsBlock, String>()
@@ -75,10 +76,13 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
         fun run(
                 inputFiles: Collection<InputFile>,
                 rootReachableNames: Set<String>,
+                cacheDirectory: File? = null,
                 logConsumer: (DCELogLevel, String) -> Unit
         ): DeadCodeEliminationResult {
             val program = JsProgram()
             val dce = DeadCodeElimination(logConsumer)
+            val cache = cacheDirectory?.let { OutputCache(it, logConsumer) }
+            val fingerprints = mutableListOf<OutputCache.Fingerprint?>()
 
             var hasErrors = false
             val blocks = inputFiles.map { file ->
@@ -88,9 +92,10 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
                     hasErrors = true
                     return@map block
                 }
-                val sourceMapParse = file.sourceMapResource
+                val sourceMapText = file.sourceMapResource
                         ?.let { InputStreamReader(it.reader(), "UTF-8") }
-                        ?.use { SourceMapParser.parse(it) }
+                        ?.use { it.readText() }
+                val sourceMapParse = sourceMapText?.let { SourceMapParser.parse(StringReader(it)) }
                 when (sourceMapParse) {
                     is SourceMapError -> {
                         logConsumer(
@@ -104,6 +109,7 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
                     }
                 }
                 block.statements += statements
+                fingerprints += cache?.startFingerprint(file, code, sourceMapText, block)
                 file.moduleName?.let { dce.moduleMapping[block] = it }
                 block
             }
@@ -116,7 +122,14 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
             dce.reachableNames += rootReachableNames
             dce.apply(program.globalBlock)
 
-            for ((file, block) in inputFiles.zip(blocks)) {
+            for ((index, file) in inputFiles.withIndex()) {
+                val block = blocks[index]
+                val fingerprint = fingerprints[index]?.let { cache!!.finishFingerprint(it, block) }
+                if (fingerprint != null && cache!!.isUpToDate(file.outputPath, fingerprint)) {
+                    cache.put(file.outputPath, fingerprint)
+                    continue
+                }
+
                 val sourceMapFile = File(file.outputPath + ".map")
                 val textOutput = TextOutputImpl()
                 val sourceMapBuilder = SourceMap3Builder(File(file.outputPath), textOutput, "")
@@ -138,7 +151,10 @@ class DeadCodeElimination(private val logConsumer: (DCELogLevel, String) -> Unit
                 if (file.sourceMapResource != null) {
                     sourceMapFile.writeText(sourceMapContent)
                 }
+
+                fingerprint?.let { cache!!.put(file.outputPath, it) }
             }
+            cache?.save()
 
             return DeadCodeEliminationResult(dce.reachableNodes, DeadCodeEliminationStatus.OK)
         }
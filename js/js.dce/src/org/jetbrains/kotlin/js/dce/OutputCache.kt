@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.dce
+
+import org.jetbrains.kotlin.config.KotlinCompilerVersion
+import org.jetbrains.kotlin.js.backend.ast.*
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.*
+
+/**
+ * Remembers from what the output files were printed, so that outputs which would not change are not printed and written again
+ * on the next run.
+ *
+ * The fingerprint of an output covers the code and the source map of its input, the paths which affect the source map, and
+ * the set of statements which survived elimination. Reachability itself is computed for the whole program on every run,
+ * since a change in one input may affect which declarations of any other input are used.
+ */
+class OutputCache(directory: File, private val logConsumer: (DCELogLevel, String) -> Unit) {
+    private class Entry(val fingerprint: String, val length: Long, val lastModified: Long, val sourceMapLength: Long)
+
+    private val indexFile = File(directory, INDEX_FILE_NAME)
+    private val oldEntries = mutableMapOf<String, Entry>()
+    private val newEntries = mutableMapOf<String, Entry>()
+
+    init {
+        try {
+            if (indexFile.exists()) {
+                indexFile.forEachLine { line ->
+                    val parts = line.split('\t', limit = 5)
+                    if (parts.size == 5) {
+                        oldEntries[parts[4]] = Entry(parts[0], parts[1].toLong(), parts[2].toLong(), parts[3].toLong())
+                    }
+                }
+            }
+        }
+        catch (e: Exception) {
+            logConsumer(DCELogLevel.WARN, "Error reading DCE cache $indexFile: ${e.message}")
+            oldEntries.clear()
+        }
+    }
+
+    /**
+     * Starts the fingerprint of the output of [file]. Must be called before elimination, see [finishFingerprint].
+     */
+    fun startFingerprint(file: InputFile, code: String, sourceMap: String?, block: JsBlock): Fingerprint {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update("$FORMAT_VERSION\u0000${KotlinCompilerVersion.VERSION}\u0000".toByteArray(Charsets.UTF_8))
+        digest.update("${file.resource.name}\u0000${file.outputPath}\u0000${sourceMap != null}\u0000".toByteArray(Charsets.UTF_8))
+        digest.update(code.toByteArray(Charsets.UTF_8))
+        sourceMap?.let { digest.update(it.toByteArray(Charsets.UTF_8)) }
+
+        val candidates = IdentityHashMap<JsNode, Int>()
+        block.accept(object : CandidateVisitor() {
+            override fun visitCandidate(x: JsNode) {
+                candidates[x] = candidates.size
+            }
+        })
+        return Fingerprint(digest, candidates)
+    }
+
+    /**
+     * Completes the fingerprint with the statements of [block] which survived elimination. Only the statements known to
+     * the [Eliminator] can be removed from the AST, so the survivors together with the input determine the printed output.
+     */
+    fun finishFingerprint(fingerprint: Fingerprint, block: JsBlock): String {
+        val survivors = BitSet(fingerprint.candidates.size)
+        block.accept(object : CandidateVisitor() {
+            override fun visitCandidate(x: JsNode) {
+                fingerprint.candidates[x]?.let { survivors.set(it) }
+            }
+        })
+        fingerprint.digest.update(survivors.toByteArray())
+        return fingerprint.digest.digest().joinToString("") { String.format("%02x", it) }
+    }
+
+    fun isUpToDate(outputPath: String, fingerprint: String): Boolean {
+        val entry = oldEntries[outputPath] ?: return false
+        val outputFile = File(outputPath)
+        return entry.fingerprint == fingerprint &&
+               outputFile.length() == entry.length &&
+               outputFile.lastModified() == entry.lastModified &&
+               sourceMapLength(outputPath) == entry.sourceMapLength
+    }
+
+    fun put(outputPath: String, fingerprint: String) {
+        val outputFile = File(outputPath)
+        newEntries[outputPath] = Entry(fingerprint, outputFile.length(), outputFile.lastModified(), sourceMapLength(outputPath))
+    }
+
+    /**
+     * Writes the entries passed to [put] during this run. Entries of outputs which were not produced by this run are dropped.
+     */
+    fun save() {
+        try {
+            indexFile.parentFile.mkdirs()
+            indexFile.bufferedWriter().use { writer ->
+                for ((path, entry) in newEntries) {
+                    writer.write("${entry.fingerprint}\t${entry.length}\t${entry.lastModified}\t${entry.sourceMapLength}\t$path\n")
+                }
+            }
+        }
+        catch (e: IOException) {
+            logConsumer(DCELogLevel.WARN, "Error writing DCE cache $indexFile: ${e.message}")
+            indexFile.delete()
+        }
+    }
+
+    private fun sourceMapLength(outputPath: String): Long = File("$outputPath.map").let { if (it.exists()) it.length() else -1 }
+
+    class Fingerprint internal constructor(internal val digest: MessageDigest, internal val candidates: Map<JsNode, Int>)
+
+    private abstract class CandidateVisitor : RecursiveJsVisitor() {
+        abstract fun visitCandidate(x: JsNode)
+
+        override fun visit(x: JsVars.JsVar) {
+            visitCandidate(x)
+            super.visit(x)
+        }
+
+        override fun visitExpressionStatement(x: JsExpressionStatement) {
+            visitCandidate(x)
+            super.visitExpressionStatement(x)
+        }
+
+        override fun visitReturn(x: JsReturn) {
+            visitCandidate(x)
+            super.visitReturn(x)
+        }
+    }
+
+    companion object {
+        private const val FORMAT_VERSION = 1
+        private const val INDEX_FILE_NAME = "dce-outputs.txt"
+    }
+}
@@ -66,4 +66,7 @@ public class JSConfigurationKeys {
 
     public static final CompilerConfigurationKey<List<String>> FRIEND_PATHS =
             CompilerConfigurationKey.create("friend module paths");
+
+    public static final CompilerConfigurationKey<Integer> PARALLEL_PRINTING_THREADS =
+            CompilerConfigurationKey.create("number of threads to print the generated code on");
 }
@@ -18,7 +18,6 @@ package org.jetbrains.kotlin.js.inline
 
 import com.google.common.collect.HashMultimap
 import com.google.gwt.dev.js.ThrowExceptionOnErrorReporter
-import com.intellij.util.containers.SLRUCache
 import org.jetbrains.kotlin.builtins.isFunctionTypeOrSubtype
 import org.jetbrains.kotlin.descriptors.CallableDescriptor
 import org.jetbrains.kotlin.js.backend.ast.*
@@ -89,8 +88,26 @@ class FunctionReader(
     private val moduleNameToInfo by lazy {
         val result = HashMultimap.create<String, ModuleInfo>()
 
-        JsLibraryUtils.traverseJsLibraries(config.libraries.map(::File)) { (content, path, sourceMapContent, file) ->
+        for (library in config.libraries.map(::File)) {
+            val libraryModules = JsLibraryModuleCache.getOrLoad(library) { readModules(library) }
+
+            libraryModules.warnings.forEach { reporter.warning(it) }
+            for ((moduleName, moduleInfo) in libraryModules.modules) {
+                result.put(moduleName, moduleInfo)
+            }
+        }
+
+        result
+    }
+
+    private fun readModules(library: File): JsLibraryModuleCache.LibraryModules {
+        val modules = mutableListOf<Pair<String, ModuleInfo>>()
+        val warnings = mutableListOf<String>()
+        var weight = 0L
+
+        JsLibraryUtils.traverseJsLibrary(library) { (content, path, sourceMapContent, file) ->
             var current = 0
+            val moduleCount = modules.size
 
             while (true) {
                 var index = content.indexOf(DEFINE_MODULE_FIND_PATTERN, current)
@@ -118,7 +135,7 @@ class FunctionReader(
                     when (sourceMapResult) {
                         is SourceMapSuccess -> sourceMapResult.value
                         is SourceMapError -> {
-                            reporter.warning("Error parsing source map file for $path: ${sourceMapResult.message}")
+                            warnings += "Error parsing source map file for $path: ${sourceMapResult.message}"
                             null
                         }
                     }
@@ -135,11 +152,16 @@ class FunctionReader(
                     outputDir = file?.parentFile
                 )
 
-                result.put(moduleName, moduleInfo)
+                modules += moduleName to moduleInfo
+            }
+
+            // Only the contents of the files which define modules are kept
+            if (modules.size > moduleCount) {
+                weight += content.length + (sourceMapContent?.length ?: 0)
             }
         }
 
-        result
+        return JsLibraryModuleCache.LibraryModules(modules, warnings, weight)
     }
 
     private val shouldRemapPathToRelativeForm = config.shouldGenerateRelativePathsInSourceMap()
@@ -166,13 +188,12 @@ class FunctionReader(
 
     object NotFoundMarker
 
-    private val functionCache = object : SLRUCache<CallableDescriptor, Any>(50, 50) {
-        override fun createValue(key: CallableDescriptor): Any =
-            readFunction(key) ?: NotFoundMarker
-    }
+    // Every function is read at most once per compilation: a bounded cache made inlining-heavy modules parse the same functions
+    // over and over again, while the parsed functions take little memory compared to the library texts
+    private val functionCache = hashMapOf<CallableDescriptor, Any>()
 
     operator fun get(descriptor: CallableDescriptor, callsiteFragment: JsProgramFragment): FunctionWithWrapper? {
-        return functionCache.get(descriptor).let {
+        return functionCache.getOrPut(descriptor) { readFunction(descriptor) ?: NotFoundMarker }.let {
             if (it === NotFoundMarker) null else {
                 val (fn, info) = it as Pair<*, *>
                 renameModules(descriptor, (fn as FunctionWithWrapper).deepCopy(), info as ModuleInfo, callsiteFragment)
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.inline
+
+import com.intellij.openapi.util.io.FileUtil
+import java.io.File
+
+/**
+ * Keeps Kotlin modules found in JS library archives, together with their parsed source maps, between compilations in the same
+ * process (e.g. in the daemon), so that the same archive is not read, scanned and its source map parsed again for every module
+ * which inlines functions from it.
+ *
+ * Archives are identified by path, length and modification time. Other libraries (directories and single .js files) are always
+ * read again: the length and modification time of a directory don't change when a file in it is edited, and stamping every file
+ * would cost about as much as reading them. The total length of the cached library and source map texts is bounded; least
+ * recently used archives are evicted first.
+ */
+object JsLibraryModuleCache {
+    class LibraryModules(
+        val modules: List<Pair<String, FunctionReader.ModuleInfo>>,
+        val warnings: List<String>,
+        internal val weight: Long
+    )
+
+    private const val MAX_WEIGHT = 128L * 1024 * 1024
+
+    private data class Key(val path: String, val length: Long, val lastModified: Long)
+
+    private val cache = LinkedHashMap<Key, LibraryModules>(16, 0.75f, true)
+    private var totalWeight = 0L
+
+    fun getOrLoad(library: File, load: () -> LibraryModules): LibraryModules {
+        if (!library.isFile || !FileUtil.isJarOrZip(library)) return load()
+
+        val key = Key(library.absolutePath, library.length(), library.lastModified())
+        synchronized(this) {
+            cache[key]?.let { return it }
+        }
+
+        // Loading happens outside of the lock: reading a library can take a while, and a concurrent load of the same one is harmless
+        val value = load()
+
+        synchronized(this) {
+            cache.put(key, value)?.let { totalWeight -= it.weight }
+            totalWeight += value.weight
+
+            val iterator = cache.values.iterator()
+            // The most recently added value is always kept, even if it alone exceeds the limit
+            while (totalWeight > MAX_WEIGHT && cache.size > 1) {
+                totalWeight -= iterator.next().weight
+                iterator.remove()
+            }
+        }
+        return value
+    }
+
+    @Synchronized
+    fun clear() {
+        cache.clear()
+        totalWeight = 0
+    }
+}
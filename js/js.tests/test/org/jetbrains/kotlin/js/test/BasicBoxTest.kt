@@ -12,6 +12,7 @@ import com.intellij.openapi.vfs.StandardFileSystems
 import com.intellij.openapi.vfs.VirtualFileManager
 import com.intellij.psi.PsiManager
 import junit.framework.TestCase
+import org.jetbrains.kotlin.backend.common.output.OutputFileCollection
 import org.jetbrains.kotlin.checkers.CompilerTestLanguageVersionSettings
 import org.jetbrains.kotlin.checkers.parseLanguageVersionSettings
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
@@ -475,6 +476,8 @@ abstract class BasicBoxTest(
         val outputFiles = translationResult.getOutputFiles(outputFile, outputPrefixFile, outputPostfixFile)
         val outputDir = outputFile.parentFile ?: error("Parent file for output file should not be null, outputFilePath: " + outputFile.path)
         outputFiles.writeAllTo(outputDir)
+        checkStreamedOutput(translationResult, outputFile, outputPrefixFile, outputPostfixFile, outputFiles)
+        checkParallelPrinting(translationResult, config, outputFile, outputPrefixFile, outputPostfixFile, outputFiles)
 
         if (config.moduleKind != ModuleKind.PLAIN) {
             val content = FileUtil.loadFile(outputFile, true)
@@ -496,6 +499,66 @@ abstract class BasicBoxTest(
         checkSourceMap(outputFile, translationResult.program, remap)
     }
 
+    // The compiler writes the code and the source map as they are printed, which must give the same files as printing them in memory
+    private fun checkStreamedOutput(
+        translationResult: TranslationResult.Success,
+        outputFile: File,
+        outputPrefixFile: File?,
+        outputPostfixFile: File?,
+        expectedOutputFiles: OutputFileCollection
+    ) {
+        val streamedOutputDir = File(outputFile.parentFile, "streamed")
+        val streamedOutputFile = File(streamedOutputDir, outputFile.name)
+        try {
+            translationResult.writeCodeAndSourceMap(streamedOutputFile, outputPrefixFile, outputPostfixFile, report = null)
+            val streamedFiles = listOf(streamedOutputFile, File(streamedOutputFile.path + ".map"))
+            for (file in streamedFiles) {
+                val expected = expectedOutputFiles.get(file.name) ?: error("No output file ${file.name}")
+                assertEquals("Streamed ${file.name} differs", expected.asText(), file.readText())
+            }
+
+            // A failure after a part of the code is written must leave the files of the previous run as they are
+            val missingPostfixFile = File(streamedOutputDir, "missing-postfix.js")
+            try {
+                translationResult.writeCodeAndSourceMap(streamedOutputFile, outputPrefixFile, missingPostfixFile, report = null)
+                fail("Writing with a missing postfix file must fail")
+            }
+            catch (e: IOException) {
+            }
+            for (file in streamedFiles) {
+                assertEquals("${file.name} is changed by a failed run", expectedOutputFiles.get(file.name)!!.asText(), file.readText())
+            }
+            assertEquals(streamedFiles.map { it.name }.toSet(), streamedOutputDir.list()!!.toSet())
+        }
+        finally {
+            streamedOutputDir.deleteRecursively()
+        }
+    }
+
+    // -Xparallel-printing must give exactly the same code and source map as sequential printing
+    private fun checkParallelPrinting(
+        translationResult: TranslationResult.Success,
+        config: JsConfig,
+        outputFile: File,
+        outputPrefixFile: File?,
+        outputPostfixFile: File?,
+        expectedOutputFiles: OutputFileCollection
+    ) {
+        config.configuration.put(JSConfigurationKeys.PARALLEL_PRINTING_THREADS, 4)
+        val outputFiles = try {
+            translationResult.getOutputFiles(outputFile, outputPrefixFile, outputPostfixFile)
+        }
+        finally {
+            config.configuration.put(JSConfigurationKeys.PARALLEL_PRINTING_THREADS, 1)
+        }
+
+        for (name in listOf(outputFile.name, outputFile.name + ".map")) {
+            val expected = expectedOutputFiles.get(name) ?: error("No output file $name")
+            val actual = outputFiles.get(name) ?: error("No output file $name printed in parallel")
+            assertEquals("$name printed in parallel differs", expected.asText(), actual.asText())
+        }
+    }
+
     protected fun wrapWithModuleEmulationMarkers(
         content: String,
         moduleKind: ModuleKind,
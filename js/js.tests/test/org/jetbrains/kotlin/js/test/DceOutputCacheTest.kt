@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.js.dce.DeadCodeElimination
+import org.jetbrains.kotlin.js.dce.InputFile
+import org.jetbrains.kotlin.js.dce.InputResource
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import java.io.File
+
+class DceOutputCacheTest : TestCase() {
+    private lateinit var workDir: File
+
+    override fun setUp() {
+        super.setUp()
+        workDir = KotlinTestUtils.tmpDirForTest(this)
+    }
+
+    fun testCachedRunsProduceSameOutputAsCleanRun() {
+        val inputDir = File(workDir, "input").apply { mkdirs() }
+        File(inputDir, "lib.js").writeText(LIB)
+        File(inputDir, "main.js").writeText(mainCalling("foo"))
+
+        val cacheDir = File(workDir, "cache")
+        val cachedOutput = File(workDir, "cached")
+
+        val expected = runClean(inputDir, File(workDir, "clean1"))
+        assertEquals(expected, runDce(inputDir, cachedOutput, cacheDir))
+        // The second run finds everything up to date in the cache
+        assertEquals(expected, runDce(inputDir, cachedOutput, cacheDir))
+
+        // A change in main.js changes which declarations of lib.js are reachable, so the output of lib.js changes too
+        File(inputDir, "main.js").writeText(mainCalling("bar"))
+        val expectedAfterChange = runClean(inputDir, File(workDir, "clean2"))
+        assertFalse(expected["lib.js"] == expectedAfterChange["lib.js"])
+        assertEquals(expectedAfterChange, runDce(inputDir, cachedOutput, cacheDir))
+        assertEquals(expectedAfterChange, runDce(inputDir, cachedOutput, cacheDir))
+    }
+
+    fun testOutputModifiedOutsideOfDceIsWrittenAgain() {
+        val inputDir = File(workDir, "input").apply { mkdirs() }
+        File(inputDir, "lib.js").writeText(LIB)
+        File(inputDir, "main.js").writeText(mainCalling("foo"))
+
+        val cacheDir = File(workDir, "cache")
+        val cachedOutput = File(workDir, "cached")
+
+        val expected = runDce(inputDir, cachedOutput, cacheDir)
+        File(cachedOutput, "lib.js").writeText("garbage")
+        assertEquals(expected, runDce(inputDir, cachedOutput, cacheDir))
+    }
+
+    private fun runClean(inputDir: File, outputDir: File): Map<String, String> = runDce(inputDir, outputDir, null)
+
+    private fun runDce(inputDir: File, outputDir: File, cacheDir: File?): Map<String, String> {
+        val inputFiles = listOf("lib", "main").map { name ->
+            InputFile(InputResource.file(File(inputDir, "$name.js").path), null, File(outputDir, "$name.js").path, name)
+        }
+        DeadCodeElimination.run(inputFiles, setOf("main.main"), cacheDir) { _, _ -> }
+        return inputFiles.associate { File(it.outputPath).name to File(it.outputPath).readText() }
+    }
+
+    private fun mainCalling(function: String) = """
+        (function(_, lib) {
+            function main() {
+                return lib.$function();
+            }
+            _.main = main;
+        })(module.exports, require("lib"));
+    """.trimIndent()
+
+    companion object {
+        private val LIB = """
+            (function(_) {
+                function foo() {
+                    return "foo";
+                }
+                function bar() {
+                    return "bar";
+                }
+                _.foo = foo;
+                _.bar = bar;
+            })(module.exports);
+        """.trimIndent()
+    }
+}
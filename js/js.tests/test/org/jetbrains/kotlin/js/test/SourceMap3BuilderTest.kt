@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapParser
+import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapSegment
+import org.jetbrains.kotlin.js.parser.sourcemaps.SourceMapSuccess
+import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
+import org.jetbrains.kotlin.js.util.TextOutputImpl
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import java.io.File
+import java.io.Reader
+import java.io.StringReader
+import java.util.function.Supplier
+
+class SourceMap3BuilderTest : TestCase() {
+    // The reference map was written by the builder which encoded mappings into a StringBuilder and kept sources in a Trove map
+    fun testReference() {
+        val output = TextOutputImpl()
+        val builder = SourceMap3Builder(File("out/reference.js"), output, "../src/")
+        builder.skipLinesAtBeginning(3)
+
+        fun content(text: String?) = Supplier<Reader?> { text?.let(::StringReader) }
+        fun map(text: String, source: String, line: Int, column: Int, identity: Any? = null, sourceContent: String? = null) {
+            builder.addMapping(source, identity, content(sourceContent), line, column)
+            output.print(text)
+        }
+        fun newLine() {
+            output.newline()
+            builder.newLine()
+        }
+
+        // Sources with and without content, the same path with another identity object, and sources used again after others
+        map("var a = ", "a.kt", 0, 0, sourceContent = "val a = 1\nval b = a")
+        map("1;", "a.kt", 0, 8)
+        builder.addEmptyMapping()
+        output.print(" ")
+        map("var b = a;", "a.kt", 1, 0)
+        newLine()
+        map("function f() {", "dir/b.kt", 10, 4)
+        newLine()
+        output.print("  ")
+        // Negative deltas of the source index, line and column
+        map("return ", "a.kt", 0, 2)
+        // The same position again is not written twice
+        map("g(", "a.kt", 0, 2)
+        map("x", "dir/b.kt", 200000, 3)
+        map(")", "dir/b.kt", 5, 1)
+        // Two mappings at the same column: the last one wins
+        builder.addMapping("c.kt", "first", content("fun c() {}"), 7, 7)
+        map(";", "c.kt", 8, 8, identity = "second")
+        newLine()
+        map("}", "c.kt", 0, 0, identity = "first")
+        builder.addEmptyMapping()
+        builder.addEmptyMapping()
+        newLine()
+        newLine()
+        // A line with a large column, then the same source with a platform-specific separator
+        output.print(" ".repeat(5000))
+        map("h();", "dir${File.separator}b.kt", 3, 1000)
+        map("", "a.kt", 1, 0)
+        newLine()
+
+        val json = builder.build()
+        KotlinTestUtils.assertEqualsToFile(File("js/js.translator/testData/sourceMapBuilder/reference.js.map"), json)
+
+        val sourceMap = (SourceMapParser.parse(StringReader(json)) as SourceMapSuccess).value
+        assertEquals(10, sourceMap.groups.size)
+        assertEquals(
+            listOf(
+                SourceMapSegment(2, "../src/a.kt", 0, 2),
+                SourceMapSegment(11, "../src/dir/b.kt", 200000, 3),
+                SourceMapSegment(12, "../src/dir/b.kt", 5, 1),
+                SourceMapSegment(13, "../src/c.kt", 8, 8)
+            ),
+            sourceMap.groups[5].segments
+        )
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license
+ * that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.js.test
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.js.parser.sourcemaps.*
+import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
+import org.jetbrains.kotlin.js.util.TextOutput
+import org.jetbrains.kotlin.js.util.TextOutputImpl
+import java.io.File
+import java.io.Reader
+import java.io.StringReader
+import java.io.StringWriter
+import java.util.function.Supplier
+
+class StreamedOutputTest : TestCase() {
+    fun testTextOutput() {
+        doTestTextOutput(compact = false)
+    }
+
+    fun testCompactTextOutput() {
+        doTestTextOutput(compact = true)
+    }
+
+    private fun doTestTextOutput(compact: Boolean) {
+        val inMemory = TextOutputImpl(compact)
+        val writer = StringWriter()
+        val streamed = TextOutputImpl(compact, writer)
+
+        // Several times the size of the chunks passed to the writer
+        for (i in 0 until 20000) {
+            for (output in listOf(inMemory, streamed)) {
+                printStatement(output, i)
+            }
+            assertEquals(inMemory.position, streamed.position)
+            assertEquals(inMemory.line, streamed.line)
+            assertEquals(inMemory.column, streamed.column)
+        }
+        streamed.flush()
+
+        assertEquals(inMemory.toString(), writer.toString())
+        assertTrue(streamed.toString().startsWith("TextOutputImpl("))
+    }
+
+    private fun printStatement(output: TextOutput, i: Int) {
+        output.print("function f$i() {")
+        output.indentIn()
+        output.newline()
+        output.maybeIndent()
+        output.print("return ")
+        output.print(i)
+        output.print(" + ")
+        output.print(i / 8.0)
+        output.print(charArrayOf(' ', '+', ' '))
+        output.print('"')
+        output.print("ü")
+        output.print('"')
+        output.printOpt(';')
+        output.indentOut()
+        output.newline()
+        output.maybeIndent()
+        output.print('}')
+        if (i % 3 == 0) {
+            output.newline()
+        }
+    }
+
+    fun testSourceMap() {
+        val output = TextOutputImpl()
+        val builder = SourceMap3Builder(File("out/test.js"), output, "prefix/")
+        builder.skipLinesAtBeginning(2)
+
+        val content = "fun main() {\n\t\"ü\\\"\n}"
+        for (line in 0 until 1000) {
+            output.print("x")
+            builder.addMapping("src/a.kt", null, Supplier<Reader> { StringReader(content) }, line, 1)
+            output.print(" = \"q\";")
+            builder.addMapping("src/b\"quoted\".kt", null, Supplier<Reader?> { null }, line, 4)
+            output.print(" ")
+            builder.addEmptyMapping()
+            output.newline()
+            builder.newLine()
+        }
+
+        val writer = StringWriter()
+        builder.build(writer)
+        val json = writer.toString()
+        assertEquals(builder.build(), json)
+
+        // The source map is written by hand, so check that it's the same as the one JsonObject would write
+        val parsed = parseJson(json) as JsonObject
+        assertEquals(parsed.toString(), json)
+        assertEquals(listOf("version", "file", "sources", "sourcesContent", "names", "mappings"), parsed.properties.keys.toList())
+        assertEquals(JsonNumber(3.0), parsed.properties["version"])
+        assertEquals(JsonString("test.js"), parsed.properties["file"])
+        assertEquals(JsonArray(JsonString("prefix/src/a.kt"), JsonString("prefix/src/b\"quoted\".kt")), parsed.properties["sources"])
+        assertEquals(JsonArray(JsonString(content), JsonNull), parsed.properties["sourcesContent"])
+        assertEquals(JsonArray(), parsed.properties["names"])
+
+        val sourceMap = (SourceMapParser.parse(StringReader(json)) as SourceMapSuccess).value
+        // Two skipped lines, the printed lines and the empty last line
+        assertEquals(1003, sourceMap.groups.size)
+        assertTrue(sourceMap.groups[0].segments.isEmpty() && sourceMap.groups[1].segments.isEmpty())
+        assertTrue(sourceMap.groups.subList(2, 1002).all { it.segments.size == 3 })
+    }
+}
@@ -43,7 +43,10 @@ import org.jetbrains.kotlin.serialization.js.KotlinJavascriptSerializationUtil
 import org.jetbrains.kotlin.utils.JsMetadataVersion
 import org.jetbrains.kotlin.utils.KotlinJavascriptMetadataUtils
 import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
 import java.util.*
+import java.util.concurrent.Executors
 
 abstract class TranslationResult protected constructor(val diagnostics: Diagnostics) {
     class Fail(diagnostics: Diagnostics) : TranslationResult(diagnostics)
@@ -68,20 +71,7 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
             val output = TextOutputImpl()
 
             val sourceMapBuilder = SourceMap3Builder(outputFile, output, config.sourceMapPrefix)
-            val sourceMapBuilderConsumer =
-                    if (config.configuration.getBoolean(JSConfigurationKeys.SOURCE_MAP)) {
-                        val sourceMapContentEmbedding = config.sourceMapContentEmbedding
-                        val pathResolver = SourceFilePathResolver.create(config)
-                        SourceMapBuilderConsumer(
-                                File("."),
-                                sourceMapBuilder,
-                                pathResolver,
-                                sourceMapContentEmbedding == SourceMapSourceEmbedding.ALWAYS,
-                                sourceMapContentEmbedding != SourceMapSourceEmbedding.NEVER)
-                    }
-                    else {
-                        null
-                    }
+            val sourceMapBuilderConsumer = createSourceMapBuilderConsumer(sourceMapBuilder)
 
             getCode(output, sourceMapBuilderConsumer)
             if (sourceMapBuilderConsumer != null) {
@@ -91,40 +81,12 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
 
             val prefix = outputPrefixFile?.readText() ?: ""
             val postfix = outputPostfixFile?.readText() ?: ""
-            val sourceFiles = files.map {
-                val virtualFile = it.originalFile.virtualFile
-
-                when {
-                    virtualFile == null -> File(it.name)
-                    else -> VfsUtilCore.virtualToIoFile(virtualFile)
-                }
-            }
+            val sourceFiles = sourceFiles()
 
             val jsFile = SimpleOutputFile(sourceFiles, outputFile.name, prefix + code + postfix)
             val outputFiles = arrayListOf<OutputFile>(jsFile)
 
-            if (config.configuration.getBoolean(JSConfigurationKeys.META_INFO)) {
-                val metaFileName = KotlinJavascriptMetadataUtils.replaceSuffix(outputFile.name)
-                val moduleDescription = JsModuleDescriptor(
-                    name = config.moduleId,
-                    data = moduleDescriptor,
-                    kind = config.moduleKind,
-                    imported = importedModules
-                )
-                val serializedMetadata = KotlinJavascriptSerializationUtil.serializeMetadata(
-                    bindingContext, moduleDescription,
-                    config.configuration.languageVersionSettings,
-                    config.configuration.get(CommonConfigurationKeys.METADATA_VERSION) as? JsMetadataVersion ?: JsMetadataVersion.INSTANCE
-                )
-                val metaFileContent = serializedMetadata.asString()
-                val sourceFilesForMetaFile = ArrayList(sourceFiles)
-                val jsMetaFile = SimpleOutputFile(sourceFilesForMetaFile, metaFileName, metaFileContent)
-                outputFiles.add(jsMetaFile)
-
-                for (serializedPackage in serializedMetadata.serializedPackages()) {
-                    outputFiles.add(kjsmFileForPackage(serializedPackage.fqName, serializedPackage.bytes))
-                }
-            }
+            addMetadataFiles(outputFile, sourceFiles, outputFiles)
 
             if (sourceMapBuilderConsumer != null) {
                 sourceMapBuilder.skipLinesAtBeginning(StringUtil.getLineBreakCount(prefix))
@@ -136,6 +98,119 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
             return SimpleOutputFileCollection(outputFiles)
         }
 
+        /**
+         * Writes the generated code to [outputFile] and the source map next to it as they are printed, instead of collecting
+         * them in memory as [getOutputFiles] does. [report] is called for each written file.
+         *
+         * The files are written to temporary files in the same directory, which replace the output files only when both are
+         * written. So if the translation fails, no truncated file is left and the output of the previous compilation is kept.
+         * The code is moved into place before the source map, so that an old `.js` file never refers to a new source map.
+         *
+         * @return the remaining output files (metadata), which are small and should be written by the caller
+         */
+        fun writeCodeAndSourceMap(
+            outputFile: File,
+            outputPrefixFile: File?,
+            outputPostfixFile: File?,
+            report: ((sources: List<File>, output: File) -> Unit)?
+        ): OutputFileCollection {
+            val sourceFiles = sourceFiles()
+
+            outputFile.absoluteFile.parentFile?.mkdirs()
+            val tempOutputFile = tempFileFor(outputFile)
+            val writer = tempOutputFile.bufferedWriter(bufferSize = OUTPUT_BUFFER_SIZE)
+            val output = TextOutputImpl(false, writer)
+            val sourceMapBuilder = SourceMap3Builder(outputFile, output, config.sourceMapPrefix)
+            val sourceMapBuilderConsumer = createSourceMapBuilderConsumer(sourceMapBuilder)
+            val sourceMapFile = sourceMapBuilder.outFile
+            val tempSourceMapFile = tempFileFor(sourceMapFile)
+
+            try {
+                writer.use {
+                    val prefix = outputPrefixFile?.readText() ?: ""
+                    writer.write(prefix)
+                    sourceMapBuilder.skipLinesAtBeginning(StringUtil.getLineBreakCount(prefix))
+
+                    getCode(output, sourceMapBuilderConsumer)
+                    if (sourceMapBuilderConsumer != null) {
+                        sourceMapBuilder.addLink()
+                    }
+                    output.flush()
+
+                    outputPostfixFile?.let { writer.write(it.readText()) }
+                }
+
+                if (sourceMapBuilderConsumer != null) {
+                    tempSourceMapFile.bufferedWriter(bufferSize = OUTPUT_BUFFER_SIZE).use { sourceMapBuilder.build(it) }
+                }
+
+                Files.move(tempOutputFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                if (sourceMapBuilderConsumer != null) {
+                    Files.move(tempSourceMapFile.toPath(), sourceMapFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                }
+            } finally {
+                // Only the files which weren't moved into place are left, i.e. after a failure
+                tempOutputFile.delete()
+                tempSourceMapFile.delete()
+            }
+
+            report?.invoke(sourceFiles, outputFile)
+            if (sourceMapBuilderConsumer != null) {
+                report?.invoke(sourceFiles, sourceMapFile)
+            }
+
+            return SimpleOutputFileCollection(arrayListOf<OutputFile>().also { addMetadataFiles(outputFile, sourceFiles, it) })
+        }
+
+        private fun tempFileFor(file: File): File = File(file.absoluteFile.parentFile, file.name + ".tmp")
+
+        private fun createSourceMapBuilderConsumer(sourceMapBuilder: SourceMap3Builder): SourceMapBuilderConsumer? {
+            if (!config.configuration.getBoolean(JSConfigurationKeys.SOURCE_MAP)) return null
+
+            val sourceMapContentEmbedding = config.sourceMapContentEmbedding
+            val pathResolver = SourceFilePathResolver.create(config)
+            return SourceMapBuilderConsumer(
+                    File("."),
+                    sourceMapBuilder,
+                    pathResolver,
+                    sourceMapContentEmbedding == SourceMapSourceEmbedding.ALWAYS,
+                    sourceMapContentEmbedding != SourceMapSourceEmbedding.NEVER)
+        }
+
+        private fun sourceFiles(): List<File> = files.map {
+            val virtualFile = it.originalFile.virtualFile
+
+            when {
+                virtualFile == null -> File(it.name)
+                else -> VfsUtilCore.virtualToIoFile(virtualFile)
+            }
+        }
+
+        private fun addMetadataFiles(outputFile: File, sourceFiles: List<File>, outputFiles: MutableList<OutputFile>) {
+            if (!config.configuration.getBoolean(JSConfigurationKeys.META_INFO)) return
+
+            val metaFileName = KotlinJavascriptMetadataUtils.replaceSuffix(outputFile.name)
+            val moduleDescription = JsModuleDescriptor(
+                name = config.moduleId,
+                data = moduleDescriptor,
+                kind = config.moduleKind,
+                imported = importedModules
+            )
+            val serializedMetadata = KotlinJavascriptSerializationUtil.serializeMetadata(
+                bindingContext, moduleDescription,
+                config.configuration.languageVersionSettings,
+                config.configuration.get(CommonConfigurationKeys.METADATA_VERSION) as? JsMetadataVersion ?: JsMetadataVersion.INSTANCE
+            )
+            val metaFileContent = serializedMetadata.asString()
+            val sourceFilesForMetaFile = ArrayList(sourceFiles)
+            val jsMetaFile = SimpleOutputFile(sourceFilesForMetaFile, metaFileName, metaFileContent)
+            outputFiles.add(jsMetaFile)
+
+            for (serializedPackage in serializedMetadata.serializedPackages()) {
+                outputFiles.add(kjsmFileForPackage(serializedPackage.fqName, serializedPackage.bytes))
+            }
+        }
+
         private fun kjsmFileForPackage(packageFqName: FqName, bytes: ByteArray): SimpleOutputBinaryFile {
             val ktFiles = (bindingContext.get(BindingContext.PACKAGE_TO_FILES, packageFqName) ?: emptyList())
             val sourceFiles = ktFiles.map { VfsUtilCore.virtualToIoFile(it.virtualFile) }
@@ -146,7 +221,25 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
         }
 
         private fun getCode(output: TextOutput, sourceLocationConsumer: SourceLocationConsumer?) {
-            program.accept(JsToStringGenerationVisitor(output, sourceLocationConsumer ?: NoOpSourceLocationConsumer))
+            val visitor = JsToStringGenerationVisitor(output, sourceLocationConsumer ?: NoOpSourceLocationConsumer)
+            val threads = config.configuration.get(JSConfigurationKeys.PARALLEL_PRINTING_THREADS) ?: 1
+            if (threads <= 1) {
+                program.accept(visitor)
+                return
+            }
+
+            val executor = Executors.newFixedThreadPool(threads)
+            try {
+                visitor.setParallelExecutor(executor, threads)
+                program.accept(visitor)
+            }
+            finally {
+                executor.shutdownNow()
+            }
+        }
+
+        private companion object {
+            const val OUTPUT_BUFFER_SIZE = 64 * 1024
         }
     }
 }
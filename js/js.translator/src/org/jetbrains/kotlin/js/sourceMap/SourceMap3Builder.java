@@ -16,33 +16,31 @@
 
 package org.jetbrains.kotlin.js.sourceMap;
 
-import com.intellij.openapi.util.text.StringUtil;
-import gnu.trove.TObjectIntHashMap;
 import kotlin.io.TextStreamsKt;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.js.parser.sourcemaps.*;
 import org.jetbrains.kotlin.js.util.TextOutput;
 
-import java.io.File;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.util.*;
 import java.util.function.Supplier;
 
 public class SourceMap3Builder implements SourceMapBuilder {
-    private final StringBuilder out = new StringBuilder(8192);
+    // Mappings consist of ASCII characters only; they are encoded directly into this buffer
+    private char[] out = new char[8192];
+    private int outLength;
+
     private final File generatedFile;
     private final TextOutput textOutput;
     private final String pathPrefix;
 
-    private final TObjectIntHashMap<SourceKey> sources = new TObjectIntHashMap<SourceKey>() {
-        @Override
-        public int get(SourceKey key) {
-            int index = index(key);
-            return index < 0 ? -1 : _values[index];
-        }
-    };
+    // Sources with the same path and different identity objects are chained, which is rare. Consecutive mappings usually have
+    // the same source, so the last one is remembered to avoid the lookup
+    private final Map<String, SourceId> sourceIds = new HashMap<>();
+    private String lastSource;
+    private Object lastIdentityObject;
+    private int lastSourceIndex = -1;
 
     private final List<String> orderedSources = new ArrayList<>();
     private final List<Supplier<Reader>> orderedSourceContentSuppliers = new ArrayList<>();
@@ -56,6 +54,7 @@ public class SourceMap3Builder implements SourceMapBuilder {
     private int previousPreviousSourceLine;
     private int previousPreviousSourceColumn;
     private boolean currentMappingIsEmpty = true;
+    private int skippedLines;
 
     public SourceMap3Builder(File generatedFile, TextOutput textOutput, String pathPrefix) {
         this.generatedFile = generatedFile;
@@ -70,56 +69,77 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
     @Override
     public String build() {
-        @SuppressWarnings("unchecked")
-        JsonObject json = new JsonObject();
-        json.getProperties().put("version", new JsonNumber(3));
-        json.getProperties().put("file", new JsonString(generatedFile.getName()));
-        appendSources(json);
-        appendSourcesContent(json);
-        json.getProperties().put("names", new JsonArray());
-        json.getProperties().put("mappings", new JsonString(out.toString()));
-        return json.toString();
+        StringWriter writer = new StringWriter(outLength + 1024);
+        try {
+            build(writer);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
-    private void appendSources(JsonObject json) {
-        JsonArray array = new JsonArray();
-        for (String source : orderedSources) {
-            array.getElements().add(new JsonString(pathPrefix + source));
+    // Writes the same JSON as a JsonObject would, but reads the contents of the sources one by one and doesn't copy the mappings
+    @Override
+    public void build(@NotNull Writer writer) throws IOException {
+        writer.append("{\"version\":3,\"file\":");
+        new JsonString(generatedFile.getName()).write(writer);
+
+        writer.append(",\"sources\":[");
+        for (int i = 0; i < orderedSources.size(); i++) {
+            if (i > 0) writer.append(',');
+            new JsonString(pathPrefix + orderedSources.get(i)).write(writer);
         }
-        json.getProperties().put("sources", array);
-    }
 
-    private void appendSourcesContent(JsonObject json) {
-        JsonArray array = new JsonArray();
-        for (Supplier<Reader> contentSupplier : orderedSourceContentSuppliers) {
-            Reader reader = contentSupplier.get();
-            array.getElements().add(reader != null ? new JsonString(TextStreamsKt.readText(reader)) : JsonNull.INSTANCE);
+        writer.append("],\"sourcesContent\":[");
+        for (int i = 0; i < orderedSourceContentSuppliers.size(); i++) {
+            if (i > 0) writer.append(',');
+            Reader reader = orderedSourceContentSuppliers.get(i).get();
+            (reader != null ? new JsonString(TextStreamsKt.readText(reader)) : JsonNull.INSTANCE).write(writer);
         }
-        json.getProperties().put("sourcesContent", array);
+
+        // Mappings consist of Base64 digits, ',' and ';' only, so they need no escaping
+        writer.append("],\"names\":[],\"mappings\":\"");
+        for (int i = 0; i < skippedLines; i++) {
+            writer.append(';');
+        }
+        writer.write(out, 0, outLength);
+        writer.append("\"}");
     }
 
     @Override
     public void newLine() {
-        out.append(';');
+        append(';');
         previousGeneratedColumn = -1;
     }
 
     @Override
     public void skipLinesAtBeginning(int count) {
-        out.insert(0, StringUtil.repeatSymbol(';', count));
+        skippedLines += count;
     }
 
     private int getSourceIndex(String source, Object identityObject, Supplier<Reader> contentSupplier) {
-        SourceKey key = new SourceKey(source, identityObject);
-        int sourceIndex = sources.get(key);
-        if (sourceIndex == -1) {
-            sourceIndex = orderedSources.size();
-            sources.put(key, sourceIndex);
-            orderedSources.add(source);
+        if (lastSourceIndex != -1 && source.equals(lastSource) && Objects.equals(identityObject, lastIdentityObject)) {
+            return lastSourceIndex;
+        }
+
+        String path = source.replace(File.separatorChar, '/');
+        SourceId first = sourceIds.get(path);
+        SourceId id = first;
+        while (id != null && !Objects.equals(identityObject, id.identityObject)) {
+            id = id.next;
+        }
+        if (id == null) {
+            id = new SourceId(identityObject, orderedSources.size(), first);
+            sourceIds.put(path, id);
+            orderedSources.add(path);
             orderedSourceContentSuppliers.add(contentSupplier);
         }
 
-        return sourceIndex;
+        lastSource = source;
+        lastIdentityObject = identityObject;
+        lastSourceIndex = id.index;
+        return id.index;
     }
 
     @Override
@@ -127,7 +147,6 @@ public class SourceMap3Builder implements SourceMapBuilder {
             @NotNull String source, @Nullable Object identityObject, @NotNull Supplier<Reader> sourceContent,
             int sourceLine, int sourceColumn
     ) {
-        source = source.replace(File.separatorChar, '/');
         int sourceIndex = getSourceIndex(source, identityObject, sourceContent);
 
         if (!currentMappingIsEmpty && previousSourceIndex == sourceIndex && previousSourceLine == sourceLine &&
@@ -137,13 +156,13 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
         startMapping();
 
-        Base64VLQ.encode(out, sourceIndex - previousSourceIndex);
+        encodeVLQ(sourceIndex - previousSourceIndex);
         previousSourceIndex = sourceIndex;
 
-        Base64VLQ.encode(out, sourceLine - previousSourceLine);
+        encodeVLQ(sourceLine - previousSourceLine);
         previousSourceLine = sourceLine;
 
-        Base64VLQ.encode(out, sourceColumn - previousSourceColumn);
+        encodeVLQ(sourceColumn - previousSourceColumn);
         previousSourceColumn = sourceColumn;
 
         currentMappingIsEmpty = false;
@@ -165,20 +184,20 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
         int columnDiff = textOutput.getColumn() - previousGeneratedColumn;
         if (!newGroupStarted) {
-            out.append(',');
+            append(',');
         }
 
         if (columnDiff > 0 || newGroupStarted) {
-            Base64VLQ.encode(out, columnDiff);
+            encodeVLQ(columnDiff);
             previousGeneratedColumn = textOutput.getColumn();
 
-            previousMappingOffset = out.length();
+            previousMappingOffset = outLength;
             previousPreviousSourceIndex = previousSourceIndex;
             previousPreviousSourceLine = previousSourceLine;
             previousPreviousSourceColumn = previousSourceColumn;
         }
         else {
-            out.setLength(previousMappingOffset);
+            outLength = previousMappingOffset;
             previousSourceIndex = previousPreviousSourceIndex;
             previousSourceLine = previousPreviousSourceLine;
             previousSourceColumn = previousPreviousSourceColumn;
@@ -192,68 +211,58 @@ public class SourceMap3Builder implements SourceMapBuilder {
         textOutput.print(".map\n");
     }
 
-    private static final class Base64VLQ {
-        // A Base64 VLQ digit can represent 5 bits, so it is base-32.
-        private static final int VLQ_BASE_SHIFT = 5;
-        private static final int VLQ_BASE = 1 << VLQ_BASE_SHIFT;
+    private void append(char c) {
+        if (outLength == out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        out[outLength++] = c;
+    }
 
-        // A mask of bits for a VLQ digit (11111), 31 decimal.
-        private static final int VLQ_BASE_MASK = VLQ_BASE - 1;
+    // A Base64 VLQ digit can represent 5 bits, so it is base-32.
+    private static final int VLQ_BASE_SHIFT = 5;
+    private static final int VLQ_BASE = 1 << VLQ_BASE_SHIFT;
 
-        // The continuation bit is the 6th bit.
-        private static final int VLQ_CONTINUATION_BIT = VLQ_BASE;
+    // A mask of bits for a VLQ digit (11111), 31 decimal.
+    private static final int VLQ_BASE_MASK = VLQ_BASE - 1;
 
-        @SuppressWarnings("SpellCheckingInspection")
-        private static final char[] BASE64_MAP = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    // The continuation bit is the 6th bit.
+    private static final int VLQ_CONTINUATION_BIT = VLQ_BASE;
 
-        private Base64VLQ() {
-        }
+    // An int takes at most 7 digits
+    private static final int VLQ_MAX_DIGITS = 7;
 
-        private static int toVLQSigned(int value) {
-            return value < 0 ? ((-value) << 1) + 1 : value << 1;
+    @SuppressWarnings("SpellCheckingInspection")
+    private static final char[] BASE64_MAP = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private void encodeVLQ(int value) {
+        if (outLength + VLQ_MAX_DIGITS > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + VLQ_MAX_DIGITS));
         }
 
-        public static void encode(StringBuilder out, int value) {
-            value = toVLQSigned(value);
-            do {
-                int digit = value & VLQ_BASE_MASK;
-                value >>>= VLQ_BASE_SHIFT;
-                if (value > 0) {
-                    digit |= VLQ_CONTINUATION_BIT;
-                }
-                out.append(BASE64_MAP[digit]);
+        value = value < 0 ? ((-value) << 1) + 1 : value << 1;
+        char[] out = this.out;
+        int length = outLength;
+        do {
+            int digit = value & VLQ_BASE_MASK;
+            value >>>= VLQ_BASE_SHIFT;
+            if (value > 0) {
+                digit |= VLQ_CONTINUATION_BIT;
             }
-            while (value > 0);
+            out[length++] = BASE64_MAP[digit];
         }
+        while (value > 0);
+        outLength = length;
     }
 
-    static final class SourceKey {
-        private final String sourcePath;
-        private final Object identityKey;
-
-        SourceKey(String sourcePath, Object identityKey) {
-            this.sourcePath = sourcePath;
-            this.identityKey = identityKey;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof SourceKey)) return false;
-
-            SourceKey key = (SourceKey) o;
-
-            if (!sourcePath.equals(key.sourcePath)) return false;
-            if (identityKey != null ? !identityKey.equals(key.identityKey) : key.identityKey != null) return false;
-
-            return true;
-        }
+    private static final class SourceId {
+        final Object identityObject;
+        final int index;
+        final SourceId next;
 
-        @Override
-        public int hashCode() {
-            int result = sourcePath.hashCode();
-            result = 31 * result + (identityKey != null ? identityKey.hashCode() : 0);
-            return result;
+        SourceId(Object identityObject, int index, SourceId next) {
+            this.identityObject = identityObject;
+            this.index = index;
+            this.next = next;
         }
     }
 }